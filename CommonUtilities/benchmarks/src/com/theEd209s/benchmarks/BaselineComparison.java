@@ -0,0 +1,273 @@
+package com.theEd209s.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import com.theEd209s.utils.CsvParser;
+import com.theEd209s.utils.StringUtils;
+
+/**
+ * This class compares the results of a run of the benchmarks against the
+ * baseline; both as written by JMH with <code>-rf csv</code>. <br />
+ * <br />
+ * Every benchmark, along with its parameters, is listed with its baseline
+ * and current scores and their 99.9% error; any which is slower than the
+ * baseline by more than the threshold, and whose error interval does not
+ * overlap that of the baseline, is flagged, and the process then exits with
+ * <code>1</code>. <br />
+ * The scores are only comparable if both runs were made on the same machine;
+ * which is why the baseline is kept beside the build output rather than with
+ * the source, and why the build is gated by a {@link ReferenceComparison}
+ * instead.
+ * */
+public class BaselineComparison
+{
+
+	/* PUBLIC METHODS */
+	/**
+	 * This method will compare the results against the baseline.
+	 *
+	 * @param args
+	 * The baseline CSV file, the results CSV file and, optionally, the
+	 * threshold; as a fraction of the baseline score, such as
+	 * <code>0.1</code>.
+	 *
+	 * @throws IOException
+	 * If either CSV file could not be read.
+	 * */
+	public static void main(final String[] args) throws IOException
+	{
+		if (args.length < 2)
+		{
+			System.err.println("Usage: BaselineComparison <baseline.csv> <results.csv> [threshold]");
+			System.exit(2);
+		}
+		final Map<String, Score> baseline = BaselineComparison.read(new File(args[0]));
+		final Map<String, Score> results = BaselineComparison.read(new File(args[1]));
+		final double threshold = (args.length > 2) ? Double.parseDouble(args[2]) : BaselineComparison.DEFAULT_THRESHOLD;
+		int regressions = 0;
+		for (Map.Entry<String, Score> result : results.entrySet())
+		{
+			final Score current = result.getValue();
+			final Score base = baseline.get(result.getKey());
+			if (base == null)
+			{
+				System.out.println(StringUtils.rpad(result.getKey(), BaselineComparison.NAME_WIDTH, " ", true) + String.format(Locale.ROOT, "%26s %14.3f +/- %-7.3f %s  (no baseline)", "-", current.score, current.error, current.unit));
+				continue;
+			}
+			final double change = current.getChange(base);
+			final boolean regressed = current.isSlowerThan(base, threshold);
+			if (regressed)
+			{
+				regressions++;
+			}
+			System.out.println(StringUtils.rpad(result.getKey(), BaselineComparison.NAME_WIDTH, " ", true) + String.format(Locale.ROOT, "%14.3f +/- %-7.3f %14.3f +/- %-7.3f %s %+7.1f%%%s", base.score, base.error, current.score, current.error, current.unit, change * 100.0, regressed ? "  REGRESSION" : ""));
+		}
+		if (regressions > 0)
+		{
+			System.out.println(regressions + " benchmarks are more than " + Math.round(threshold * 100.0) + "% slower than the baseline, beyond the error of either run.");
+			System.exit(1);
+		}
+	}
+
+	/* PACKAGE METHODS */
+	/**
+	 * This method will read the scores of a CSV file written by JMH.
+	 *
+	 * @param file
+	 * The CSV file.
+	 *
+	 * @return
+	 * The scores; keyed on the name of the benchmark and its parameters.
+	 *
+	 * @throws IOException
+	 * If the CSV file could not be read.
+	 * */
+	static Map<String, Score> read(final File file) throws IOException
+	{
+		final Map<String, Score> scores = new LinkedHashMap<String, Score>();
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+		try
+		{
+			final String[] header = CsvParser.parseLineS(reader.readLine());
+			String line = null;
+			while ((line = reader.readLine()) != null)
+			{
+				if (StringUtils.isNullOrEmpty(line))
+				{
+					continue;
+				}
+				final String[] pieces = CsvParser.parseLineS(line);
+				final StringBuilder key = new StringBuilder(pieces[0]);
+				for (int n = BaselineComparison.FIRST_PARAM_COLUMN; (n < pieces.length) && (n < header.length); n++)
+				{
+					if (!StringUtils.isNullOrEmpty(pieces[n]))
+					{
+						key.append(' ').append(header[n].substring(BaselineComparison.PARAM_PREFIX.length())).append('=').append(pieces[n]);
+					}
+				}
+				scores.put(key.toString(), new Score(pieces[1], Double.parseDouble(pieces[4]), BaselineComparison.parseError(pieces[5]), pieces[6]));
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+		return scores;
+	}
+
+	/* PRIVATE METHODS */
+	/**
+	 * This method will parse the <code>Score Error (99.9%)</code> column of a
+	 * CSV file written by JMH.
+	 *
+	 * @param error
+	 * The value of the column; JMH writes <code>NaN</code> when there were too
+	 * few samples to calculate it.
+	 *
+	 * @return
+	 * The half-width of the 99.9% confidence interval of the score; or
+	 * <code>0</code> if it is not known.
+	 * */
+	private static double parseError(final String error)
+	{
+		if (StringUtils.isNullOrEmpty(error))
+		{
+			return 0.0;
+		}
+		final double value = Double.parseDouble(error);
+		return (Double.isNaN(value) || Double.isInfinite(value)) ? 0.0 : value;
+	}
+
+	/**
+	 * This method will determine if the specified JMH mode is a throughput.
+	 *
+	 * @param mode
+	 * The JMH mode; such as <code>avgt</code> or <code>thrpt</code>.
+	 *
+	 * @return
+	 * <code>true</code> if a higher score is better.
+	 * */
+	private static boolean isThroughput(final String mode)
+	{
+		return "thrpt".equals(mode);
+	}
+
+	/* PACKAGE CLASSES */
+	/**
+	 * This class is the score of a single benchmark.
+	 * */
+	static class Score
+	{
+
+		/* CONSTRUCTORS */
+		/**
+		 * This will create a new instance of a {@link Score}.
+		 *
+		 * @param mode
+		 * The JMH mode.
+		 * @param score
+		 * The score.
+		 * @param error
+		 * The half-width of the 99.9% confidence interval of the score.
+		 * @param unit
+		 * The unit of the score.
+		 * */
+		private Score(final String mode, final double score, final double error, final String unit)
+		{
+			this.mode = mode;
+			this.score = score;
+			this.error = error;
+			this.unit = unit;
+		}
+
+		/* PACKAGE METHODS */
+		/**
+		 * This method will get how much slower this score is than the
+		 * specified one.
+		 *
+		 * @param other
+		 * The {@link Score} to compare against.
+		 *
+		 * @return
+		 * The change, as a fraction of the other score; positive if this
+		 * score is slower.
+		 * */
+		double getChange(final Score other)
+		{
+			// The scores of the throughput modes are better when higher; all of the others when lower.
+			if (BaselineComparison.isThroughput(this.mode))
+			{
+				return (other.score - this.score) / other.score;
+			}
+			return (this.score - other.score) / other.score;
+		}
+
+		/**
+		 * This method will determine if this score is slower than the
+		 * specified one by more than the threshold, beyond the error of
+		 * either.
+		 *
+		 * @param other
+		 * The {@link Score} to compare against.
+		 * @param threshold
+		 * The fraction of the other score by which this one may be slower.
+		 *
+		 * @return
+		 * <code>true</code> if this score is slower; <code>false</code> if not,
+		 * or if the two are in different units.
+		 * */
+		boolean isSlowerThan(final Score other, final double threshold)
+		{
+			// A change within the noise of either run is not a regression; however large it is.
+			final boolean separated = BaselineComparison.isThroughput(this.mode) ? ((this.score + this.error) < (other.score - other.error)) : ((this.score - this.error) > (other.score + other.error));
+			return (this.getChange(other) > threshold) && separated && other.unit.equals(this.unit);
+		}
+
+		/**
+		 * This method will format this score along with its error and unit.
+		 *
+		 * @return
+		 * The score; such as <code>254.984 +/- 14.481  us/op</code>.
+		 * */
+		String format()
+		{
+			return String.format(Locale.ROOT, "%14.3f +/- %-7.3f %s", this.score, this.error, this.unit);
+		}
+
+		/* PRIVATE VARIABLES */
+		private final String mode;
+		private final double score;
+		private final double error;
+		private final String unit;
+
+	}
+
+	/* PRIVATE CONSTANTS */
+	/**
+	 * The fraction of the baseline score by which a benchmark may be slower
+	 * before it is flagged, unless another is specified.
+	 * */
+	private static final double DEFAULT_THRESHOLD = 0.10;
+	/**
+	 * The index of the first column which holds a parameter of the benchmark.
+	 * */
+	private static final int FIRST_PARAM_COLUMN = 7;
+	/**
+	 * The prefix of the header of each column which holds a parameter.
+	 * */
+	private static final String PARAM_PREFIX = "Param: ";
+
+	/* PACKAGE CONSTANTS */
+	/**
+	 * The width which the names of the benchmarks are padded to.
+	 * */
+	static final int NAME_WIDTH = 100;
+
+}
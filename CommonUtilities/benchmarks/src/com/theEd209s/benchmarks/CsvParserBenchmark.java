@@ -0,0 +1,123 @@
+package com.theEd209s.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.theEd209s.benchmarks.StatCanFixtures.Shape;
+import com.theEd209s.utils.CsvParser;
+import com.theEd209s.utils.CsvTokenizer;
+
+/**
+ * This class benchmarks the splitting of a line into its columns by a
+ * {@link CsvParser}; both through an instance, via
+ * {@link CsvParser#parseLine(String)}, and through the static
+ * {@link CsvParser#parseLineS(String, char, boolean, boolean)}; and by a
+ * {@link CsvTokenizer}, via {@link CsvTokenizer#tokenize(CharSequence)},
+ * which splits the line by the same rules without creating a
+ * {@link String} for each column. <br />
+ * <br />
+ * Each invocation parses all {@link StatCanFixtures#LINE_COUNT} lines of the
+ * fixtures; so the score is the time per
+ * {@link StatCanFixtures#LINE_COUNT} lines.
+ * */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CsvParserBenchmark
+{
+
+	/* PUBLIC METHODS */
+	/**
+	 * This method will build the fixtures, the {@link CsvParser} and the
+	 * {@link CsvTokenizer}.
+	 * */
+	@Setup
+	public void setup()
+	{
+		this.lines = StatCanFixtures.lines(this.shape);
+		this.parser = new CsvParser(CsvParser.DEFAULT_SEPARATOR_CHAR, this.groupDuplicateRogueQuotes);
+		this.tokenizer = new CsvTokenizer(CsvParser.DEFAULT_SEPARATOR_CHAR, this.groupDuplicateRogueQuotes, false);
+	}
+
+	/**
+	 * This method will parse the lines through a {@link CsvParser} instance.
+	 *
+	 * @param blackhole
+	 * The {@link Blackhole} which consumes the columns.
+	 * */
+	@Benchmark
+	public void parseLine(final Blackhole blackhole)
+	{
+		for (String line : this.lines)
+		{
+			blackhole.consume(this.parser.parseLine(line));
+		}
+	}
+
+	/**
+	 * This method will parse the lines through the static method.
+	 *
+	 * @param blackhole
+	 * The {@link Blackhole} which consumes the columns.
+	 * */
+	@Benchmark
+	public void parseLineS(final Blackhole blackhole)
+	{
+		for (String line : this.lines)
+		{
+			blackhole.consume(CsvParser.parseLineS(line, CsvParser.DEFAULT_SEPARATOR_CHAR, this.groupDuplicateRogueQuotes, false));
+		}
+	}
+
+	/**
+	 * This method will split the lines through a {@link CsvTokenizer}.
+	 *
+	 * @param blackhole
+	 * The {@link Blackhole} which consumes the number of columns and the end
+	 * of the last of them.
+	 * */
+	@Benchmark
+	public void tokenize(final Blackhole blackhole)
+	{
+		for (String line : this.lines)
+		{
+			final int pieceCount = this.tokenizer.tokenize(line);
+			blackhole.consume(pieceCount);
+			blackhole.consume(this.tokenizer.getEnd(pieceCount - 1));
+		}
+	}
+
+	/* PUBLIC VARIABLES */
+	/**
+	 * The {@link Shape} of the lines which are parsed.
+	 * */
+	@Param({ "UNQUOTED", "QUOTED", "ROGUE_QUOTES" })
+	public Shape shape;
+	/**
+	 * <code>true</code> if any groups of 2 quotation marks are grouped
+	 * together when the column is not wrapped with the same quotation marks.
+	 * */
+	@Param({ "false", "true" })
+	public boolean groupDuplicateRogueQuotes;
+
+	/* PRIVATE VARIABLES */
+	private String[] lines = null;
+	private CsvParser parser = null;
+	private CsvTokenizer tokenizer = null;
+
+}
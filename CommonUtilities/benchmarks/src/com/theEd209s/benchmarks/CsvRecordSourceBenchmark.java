@@ -0,0 +1,245 @@
+package com.theEd209s.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.theEd209s.benchmarks.StatCanFixtures.Shape;
+import com.theEd209s.utils.CsvParser;
+import com.theEd209s.utils.CsvRecordReader;
+import com.theEd209s.utils.CsvRecordSource;
+import com.theEd209s.utils.MappedCsvReader;
+
+/**
+ * This class benchmarks the reading of a whole file of the fixtures through
+ * each kind of {@link CsvRecordSource}; the lines of a {@link java.io.Reader}
+ * through a {@link CsvRecordReader}, and the bytes of a memory-mapped file
+ * through a {@link MappedCsvReader}, with and without a projection of the
+ * columns. They are measured against the lines of a {@link java.io.Reader}
+ * split by a {@link CsvParser}; the way the data loaders read the files
+ * before there were any {@link CsvRecordSource}s. <br />
+ * <br />
+ * Each record has its reference date, geographical classification codes and
+ * value read through the typed getters; as a data loader reads them. Each
+ * invocation reads all {@link StatCanFixtures#LINE_COUNT} lines of the
+ * fixtures; so the score is the time per {@link StatCanFixtures#LINE_COUNT}
+ * lines.
+ *
+ * @see CsvParserBenchmark
+ * */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CsvRecordSourceBenchmark
+{
+
+	/* PUBLIC METHODS */
+	/**
+	 * This method will write the fixtures to a temporary file.
+	 *
+	 * @throws IOException
+	 * If the file could not be written.
+	 * */
+	@Setup
+	public void setup() throws IOException
+	{
+		final StringBuilder content = new StringBuilder();
+		for (String line : StatCanFixtures.lines(this.shape))
+		{
+			content.append(line).append('\n');
+		}
+		this.content = content.toString();
+		this.file = File.createTempFile("statCanFixtures", ".csv");
+		final OutputStream out = new FileOutputStream(this.file);
+		try
+		{
+			out.write(this.content.getBytes("UTF-8"));
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	/**
+	 * This method will delete the temporary file.
+	 * */
+	@TearDown
+	public void tearDown()
+	{
+		this.file.delete();
+	}
+
+	/**
+	 * This method will read the fixtures line by line, splitting each line
+	 * into a {@link String} per column with a {@link CsvParser} and parsing
+	 * the values from those {@link String}s; this is the reference which the
+	 * {@link CsvRecordSource}s must not be slower than.
+	 *
+	 * @param blackhole
+	 * The {@link Blackhole} which consumes the values.
+	 *
+	 * @throws IOException
+	 * If the fixtures could not be read.
+	 * */
+	@Benchmark
+	public void lineParser(final Blackhole blackhole) throws IOException
+	{
+		final BufferedReader reader = new BufferedReader(new StringReader(this.content));
+		try
+		{
+			final CsvParser parser = new CsvParser();
+			String line = null;
+			while ((line = reader.readLine()) != null)
+			{
+				final String[] pieces = parser.parseLine(line);
+				final String date = pieces[CsvRecordSourceBenchmark.DATE_COLUMN].trim();
+				final int separator = date.indexOf('/');
+				blackhole.consume((Integer.parseInt(date.substring(0, separator)) * 100) + Integer.parseInt(date.substring(separator + 1)));
+				for (String geoCode : pieces[CsvRecordSourceBenchmark.GEO_CODES_COLUMN].trim().split(","))
+				{
+					try
+					{
+						blackhole.consume(Integer.parseInt(geoCode));
+					}
+					catch (NumberFormatException nfe)
+					{
+						blackhole.consume(nfe);
+					}
+				}
+				blackhole.consume(Float.parseFloat(pieces[CsvRecordSourceBenchmark.VALUE_COLUMN].trim()));
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+
+	/**
+	 * This method will read the fixtures through a {@link CsvRecordReader}.
+	 *
+	 * @param blackhole
+	 * The {@link Blackhole} which consumes the values.
+	 *
+	 * @throws IOException
+	 * If the fixtures could not be read.
+	 * */
+	@Benchmark
+	public void recordReader(final Blackhole blackhole) throws IOException
+	{
+		this.read(new CsvRecordReader(new StringReader(this.content)), blackhole);
+	}
+
+	/**
+	 * This method will read the fixtures through a {@link MappedCsvReader}.
+	 *
+	 * @param blackhole
+	 * The {@link Blackhole} which consumes the values.
+	 *
+	 * @throws IOException
+	 * If the fixtures could not be read.
+	 * */
+	@Benchmark
+	public void mappedReader(final Blackhole blackhole) throws IOException
+	{
+		this.read(new MappedCsvReader(this.file), blackhole);
+	}
+
+	/**
+	 * This method will read the fixtures through a {@link MappedCsvReader}
+	 * which only copies the columns which are read.
+	 *
+	 * @param blackhole
+	 * The {@link Blackhole} which consumes the values.
+	 *
+	 * @throws IOException
+	 * If the fixtures could not be read.
+	 * */
+	@Benchmark
+	public void mappedReaderProjected(final Blackhole blackhole) throws IOException
+	{
+		final MappedCsvReader records = new MappedCsvReader(this.file);
+		records.setColumns(CsvRecordSourceBenchmark.DATE_COLUMN, CsvRecordSourceBenchmark.GEO_CODES_COLUMN, CsvRecordSourceBenchmark.VALUE_COLUMN);
+		this.read(records, blackhole);
+	}
+
+	/* PUBLIC VARIABLES */
+	/**
+	 * The {@link Shape} of the lines which are read.
+	 * */
+	@Param({ "UNQUOTED", "QUOTED", "ROGUE_QUOTES" })
+	public Shape shape;
+
+	/* PRIVATE METHODS */
+	/**
+	 * This method will read every record of the specified
+	 * {@link CsvRecordSource}; then close it.
+	 *
+	 * @param records
+	 * The {@link CsvRecordSource} to read.
+	 * @param blackhole
+	 * The {@link Blackhole} which consumes the values.
+	 *
+	 * @throws IOException
+	 * If the records could not be read.
+	 * */
+	private void read(final CsvRecordSource records, final Blackhole blackhole) throws IOException
+	{
+		try
+		{
+			while (records.next())
+			{
+				blackhole.consume(records.getYearMonth(CsvRecordSourceBenchmark.DATE_COLUMN, -1));
+				blackhole.consume(records.getInts(CsvRecordSourceBenchmark.GEO_CODES_COLUMN, ',', this.geoCodes));
+				blackhole.consume(records.getFloat(CsvRecordSourceBenchmark.VALUE_COLUMN, -1.0F));
+			}
+		}
+		finally
+		{
+			records.close();
+		}
+	}
+
+	/* PRIVATE CONSTANTS */
+	/**
+	 * The index of the column which holds the reference date.
+	 * */
+	private static final int DATE_COLUMN = 0;
+	/**
+	 * The index of the column which holds the geographical classification
+	 * codes.
+	 * */
+	private static final int GEO_CODES_COLUMN = 2;
+	/**
+	 * The index of the column which holds the value.
+	 * */
+	private static final int VALUE_COLUMN = 7;
+
+	/* PRIVATE VARIABLES */
+	private String content = null;
+	private File file = null;
+	private final int[] geoCodes = new int[8];
+
+}
@@ -0,0 +1,95 @@
+package com.theEd209s.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+
+import com.theEd209s.utils.StringUtils;
+
+/**
+ * This class compares the benchmarks of a single run against the reference
+ * benchmarks of the same run; such as the {@link com.theEd209s.utils.CsvTokenizer}
+ * against the {@link com.theEd209s.utils.CsvParser} it replaced. Both were
+ * measured on the same machine, by the same JVM, one after the other; so
+ * unlike a {@link BaselineComparison}, the comparison holds wherever it is
+ * run, and can gate the build. <br />
+ * <br />
+ * Each pair is written as <code>candidate:reference</code>, where each is the
+ * name of a benchmark method along with its class; such as
+ * <code>CsvParserBenchmark.tokenize:CsvParserBenchmark.parseLine</code>. Every
+ * result of the candidate is compared against the result of the reference
+ * with the same parameters; any which is slower than it by more than the
+ * threshold, and whose error interval does not overlap that of the
+ * reference, is flagged, and the process then exits with <code>1</code>.
+ * */
+public class ReferenceComparison
+{
+
+	/* PUBLIC METHODS */
+	/**
+	 * This method will compare the candidates against their references.
+	 *
+	 * @param args
+	 * The results CSV file, as written by JMH with <code>-rf csv</code>, the
+	 * threshold, as a fraction of the reference score, such as
+	 * <code>0.1</code>, and then the pairs to compare.
+	 *
+	 * @throws IOException
+	 * If the CSV file could not be read.
+	 * */
+	public static void main(final String[] args) throws IOException
+	{
+		if (args.length < 3)
+		{
+			System.err.println("Usage: ReferenceComparison <results.csv> <threshold> <candidate:reference>...");
+			System.exit(2);
+		}
+		final Map<String, BaselineComparison.Score> results = BaselineComparison.read(new File(args[0]));
+		final double threshold = Double.parseDouble(args[1]);
+		int comparisons = 0;
+		int regressions = 0;
+		for (int n = 2; n < args.length; n++)
+		{
+			final String[] pair = args[n].split(":");
+			if (pair.length != 2)
+			{
+				System.err.println("The pair '" + args[n] + "' is not written as candidate:reference.");
+				System.exit(2);
+			}
+			final String candidate = "." + pair[0].trim();
+			for (Map.Entry<String, BaselineComparison.Score> result : results.entrySet())
+			{
+				// The key is the full name of the benchmark, followed by its parameters.
+				final int nameEnd = (result.getKey().indexOf(' ') < 0) ? result.getKey().length() : result.getKey().indexOf(' ');
+				final String name = result.getKey().substring(0, nameEnd);
+				if (!name.endsWith(candidate))
+				{
+					continue;
+				}
+				final String referenceKey = name.substring(0, name.length() - candidate.length()) + "." + pair[1].trim() + result.getKey().substring(nameEnd);
+				final BaselineComparison.Score reference = results.get(referenceKey);
+				if (reference == null)
+				{
+					System.out.println(StringUtils.rpad(result.getKey(), BaselineComparison.NAME_WIDTH, " ", true) + "  (no reference)");
+					continue;
+				}
+				final BaselineComparison.Score current = result.getValue();
+				final boolean regressed = current.isSlowerThan(reference, threshold);
+				comparisons++;
+				if (regressed)
+				{
+					regressions++;
+				}
+				System.out.println(StringUtils.rpad(result.getKey(), BaselineComparison.NAME_WIDTH, " ", true) + reference.format() + current.format() + String.format(Locale.ROOT, " %+7.1f%%%s", current.getChange(reference) * 100.0, regressed ? "  SLOWER" : ""));
+			}
+		}
+		System.out.println(comparisons + " benchmarks were compared against their reference.");
+		if (regressions > 0)
+		{
+			System.out.println(regressions + " benchmarks are more than " + Math.round(threshold * 100.0) + "% slower than their reference, beyond the error of either.");
+			System.exit(1);
+		}
+	}
+
+}
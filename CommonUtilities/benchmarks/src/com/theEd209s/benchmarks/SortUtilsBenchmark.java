@@ -0,0 +1,79 @@
+package com.theEd209s.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.theEd209s.utils.SortUtils;
+
+/**
+ * This class benchmarks {@link SortUtils#sortDesc(java.util.Collection)} on
+ * the rental rates of a set of lines; as they would be ranked, highest
+ * first.
+ * */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortUtilsBenchmark
+{
+
+	/* PUBLIC METHODS */
+	/**
+	 * This method will build the rates which are sorted.
+	 * */
+	@Setup
+	public void setup()
+	{
+		final Random random = new Random(SortUtilsBenchmark.SEED);
+		this.rates = new ArrayList<Float>(this.size);
+		for (int n = 0; n < this.size; n++)
+		{
+			this.rates.add(Float.valueOf(random.nextInt(30000) / 10.0F));
+		}
+	}
+
+	/**
+	 * This method will sort the rates in descending order.
+	 *
+	 * @return
+	 * The sorted rates.
+	 * */
+	@Benchmark
+	public List<Float> sortDesc()
+	{
+		return SortUtils.sortDesc(this.rates);
+	}
+
+	/* PUBLIC VARIABLES */
+	/**
+	 * The number of rates which are sorted.
+	 * */
+	@Param({ "100", "10000" })
+	public int size;
+
+	/* PRIVATE CONSTANTS */
+	/**
+	 * The seed which the rates are built from.
+	 * */
+	private static final long SEED = 20131104L;
+
+	/* PRIVATE VARIABLES */
+	private List<Float> rates = null;
+
+}
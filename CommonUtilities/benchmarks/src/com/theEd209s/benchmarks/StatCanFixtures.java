@@ -0,0 +1,118 @@
+package com.theEd209s.benchmarks;
+
+import java.util.Random;
+
+/**
+ * This class builds the lines which the benchmarks parse; shaped like the
+ * StatCan CANSIM extracts which the data loaders download, such as:
+ * <ul>
+ * <li><code>2013/04,Canada,"35535,35537",Row apartments,Bachelor,"A",x,0.0</code></li>
+ * </ul>
+ * The lines are built from a fixed seed, so every run of the benchmarks
+ * parses exactly the same lines.
+ * */
+public class StatCanFixtures
+{
+
+	/* PUBLIC CONSTANTS */
+	/**
+	 * The number of lines in each set of fixtures.
+	 * */
+	public static final int LINE_COUNT = 1024;
+
+	/* PUBLIC METHODS */
+	/**
+	 * This method will build a set of lines of the specified shape.
+	 *
+	 * @param shape
+	 * The {@link Shape} of the lines.
+	 *
+	 * @return
+	 * The lines; {@link StatCanFixtures#LINE_COUNT} of them.
+	 * */
+	public static String[] lines(final Shape shape)
+	{
+		final Random random = new Random(StatCanFixtures.SEED);
+		final String[] lines = new String[StatCanFixtures.LINE_COUNT];
+		final StringBuilder line = new StringBuilder(128);
+		for (int n = 0; n < lines.length; n++)
+		{
+			line.setLength(0);
+			final String[] geography = StatCanFixtures.GEOGRAPHIES[random.nextInt(StatCanFixtures.GEOGRAPHIES.length)];
+			line.append(2000 + random.nextInt(14)).append('/').append(StatCanFixtures.MONTHS[random.nextInt(StatCanFixtures.MONTHS.length)]).append(',');
+			switch (shape)
+			{
+				case UNQUOTED:
+					line.append(geography[0].replace(",", "")).append(',');
+					line.append(geography[1].replace(',', ' ')).append(',');
+					break;
+				case QUOTED:
+				case ROGUE_QUOTES:
+					line.append('"').append(geography[0]).append("\",");
+					line.append('"').append(geography[1]).append("\",");
+					break;
+			}
+			line.append(StatCanFixtures.BUILDING_TYPES[random.nextInt(StatCanFixtures.BUILDING_TYPES.length)]).append(',');
+			if (shape == Shape.ROGUE_QUOTES)
+			{
+				// Footnotes in the unit column, such as 2" wide, and doubled quotes left over from a bad export.
+				line.append(StatCanFixtures.UNIT_TYPES[random.nextInt(StatCanFixtures.UNIT_TYPES.length)]).append(" 2\" ").append("\"\"note\"\"").append(',');
+			}
+			else
+			{
+				line.append(StatCanFixtures.UNIT_TYPES[random.nextInt(StatCanFixtures.UNIT_TYPES.length)]).append(',');
+			}
+			line.append((shape == Shape.UNQUOTED) ? "A" : "\"A\"").append(',');
+			line.append('x').append(',');
+			line.append(random.nextInt(3000)).append('.').append(random.nextInt(10));
+			lines[n] = line.toString();
+		}
+		return lines;
+	}
+
+	/* PUBLIC CLASSES */
+	/**
+	 * This enum is the shape of the lines which are built.
+	 * */
+	public static enum Shape
+	{
+		/**
+		 * None of the columns are wrapped with quotation marks.
+		 * */
+		UNQUOTED,
+		/**
+		 * The text columns are wrapped with quotation marks, as the StatCan
+		 * extracts are; some of them contain the separator.
+		 * */
+		QUOTED,
+		/**
+		 * As {@link Shape#QUOTED}, but the unit column also contains a rogue
+		 * quotation mark and a pair of doubled quotation marks.
+		 * */
+		ROGUE_QUOTES;
+	}
+
+	/* PRIVATE CONSTANTS */
+	/**
+	 * The seed which the lines are built from.
+	 * */
+	private static final long SEED = 20131104L;
+	/**
+	 * The months, as they are written in the reference dates.
+	 * */
+	private static final String[] MONTHS = { "01", "02", "03", "04", "05", "06", "07", "08", "09", "10", "11", "12" };
+	/**
+	 * The geographies; each is a name and its geographical classification
+	 * codes.
+	 * */
+	private static final String[][] GEOGRAPHIES = { { "Canada", "" }, { "Toronto, Ontario", "35535" }, { "Ottawa-Gatineau, Ontario part, Ontario/Quebec", "35505,24505" }, { "Montr\u00e9al, Quebec", "24462" }, { "Vancouver, British Columbia", "59933" }, { "Calgary, Alberta", "48825" }, { "Halifax, Nova Scotia", "12205" }, { "Kitchener-Cambridge-Waterloo, Ontario", "35541,35537" }, { "Saint John, New Brunswick", "13310" }, { "Trois-Rivi\u00e8res, Quebec", "24442" } };
+	/**
+	 * The building types; as they are written in the rental rates.
+	 * */
+	private static final String[] BUILDING_TYPES = { "Row and apartment structures of three units and over", "Row apartments", "Apartment structures of three units and over", "Apartment structures of six units and over" };
+	/**
+	 * The unit types; as they are written in the rental rates.
+	 * */
+	private static final String[] UNIT_TYPES = { "Bachelor units", "One bedroom units", "Two bedroom units", "Three bedroom units" };
+
+}
@@ -0,0 +1,227 @@
+package com.theEd209s.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.theEd209s.benchmarks.StatCanFixtures.Shape;
+import com.theEd209s.utils.CsvTokenizer;
+import com.theEd209s.utils.StringUtils;
+
+/**
+ * This class benchmarks the padding and formatting methods of
+ * {@link StringUtils}; on the values the data loaders and their logs work
+ * with, such as geographical classification codes and elapsed load times.
+ * It also benchmarks the parsing of the numeric columns of the
+ * {@link StatCanFixtures} by {@link StringUtils#parseInt(char[], int, int, int)
+ * parseInt(char[], int, int, int)} and
+ * {@link StringUtils#parseFloat(char[], int, int, float) parseFloat(char[],
+ * int, int, float)}; against {@link Integer#parseInt(String)} and
+ * {@link Float#parseFloat(String)}, which they replaced in the data loaders.
+ * <br />
+ * <br />
+ * Each invocation formats all {@link StringUtilsBenchmark#VALUE_COUNT} values,
+ * or parses the column of all {@link StatCanFixtures#LINE_COUNT} lines; so the
+ * score is the time per {@link StringUtilsBenchmark#VALUE_COUNT} values, or
+ * per {@link StatCanFixtures#LINE_COUNT} lines.
+ * */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringUtilsBenchmark
+{
+
+	/* PUBLIC CONSTANTS */
+	/**
+	 * The number of values which are formatted by each invocation.
+	 * */
+	public static final int VALUE_COUNT = 256;
+
+	/* PUBLIC METHODS */
+	/**
+	 * This method will build the values which are formatted, and split the
+	 * columns which are parsed out of the fixtures.
+	 * */
+	@Setup
+	public void setup()
+	{
+		this.codes = new String[StringUtilsBenchmark.VALUE_COUNT];
+		this.elapsedTimes = new long[StringUtilsBenchmark.VALUE_COUNT];
+		for (int n = 0; n < StringUtilsBenchmark.VALUE_COUNT; n++)
+		{
+			// The geographical classification codes are 2 to 7 digits long.
+			this.codes[n] = Integer.toString((n * 7919) % (1 << (4 + (n % 16))));
+			// From a few milliseconds up to a few days.
+			this.elapsedTimes[n] = (n * 104729L * 1013L) % (3L * 24L * 60L * 60L * 1000L);
+		}
+		final String[] lines = StatCanFixtures.lines(Shape.QUOTED);
+		final CsvTokenizer tokenizer = new CsvTokenizer();
+		this.geoCodes = new char[lines.length][];
+		this.values = new char[lines.length][];
+		for (int n = 0; n < lines.length; n++)
+		{
+			tokenizer.tokenize(lines[n]);
+			// The first of the geographical classification codes; which is empty for Canada.
+			final String geoCodes = tokenizer.getString(StringUtilsBenchmark.GEO_CODES_COLUMN);
+			final int separator = geoCodes.indexOf(',');
+			this.geoCodes[n] = ((separator < 0) ? geoCodes : geoCodes.substring(0, separator)).toCharArray();
+			this.values[n] = tokenizer.getString(StringUtilsBenchmark.VALUE_COLUMN).toCharArray();
+		}
+	}
+
+	/**
+	 * This method will left pad each of the codes.
+	 *
+	 * @param blackhole
+	 * The {@link Blackhole} which consumes the padded codes.
+	 * */
+	@Benchmark
+	public void lpad(final Blackhole blackhole)
+	{
+		for (String code : this.codes)
+		{
+			blackhole.consume(StringUtils.lpad(code, 7, "0", true));
+		}
+	}
+
+	/**
+	 * This method will right pad each of the codes.
+	 *
+	 * @param blackhole
+	 * The {@link Blackhole} which consumes the padded codes.
+	 * */
+	@Benchmark
+	public void rpad(final Blackhole blackhole)
+	{
+		for (String code : this.codes)
+		{
+			blackhole.consume(StringUtils.rpad(code, 12, " .", true));
+		}
+	}
+
+	/**
+	 * This method will format each of the elapsed times.
+	 *
+	 * @param blackhole
+	 * The {@link Blackhole} which consumes the formatted times.
+	 *
+	 * @throws Exception
+	 * If an elapsed time could not be formatted.
+	 * */
+	@Benchmark
+	public void humanReadableElapsedTime(final Blackhole blackhole) throws Exception
+	{
+		for (long elapsedTime : this.elapsedTimes)
+		{
+			blackhole.consume(StringUtils.humanReadableElapsedTime(elapsedTime));
+		}
+	}
+
+	/**
+	 * This method will parse the geographical classification code of each
+	 * line.
+	 *
+	 * @param blackhole
+	 * The {@link Blackhole} which consumes the codes.
+	 * */
+	@Benchmark
+	public void parseInt(final Blackhole blackhole)
+	{
+		for (char[] geoCode : this.geoCodes)
+		{
+			blackhole.consume(StringUtils.parseInt(geoCode, 0, geoCode.length, -1));
+		}
+	}
+
+	/**
+	 * This method will parse the geographical classification code of each
+	 * line through {@link Integer#parseInt(String)}; as the data loaders did.
+	 *
+	 * @param blackhole
+	 * The {@link Blackhole} which consumes the codes.
+	 * */
+	@Benchmark
+	public void integerParseInt(final Blackhole blackhole)
+	{
+		for (char[] geoCode : this.geoCodes)
+		{
+			try
+			{
+				blackhole.consume(Integer.parseInt(new String(geoCode)));
+			}
+			catch (NumberFormatException nfe)
+			{
+				blackhole.consume(-1);
+			}
+		}
+	}
+
+	/**
+	 * This method will parse the value of each line.
+	 *
+	 * @param blackhole
+	 * The {@link Blackhole} which consumes the values.
+	 * */
+	@Benchmark
+	public void parseFloat(final Blackhole blackhole)
+	{
+		for (char[] value : this.values)
+		{
+			blackhole.consume(StringUtils.parseFloat(value, 0, value.length, -1.0F));
+		}
+	}
+
+	/**
+	 * This method will parse the value of each line through
+	 * {@link Float#parseFloat(String)}; as the data loaders did.
+	 *
+	 * @param blackhole
+	 * The {@link Blackhole} which consumes the values.
+	 * */
+	@Benchmark
+	public void floatParseFloat(final Blackhole blackhole)
+	{
+		for (char[] value : this.values)
+		{
+			try
+			{
+				blackhole.consume(Float.parseFloat(new String(value)));
+			}
+			catch (NumberFormatException nfe)
+			{
+				blackhole.consume(-1.0F);
+			}
+		}
+	}
+
+	/* PRIVATE CONSTANTS */
+	/**
+	 * The index of the column of the fixtures which holds the geographical
+	 * classification codes.
+	 * */
+	private static final int GEO_CODES_COLUMN = 2;
+	/**
+	 * The index of the column of the fixtures which holds the value.
+	 * */
+	private static final int VALUE_COLUMN = 7;
+
+	/* PRIVATE VARIABLES */
+	private String[] codes = null;
+	private long[] elapsedTimes = null;
+	private char[][] geoCodes = null;
+	private char[][] values = null;
+
+}
@@ -1,5 +1,6 @@
 package com.theEd209s;
 
+import com.theEd209s.utils.DownloadUtils;
 import com.theEd209s.utils.ShutdownRequestedUtils;
 
 /**
@@ -13,12 +14,18 @@ public class Constants
 	
 	/* DOWNLOADING SETTINGS */
 	/**
-	 * This will store the number of bytes that must be written before a flush
-	 * will occur using the
-	 * {@link ShutdownRequestedUtils#downloadFile(Logger, URL, File, String, int, int, int, boolean)
-	 * downloadFile(Logger, URL, File, String, int, int, int, boolean)} method.
+	 * This will store the number of bytes that will be gathered in memory
+	 * before they are written to the file using the
+	 * {@link DownloadUtils.Downloader Downloader}; the diminishing buffer size
+	 * only limits how many are read at once.
+	 * */
+	public static final int DOWNLOAD_FILE_TRANSFER_BUFFER_SIZE = 256 * 1024;
+	/**
+	 * This will store the smallest number of bytes that each connection of a segmented
+	 * {@link DownloadUtils.Downloader Downloader} will fetch; a smaller file is split
+	 * over fewer connections.
 	 * */
-	public static final int DOWNLOAD_FILE_FLUSH_THRESHOLD = 5 * 1025;
+	public static final long DOWNLOAD_FILE_MIN_SEGMENT_SIZE = 1024L * 1024L;
 	/**
 	 * This will store the number of bytes that must be written before an update
 	 * of the GUI will occur using the
@@ -50,6 +57,16 @@ public class Constants
 	 * downloadFile(Logger, URL, File, String, int, int, int, boolean)} method.
 	 * */
 	public static final int DOWNLOAD_FILE_INITIAL_BUFFER_SIZE_DEFAULT = 5 * 1024 * 1024;
+	/**
+	 * This will store the number of milliseconds to wait, at most, before the first retry of a
+	 * file that fails to download; the wait doubles with each further retry.
+	 * */
+	public static final long DOWNLOAD_FILE_RETRY_DELAY_INITIAL = 500L;
+	/**
+	 * This will store the largest number of milliseconds to wait before any retry of a file
+	 * that fails to download.
+	 * */
+	public static final long DOWNLOAD_FILE_RETRY_DELAY_MAX = 30000L;
 	/**
 	 * This will store the total number of milliseconds that can pass before a connection must be made.
 	 * */
@@ -1,10 +1,12 @@
 package com.theEd209s.utils;
 
-import java.util.ArrayList;
-
 /**
  * This class contains several methods which can be used to parse the contents
- * of a CSV formatted {@link String}.
+ * of a CSV formatted {@link String}. <br />
+ * <br />
+ * The lines are split by a {@link CsvTokenizer} which each thread reuses, so
+ * several threads can parse at the same time; callers which do not need every
+ * piece as a {@link String} can use a {@link CsvTokenizer} directly.
  * 
  * @author Matthew Weiler
  * */
@@ -266,175 +268,22 @@ public class CsvParser
 	 *            <code>true</code> if the contents of each piece should be
 	 *            trimmed of any white-space surrounding it.
 	 * */
-	public static synchronized String[] parseLineS(final String line, char separatorChar, final boolean groupDuplicateRogueQuotes, final boolean trimPieces)
+	public static String[] parseLineS(final String line, char separatorChar, final boolean groupDuplicateRogueQuotes, final boolean trimPieces)
 	{
-		final ArrayList<String> pieces = new ArrayList<String>()
-		{
-			
-			private static final long serialVersionUID = 1L;
-			
-			@Override
-			public boolean add(String e)
-			{
-				if (trimPieces && (e != null))
-				{
-					e = e.trim();
-				}
-				return super.add(e);
-			}
-			
-		};
-		
 		if ((separatorChar == CsvParser.QUOTE_CHAR_SINGLE) || (separatorChar == CsvParser.QUOTE_CHAR_DOUBLE))
 		{
 			separatorChar = CsvParser.DEFAULT_SEPARATOR_CHAR;
 		}
 		
-		QuoteMode quoteMode = null;
-		QuoteMode currentPieceQuoteMode = null;
-		StringBuilder tmpPiece = new StringBuilder();
-		
-		int n = 0;
-		while (n < line.length())
-		{
-			char c = line.charAt(n);
-			char c_next = CsvParser.EMPTY_CHAR;
-			if (line.length() > (n + 1))
-			{
-				c_next = line.charAt(n + 1);
-			}
-			
-			// If we find an instance of a separator character and we're not currently in quote mode, then consider this the end of this piece.
-			if ((quoteMode == null) && (c == separatorChar))
-			{
-				String tmpPieceStr = tmpPiece.toString();
-				if (currentPieceQuoteMode != null)
-				{
-					if (currentPieceQuoteMode.getQuoteChar() == CsvParser.QUOTE_CHAR_SINGLE)
-					{
-						tmpPieceStr = tmpPieceStr.replace("" + CsvParser.QUOTE_CHAR_SINGLE + CsvParser.QUOTE_CHAR_SINGLE, "" + CsvParser.QUOTE_CHAR_SINGLE);
-						if (groupDuplicateRogueQuotes)
-						{
-							tmpPieceStr = tmpPieceStr.replace("" + CsvParser.QUOTE_CHAR_DOUBLE + CsvParser.QUOTE_CHAR_DOUBLE, "" + CsvParser.QUOTE_CHAR_DOUBLE);
-						}
-					}
-					else if (currentPieceQuoteMode.getQuoteChar() == CsvParser.QUOTE_CHAR_DOUBLE)
-					{
-						tmpPieceStr = tmpPieceStr.replace("" + CsvParser.QUOTE_CHAR_DOUBLE + CsvParser.QUOTE_CHAR_DOUBLE, "" + CsvParser.QUOTE_CHAR_DOUBLE);
-						if (groupDuplicateRogueQuotes)
-						{
-							tmpPieceStr = tmpPieceStr.replace("" + CsvParser.QUOTE_CHAR_SINGLE + CsvParser.QUOTE_CHAR_SINGLE, "" + CsvParser.QUOTE_CHAR_SINGLE);
-						}
-					}
-				}
-				else if (groupDuplicateRogueQuotes)
-				{
-					tmpPieceStr = tmpPieceStr.replace("" + CsvParser.QUOTE_CHAR_SINGLE + CsvParser.QUOTE_CHAR_SINGLE, "" + CsvParser.QUOTE_CHAR_SINGLE).replace("" + CsvParser.QUOTE_CHAR_DOUBLE + CsvParser.QUOTE_CHAR_DOUBLE, "" + CsvParser.QUOTE_CHAR_DOUBLE);
-				}
-				pieces.add(tmpPieceStr);
-				tmpPiece = new StringBuilder();
-				quoteMode = null;
-				currentPieceQuoteMode = null;
-			}
-			else
-			{
-				// If we haven't extracted anything yet from this piece, we're not in quote mode, the current character is a quote character and the following character is not the same quote character, then we know that this is the opening quote for this piece.
-				if ((tmpPiece.length() == 0) && (quoteMode == null) && ((CsvParser.QUOTE_CHAR_DOUBLE == c) || (CsvParser.QUOTE_CHAR_SINGLE == c)))
-				{
-					quoteMode = QuoteMode.determineQuoteMode(c);
-					currentPieceQuoteMode = QuoteMode.determineQuoteMode(c);
-				}
-				else
-				{
-					// If we're not in quote mode, the current character is a quote character and the following character is the same quote character, then we know that an instance of the current quote character is to be added to this piece.
-					if (groupDuplicateRogueQuotes && (quoteMode == null) && ((CsvParser.QUOTE_CHAR_DOUBLE == c) || (CsvParser.QUOTE_CHAR_SINGLE == c)) && (c == c_next))
-					{
-						tmpPiece.append(c).append(c_next);
-						n++;
-					}
-					// If we're currently in quote mode and the current character is the same quote character as the enclosing quotes, then check deeper.
-					else if (quoteMode != null)
-					{
-						if ((CsvParser.QUOTE_CHAR_DOUBLE == c) || (CsvParser.QUOTE_CHAR_SINGLE == c))
-						{
-							// If the next character is the same quote character as the current, then check deeper.
-							if (c == c_next)
-							{
-								// If the current character is the same quote character as the enclosing quotes, then an instance of the current quote character is to be added to this piece.
-								if (groupDuplicateRogueQuotes || (quoteMode.getQuoteChar() == c))
-								{
-									tmpPiece.append(c).append(c_next);
-									n++;
-								}
-								else
-								{
-									tmpPiece.append(c);
-								}
-							}
-							else
-							{
-								if (quoteMode.getQuoteChar() == c)
-								{
-									quoteMode = null;
-									// If the next character is not an empty character or a separating character, then the current character is just another character in the string.
-									if ((c_next != CsvParser.EMPTY_CHAR) && (c_next != separatorChar))
-									{
-										tmpPiece = new StringBuilder(c + tmpPiece.toString());
-										tmpPiece.append(c);
-									}
-								}
-								else
-								{
-									tmpPiece.append(c);
-								}
-							}
-						}
-						else
-						{
-							tmpPiece.append(c);
-						}
-					}
-					else
-					{
-						tmpPiece.append(c);
-					}
-				}
-			}
-			n++;
-		}
-		// If the current piece began with a quote, but that quote never got closed, the starting quote was not supposed to be a quote.
-		if (quoteMode != null)
-		{
-			tmpPiece = new StringBuilder(quoteMode.getQuoteChar() + tmpPiece.toString());
-			quoteMode = null;
-			currentPieceQuoteMode = null;
-		}
-		String tmpPieceStr = tmpPiece.toString();
-		if (currentPieceQuoteMode != null)
+		// Each thread reuses its own tokenizer, so the lines are parsed without locking and without re-allocating the buffers.
+		CsvTokenizer tokenizer = CsvParser.TOKENIZERS.get();
+		if ((tokenizer == null) || (tokenizer.getSeparatorChar() != separatorChar) || (tokenizer.isGroupDuplicateRogueQuotes() != groupDuplicateRogueQuotes) || (tokenizer.isTrimPieces() != trimPieces))
 		{
-			if (currentPieceQuoteMode.getQuoteChar() == CsvParser.QUOTE_CHAR_SINGLE)
-			{
-				tmpPieceStr = tmpPieceStr.replace("" + CsvParser.QUOTE_CHAR_SINGLE + CsvParser.QUOTE_CHAR_SINGLE, "" + CsvParser.QUOTE_CHAR_SINGLE);
-				if (groupDuplicateRogueQuotes)
-				{
-					tmpPieceStr = tmpPieceStr.replace("" + CsvParser.QUOTE_CHAR_DOUBLE + CsvParser.QUOTE_CHAR_DOUBLE, "" + CsvParser.QUOTE_CHAR_DOUBLE);
-				}
-			}
-			else if (currentPieceQuoteMode.getQuoteChar() == CsvParser.QUOTE_CHAR_DOUBLE)
-			{
-				tmpPieceStr = tmpPieceStr.replace("" + CsvParser.QUOTE_CHAR_DOUBLE + CsvParser.QUOTE_CHAR_DOUBLE, "" + CsvParser.QUOTE_CHAR_DOUBLE);
-				if (groupDuplicateRogueQuotes)
-				{
-					tmpPieceStr = tmpPieceStr.replace("" + CsvParser.QUOTE_CHAR_SINGLE + CsvParser.QUOTE_CHAR_SINGLE, "" + CsvParser.QUOTE_CHAR_SINGLE);
-				}
-			}
+			tokenizer = new CsvTokenizer(separatorChar, groupDuplicateRogueQuotes, trimPieces);
+			CsvParser.TOKENIZERS.set(tokenizer);
 		}
-		else if (groupDuplicateRogueQuotes)
-		{
-			tmpPieceStr = tmpPieceStr.replace("" + CsvParser.QUOTE_CHAR_SINGLE + CsvParser.QUOTE_CHAR_SINGLE, "" + CsvParser.QUOTE_CHAR_SINGLE).replace("" + CsvParser.QUOTE_CHAR_DOUBLE + CsvParser.QUOTE_CHAR_DOUBLE, "" + CsvParser.QUOTE_CHAR_DOUBLE);
-		}
-		pieces.add(tmpPieceStr);
-		return pieces.toArray(new String[pieces.size()]);
+		tokenizer.tokenize(line);
+		return tokenizer.toStrings();
 	}
 	
 	/* GETTERS & SETTERS */
@@ -507,6 +356,13 @@ public class CsvParser
 		this.trimPieces = trimPieces;
 	}
 	
+	/* PRIVATE CONSTANTS */
+	/**
+	 * This will store the {@link CsvTokenizer} of each thread; which is
+	 * replaced whenever a thread parses with a different configuration.
+	 * */
+	private static final ThreadLocal<CsvTokenizer> TOKENIZERS = new ThreadLocal<CsvTokenizer>();
+	
 	/* PRIVATE VARIABLES */
 	/**
 	 * This will store the character to be used as the separator between pieces. <br />
@@ -530,70 +386,4 @@ public class CsvParser
 	 * */
 	private boolean trimPieces = false;
 	
-	/* PRIVATE ENUMS */
-	/**
-	 * This enum contains all possible quotation marks.
-	 * */
-	private static enum QuoteMode
-	{
-		/**
-		 * A single-line quotation mark.
-		 * */
-		SINGLE('\''),
-		/**
-		 * A double-line quotation mark.
-		 * */
-		DOUBLE('"');
-		
-		/* PRIVATE CONSTRUCTORS */
-		/**
-		 * This will create a new instance of a {@link QuoteMode}.
-		 * 
-		 * @param quoteChar
-		 *            The quotation mark character.
-		 * */
-		private QuoteMode(final char quoteChar)
-		{
-			this.quoteChar = quoteChar;
-		}
-		
-		/* PUBLIC METHODS */
-		/**
-		 * This will return the correct type of {@link QuoteMode} enum value for
-		 * the given quotation mark character.
-		 * 
-		 * @return The correct type of {@link QuoteMode} enum value for the
-		 *         given quotation mark character.
-		 * */
-		public static QuoteMode determineQuoteMode(final char quoteChar)
-		{
-			for (QuoteMode quoteMode : QuoteMode.values())
-			{
-				if (quoteMode.getQuoteChar() == quoteChar)
-				{
-					return quoteMode;
-				}
-			}
-			return null;
-		}
-		
-		/* GETTERS & SETTERS */
-		/**
-		 * This will get the quotation mark character.
-		 * 
-		 * @return The quotation mark character.
-		 * */
-		public char getQuoteChar()
-		{
-			return this.quoteChar;
-		}
-		
-		/* PRIVATE VARIABLES */
-		/**
-		 * The quotation mark character.
-		 * */
-		private char quoteChar;
-		
-	}
-	
 }
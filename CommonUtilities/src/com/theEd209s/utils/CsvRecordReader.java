@@ -0,0 +1,168 @@
+package com.theEd209s.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * This class will read the records of a CSV file from a {@link Reader}; one
+ * record per line. <br />
+ * <br />
+ * Each call to {@link CsvRecordReader#next()} reads and tokenizes the next
+ * line which is not empty, via a {@link CsvTokenizer}; the columns of that
+ * line can then be read by their index, as described by
+ * {@link CsvRecordSource}. <br />
+ * A byte order mark at the start of the first line is skipped. <br />
+ * <br />
+ * This class is not thread-safe.
+ * */
+public class CsvRecordReader extends CsvRecordSource
+{
+
+	/* CONSTRUCTORS */
+	/**
+	 * This will create a new instance of a {@link CsvRecordReader} using a
+	 * default {@link CsvTokenizer}; the same rules as a default
+	 * {@link CsvParser}.
+	 *
+	 * @param reader
+	 * The {@link Reader} to read the CSV file from.
+	 * */
+	public CsvRecordReader(final Reader reader)
+	{
+		this(reader, new CsvTokenizer());
+	}
+
+	/**
+	 * This will create a new instance of a {@link CsvRecordReader}.
+	 *
+	 * @param reader
+	 * The {@link Reader} to read the CSV file from.
+	 * @param tokenizer
+	 * The {@link CsvTokenizer} which is used to split each line into its
+	 * columns.
+	 * */
+	public CsvRecordReader(final Reader reader, final CsvTokenizer tokenizer)
+	{
+		this.reader = (reader instanceof BufferedReader) ? (BufferedReader) reader : new BufferedReader(reader);
+		this.tokenizer = tokenizer;
+	}
+
+	/* PUBLIC METHODS */
+	@Override
+	public boolean next() throws IOException
+	{
+		String line = null;
+		while ((line = this.reader.readLine()) != null)
+		{
+			if ((this.lineNumber++ == 0) && (line.length() > 0) && (line.charAt(0) == CsvRecordReader.BYTE_ORDER_MARK))
+			{
+				line = line.substring(1);
+			}
+			if (!StringUtils.isNullOrEmpty(line))
+			{
+				this.line = line;
+				this.columnCount = this.tokenizer.tokenize(line);
+				if (this.isAccepted())
+				{
+					this.setStatus(CsvRecordSource.STATUS_OK);
+					return true;
+				}
+			}
+		}
+		this.line = null;
+		this.columnCount = 0;
+		return false;
+	}
+
+	@Override
+	public String getString(final int column)
+	{
+		if (!this.hasColumn(column))
+		{
+			return null;
+		}
+		this.setStatus(CsvRecordSource.STATUS_OK);
+		return this.tokenizer.getString(column);
+	}
+
+	/**
+	 * This method will get the value of the specified column as a
+	 * {@link CharSequence} view; which is only valid until the next record is
+	 * read.
+	 *
+	 * @param column
+	 * The index of the column.
+	 *
+	 * @return
+	 * The value of the column or <code>null</code> if the record does not have
+	 * the column.
+	 * */
+	public CharSequence getPiece(final int column)
+	{
+		if (!this.hasColumn(column))
+		{
+			return null;
+		}
+		this.setStatus(CsvRecordSource.STATUS_OK);
+		return this.tokenizer.getPiece(column);
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		this.reader.close();
+	}
+
+	/* GETTERS & SETTERS */
+	@Override
+	public int getColumnCount()
+	{
+		return this.columnCount;
+	}
+
+	@Override
+	public String getLine()
+	{
+		return this.line;
+	}
+
+	@Override
+	public int getLineNumber()
+	{
+		return this.lineNumber;
+	}
+
+	/* PROTECTED METHODS */
+	@Override
+	protected char[] getColumnBuffer()
+	{
+		return this.tokenizer.getBuffer();
+	}
+
+	@Override
+	protected int getColumnStart(final int column)
+	{
+		return this.tokenizer.getStart(column);
+	}
+
+	@Override
+	protected int getColumnEnd(final int column)
+	{
+		return this.tokenizer.getEnd(column);
+	}
+
+	/* PRIVATE CONSTANTS */
+	/**
+	 * The byte order mark which a UTF-8 file may start with.
+	 * */
+	private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+	/* PRIVATE VARIABLES */
+	private final BufferedReader reader;
+	private final CsvTokenizer tokenizer;
+	private String line = null;
+	private int lineNumber = 0;
+	private int columnCount = 0;
+
+}
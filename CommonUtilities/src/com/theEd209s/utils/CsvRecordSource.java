@@ -0,0 +1,462 @@
+package com.theEd209s.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * This class reads the records of a CSV file and parses their columns
+ * straight into primitives; without creating a {@link String} for each column
+ * or throwing an exception for each value which is not a number. <br />
+ * <br />
+ * Each call to {@link CsvRecordSource#next()} reads the next record which is
+ * not empty; the columns of that record can then be read by their index. <br />
+ * The typed getters return the specified invalid value when a column is
+ * missing, empty or not valid; {@link CsvRecordSource#getStatus()} then tells
+ * which of those it was, so a caller only has to check it when the value
+ * returned is the invalid value. <br />
+ * <br />
+ * The sub-classes define where the records are read from:
+ * <ul>
+ * <li>{@link CsvRecordReader} reads the lines of a {@link java.io.Reader};</li>
+ * <li>{@link MappedCsvReader} scans the bytes of a memory-mapped file.</li>
+ * </ul>
+ * A caller which only needs some of the columns can declare them via
+ * {@link CsvRecordSource#setColumns(int...) setColumns(int...)}, so that the
+ * rest are never copied out of the file, and can skip the records it has no
+ * use for via {@link CsvRecordSource#setFilter(RecordFilter)
+ * setFilter(RecordFilter)}. <br />
+ * <br />
+ * Instances are not thread-safe.
+ * */
+public abstract class CsvRecordSource implements Closeable
+{
+
+	/* PUBLIC CONSTANTS */
+	/**
+	 * This is the status of a column which was read as a valid value.
+	 * */
+	public static final int STATUS_OK = StringUtils.PARSE_OK;
+	/**
+	 * This is the status of a column which was empty, or only white-space.
+	 * */
+	public static final int STATUS_EMPTY = StringUtils.PARSE_EMPTY;
+	/**
+	 * This is the status of a column which did not contain a valid value.
+	 * */
+	public static final int STATUS_INVALID = StringUtils.PARSE_INVALID;
+	/**
+	 * This is the status of a column which the record does not have.
+	 * */
+	public static final int STATUS_MISSING = 3;
+
+	/* PUBLIC METHODS */
+	/**
+	 * This method will read the next record; skipping any empty lines and any
+	 * records which are rejected by the {@link RecordFilter}.
+	 *
+	 * @return
+	 * <code>true</code> if a record was read; <code>false</code> if the end of
+	 * the file has been reached.
+	 *
+	 * @throws IOException
+	 * If the file could not be read.
+	 * */
+	public abstract boolean next() throws IOException;
+
+	/**
+	 * This method will get the value of the specified column as a
+	 * {@link String}.
+	 *
+	 * @param column
+	 * The index of the column.
+	 *
+	 * @return
+	 * The value of the column or <code>null</code> if the record does not have
+	 * the column.
+	 * */
+	public abstract String getString(final int column);
+
+	/**
+	 * This method will get the value of the specified column as an
+	 * <code>int</code>.
+	 *
+	 * @param column
+	 * The index of the column.
+	 * @param invalidValue
+	 * The value to return if the column is missing, empty or not a valid
+	 * <code>int</code>.
+	 *
+	 * @return
+	 * The value of the column or the specified invalid value.
+	 * */
+	public int getInt(final int column, final int invalidValue)
+	{
+		if (!this.hasColumn(column))
+		{
+			return invalidValue;
+		}
+		final char[] buffer = this.getColumnBuffer();
+		final int start = this.getColumnStart(column);
+		final int end = this.getColumnEnd(column);
+		final int value = StringUtils.parseInt(buffer, start, end, invalidValue);
+		this.status = (value != invalidValue) ? CsvRecordSource.STATUS_OK : StringUtils.checkInt(buffer, start, end);
+		return value;
+	}
+
+	/**
+	 * This method will get the value of the specified column as a
+	 * <code>float</code>.
+	 *
+	 * @param column
+	 * The index of the column.
+	 * @param invalidValue
+	 * The value to return if the column is missing, empty or not a valid
+	 * <code>float</code>.
+	 *
+	 * @return
+	 * The value of the column or the specified invalid value.
+	 * */
+	public float getFloat(final int column, final float invalidValue)
+	{
+		if (!this.hasColumn(column))
+		{
+			return invalidValue;
+		}
+		final char[] buffer = this.getColumnBuffer();
+		final int start = this.getColumnStart(column);
+		final int end = this.getColumnEnd(column);
+		final float value = StringUtils.parseFloat(buffer, start, end, invalidValue);
+		this.status = (Float.compare(value, invalidValue) != 0) ? CsvRecordSource.STATUS_OK : StringUtils.checkFloat(buffer, start, end);
+		return value;
+	}
+
+	/**
+	 * This method will get the value of the specified column as a
+	 * <code>yyyy/MM</code> date; such as <code>2013/04</code>.
+	 *
+	 * @param column
+	 * The index of the column.
+	 * @param invalidValue
+	 * The value to return if the column is missing, empty or not a valid
+	 * <code>yyyy/MM</code> date.
+	 *
+	 * @return
+	 * The date as <code>(year * 100) + month</code>, where the month is from 1
+	 * to 12, or the specified invalid value.
+	 * */
+	public int getYearMonth(final int column, final int invalidValue)
+	{
+		if (!this.hasColumn(column))
+		{
+			return invalidValue;
+		}
+		final char[] buffer = this.getColumnBuffer();
+		final int start = this.getColumnStart(column);
+		final int end = this.getColumnEnd(column);
+		int separator = -1;
+		for (int n = start; n < end; n++)
+		{
+			if (buffer[n] == CsvRecordSource.DATE_SEPARATOR_CHAR)
+			{
+				if (separator >= 0)
+				{
+					this.status = CsvRecordSource.STATUS_INVALID;
+					return invalidValue;
+				}
+				separator = n;
+			}
+		}
+		if (separator < 0)
+		{
+			this.status = (StringUtils.checkInt(buffer, start, end) == StringUtils.PARSE_EMPTY) ? CsvRecordSource.STATUS_EMPTY : CsvRecordSource.STATUS_INVALID;
+			return invalidValue;
+		}
+		final int year = StringUtils.parseInt(buffer, start, separator, -1);
+		final int month = StringUtils.parseInt(buffer, separator + 1, end, -1);
+		if ((year <= 0) || (year > CsvRecordSource.MAX_YEAR) || (month < 1) || (month > 12))
+		{
+			this.status = CsvRecordSource.STATUS_INVALID;
+			return invalidValue;
+		}
+		this.status = CsvRecordSource.STATUS_OK;
+		return (year * 100) + month;
+	}
+
+	/**
+	 * This method will get the values of the specified column as a list of
+	 * <code>int</code>s; such as <code>"35535,35537"</code>. <br />
+	 * Any values which are empty or not a valid <code>int</code> are skipped,
+	 * as are any values beyond the length of the specified array.
+	 *
+	 * @param column
+	 * The index of the column.
+	 * @param separatorChar
+	 * The <code>char</code> which separates the values.
+	 * @param values
+	 * The array to store the values in.
+	 *
+	 * @return
+	 * The number of values stored in the array.
+	 * */
+	public int getInts(final int column, final char separatorChar, final int[] values)
+	{
+		if (!this.hasColumn(column))
+		{
+			return 0;
+		}
+		final char[] buffer = this.getColumnBuffer();
+		final int end = this.getColumnEnd(column);
+		int count = 0;
+		int valueStart = this.getColumnStart(column);
+		boolean anyInvalid = false;
+		for (int n = valueStart; (n <= end) && (count < values.length); n++)
+		{
+			if ((n == end) || (buffer[n] == separatorChar))
+			{
+				if (StringUtils.checkInt(buffer, valueStart, n) == StringUtils.PARSE_OK)
+				{
+					values[count++] = StringUtils.parseInt(buffer, valueStart, n, 0);
+				}
+				else
+				{
+					anyInvalid = true;
+				}
+				valueStart = n + 1;
+			}
+		}
+		if (count > 0)
+		{
+			this.status = CsvRecordSource.STATUS_OK;
+		}
+		else
+		{
+			this.status = anyInvalid && (StringUtils.checkInt(buffer, this.getColumnStart(column), end) != StringUtils.PARSE_EMPTY) ? CsvRecordSource.STATUS_INVALID : CsvRecordSource.STATUS_EMPTY;
+		}
+		return count;
+	}
+
+	/* GETTERS & SETTERS */
+	/**
+	 * This method will get the status of the last column which was read.
+	 *
+	 * @return
+	 * {@link CsvRecordSource#STATUS_OK}, {@link CsvRecordSource#STATUS_EMPTY},
+	 * {@link CsvRecordSource#STATUS_INVALID} or
+	 * {@link CsvRecordSource#STATUS_MISSING}.
+	 * */
+	public int getStatus()
+	{
+		return this.status;
+	}
+
+	/**
+	 * This method will set the columns which are needed; the rest are still
+	 * counted by {@link CsvRecordSource#getColumnCount()}, but read as
+	 * missing, and their values need not be copied out of the file.
+	 *
+	 * @param columns
+	 * The indexes of the columns which are needed or <code>null</code> if all
+	 * of them are.
+	 * */
+	public void setColumns(final int... columns)
+	{
+		if ((columns == null) || (columns.length == 0))
+		{
+			this.projection = null;
+			return;
+		}
+		int maxColumn = -1;
+		for (int column : columns)
+		{
+			maxColumn = Math.max(maxColumn, column);
+		}
+		this.projection = new boolean[maxColumn + 1];
+		for (int column : columns)
+		{
+			if (column >= 0)
+			{
+				this.projection[column] = true;
+			}
+		}
+	}
+
+	/**
+	 * This method will set the {@link RecordFilter} which decides which
+	 * records are returned by {@link CsvRecordSource#next()}.
+	 *
+	 * @param filter
+	 * The {@link RecordFilter} or <code>null</code> if every record is to be
+	 * returned.
+	 * */
+	public void setFilter(final RecordFilter filter)
+	{
+		this.filter = filter;
+	}
+
+	/**
+	 * This method will get the number of columns in the current record.
+	 *
+	 * @return
+	 * The number of columns in the current record.
+	 * */
+	public abstract int getColumnCount();
+
+	/**
+	 * This method will get the current record; as it was read from the file.
+	 *
+	 * @return
+	 * The current record or <code>null</code> if there is none.
+	 * */
+	public abstract String getLine();
+
+	/**
+	 * This method will get the line number of the current record; counting
+	 * from 1 and including any empty lines.
+	 *
+	 * @return
+	 * The line number of the current record.
+	 * */
+	public abstract int getLineNumber();
+
+	/* PROTECTED METHODS */
+	/**
+	 * This method will get the buffer which holds the characters of the
+	 * columns of the current record.
+	 *
+	 * @return
+	 * The buffer which holds the characters of the columns.
+	 * */
+	protected abstract char[] getColumnBuffer();
+
+	/**
+	 * This method will get the offset, within the
+	 * {@link CsvRecordSource#getColumnBuffer() column buffer}, of the first
+	 * character of the specified column.
+	 *
+	 * @param column
+	 * The index of the column.
+	 *
+	 * @return
+	 * The offset of the first character of the column.
+	 * */
+	protected abstract int getColumnStart(final int column);
+
+	/**
+	 * This method will get the offset, within the
+	 * {@link CsvRecordSource#getColumnBuffer() column buffer}, after the last
+	 * character of the specified column.
+	 *
+	 * @param column
+	 * The index of the column.
+	 *
+	 * @return
+	 * The offset after the last character of the column.
+	 * */
+	protected abstract int getColumnEnd(final int column);
+
+	/**
+	 * This method will determine if the current record has the specified
+	 * column, and it is one of the {@link CsvRecordSource#setColumns(int...)
+	 * columns which are needed}; setting the status to {@link CsvRecordSource#STATUS_MISSING} if
+	 * it does not.
+	 *
+	 * @param column
+	 * The index of the column.
+	 *
+	 * @return
+	 * <code>true</code> if the current record has the column.
+	 * */
+	protected boolean hasColumn(final int column)
+	{
+		if ((column < 0) || (column >= this.getColumnCount()) || (!this.isProjected(column)))
+		{
+			this.status = CsvRecordSource.STATUS_MISSING;
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * This method will determine if the specified column is one of the
+	 * {@link CsvRecordSource#setColumns(int...) columns which are needed}.
+	 *
+	 * @param column
+	 * The index of the column.
+	 *
+	 * @return
+	 * <code>true</code> if the column is needed; <code>false</code> if its
+	 * value need not be read.
+	 * */
+	protected boolean isProjected(final int column)
+	{
+		return (this.projection == null) || ((column < this.projection.length) && this.projection[column]);
+	}
+
+	/**
+	 * This method will determine if the current record is accepted by the
+	 * {@link RecordFilter}; sub-classes call this once they have read a
+	 * record which is not empty, and skip it if it is not.
+	 *
+	 * @return
+	 * <code>true</code> if the current record is to be returned by
+	 * {@link CsvRecordSource#next()}.
+	 * */
+	protected boolean isAccepted()
+	{
+		return (this.filter == null) || this.filter.accept(this);
+	}
+
+	/**
+	 * This method will set the status of the last column which was read.
+	 *
+	 * @param status
+	 * The status of the last column which was read.
+	 * */
+	protected void setStatus(final int status)
+	{
+		this.status = status;
+	}
+
+	/* PUBLIC CLASSES */
+	/**
+	 * This interface decides which records are returned by
+	 * {@link CsvRecordSource#next()}; it should be cheap, as it is called for
+	 * every record, and should only read the columns via the typed getters,
+	 * so that the records it rejects never have a {@link String} created for
+	 * them.
+	 * */
+	public static interface RecordFilter
+	{
+
+		/**
+		 * This method will determine if the current record of the specified
+		 * {@link CsvRecordSource} is to be returned.
+		 *
+		 * @param record
+		 * The {@link CsvRecordSource} which is positioned on the record.
+		 *
+		 * @return
+		 * <code>true</code> if the record is to be returned;
+		 * <code>false</code> if it is to be skipped.
+		 * */
+		public boolean accept(final CsvRecordSource record);
+
+	}
+
+	/* PRIVATE CONSTANTS */
+	/**
+	 * The <code>char</code> which separates the year and month of a date.
+	 * */
+	private static final char DATE_SEPARATOR_CHAR = '/';
+	/**
+	 * The largest year which can be stored along with its month in an
+	 * <code>int</code>.
+	 * */
+	private static final int MAX_YEAR = (Integer.MAX_VALUE / 100) - 1;
+
+	/* PRIVATE VARIABLES */
+	private int status = CsvRecordSource.STATUS_OK;
+	private boolean[] projection = null;
+	private RecordFilter filter = null;
+
+}
@@ -0,0 +1,534 @@
+package com.theEd209s.utils;
+
+import java.util.Arrays;
+
+/**
+ * This class will split CSV formatted lines into their pieces, using exactly
+ * the same rules as {@link CsvParser}, without allocating per line. <br />
+ * <br />
+ * The pieces of the last line tokenized are kept in a buffer which is reused
+ * for every line; they can be read as offsets into that buffer, as
+ * {@link CharSequence} views, or, only when needed, as {@link String}s. <br />
+ * Neither the offsets nor the views remain valid once the next line has been
+ * tokenized. <br />
+ * <br />
+ * This class is not thread-safe, but it holds no shared state; each thread
+ * should use its own instance.
+ * */
+public class CsvTokenizer
+{
+
+	/* CONSTRUCTORS */
+	/**
+	 * This will create a new instance of a {@link CsvTokenizer} using the
+	 * {@link CsvParser#DEFAULT_SEPARATOR_CHAR}; not grouping duplicate rogue
+	 * quotes and not trimming the pieces.
+	 * */
+	public CsvTokenizer()
+	{
+		this(CsvParser.DEFAULT_SEPARATOR_CHAR, false, false);
+	}
+
+	/**
+	 * This will create a new instance of a {@link CsvTokenizer}.
+	 *
+	 * @param separatorChar
+	 * The <code>char</code> which is to be used as the separating character
+	 * between the pieces. <br />
+	 * <i>this cannot be a {@link CsvParser#QUOTE_CHAR_SINGLE} or
+	 * {@link CsvParser#QUOTE_CHAR_DOUBLE} quotation mark character; if it is,
+	 * the default {@link CsvParser#DEFAULT_SEPARATOR_CHAR} will be used</i>
+	 * @param groupDuplicateRogueQuotes
+	 * <code>true</code> if any groups of 2 quotation marks should be grouped
+	 * together when the piece in question is not being wrapped with the same
+	 * quotation marks.
+	 * @param trimPieces
+	 * <code>true</code> if the contents of each piece should be trimmed of any
+	 * white-space surrounding it.
+	 * */
+	public CsvTokenizer(final char separatorChar, final boolean groupDuplicateRogueQuotes, final boolean trimPieces)
+	{
+		if ((separatorChar == CsvParser.QUOTE_CHAR_SINGLE) || (separatorChar == CsvParser.QUOTE_CHAR_DOUBLE))
+		{
+			this.separatorChar = CsvParser.DEFAULT_SEPARATOR_CHAR;
+		}
+		else
+		{
+			this.separatorChar = separatorChar;
+		}
+		this.groupDuplicateRogueQuotes = groupDuplicateRogueQuotes;
+		this.trimPieces = trimPieces;
+	}
+
+	/* PUBLIC METHODS */
+	/**
+	 * This method will split the specified line into its pieces; replacing
+	 * the pieces of the previous line.
+	 *
+	 * @param line
+	 * The CSV formatted line to tokenize.
+	 *
+	 * @return
+	 * The number of pieces in the line; an empty line has a single, empty,
+	 * piece and a <code>null</code> line has none.
+	 * */
+	public int tokenize(final CharSequence line)
+	{
+		this.pieceCount = 0;
+		this.length = 0;
+		if (line == null)
+		{
+			return 0;
+		}
+		final int lineLength = line.length();
+		// The separators are not kept, but each piece has a free slot in front of it; so one more than the line is enough.
+		this.ensureCapacity(lineLength + 1);
+		char quoteChar = CsvParser.EMPTY_CHAR;
+		char pieceQuoteChar = CsvParser.EMPTY_CHAR;
+		// The first slot of each piece is kept free, in case a rogue quote has to be put back in front of it.
+		int pieceStart = this.length + 1;
+		this.length = pieceStart;
+		int n = 0;
+		while (n < lineLength)
+		{
+			final char c = line.charAt(n);
+			final char cNext = ((n + 1) < lineLength) ? line.charAt(n + 1) : CsvParser.EMPTY_CHAR;
+			if ((quoteChar == CsvParser.EMPTY_CHAR) && (c == this.separatorChar))
+			{
+				this.endPiece(pieceStart, pieceQuoteChar);
+				pieceStart = this.length + 1;
+				this.length = pieceStart;
+				pieceQuoteChar = CsvParser.EMPTY_CHAR;
+			}
+			else if ((this.length == pieceStart) && (quoteChar == CsvParser.EMPTY_CHAR) && CsvTokenizer.isQuoteChar(c))
+			{
+				// This is the opening quote of the piece.
+				quoteChar = c;
+				pieceQuoteChar = c;
+			}
+			else if (this.groupDuplicateRogueQuotes && (quoteChar == CsvParser.EMPTY_CHAR) && CsvTokenizer.isQuoteChar(c) && (c == cNext))
+			{
+				this.buffer[this.length++] = c;
+				this.buffer[this.length++] = cNext;
+				n++;
+			}
+			else if ((quoteChar != CsvParser.EMPTY_CHAR) && CsvTokenizer.isQuoteChar(c))
+			{
+				if (c == cNext)
+				{
+					this.buffer[this.length++] = c;
+					if (this.groupDuplicateRogueQuotes || (quoteChar == c))
+					{
+						this.buffer[this.length++] = cNext;
+						n++;
+					}
+				}
+				else if (quoteChar == c)
+				{
+					quoteChar = CsvParser.EMPTY_CHAR;
+					// If the closing quote is not at the end of the piece, it was not a closing quote; so the quotes are put back.
+					if ((cNext != CsvParser.EMPTY_CHAR) && (cNext != this.separatorChar))
+					{
+						this.buffer[--pieceStart] = c;
+						this.buffer[this.length++] = c;
+					}
+				}
+				else
+				{
+					this.buffer[this.length++] = c;
+				}
+			}
+			else
+			{
+				this.buffer[this.length++] = c;
+			}
+			n++;
+		}
+		// If the piece began with a quote which never got closed, it was not supposed to be a quote; nor is the piece wrapped by it.
+		if (quoteChar != CsvParser.EMPTY_CHAR)
+		{
+			this.buffer[--pieceStart] = quoteChar;
+			pieceQuoteChar = CsvParser.EMPTY_CHAR;
+		}
+		this.endPiece(pieceStart, pieceQuoteChar);
+		return this.pieceCount;
+	}
+
+	/**
+	 * This method will get the number of pieces in the last line tokenized.
+	 *
+	 * @return
+	 * The number of pieces in the last line tokenized.
+	 * */
+	public int getPieceCount()
+	{
+		return this.pieceCount;
+	}
+
+	/**
+	 * This method will get the offset, within the
+	 * {@link CsvTokenizer#getBuffer() buffer}, of the first character of the
+	 * specified piece.
+	 *
+	 * @param index
+	 * The index of the piece.
+	 *
+	 * @return
+	 * The offset of the first character of the piece.
+	 * */
+	public int getStart(final int index)
+	{
+		return this.starts[this.checkIndex(index)];
+	}
+
+	/**
+	 * This method will get the offset, within the
+	 * {@link CsvTokenizer#getBuffer() buffer}, after the last character of the
+	 * specified piece.
+	 *
+	 * @param index
+	 * The index of the piece.
+	 *
+	 * @return
+	 * The offset after the last character of the piece.
+	 * */
+	public int getEnd(final int index)
+	{
+		return this.ends[this.checkIndex(index)];
+	}
+
+	/**
+	 * This method will get the length of the specified piece.
+	 *
+	 * @param index
+	 * The index of the piece.
+	 *
+	 * @return
+	 * The length of the piece.
+	 * */
+	public int getLength(final int index)
+	{
+		this.checkIndex(index);
+		return this.ends[index] - this.starts[index];
+	}
+
+	/**
+	 * This method will get the buffer which holds the pieces of the last line
+	 * tokenized; it must not be modified.
+	 *
+	 * @return
+	 * The buffer which holds the pieces of the last line tokenized.
+	 * */
+	public char[] getBuffer()
+	{
+		return this.buffer;
+	}
+
+	/**
+	 * This method will get a view of the specified piece; which is only valid
+	 * until the next line is tokenized.
+	 *
+	 * @param index
+	 * The index of the piece.
+	 *
+	 * @return
+	 * A {@link CharSequence} view of the piece.
+	 * */
+	public CharSequence getPiece(final int index)
+	{
+		return this.views[this.checkIndex(index)];
+	}
+
+	/**
+	 * This method will get the specified piece as a {@link String}.
+	 *
+	 * @param index
+	 * The index of the piece.
+	 *
+	 * @return
+	 * The piece as a {@link String}.
+	 * */
+	public String getString(final int index)
+	{
+		this.checkIndex(index);
+		return new String(this.buffer, this.starts[index], this.ends[index] - this.starts[index]);
+	}
+
+	/**
+	 * This method will get all of the pieces as {@link String}s; as returned
+	 * by {@link CsvParser#parseLineS(String, char, boolean, boolean)
+	 * parseLineS(String, char, boolean, boolean)}.
+	 *
+	 * @return
+	 * The pieces of the last line tokenized.
+	 * */
+	public String[] toStrings()
+	{
+		final String[] pieces = new String[this.pieceCount];
+		for (int n = 0; n < this.pieceCount; n++)
+		{
+			pieces[n] = new String(this.buffer, this.starts[n], this.ends[n] - this.starts[n]);
+		}
+		return pieces;
+	}
+
+	/**
+	 * This method will determine if the specified piece is equal to the
+	 * specified text; without creating a {@link String}.
+	 *
+	 * @param index
+	 * The index of the piece.
+	 * @param text
+	 * The text to compare the piece to.
+	 *
+	 * @return
+	 * <code>true</code> if the piece is equal to the text; <code>false</code>
+	 * otherwise.
+	 * */
+	public boolean pieceEquals(final int index, final CharSequence text)
+	{
+		this.checkIndex(index);
+		final int start = this.starts[index];
+		final int pieceLength = this.ends[index] - start;
+		if ((text == null) || (text.length() != pieceLength))
+		{
+			return false;
+		}
+		for (int n = 0; n < pieceLength; n++)
+		{
+			if (this.buffer[start + n] != text.charAt(n))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/* GETTERS & SETTERS */
+	/**
+	 * This will get the character used as the separator between pieces.
+	 *
+	 * @return
+	 * The character used as the separator between pieces.
+	 * */
+	public char getSeparatorChar()
+	{
+		return this.separatorChar;
+	}
+
+	/**
+	 * This will get the flag which denotes if groups of 2 quotation marks are
+	 * paired as a single instance when the piece that they are within was not
+	 * surrounded by their own type of quotation mark.
+	 *
+	 * @return
+	 * The flag which denotes if duplicate rogue quotes are grouped.
+	 * */
+	public boolean isGroupDuplicateRogueQuotes()
+	{
+		return this.groupDuplicateRogueQuotes;
+	}
+
+	/**
+	 * This will get the flag which denotes if each piece is trimmed of any
+	 * surrounding white-space.
+	 *
+	 * @return
+	 * The flag which denotes if each piece is trimmed.
+	 * */
+	public boolean isTrimPieces()
+	{
+		return this.trimPieces;
+	}
+
+	/* PRIVATE METHODS */
+	/**
+	 * This method will end the current piece; grouping its duplicate quotes
+	 * and trimming it, as configured.
+	 *
+	 * @param pieceStart
+	 * The offset of the first character of the piece.
+	 * @param pieceQuoteChar
+	 * The quotation mark the piece was wrapped with or
+	 * {@link CsvParser#EMPTY_CHAR} if it was not.
+	 * */
+	private void endPiece(final int pieceStart, final char pieceQuoteChar)
+	{
+		// Pairs of the quotation mark the piece was wrapped with always become one; pairs of any other only if grouping rogue quotes.
+		final boolean groupSingle = this.groupDuplicateRogueQuotes || (pieceQuoteChar == CsvParser.QUOTE_CHAR_SINGLE);
+		final boolean groupDouble = this.groupDuplicateRogueQuotes || (pieceQuoteChar == CsvParser.QUOTE_CHAR_DOUBLE);
+		int end = this.length;
+		if (groupSingle || groupDouble)
+		{
+			int write = pieceStart;
+			int read = pieceStart;
+			while (read < end)
+			{
+				final char c = this.buffer[read];
+				this.buffer[write++] = c;
+				if (((read + 1) < end) && (this.buffer[read + 1] == c) && ((groupSingle && (c == CsvParser.QUOTE_CHAR_SINGLE)) || (groupDouble && (c == CsvParser.QUOTE_CHAR_DOUBLE))))
+				{
+					read += 2;
+				}
+				else
+				{
+					read++;
+				}
+			}
+			end = write;
+			this.length = write;
+		}
+		int start = pieceStart;
+		if (this.trimPieces)
+		{
+			// The same white-space as String.trim().
+			while ((start < end) && (this.buffer[start] <= ' '))
+			{
+				start++;
+			}
+			while ((end > start) && (this.buffer[end - 1] <= ' '))
+			{
+				end--;
+			}
+		}
+		if (this.pieceCount == this.starts.length)
+		{
+			final int capacity = this.starts.length * 2;
+			this.starts = Arrays.copyOf(this.starts, capacity);
+			this.ends = Arrays.copyOf(this.ends, capacity);
+			this.views = Arrays.copyOf(this.views, capacity);
+		}
+		if (this.views[this.pieceCount] == null)
+		{
+			this.views[this.pieceCount] = new PieceView(this.pieceCount);
+		}
+		this.starts[this.pieceCount] = start;
+		this.ends[this.pieceCount] = end;
+		this.pieceCount++;
+	}
+
+	/**
+	 * This method will make sure the buffer can hold the specified number of
+	 * characters.
+	 *
+	 * @param capacity
+	 * The number of characters the buffer must hold.
+	 * */
+	private void ensureCapacity(final int capacity)
+	{
+		if (this.buffer.length < capacity)
+		{
+			this.buffer = new char[Math.max(capacity, this.buffer.length * 2)];
+		}
+	}
+
+	/**
+	 * This method will make sure the specified index is of a piece of the
+	 * last line tokenized.
+	 *
+	 * @param index
+	 * The index of the piece.
+	 *
+	 * @return
+	 * The index of the piece.
+	 *
+	 * @throws IndexOutOfBoundsException
+	 * If there is no piece at the specified index.
+	 * */
+	private int checkIndex(final int index)
+	{
+		if ((index < 0) || (index >= this.pieceCount))
+		{
+			throw new IndexOutOfBoundsException("Piece " + index + " of " + this.pieceCount);
+		}
+		return index;
+	}
+
+	/**
+	 * This method will determine if the specified character is a quotation
+	 * mark.
+	 *
+	 * @param c
+	 * The character to check.
+	 *
+	 * @return
+	 * <code>true</code> if the character is a quotation mark;
+	 * <code>false</code> otherwise.
+	 * */
+	private static boolean isQuoteChar(final char c)
+	{
+		return (c == CsvParser.QUOTE_CHAR_DOUBLE) || (c == CsvParser.QUOTE_CHAR_SINGLE);
+	}
+
+	/* PRIVATE CLASSES */
+	/**
+	 * This class is a {@link CharSequence} view of a piece of the last line
+	 * tokenized; one is kept for each piece index and reused for every line.
+	 * */
+	private final class PieceView implements CharSequence
+	{
+
+		/* CONSTRUCTORS */
+		/**
+		 * This will create a new instance of a {@link PieceView}.
+		 *
+		 * @param index
+		 * The index of the piece.
+		 * */
+		private PieceView(final int index)
+		{
+			this.index = index;
+		}
+
+		/* PUBLIC METHODS */
+		@Override
+		public int length()
+		{
+			return CsvTokenizer.this.ends[this.index] - CsvTokenizer.this.starts[this.index];
+		}
+
+		@Override
+		public char charAt(final int offset)
+		{
+			if ((offset < 0) || (offset >= this.length()))
+			{
+				throw new IndexOutOfBoundsException("Offset " + offset + " of " + this.length());
+			}
+			return CsvTokenizer.this.buffer[CsvTokenizer.this.starts[this.index] + offset];
+		}
+
+		@Override
+		public CharSequence subSequence(final int start, final int end)
+		{
+			return this.toString().subSequence(start, end);
+		}
+
+		@Override
+		public String toString()
+		{
+			return new String(CsvTokenizer.this.buffer, CsvTokenizer.this.starts[this.index], this.length());
+		}
+
+		/* PRIVATE VARIABLES */
+		private final int index;
+
+	}
+
+	/* PRIVATE CONSTANTS */
+	/**
+	 * The number of pieces which can be held before the offsets are grown.
+	 * */
+	private static final int DEFAULT_PIECE_CAPACITY = 16;
+
+	/* PRIVATE VARIABLES */
+	private final char separatorChar;
+	private final boolean groupDuplicateRogueQuotes;
+	private final boolean trimPieces;
+	private char[] buffer = new char[256];
+	private int length = 0;
+	private int[] starts = new int[CsvTokenizer.DEFAULT_PIECE_CAPACITY];
+	private int[] ends = new int[CsvTokenizer.DEFAULT_PIECE_CAPACITY];
+	private PieceView[] views = new PieceView[CsvTokenizer.DEFAULT_PIECE_CAPACITY];
+	private int pieceCount = 0;
+
+}
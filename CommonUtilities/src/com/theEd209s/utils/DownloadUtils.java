@@ -1,21 +1,35 @@
 package com.theEd209s.utils;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.security.MessageDigest;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
 import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.theEd209s.Constants;
 import com.theEd209s.logging.Logger;
@@ -213,6 +227,61 @@ public class DownloadUtils
 		return new Downloader(downloadCompleteCmd, downloadCancelledCmd, updateGuiDownloadProgressCmd, multiFileBytesDownloadedAlready, sourceUrl, expectedSize, destinationFile, expectedMd5HashCode, maxRetries, maxChunkRetries, initialBufferSize, diminishingBuffer);
 	}
 	
+	/**
+	 * This method will build a {@link Downloader} which fetches the {@link File} over
+	 * several connections at once; each one fetching its own range of the bytes.
+	 * <br />
+	 * This is worthwhile when the server throttles each connection, rather than the
+	 * total; if the server does not support <code>Range</code> requests the
+	 * {@link Downloader} falls back to a single connection.
+	 * 
+	 * @param downloadCompleteCmd
+	 * The {@link DownloadCompleteCmd} that should be fired once the download completes.
+	 * @param downloadCancelledCmd
+	 * The {@link DownloadCancelledCmd} that should be fired if the download is cancelled.
+	 * @param updateGuiDownloadProgressCmd
+	 * The {@link UpdateGuiDownloadProgressCmd} implementation that should be fired
+	 * when the GUI should be updated.
+	 * @param multiFileBytesDownloadedAlready
+	 * The total number of bytes that have been downloaded so far (including other files).
+	 * @param sourceUrl
+	 * The {@link URL} representing the {@link File} to download.
+	 * @param expectedSize
+	 * The expected size of the source {@link File}.
+	 * @param destinationFile
+	 * The {@link File} that should be saved.
+	 * @param expectedMd5HashCode
+	 * The expected MD5 hash code of the file after downloaded.
+	 * @param maxRetries
+	 * The total number of times to try and download each range of the {@link File}.
+	 * <br />
+	 * <i>if less-than 0 is specified, the default of
+	 * {@link Constants#DOWNLOAD_FILE_MAX_RETRIES_DEFAULT} will be used</i>
+	 * @param maxChunkRetries
+	 * The total number of times that a chunk of data should be retried.
+	 * <br />
+	 * <i>if less-than 0 is specified, the default of
+	 * {@link Constants#DOWNLOAD_FILE_MAX_CHUNK_RETRIES_DEFAULT} will be used</i>
+	 * @param initialBufferSize
+	 * The initial size of the download buffer.
+	 * <br />
+	 * <i>if less-than 1 is specified, the default of
+	 * {@link Constants#DOWNLOAD_FILE_INITIAL_BUFFER_SIZE_DEFAULT} will be used</i>
+	 * @param diminishingBuffer
+	 * <code>true</code> if each failed attempt to download should result
+	 * in a smaller download buffer size.
+	 * @param segmentCount
+	 * The number of connections to fetch the {@link File} over; each one fetches at
+	 * least {@link Constants#DOWNLOAD_FILE_MIN_SEGMENT_SIZE} bytes.
+	 * 
+	 * @return
+	 * The newly created {@link Downloader}.
+	 * */
+	public static Downloader getSegmentedDownloader(final DownloadCompleteCmd downloadCompleteCmd, final DownloadCancelledCmd downloadCancelledCmd, final UpdateGuiDownloadProgressCmd updateGuiDownloadProgressCmd, final long multiFileBytesDownloadedAlready, final URL sourceUrl, final long expectedSize, final File destinationFile, final String expectedMd5HashCode, final int maxRetries, final int maxChunkRetries, final int initialBufferSize, final boolean diminishingBuffer, final int segmentCount)
+	{
+		return new Downloader(downloadCompleteCmd, downloadCancelledCmd, updateGuiDownloadProgressCmd, multiFileBytesDownloadedAlready, sourceUrl, expectedSize, destinationFile, expectedMd5HashCode, maxRetries, maxChunkRetries, initialBufferSize, diminishingBuffer, segmentCount);
+	}
+	
 	/* PRIVATE METHODS */
 	/**
 	 * This method will download the file at the the specified {@link URL}, extract its MD5 checksum hash code and return it.
@@ -396,11 +465,148 @@ public class DownloadUtils
 		}
 	}
 	
+	/**
+	 * This method will check if the server responded to a <code>Range</code> request
+	 * with the part of the file which starts at the specified byte.
+	 * 
+	 * @param conn
+	 * The {@link HttpURLConnection} which requested the range.
+	 * @param firstByte
+	 * The index of the first byte which was requested.
+	 * 
+	 * @return
+	 * <code>true</code> if the response holds the requested part of the file;
+	 * <code>false</code> if the server sent anything else, such as the whole file.
+	 * */
+	private static boolean isPartialContentFrom(final HttpURLConnection conn, final long firstByte) throws IOException
+	{
+		if (conn.getResponseCode() != HttpURLConnection.HTTP_PARTIAL)
+		{
+			return false;
+		}
+		final String contentRange = conn.getHeaderField("Content-Range");
+		return (contentRange != null) && contentRange.trim().startsWith("bytes " + firstByte + "-");
+	}
+	
+	/**
+	 * This method will attempt to read bytes from the specified {@link InputStream}
+	 * into the remaining space of the specified {@link ByteBuffer}, which must be
+	 * backed by an array.
+	 * 
+	 * @param is
+	 * The {@link InputStream} from which to read.
+	 * @param buffer
+	 * The {@link ByteBuffer} to read into; its position is advanced past the bytes read.
+	 * @param maxReadSize
+	 * The maximum number of bytes to read at once; this is the diminishing buffer size,
+	 * which only limits the read, so that the {@link ByteBuffer} is still written to the
+	 * file in large blocks.
+	 * @param totalBytesReadSoFar
+	 * The total number of bytes read so far from this {@link File}.
+	 * @param expectedSize
+	 * The expected size of the source {@link File}.
+	 * @param maxAttempts
+	 * The maximum number of times to try and read.
+	 * 
+	 * @return
+	 * The total number of bytes read into the specified {@link ByteBuffer} or
+	 * <code>-1</code> if the end of the {@link InputStream} was reached.
+	 * */
+	private static int attemptRead(final InputStream is, final ByteBuffer buffer, final int maxReadSize, final long totalBytesReadSoFar, final long expectedSize, final int maxAttempts) throws IOException
+	{
+		if (is == null)
+		{
+			throw new IOException("No valid InputStream specified.");
+		}
+		int bufferSize = Math.min(buffer.remaining(), Math.max(1, maxReadSize));
+		// If the space left in the buffer is greater than the total number of bytes
+		// expected to be there, then only read that expected remaining number of bytes.
+		if ((expectedSize > 0) && ((totalBytesReadSoFar + bufferSize) > expectedSize))
+		{
+			bufferSize = (int) Math.max(0L, expectedSize - totalBytesReadSoFar);
+		}
+		try
+		{
+			final int bytesRead = is.read(buffer.array(), buffer.arrayOffset() + buffer.position(), bufferSize);
+			if (bytesRead > 0)
+			{
+				buffer.position(buffer.position() + bytesRead);
+			}
+			return bytesRead;
+		}
+		catch (IOException ioe)
+		{
+			if (maxAttempts > 1)
+			{
+				return DownloadUtils.attemptRead(is, buffer, maxReadSize, totalBytesReadSoFar, expectedSize, maxAttempts - 1);
+			}
+			else
+			{
+				throw ioe;
+			}
+		}
+	}
+	
+	/**
+	 * This method will write all of the bytes that have been read into the specified
+	 * {@link ByteBuffer} to the specified {@link FileChannel} and then clear the
+	 * {@link ByteBuffer}.
+	 * 
+	 * @param channel
+	 * The {@link FileChannel} to write to.
+	 * @param buffer
+	 * The {@link ByteBuffer} to write from.
+	 * */
+	private static void writeFully(final FileChannel channel, final ByteBuffer buffer) throws IOException
+	{
+		buffer.flip();
+		while (buffer.hasRemaining())
+		{
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+	
+	/**
+	 * This method will write all of the bytes that have been read into the specified
+	 * {@link ByteBuffer} to the specified {@link FileChannel}, starting at the specified
+	 * position of the file, and then clear the {@link ByteBuffer}.
+	 * <br />
+	 * The position of the {@link FileChannel} itself is not used; so several threads may
+	 * write to their own parts of the same file at once.
+	 * 
+	 * @param channel
+	 * The {@link FileChannel} to write to.
+	 * @param buffer
+	 * The {@link ByteBuffer} to write from.
+	 * @param position
+	 * The position of the file at which to write the first byte.
+	 * 
+	 * @return
+	 * The number of bytes written.
+	 * */
+	private static int writeFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException
+	{
+		buffer.flip();
+		int bytesWritten = 0;
+		while (buffer.hasRemaining())
+		{
+			bytesWritten += channel.write(buffer, position + bytesWritten);
+		}
+		buffer.clear();
+		return bytesWritten;
+	}
+	
 	/* PRIVATE CONSTANTS */
 	/**
 	 * This will be used to log any errors to a log file.
 	 * */
 	private static final Logger logger = new Logger(DownloadUtils.class.getName());
+	/**
+	 * This will store the number of milliseconds between the checks for a shutdown or
+	 * cancel request while waiting to retry a download.
+	 * */
+	private static final long RETRY_DELAY_CHECK_INTERVAL = 100L;
 	
 	/* PUBLIC CLASSES */
 	/**
@@ -473,6 +679,49 @@ public class DownloadUtils
 			this.diminishingBuffer = diminishingBuffer;
 		}
 		
+		/**
+		 * This will create a new instance of a {@link Downloader} which fetches the {@link File}
+		 * over several connections at once; each one fetching its own range of the bytes.
+		 * <br />
+		 * If the server does not report the size of the {@link File} or does not honour
+		 * <code>Range</code> requests, or if the {@link File} is too small to be worth
+		 * splitting, the {@link File} is fetched over a single connection instead.
+		 * 
+		 * @param downloadCompleteCmd
+		 * The {@link DownloadCompleteCmd} that should be fired once the download completes.
+		 * @param downloadCancelledCmd
+		 * The {@link DownloadCancelledCmd} that should be fired if the download is cancelled.
+		 * @param updateGuiDownloadProgressCmd
+		 * The {@link UpdateGuiDownloadProgressCmd} implementation that should be fired
+		 * when the GUI should be updated; with the bytes downloaded by all of the connections.
+		 * @param multiFileBytesDownloadedAlready
+		 * The total number of bytes that have been downloaded so far (including other files).
+		 * @param sourceUrl
+		 * The {@link URL} representing the {@link File} to download.
+		 * @param expectedSize
+		 * The expected size of the source {@link File}.
+		 * @param destinationFile
+		 * The {@link File} that should be saved.
+		 * @param expectedMd5HashCode
+		 * The expected MD5 hash code of the file after downloaded.
+		 * @param maxRetries
+		 * The total number of times to try and download each range of the {@link File}.
+		 * @param maxChunkRetries
+		 * The total number of times that a chunk of data should be retried.
+		 * @param initialBufferSize
+		 * The initial size of the download buffer.
+		 * @param diminishingBuffer
+		 * <code>true</code> if each failed attempt to download should result
+		 * in a smaller download buffer size.
+		 * @param segmentCount
+		 * The number of connections to fetch the {@link File} over.
+		 * */
+		public Downloader(final DownloadCompleteCmd downloadCompleteCmd, final DownloadCancelledCmd downloadCancelledCmd, final UpdateGuiDownloadProgressCmd updateGuiDownloadProgressCmd, final long multiFileBytesDownloadedAlready, final URL sourceUrl, final long expectedSize, final File destinationFile, final String expectedMd5HashCode, final int maxRetries, final int maxChunkRetries, final int initialBufferSize, final boolean diminishingBuffer, final int segmentCount)
+		{
+			this(downloadCompleteCmd, downloadCancelledCmd, updateGuiDownloadProgressCmd, multiFileBytesDownloadedAlready, sourceUrl, expectedSize, destinationFile, expectedMd5HashCode, maxRetries, maxChunkRetries, initialBufferSize, diminishingBuffer);
+			this.segmentCount = segmentCount;
+		}
+		
 		/* PUBLIC METHODS */
 		/**
 		 * This method will attempt to download the {@link File}, specified by
@@ -515,8 +764,17 @@ public class DownloadUtils
 							{
 								this.multiFileBytesDownloadedAlready = 0L;
 							}
-							if (this.downloadFile(0, tmpDownloadFile))
+							if ((this.segmentCount > 1) ? this.downloadSegmented(tmpDownloadFile) : this.downloadFile(0, tmpDownloadFile))
 							{
+								if (this.notModified)
+								{
+									// The caller's copy is current; the destination File is left as it is.
+									if (this.downloadCompleteCmd != null)
+									{
+										this.downloadCompleteCmd.downloadComplete(true);
+									}
+									return;
+								}
 								if (tmpDownloadFile.exists())
 								{
 									if ((!destinationFile.exists()) || destinationFile.delete())
@@ -600,12 +858,75 @@ public class DownloadUtils
 			return this.downloading;
 		}
 		
+		/**
+		 * This will make the download conditional on the {@link File} having changed since
+		 * the caller's copy was downloaded; the request will carry the specified validators
+		 * and, should the server answer <code>304 Not Modified</code>, the download completes
+		 * successfully without any {@link File} being written. See
+		 * {@link Downloader#isNotModified()}.
+		 * <br />
+		 * This must be called before the download is started.
+		 * 
+		 * @param ifNoneMatch
+		 * The <code>ETag</code> of the caller's copy or <code>null</code> if not known.
+		 * @param ifModifiedSince
+		 * The <code>Last-Modified</code> time of the caller's copy or <code>0</code> if not
+		 * known.
+		 * */
+		public void setValidators(final String ifNoneMatch, final long ifModifiedSince)
+		{
+			this.ifNoneMatch = ifNoneMatch;
+			this.ifModifiedSince = ifModifiedSince;
+		}
+		
+		/**
+		 * This will check if the server answered that the caller's copy of the {@link File}
+		 * is current; see {@link Downloader#setValidators(String, long)}.
+		 * 
+		 * @return
+		 * <code>true</code> if the {@link File} has not been modified, so none was written;
+		 * <code>false</code> otherwise.
+		 * */
+		public boolean isNotModified()
+		{
+			return this.notModified;
+		}
+		
+		/**
+		 * This will get the <code>ETag</code> which the {@link File} was served with.
+		 * 
+		 * @return
+		 * The <code>ETag</code> or <code>null</code> if the server did not send one.
+		 * */
+		public String getETag()
+		{
+			return this.eTag;
+		}
+		
+		/**
+		 * This will get the <code>Last-Modified</code> time which the {@link File} was
+		 * served with.
+		 * 
+		 * @return
+		 * The <code>Last-Modified</code> time or <code>0</code> if the server did not send
+		 * one.
+		 * */
+		public long getLastModified()
+		{
+			return this.lastModified;
+		}
+		
 		/* PRIVATE METHODS */
 		/**
 		 * This method will attempt to download the {@link File}, specified by its {@link URL}.
 		 * <br />
 		 * If the download fails, for any reason, a series of retries will be performed to ensure
 		 * that the file is acquired, if possible.
+		 * <br />
+		 * If the previous attempt failed part way through the transfer, the bytes which were
+		 * already written to the specified {@link File} are kept and only the rest of the
+		 * {@link File} is requested; unless the server does not honour the <code>Range</code>
+		 * request, in which case the download is restarted from the beginning.
 		 * 
 		 * @param attemptIndex
 		 * The attempt index; the first time that this method is called, this should be 0.
@@ -638,32 +959,69 @@ public class DownloadUtils
 					}
 					// Initialize the download succeeded flag to false.
 					boolean downloadSucceeded = false;
+					boolean transferFailed = false;
 					long bytesReadSoFar = 0;
+					long resumeFrom = (attemptIndex > 0) ? this.resumeFrom : 0L;
+					if ((this.expectedSize > 0L) && (resumeFrom >= this.expectedSize))
+					{
+						resumeFrom = 0L;
+					}
 					InputStream is = null;
-					OutputStream os = null;
-					OutputStream fos = null;
+					FileOutputStream fos = null;
 					try
 					{
 						final URLConnection conn = this.sourceUrl.openConnection();
 						conn.setConnectTimeout(Constants.TIMEOUT_CONNECTION);
 						conn.setReadTimeout(Constants.TIMEOUT_READ);
+						// A resumed transfer already knows the file has changed; asking again would get a 304 for the range.
+						if ((resumeFrom <= 0L) && this.isNotModified(conn))
+						{
+							((HttpURLConnection) conn).disconnect();
+							return true;
+						}
+						if ((resumeFrom > 0L) && (conn instanceof HttpURLConnection))
+						{
+							conn.setRequestProperty("Range", "bytes=" + resumeFrom + "-");
+							this.setIfRange(conn);
+							if (DownloadUtils.isPartialContentFrom((HttpURLConnection) conn, resumeFrom))
+							{
+								DownloadUtils.logger.info("downloadFile", "Resuming download of file: " + sourceUrl.toExternalForm() + " from byte " + resumeFrom + ".");
+								bytesReadSoFar = resumeFrom;
+							}
+							else
+							{
+								// The server sent something other than the requested range, such as the
+								// whole of a file which has changed, so the bytes kept from the previous
+								// attempt can not be used.
+								DownloadUtils.logger.info("downloadFile", "Server did not honour the range request for file: " + sourceUrl.toExternalForm() + ".   Restarting the download ...");
+								this.resumeFrom = 0L;
+								if (tmpDestinationFile.exists() && !tmpDestinationFile.delete())
+								{
+									throw new IOException("Failed to delete partially downloaded file: " + tmpDestinationFile.getAbsolutePath());
+								}
+							}
+						}
 						is = conn.getInputStream();
-						fos = new FileOutputStream(tmpDestinationFile);
-						os = new BufferedOutputStream(fos);
-						byte[] buffer = new byte[this.currentBufferSize];
+						this.recordValidators(conn);
+						// A connection which is dropped part way through often looks like the normal
+						// end of the stream, so the length of the file is needed to tell them apart.
+						final long contentLength = conn.getContentLengthLong();
+						final long expectedEnd = (this.expectedSize > 0L) ? this.expectedSize : ((contentLength >= 0L) ? (bytesReadSoFar + contentLength) : -1L);
+						fos = new FileOutputStream(tmpDestinationFile, bytesReadSoFar > 0L);
+						final FileChannel destination = fos.getChannel();
+						// The bytes are read straight into the array behind the buffer and are only
+						// written once it fills, so that each write to the file is a single large one;
+						// even once the diminishing buffer size has shrunk each read.
+						final ByteBuffer buffer = ByteBuffer.allocate(Constants.DOWNLOAD_FILE_TRANSFER_BUFFER_SIZE);
 						int bytesRead = 0;
-						int bytesReadSinceFlush = 0;
 						int totalBytesReadSinceGuiUpdate = 0;
 						while ((bytesRead = DownloadUtils.attemptRead(is, buffer, this.currentBufferSize, bytesReadSoFar, this.expectedSize, this.maxChunkRetries)) > 0)
 						{
-							os.write(buffer, 0, bytesRead);
 							bytesReadSoFar += bytesRead;
-							bytesReadSinceFlush += bytesRead;
 							totalBytesReadSinceGuiUpdate += bytesRead;
-							if (bytesReadSinceFlush >= Constants.DOWNLOAD_FILE_FLUSH_THRESHOLD)
+							if (!buffer.hasRemaining())
 							{
-								bytesReadSinceFlush = 0;
-								os.flush();
+								DownloadUtils.writeFully(destination, buffer);
 							}
 							if (totalBytesReadSinceGuiUpdate >= Constants.DOWNLOAD_GUI_UPDATE_THRESHOLD)
 							{
@@ -685,6 +1043,11 @@ public class DownloadUtils
 								}
 							}
 						}
+						DownloadUtils.writeFully(destination, buffer);
+						if ((expectedEnd >= 0L) && (bytesReadSoFar < expectedEnd))
+						{
+							throw new EOFException("Connection closed after " + bytesReadSoFar + " of " + expectedEnd + " bytes.");
+						}
 						downloadSucceeded = true;
 					}
 					catch (UserRequestedShutdownException | UserRequestedCancelledException ure)
@@ -693,6 +1056,7 @@ public class DownloadUtils
 					}
 					catch (Throwable thrown)
 					{
+						transferFailed = true;
 						if (attemptIndex < this.maxRetries)
 						{
 							DownloadUtils.logger.warning("downloadFile", "Failed to download file: " + sourceUrl.toExternalForm() + ".   Trying again ...", thrown);
@@ -704,19 +1068,11 @@ public class DownloadUtils
 					}
 					finally
 					{
-						if (os != null)
+						if (fos != null)
 						{
 							try
 							{
-								os.flush();
-							}
-							catch (IOException e)
-							{
-								DownloadUtils.logger.warning("downloadFile", "Failed to flush OutputStream.", e);
-							}
-							try
-							{
-								os.close();
+								fos.close();
 							}
 							catch (IOException e)
 							{
@@ -739,28 +1095,17 @@ public class DownloadUtils
 					// If they match, then mark the download as succeeded.
 					if (downloadSucceeded)
 					{
-						try
-						{
-							if ((this.expectedMd5HashCode != null) && (this.expectedMd5HashCode.trim().length() > 0) && !this.expectedMd5HashCode.equalsIgnoreCase(DownloadUtils.extractMD5HashCode(tmpDestinationFile)))
-							{
-								downloadSucceeded = false;
-							}
-							if ((this.expectedSize > 0L) && (this.expectedSize != bytesReadSoFar))
-							{
-								downloadSucceeded = false;
-							}
-						}
-						catch (Exception e)
-						{
-							downloadSucceeded = false;
-							DownloadUtils.logger.error("downloadFile", "Failed to extract MD5 from file: " + tmpDestinationFile.getAbsolutePath(), e);
-						}
+						downloadSucceeded = this.isDownloadValid(tmpDestinationFile, bytesReadSoFar);
 					}
 					// If the download was not successful, then we may try again... if we have any retries left.
 					if (!downloadSucceeded)
 					{
+						// Only a transfer which was cut short can be resumed; a complete file which
+						// failed its checks must be downloaded again in full.
+						this.resumeFrom = (transferFailed && tmpDestinationFile.exists()) ? tmpDestinationFile.length() : 0L;
 						if (attemptIndex < this.maxRetries)
 						{
+							this.waitBeforeRetry(attemptIndex);
 							if (this.diminishingBuffer)
 							{
 								this.currentBufferSize = this.currentBufferSize / 4;
@@ -789,6 +1134,378 @@ public class DownloadUtils
 			return false;
 		}
 		
+		/**
+		 * This method will attempt to download the {@link File}, specified by its {@link URL},
+		 * over several connections at once; each one fetching its own range of the bytes
+		 * straight into its part of the specified {@link File}, which is sized up front.
+		 * <br />
+		 * Each range is retried on its own, resuming from the last byte written; should any
+		 * range run out of retries, the whole download fails.
+		 * <br />
+		 * If the server does not honour <code>Range</code> requests, or the {@link File} is too
+		 * small to split, this falls back to the {@link Downloader#downloadFile(int, File)
+		 * downloadFile(int, File)} method.
+		 * 
+		 * @param tmpDestinationFile
+		 * The {@link File} to download to.
+		 * 
+		 * @return
+		 * <code>true</code> if the {@link File} specified by its {@link URL} is downloaded successfully;
+		 * <code>false</code> otherwise.
+		 * 
+		 * @throws UserRequestedShutdownException
+		 * This will be thrown if the system is shutdown during the download.
+		 * @throws UserRequestedCancelledException
+		 * This will be thrown if the user requests that this {@link Downloader} be cancelled
+		 * during the download.
+		 * */
+		private boolean downloadSegmented(final File tmpDestinationFile) throws UserRequestedShutdownException, UserRequestedCancelledException
+		{
+			if ((this.sourceUrl == null) || (tmpDestinationFile == null))
+			{
+				return this.downloadFile(0, tmpDestinationFile);
+			}
+			final long totalSize = this.probeRangeLength();
+			if (this.notModified)
+			{
+				return true;
+			}
+			final int segments = (int) Math.min(this.segmentCount, (totalSize > 0L) ? (totalSize / Constants.DOWNLOAD_FILE_MIN_SEGMENT_SIZE) : 0L);
+			if (segments < 2)
+			{
+				DownloadUtils.logger.debug("downloadSegmented", "Not splitting the download of file: " + this.sourceUrl.toExternalForm() + " (size " + totalSize + ").");
+				return this.downloadFile(0, tmpDestinationFile);
+			}
+			boolean downloadSucceeded = false;
+			boolean fileChanged = false;
+			RandomAccessFile file = null;
+			ExecutorService executor = null;
+			final List<Future<Void>> futures = new ArrayList<Future<Void>>(segments);
+			try
+			{
+				file = new RandomAccessFile(tmpDestinationFile, "rw");
+				file.setLength(totalSize);
+				final FileChannel channel = file.getChannel();
+				executor = Executors.newFixedThreadPool(segments);
+				final long segmentSize = (totalSize + segments - 1L) / segments;
+				for (long start = 0L; start < totalSize; start += segmentSize)
+				{
+					futures.add(executor.submit(new Segment(channel, start, Math.min(start + segmentSize, totalSize) - 1L)));
+				}
+				long bytesReportedToGui = 0L;
+				int segmentIndex = 0;
+				while (segmentIndex < futures.size())
+				{
+					if (ShutdownRequestedUtils.isShutdownRequested())
+					{
+						throw new UserRequestedShutdownException();
+					}
+					if (this.cancelRequested)
+					{
+						throw new UserRequestedCancelledException();
+					}
+					final long bytesWritten = this.segmentBytesWritten.get();
+					if ((bytesWritten - bytesReportedToGui) >= Constants.DOWNLOAD_GUI_UPDATE_THRESHOLD)
+					{
+						bytesReportedToGui = bytesWritten;
+						if (this.updateGuiDownloadProgressCmd != null)
+						{
+							this.updateGuiDownloadProgressCmd.updateGuiDownloadProgress(this.multiFileBytesDownloadedAlready + bytesWritten);
+						}
+					}
+					try
+					{
+						futures.get(segmentIndex).get(DownloadUtils.RETRY_DELAY_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+						segmentIndex++;
+					}
+					catch (TimeoutException te)
+					{
+						// The segment is still downloading; check on the cancel requests and the progress again.
+					}
+				}
+				downloadSucceeded = true;
+			}
+			catch (ExecutionException ee)
+			{
+				final Throwable cause = ee.getCause();
+				if (cause instanceof UserRequestedShutdownException)
+				{
+					throw (UserRequestedShutdownException) cause;
+				}
+				if (cause instanceof UserRequestedCancelledException)
+				{
+					throw (UserRequestedCancelledException) cause;
+				}
+				if (cause instanceof FileChangedException)
+				{
+					fileChanged = true;
+				}
+				else
+				{
+					DownloadUtils.logger.error("downloadSegmented", "Failed to download file: " + this.sourceUrl.toExternalForm(), cause);
+				}
+			}
+			catch (InterruptedException ie)
+			{
+				Thread.currentThread().interrupt();
+				DownloadUtils.logger.error("downloadSegmented", "Interrupted while downloading file: " + this.sourceUrl.toExternalForm(), ie);
+			}
+			catch (IOException ioe)
+			{
+				DownloadUtils.logger.error("downloadSegmented", "Failed to create file: " + tmpDestinationFile.getAbsolutePath(), ioe);
+			}
+			finally
+			{
+				this.segmentsAborted = !downloadSucceeded;
+				if (executor != null)
+				{
+					executor.shutdownNow();
+					try
+					{
+						executor.awaitTermination(Constants.TIMEOUT_READ, TimeUnit.MILLISECONDS);
+					}
+					catch (InterruptedException ie)
+					{
+						Thread.currentThread().interrupt();
+					}
+				}
+				if (file != null)
+				{
+					try
+					{
+						file.close();
+					}
+					catch (IOException e)
+					{
+						DownloadUtils.logger.warning("downloadSegmented", "Failed to close file.", e);
+					}
+				}
+			}
+			if (fileChanged)
+			{
+				// The ranges which were already written are of the old file, so it is downloaded again in full.
+				DownloadUtils.logger.info("downloadSegmented", "File changed during the download: " + this.sourceUrl.toExternalForm() + ".   Restarting the download ...");
+				return this.downloadFile(0, tmpDestinationFile);
+			}
+			return downloadSucceeded && this.isDownloadValid(tmpDestinationFile, this.segmentBytesWritten.get());
+		}
+		
+		/**
+		 * This method will ask the server for the first byte of the {@link File}, to learn
+		 * whether it honours <code>Range</code> requests and how large the {@link File} is.
+		 * <br />
+		 * If the download is conditional, the request carries the validators; should the
+		 * server answer <code>304 Not Modified</code>, the download is marked as such.
+		 * 
+		 * @return
+		 * The size of the file in bytes or <code>-1</code> if the server does not honour
+		 * <code>Range</code> requests or does not report the size.
+		 * */
+		private long probeRangeLength()
+		{
+			HttpURLConnection conn = null;
+			try
+			{
+				final URLConnection urlConn = this.sourceUrl.openConnection();
+				if (!(urlConn instanceof HttpURLConnection))
+				{
+					return -1L;
+				}
+				conn = (HttpURLConnection) urlConn;
+				conn.setConnectTimeout(Constants.TIMEOUT_CONNECTION);
+				conn.setReadTimeout(Constants.TIMEOUT_READ);
+				conn.setRequestProperty("Range", "bytes=0-0");
+				if (this.isNotModified(conn))
+				{
+					return -1L;
+				}
+				if (!DownloadUtils.isPartialContentFrom(conn, 0L))
+				{
+					return -1L;
+				}
+				this.recordValidators(conn);
+				// The Content-Range is of the form "bytes 0-0/<size>"; the size may be "*" if unknown.
+				final String contentRange = conn.getHeaderField("Content-Range");
+				final int slashIndex = contentRange.lastIndexOf('/');
+				if (slashIndex < 0)
+				{
+					return -1L;
+				}
+				try
+				{
+					return Long.parseLong(contentRange.substring(slashIndex + 1).trim());
+				}
+				catch (NumberFormatException nfe)
+				{
+					return -1L;
+				}
+			}
+			catch (IOException ioe)
+			{
+				DownloadUtils.logger.warning("probeRangeLength", "Failed to probe remote file: " + this.sourceUrl.toExternalForm(), ioe);
+				return -1L;
+			}
+			finally
+			{
+				if (conn != null)
+				{
+					conn.disconnect();
+				}
+			}
+		}
+		
+		/**
+		 * This method will send the validators of the copy of the {@link File} which the
+		 * caller already has, if any, with the specified request; and check if the server
+		 * answered that it has not changed.
+		 * <br />
+		 * This must be called before the response is read.
+		 * 
+		 * @param conn
+		 * The {@link URLConnection} of the request; which must not be resuming a transfer.
+		 * 
+		 * @return
+		 * <code>true</code> if the server answered <code>304 Not Modified</code>;
+		 * <code>false</code> otherwise.
+		 * */
+		private boolean isNotModified(final URLConnection conn) throws IOException
+		{
+			if (!(conn instanceof HttpURLConnection) || ((this.ifNoneMatch == null) && (this.ifModifiedSince <= 0L)))
+			{
+				return false;
+			}
+			if (this.ifNoneMatch != null)
+			{
+				conn.setRequestProperty("If-None-Match", this.ifNoneMatch);
+			}
+			if (this.ifModifiedSince > 0L)
+			{
+				conn.setIfModifiedSince(this.ifModifiedSince);
+			}
+			if (((HttpURLConnection) conn).getResponseCode() != HttpURLConnection.HTTP_NOT_MODIFIED)
+			{
+				return false;
+			}
+			DownloadUtils.logger.info("downloadFile", "File not modified: " + this.sourceUrl.toExternalForm() + ".");
+			this.notModified = true;
+			return true;
+		}
+		
+		/**
+		 * This method will send the validators which the {@link File} was served with, with
+		 * the specified <code>Range</code> request; so that the server sends the whole of
+		 * the {@link File}, rather than the range, if it has changed since.
+		 * <br />
+		 * A weak <code>ETag</code> can not be used for a range, so the
+		 * <code>Last-Modified</code> time is sent instead.
+		 * 
+		 * @param conn
+		 * The {@link URLConnection} of the request; which must not have been sent yet.
+		 * */
+		private void setIfRange(final URLConnection conn)
+		{
+			if ((this.eTag != null) && !this.eTag.startsWith("W/"))
+			{
+				conn.setRequestProperty("If-Range", this.eTag);
+			}
+			else if (this.lastModified > 0L)
+			{
+				final SimpleDateFormat httpDateFormat = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+				httpDateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+				conn.setRequestProperty("If-Range", httpDateFormat.format(new Date(this.lastModified)));
+			}
+		}
+		
+		/**
+		 * This method will keep the <code>ETag</code> and <code>Last-Modified</code> headers
+		 * of the specified response; see {@link Downloader#getETag()} and
+		 * {@link Downloader#getLastModified()}.
+		 * 
+		 * @param conn
+		 * The {@link URLConnection} of the response.
+		 * */
+		private void recordValidators(final URLConnection conn)
+		{
+			this.eTag = conn.getHeaderField("ETag");
+			this.lastModified = conn.getLastModified();
+		}
+		
+		/**
+		 * This method will check the downloaded {@link File} against the expected
+		 * MD5 hash code and size; if they were specified.
+		 * 
+		 * @param tmpDestinationFile
+		 * The {@link File} which was downloaded.
+		 * @param bytesRead
+		 * The number of bytes which were downloaded.
+		 * 
+		 * @return
+		 * <code>true</code> if the {@link File} matches; <code>false</code> otherwise.
+		 * */
+		private boolean isDownloadValid(final File tmpDestinationFile, final long bytesRead)
+		{
+			try
+			{
+				if ((this.expectedMd5HashCode != null) && (this.expectedMd5HashCode.trim().length() > 0) && !this.expectedMd5HashCode.equalsIgnoreCase(DownloadUtils.extractMD5HashCode(tmpDestinationFile)))
+				{
+					return false;
+				}
+				if ((this.expectedSize > 0L) && (this.expectedSize != bytesRead))
+				{
+					return false;
+				}
+				return true;
+			}
+			catch (Exception e)
+			{
+				DownloadUtils.logger.error("downloadFile", "Failed to extract MD5 from file: " + tmpDestinationFile.getAbsolutePath(), e);
+				return false;
+			}
+		}
+		
+		/**
+		 * This method will wait before the download is attempted again; for an exponentially
+		 * growing delay with a random jitter, so that a server which is struggling is not
+		 * hammered by every client at once.
+		 * 
+		 * @param attemptIndex
+		 * The index of the attempt which just failed.
+		 * 
+		 * @throws UserRequestedShutdownException
+		 * This will be thrown if the system is shutdown while waiting.
+		 * @throws UserRequestedCancelledException
+		 * This will be thrown if the user requests that this {@link Downloader} be cancelled
+		 * while waiting.
+		 * */
+		private void waitBeforeRetry(final int attemptIndex) throws UserRequestedShutdownException, UserRequestedCancelledException
+		{
+			final long ceiling = Math.min(Constants.DOWNLOAD_FILE_RETRY_DELAY_MAX, Constants.DOWNLOAD_FILE_RETRY_DELAY_INITIAL << Math.min(attemptIndex, 16));
+			final long delay = (ceiling / 2L) + ThreadLocalRandom.current().nextLong((ceiling / 2L) + 1L);
+			final long wakeAt = System.currentTimeMillis() + delay;
+			long remaining = delay;
+			while (remaining > 0L)
+			{
+				if (ShutdownRequestedUtils.isShutdownRequested())
+				{
+					throw new UserRequestedShutdownException();
+				}
+				if (this.cancelRequested)
+				{
+					throw new UserRequestedCancelledException();
+				}
+				try
+				{
+					Thread.sleep(Math.min(remaining, DownloadUtils.RETRY_DELAY_CHECK_INTERVAL));
+				}
+				catch (InterruptedException ie)
+				{
+					Thread.currentThread().interrupt();
+					return;
+				}
+				remaining = wakeAt - System.currentTimeMillis();
+			}
+		}
+		
 		/* PRIVATE VARIABLES */
 		/**
 		 * This will store the flag to denote if this {@link Downloader} is
@@ -799,7 +1516,7 @@ public class DownloadUtils
 		 * This will store the flag to denote if the user requested that
 		 * this download be cancelled.
 		 * */
-		private boolean cancelRequested = false;
+		private volatile boolean cancelRequested = false;
 		/**
 		 * This will store the {@link DownloadCompleteCmd} that will be called
 		 * if the download completes.
@@ -867,6 +1584,50 @@ public class DownloadUtils
 		 * in a smaller download buffer size.
 		 * */
 		private boolean diminishingBuffer = true;
+		/**
+		 * This will store the number of bytes which were written by the previous attempt
+		 * and which the next attempt should resume from.
+		 * */
+		private long resumeFrom = 0L;
+		/**
+		 * This will store the number of connections to fetch the {@link File} over; if
+		 * greater than 1, see {@link Downloader#downloadSegmented(File)}.
+		 * */
+		private int segmentCount = 1;
+		/**
+		 * This will store the number of bytes which have been written to the {@link File} by
+		 * all of the {@link Segment Segments}.
+		 * */
+		private final AtomicLong segmentBytesWritten = new AtomicLong();
+		/**
+		 * This will store the flag which tells any {@link Segment Segments} which are still
+		 * running to stop; since another has failed or the download was cancelled.
+		 * */
+		private volatile boolean segmentsAborted = false;
+		/**
+		 * This will store the <code>ETag</code> of the caller's copy of the {@link File};
+		 * see {@link Downloader#setValidators(String, long)}.
+		 * */
+		private String ifNoneMatch = null;
+		/**
+		 * This will store the <code>Last-Modified</code> time of the caller's copy of the
+		 * {@link File}; see {@link Downloader#setValidators(String, long)}.
+		 * */
+		private long ifModifiedSince = 0L;
+		/**
+		 * This will store the flag which denotes if the server answered that the caller's
+		 * copy of the {@link File} is current.
+		 * */
+		private boolean notModified = false;
+		/**
+		 * This will store the <code>ETag</code> which the {@link File} was served with.
+		 * */
+		private String eTag = null;
+		/**
+		 * This will store the <code>Last-Modified</code> time which the {@link File} was
+		 * served with.
+		 * */
+		private long lastModified = 0L;
 		
 		/* PUBLIC CLASSES */
 		/**
@@ -891,6 +1652,170 @@ public class DownloadUtils
 			
 		}
 		
+		/* PRIVATE CLASSES */
+		/**
+		 * This class will download one range of the bytes of the {@link File}, for the
+		 * {@link Downloader#downloadSegmented(File)} method, and write them into its part
+		 * of the {@link File}.
+		 * */
+		private class Segment implements Callable<Void>
+		{
+			
+			/* CONSTRUCTORS */
+			/**
+			 * This will create a new instance of a {@link Segment}.
+			 * 
+			 * @param channel
+			 * The {@link FileChannel} of the {@link File} to write to.
+			 * @param start
+			 * The index of the first byte of the range.
+			 * @param end
+			 * The index of the last byte of the range.
+			 * */
+			private Segment(final FileChannel channel, final long start, final long end)
+			{
+				this.channel = channel;
+				this.position = start;
+				this.end = end;
+			}
+			
+			/* PUBLIC METHODS */
+			@Override
+			public Void call() throws Exception
+			{
+				int attemptIndex = 0;
+				while ((this.position <= this.end) && !Downloader.this.segmentsAborted)
+				{
+					try
+					{
+						this.transfer();
+					}
+					catch (FileChangedException fce)
+					{
+						throw fce;
+					}
+					catch (IOException ioe)
+					{
+						if ((attemptIndex >= Downloader.this.maxRetries) || Downloader.this.segmentsAborted)
+						{
+							throw ioe;
+						}
+						DownloadUtils.logger.warning("downloadSegmented", "Failed to download bytes " + this.position + "-" + this.end + " of file: " + Downloader.this.sourceUrl.toExternalForm() + ".   Trying again ...", ioe);
+						Downloader.this.waitBeforeRetry(attemptIndex);
+						attemptIndex++;
+					}
+				}
+				return null;
+			}
+			
+			/* PRIVATE METHODS */
+			/**
+			 * This method will request the rest of the range and write it to the {@link File}
+			 * until the range is complete or the connection fails.
+			 * */
+			private void transfer() throws IOException
+			{
+				final HttpURLConnection conn = (HttpURLConnection) Downloader.this.sourceUrl.openConnection();
+				InputStream is = null;
+				try
+				{
+					conn.setConnectTimeout(Constants.TIMEOUT_CONNECTION);
+					conn.setReadTimeout(Constants.TIMEOUT_READ);
+					conn.setRequestProperty("Range", "bytes=" + this.position + "-" + this.end);
+					Downloader.this.setIfRange(conn);
+					// The probe found that ranges are honoured, so the whole file is only sent if it has changed.
+					if (conn.getResponseCode() == HttpURLConnection.HTTP_OK)
+					{
+						throw new FileChangedException("File changed before bytes " + this.position + "-" + this.end + " were downloaded.");
+					}
+					if (!DownloadUtils.isPartialContentFrom(conn, this.position))
+					{
+						throw new IOException("Server did not honour the request for bytes " + this.position + "-" + this.end + ".");
+					}
+					is = conn.getInputStream();
+					final ByteBuffer buffer = ByteBuffer.allocate(Constants.DOWNLOAD_FILE_TRANSFER_BUFFER_SIZE);
+					try
+					{
+						while ((DownloadUtils.attemptRead(is, buffer, Downloader.this.currentBufferSize, this.position + buffer.position(), this.end + 1L, Downloader.this.maxChunkRetries) > 0) && !Downloader.this.segmentsAborted)
+						{
+							if (!buffer.hasRemaining())
+							{
+								this.write(buffer);
+							}
+						}
+					}
+					finally
+					{
+						// The bytes which were read before any failure are kept, so that the retry
+						// resumes after them.
+						this.write(buffer);
+					}
+					if ((this.position <= this.end) && !Downloader.this.segmentsAborted)
+					{
+						throw new EOFException("Connection closed before byte " + this.position + " of range " + this.end + ".");
+					}
+				}
+				finally
+				{
+					if (is != null)
+					{
+						try
+						{
+							is.close();
+						}
+						catch (IOException e)
+						{
+							DownloadUtils.logger.warning("downloadSegmented", "Failed to close InputStream.", e);
+						}
+					}
+					conn.disconnect();
+				}
+			}
+			
+			/**
+			 * This method will write the bytes in the specified {@link ByteBuffer} at the
+			 * current position of this {@link Segment}.
+			 * 
+			 * @param buffer
+			 * The {@link ByteBuffer} to write from.
+			 * */
+			private void write(final ByteBuffer buffer) throws IOException
+			{
+				final int bytesWritten = DownloadUtils.writeFully(this.channel, buffer, this.position);
+				this.position += bytesWritten;
+				Downloader.this.segmentBytesWritten.addAndGet(bytesWritten);
+			}
+			
+			/* PRIVATE VARIABLES */
+			private final FileChannel channel;
+			private final long end;
+			private long position;
+			
+		}
+		
+		/**
+		 * This class will be used to signify that the server sent the whole of the
+		 * {@link File}, rather than the range of a {@link Segment}, as the {@link File} has
+		 * changed since the download started; the ranges must not be retried.
+		 * */
+		private static class FileChangedException extends IOException
+		{
+			
+			private static final long serialVersionUID = 1L;
+			
+			/**
+			 * This will create a new instance of a {@link FileChangedException}.
+			 * 
+			 * @param message
+			 * The description of the range which was requested.
+			 * */
+			private FileChangedException(final String message)
+			{
+				super(message);
+			}
+			
+		}
+		
 		/* PUBLIC INTERFACES */
 		/**
 		 * This interface can be used to update the GUI while downloading.
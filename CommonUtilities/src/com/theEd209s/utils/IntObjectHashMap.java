@@ -0,0 +1,290 @@
+package com.theEd209s.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class is a hash map that is keyed by primitive <code>int</code>
+ * values. <br />
+ * <br />
+ * The keys are never boxed; the entries are stored in open-addressed arrays
+ * using linear probing. <code>null</code> values are not supported. <br />
+ * <br />
+ * This class is not thread-safe; an instance which is fully populated before
+ * being published to other threads can safely be read concurrently.
+ * */
+public class IntObjectHashMap<V>
+{
+
+	/* CONSTRUCTORS */
+	/**
+	 * This will create a new instance of an {@link IntObjectHashMap} using the
+	 * default initial capacity.
+	 * */
+	public IntObjectHashMap()
+	{
+		this(IntObjectHashMap.DEFAULT_EXPECTED_SIZE);
+	}
+
+	/**
+	 * This will create a new instance of an {@link IntObjectHashMap} that can
+	 * hold the specified number of entries without needing to be resized.
+	 *
+	 * @param expectedSize
+	 * The number of entries that are expected to be stored.
+	 * */
+	public IntObjectHashMap(final int expectedSize)
+	{
+		this.allocate(IntObjectHashMap.capacityFor(expectedSize));
+	}
+
+	/* PUBLIC METHODS */
+	/**
+	 * This method will get the value associated with the specified key.
+	 *
+	 * @param key
+	 * The key to get the value for.
+	 *
+	 * @return
+	 * The value associated with the specified key or <code>null</code> if
+	 * there is none.
+	 * */
+	@SuppressWarnings("unchecked")
+	public V get(final int key)
+	{
+		int slot = IntObjectHashMap.hash(key) & this.mask;
+		Object value = null;
+		while ((value = this.values[slot]) != null)
+		{
+			if (this.keys[slot] == key)
+			{
+				return (V) value;
+			}
+			slot = (slot + 1) & this.mask;
+		}
+		return null;
+	}
+
+	/**
+	 * This method will determine if there is a value associated with the
+	 * specified key.
+	 *
+	 * @param key
+	 * The key to check.
+	 *
+	 * @return
+	 * <code>true</code> if there is a value associated with the specified
+	 * key; <code>false</code> otherwise.
+	 * */
+	public boolean containsKey(final int key)
+	{
+		return this.get(key) != null;
+	}
+
+	/**
+	 * This method will associate the specified value with the specified key.
+	 *
+	 * @param key
+	 * The key to store the value under.
+	 * @param value
+	 * The value to store; this can not be <code>null</code>.
+	 *
+	 * @return
+	 * The value that was previously associated with the specified key or
+	 * <code>null</code> if there was none.
+	 * */
+	@SuppressWarnings("unchecked")
+	public V put(final int key, final V value)
+	{
+		if (value == null)
+		{
+			throw new IllegalArgumentException("null values are not supported");
+		}
+		int slot = IntObjectHashMap.hash(key) & this.mask;
+		Object existing = null;
+		while ((existing = this.values[slot]) != null)
+		{
+			if (this.keys[slot] == key)
+			{
+				this.values[slot] = value;
+				return (V) existing;
+			}
+			slot = (slot + 1) & this.mask;
+		}
+		this.keys[slot] = key;
+		this.values[slot] = value;
+		this.size++;
+		if (this.size > this.resizeThreshold)
+		{
+			this.rehash(this.values.length << 1);
+		}
+		return null;
+	}
+
+	/**
+	 * This method will get the number of entries in this map.
+	 *
+	 * @return
+	 * The number of entries in this map.
+	 * */
+	public int size()
+	{
+		return this.size;
+	}
+
+	/**
+	 * This method will determine if this map is empty.
+	 *
+	 * @return
+	 * <code>true</code> if this map has no entries; <code>false</code>
+	 * otherwise.
+	 * */
+	public boolean isEmpty()
+	{
+		return this.size == 0;
+	}
+
+	/**
+	 * This method will remove all entries from this map.
+	 * */
+	public void clear()
+	{
+		Arrays.fill(this.values, null);
+		this.size = 0;
+	}
+
+	/**
+	 * This method will get all of the keys in this map, in no particular
+	 * order.
+	 *
+	 * @return
+	 * A new array containing all of the keys in this map.
+	 * */
+	public int[] keys()
+	{
+		final int[] keys = new int[this.size];
+		int n = 0;
+		for (int slot = 0; slot < this.values.length; slot++)
+		{
+			if (this.values[slot] != null)
+			{
+				keys[n++] = this.keys[slot];
+			}
+		}
+		return keys;
+	}
+
+	/**
+	 * This method will get all of the values in this map, in no particular
+	 * order.
+	 *
+	 * @return
+	 * A new {@link List} containing all of the values in this map.
+	 * */
+	@SuppressWarnings("unchecked")
+	public List<V> values()
+	{
+		final List<V> values = new ArrayList<V>(this.size);
+		for (int slot = 0; slot < this.values.length; slot++)
+		{
+			if (this.values[slot] != null)
+			{
+				values.add((V) this.values[slot]);
+			}
+		}
+		return values;
+	}
+
+	/* PRIVATE METHODS */
+	/**
+	 * This method will allocate empty key and value arrays of the specified
+	 * capacity.
+	 *
+	 * @param capacity
+	 * The capacity to allocate; this must be a power of two.
+	 * */
+	private void allocate(final int capacity)
+	{
+		this.keys = new int[capacity];
+		this.values = new Object[capacity];
+		this.mask = capacity - 1;
+		this.resizeThreshold = (int) (capacity * IntObjectHashMap.LOAD_FACTOR);
+	}
+
+	/**
+	 * This method will move all entries into new arrays of the specified
+	 * capacity.
+	 *
+	 * @param capacity
+	 * The new capacity; this must be a power of two.
+	 * */
+	private void rehash(final int capacity)
+	{
+		final int[] oldKeys = this.keys;
+		final Object[] oldValues = this.values;
+		this.allocate(capacity);
+		for (int n = 0; n < oldValues.length; n++)
+		{
+			if (oldValues[n] != null)
+			{
+				int slot = IntObjectHashMap.hash(oldKeys[n]) & this.mask;
+				while (this.values[slot] != null)
+				{
+					slot = (slot + 1) & this.mask;
+				}
+				this.keys[slot] = oldKeys[n];
+				this.values[slot] = oldValues[n];
+			}
+		}
+	}
+
+	/**
+	 * This method will determine the power of two capacity needed to hold the
+	 * specified number of entries.
+	 *
+	 * @param expectedSize
+	 * The number of entries that are expected to be stored.
+	 *
+	 * @return
+	 * The capacity to allocate.
+	 * */
+	private static int capacityFor(final int expectedSize)
+	{
+		final int minimumCapacity = (int) Math.ceil(Math.max(expectedSize, 1) / IntObjectHashMap.LOAD_FACTOR) + 1;
+		int capacity = 2;
+		while (capacity < minimumCapacity)
+		{
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	/**
+	 * This method will spread the bits of the specified key so that
+	 * sequential keys do not cluster in neighbouring slots.
+	 *
+	 * @param key
+	 * The key to hash.
+	 *
+	 * @return
+	 * The hash of the specified key.
+	 * */
+	private static int hash(final int key)
+	{
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/* PRIVATE CONSTANTS */
+	private static final int DEFAULT_EXPECTED_SIZE = 16;
+	private static final float LOAD_FACTOR = 0.6F;
+
+	/* PRIVATE VARIABLES */
+	private int[] keys = null;
+	private Object[] values = null;
+	private int mask = 0;
+	private int size = 0;
+	private int resizeThreshold = 0;
+
+}
@@ -0,0 +1,880 @@
+package com.theEd209s.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * This class will read the records of a UTF-8 CSV file by scanning the bytes
+ * of the file through a memory-mapped {@link FileChannel}; rather than
+ * copying them through an {@link java.io.InputStreamReader} and a
+ * {@link java.io.BufferedReader} and decoding every line into a
+ * {@link String}. <br />
+ * <br />
+ * The columns of each record are split using the same rules as
+ * {@link CsvParser}; the separator and the quotation marks are all ASCII, so
+ * they never appear within the bytes of a multi-byte UTF-8 character. The
+ * bytes of the columns are only decoded when they are read as a
+ * {@link String}; numeric columns are parsed straight from the bytes. The
+ * bytes of any column which is not one of the
+ * {@link CsvRecordSource#setColumns(int...) columns which are needed} are
+ * not even copied out of the file. <br />
+ * <br />
+ * By default, unlike a {@link CsvRecordReader}, a column which is wrapped with
+ * quotation marks may span several lines; the line breaks are kept within the
+ * column. If the closing quotation mark is not found within
+ * {@link MappedCsvReader#MAX_RECORD_LINES} lines, or before the end of the
+ * file, the opening quotation mark is treated as a rogue quote and the record
+ * ends at the end of its first line; just as a {@link CsvParser} would. <br />
+ * Otherwise, if the records do not span lines, every line is a record;
+ * exactly as a {@link CsvRecordReader} reads them. <br />
+ * A UTF-8 byte order mark at the start of the file is skipped. <br />
+ * <br />
+ * This class is not thread-safe.
+ * */
+public class MappedCsvReader extends CsvRecordSource
+{
+
+	/* PUBLIC CONSTANTS */
+	/**
+	 * The most lines which a single record may span.
+	 * */
+	public static final int MAX_RECORD_LINES = 1000;
+
+	/* CONSTRUCTORS */
+	/**
+	 * This will create a new instance of a {@link MappedCsvReader} using the
+	 * same rules as a default {@link CsvParser}.
+	 *
+	 * @param file
+	 * The CSV {@link File} to read.
+	 *
+	 * @throws IOException
+	 * If the {@link File} could not be opened.
+	 * */
+	public MappedCsvReader(final File file) throws IOException
+	{
+		this(file, CsvParser.DEFAULT_SEPARATOR_CHAR, false, false);
+	}
+
+	/**
+	 * This will create a new instance of a {@link MappedCsvReader}.
+	 *
+	 * @param file
+	 * The CSV {@link File} to read.
+	 * @param separatorChar
+	 * The <code>char</code> which is to be used as the separating character
+	 * between the columns. <br />
+	 * <i>this must be an ASCII character and cannot be a
+	 * {@link CsvParser#QUOTE_CHAR_SINGLE} or
+	 * {@link CsvParser#QUOTE_CHAR_DOUBLE} quotation mark character; if it is,
+	 * the default {@link CsvParser#DEFAULT_SEPARATOR_CHAR} will be used</i>
+	 * @param groupDuplicateRogueQuotes
+	 * <code>true</code> if any groups of 2 quotation marks should be grouped
+	 * together when the column in question is not being wrapped with the same
+	 * quotation marks.
+	 * @param trimPieces
+	 * <code>true</code> if the contents of each column should be trimmed of
+	 * any white-space surrounding it.
+	 *
+	 * @throws IOException
+	 * If the {@link File} could not be opened.
+	 * */
+	public MappedCsvReader(final File file, final char separatorChar, final boolean groupDuplicateRogueQuotes, final boolean trimPieces) throws IOException
+	{
+		this(file, 0L, Long.MAX_VALUE, separatorChar, groupDuplicateRogueQuotes, trimPieces, true);
+	}
+
+	/**
+	 * This will create a new instance of a {@link MappedCsvReader}.
+	 *
+	 * @param file
+	 * The CSV {@link File} to read.
+	 * @param separatorChar
+	 * The <code>char</code> which is to be used as the separating character
+	 * between the columns. <br />
+	 * <i>this must be an ASCII character and cannot be a
+	 * {@link CsvParser#QUOTE_CHAR_SINGLE} or
+	 * {@link CsvParser#QUOTE_CHAR_DOUBLE} quotation mark character; if it is,
+	 * the default {@link CsvParser#DEFAULT_SEPARATOR_CHAR} will be used</i>
+	 * @param groupDuplicateRogueQuotes
+	 * <code>true</code> if any groups of 2 quotation marks should be grouped
+	 * together when the column in question is not being wrapped with the same
+	 * quotation marks.
+	 * @param trimPieces
+	 * <code>true</code> if the contents of each column should be trimmed of
+	 * any white-space surrounding it.
+	 * @param spanLines
+	 * <code>true</code> if a quoted column may span several lines;
+	 * <code>false</code> if every line is a record, as for a
+	 * {@link CsvRecordReader}.
+	 *
+	 * @throws IOException
+	 * If the {@link File} could not be opened.
+	 * */
+	public MappedCsvReader(final File file, final char separatorChar, final boolean groupDuplicateRogueQuotes, final boolean trimPieces, final boolean spanLines) throws IOException
+	{
+		this(file, 0L, Long.MAX_VALUE, separatorChar, groupDuplicateRogueQuotes, trimPieces, spanLines);
+	}
+
+	/**
+	 * This will create a new instance of a {@link MappedCsvReader} which only
+	 * reads the records which start within the specified range of the file;
+	 * the last of them is read to its end, even if that is beyond the range.
+	 * <br />
+	 * The start of the range must be the start of a record; the line numbers
+	 * are counted from it.
+	 *
+	 * @param file
+	 * The CSV {@link File} to read.
+	 * @param start
+	 * The offset, within the file, of the first record to read.
+	 * @param end
+	 * The offset, within the file, before which the last record to read
+	 * starts.
+	 * @param separatorChar
+	 * The <code>char</code> which is to be used as the separating character
+	 * between the columns. <br />
+	 * <i>this must be an ASCII character and cannot be a
+	 * {@link CsvParser#QUOTE_CHAR_SINGLE} or
+	 * {@link CsvParser#QUOTE_CHAR_DOUBLE} quotation mark character; if it is,
+	 * the default {@link CsvParser#DEFAULT_SEPARATOR_CHAR} will be used</i>
+	 * @param groupDuplicateRogueQuotes
+	 * <code>true</code> if any groups of 2 quotation marks should be grouped
+	 * together when the column in question is not being wrapped with the same
+	 * quotation marks.
+	 * @param trimPieces
+	 * <code>true</code> if the contents of each column should be trimmed of
+	 * any white-space surrounding it.
+	 *
+	 * @throws IOException
+	 * If the {@link File} could not be opened.
+	 * */
+	public MappedCsvReader(final File file, final long start, final long end, final char separatorChar, final boolean groupDuplicateRogueQuotes, final boolean trimPieces) throws IOException
+	{
+		this(file, start, end, separatorChar, groupDuplicateRogueQuotes, trimPieces, true);
+	}
+
+	/**
+	 * This will create a new instance of a {@link MappedCsvReader} which only
+	 * reads the records which start within the specified range of the file;
+	 * the last of them is read to its end, even if that is beyond the range.
+	 * <br />
+	 * The start of the range must be the start of a record; the line numbers
+	 * are counted from it.
+	 *
+	 * @param file
+	 * The CSV {@link File} to read.
+	 * @param start
+	 * The offset, within the file, of the first record to read.
+	 * @param end
+	 * The offset, within the file, before which the last record to read
+	 * starts.
+	 * @param separatorChar
+	 * The <code>char</code> which is to be used as the separating character
+	 * between the columns. <br />
+	 * <i>this must be an ASCII character and cannot be a
+	 * {@link CsvParser#QUOTE_CHAR_SINGLE} or
+	 * {@link CsvParser#QUOTE_CHAR_DOUBLE} quotation mark character; if it is,
+	 * the default {@link CsvParser#DEFAULT_SEPARATOR_CHAR} will be used</i>
+	 * @param groupDuplicateRogueQuotes
+	 * <code>true</code> if any groups of 2 quotation marks should be grouped
+	 * together when the column in question is not being wrapped with the same
+	 * quotation marks.
+	 * @param trimPieces
+	 * <code>true</code> if the contents of each column should be trimmed of
+	 * any white-space surrounding it.
+	 * @param spanLines
+	 * <code>true</code> if a quoted column may span several lines;
+	 * <code>false</code> if every line is a record, as for a
+	 * {@link CsvRecordReader}.
+	 *
+	 * @throws IOException
+	 * If the {@link File} could not be opened.
+	 * */
+	public MappedCsvReader(final File file, final long start, final long end, final char separatorChar, final boolean groupDuplicateRogueQuotes, final boolean trimPieces, final boolean spanLines) throws IOException
+	{
+		if ((separatorChar > MappedCsvReader.MAX_ASCII_CHAR) || (separatorChar == CsvParser.QUOTE_CHAR_SINGLE) || (separatorChar == CsvParser.QUOTE_CHAR_DOUBLE))
+		{
+			this.separatorByte = CsvParser.DEFAULT_SEPARATOR_CHAR;
+		}
+		else
+		{
+			this.separatorByte = separatorChar;
+		}
+		this.groupDuplicateRogueQuotes = groupDuplicateRogueQuotes;
+		this.trimPieces = trimPieces;
+		this.spanLines = spanLines;
+		this.file = new RandomAccessFile(file, "r");
+		try
+		{
+			this.channel = this.file.getChannel();
+			this.fileSize = this.channel.size();
+			this.rangeEnd = Math.min(end, this.fileSize);
+			final long position = Math.max(0L, Math.min(start, this.fileSize));
+			this.map(position);
+			this.inputOffset = position;
+			if ((position == 0L) && (this.peek() == 0xEF) && (this.fileSize >= 3L))
+			{
+				this.read();
+				if ((this.read() != 0xBB) || (this.read() != 0xBF))
+				{
+					this.seek(0L);
+				}
+			}
+		}
+		catch (IOException ioe)
+		{
+			this.file.close();
+			throw ioe;
+		}
+	}
+
+	/* PUBLIC METHODS */
+	@Override
+	public boolean next() throws IOException
+	{
+		while (this.getPosition() < this.rangeEnd)
+		{
+			final long recordStart = this.getPosition();
+			final int recordLineNumber = this.lineNumber + 1;
+			boolean blank = this.scanRecord(this.spanLines);
+			if (this.recordLineCount < 0)
+			{
+				// The quoted column was never closed; so the record is scanned again as a single line.
+				this.seek(recordStart);
+				this.lineNumber = recordLineNumber - 1;
+				blank = this.scanRecord(false);
+			}
+			if (!blank)
+			{
+				this.recordStart = recordStart;
+				this.recordLineNumber = recordLineNumber;
+				this.charsValid = false;
+				if (this.isAccepted())
+				{
+					this.setStatus(CsvRecordSource.STATUS_OK);
+					return true;
+				}
+			}
+		}
+		this.pieceCount = 0;
+		this.recordStart = -1L;
+		return false;
+	}
+
+	@Override
+	public String getString(final int column)
+	{
+		if (!this.hasColumn(column))
+		{
+			return null;
+		}
+		this.setStatus(CsvRecordSource.STATUS_OK);
+		return new String(this.buffer, this.starts[column], this.ends[column] - this.starts[column], MappedCsvReader.UTF_8);
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		this.window = null;
+		this.file.close();
+	}
+
+	/* GETTERS & SETTERS */
+	@Override
+	public int getColumnCount()
+	{
+		return this.pieceCount;
+	}
+
+	/**
+	 * This method will get the current record; decoded from the file, as it
+	 * is only needed when reporting a record which could not be loaded.
+	 *
+	 * @return
+	 * The current record or <code>null</code> if there is none, or it could
+	 * not be read.
+	 * */
+	@Override
+	public String getLine()
+	{
+		if (this.recordStart < 0L)
+		{
+			return null;
+		}
+		try
+		{
+			final ByteBuffer line = ByteBuffer.allocate((int) (this.recordEnd - this.recordStart));
+			while (line.hasRemaining() && (this.channel.read(line, this.recordStart + line.position()) >= 0))
+			{
+				// Keep reading until the whole record has been read.
+			}
+			return new String(line.array(), 0, line.position(), MappedCsvReader.UTF_8);
+		}
+		catch (IOException ioe)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * This method will get the line number of the first line of the current
+	 * record; counting from 1 and including any empty lines.
+	 *
+	 * @return
+	 * The line number of the current record.
+	 * */
+	@Override
+	public int getLineNumber()
+	{
+		return this.recordLineNumber;
+	}
+
+	/**
+	 * This method will get the offset, within the file, of the next byte to
+	 * be read; once {@link MappedCsvReader#next()} has returned
+	 * <code>false</code>, this is the offset of the first record which was not
+	 * read.
+	 *
+	 * @return
+	 * The offset of the next byte to be read.
+	 * */
+	public long getPosition()
+	{
+		return this.inputOffset + this.inputPosition;
+	}
+
+	/* PROTECTED METHODS */
+	/**
+	 * This method will get the characters of the columns of the current
+	 * record; each byte is widened to a <code>char</code>, which is enough to
+	 * parse numbers, as every byte of a multi-byte UTF-8 character is outside
+	 * of the ASCII range and so is never a digit, sign or decimal point.
+	 *
+	 * @return
+	 * The characters of the columns.
+	 * */
+	@Override
+	protected char[] getColumnBuffer()
+	{
+		if (!this.charsValid)
+		{
+			if (this.chars.length < this.length)
+			{
+				this.chars = new char[this.buffer.length];
+			}
+			for (int n = 0; n < this.length; n++)
+			{
+				this.chars[n] = (char) (this.buffer[n] & 0xFF);
+			}
+			this.charsValid = true;
+		}
+		return this.chars;
+	}
+
+	@Override
+	protected int getColumnStart(final int column)
+	{
+		return this.starts[column];
+	}
+
+	@Override
+	protected int getColumnEnd(final int column)
+	{
+		return this.ends[column];
+	}
+
+	/* PRIVATE METHODS */
+	/**
+	 * This method will scan the next record into the buffer; splitting it
+	 * into its columns.
+	 *
+	 * @param spanLines
+	 * <code>true</code> if a quoted column may span several lines;
+	 * <code>false</code> if the record ends at the end of the line, no matter
+	 * what.
+	 *
+	 * @return
+	 * <code>true</code> if the record is empty, or only white-space.
+	 *
+	 * @throws IOException
+	 * If the file could not be read.
+	 * */
+	private boolean scanRecord(final boolean spanLines) throws IOException
+	{
+		this.pieceCount = 0;
+		this.pieceHasQuotes = false;
+		this.pieceProjected = this.isProjected(0);
+		this.length = 0;
+		this.lineNumber++;
+		this.recordLineCount = 1;
+		boolean blank = true;
+		int quoteChar = MappedCsvReader.EMPTY_BYTE;
+		int pieceQuoteChar = MappedCsvReader.EMPTY_BYTE;
+		// The first slot of each piece is kept free, in case a rogue quote has to be put back in front of it.
+		int pieceStart = this.length + 1;
+		this.length = pieceStart;
+		int c = this.read();
+		while (c >= 0)
+		{
+			this.ensureCapacity(this.length + 3);
+			if ((c == '\n') || (c == '\r'))
+			{
+				if ((quoteChar == MappedCsvReader.EMPTY_BYTE) || (!spanLines))
+				{
+					this.recordEnd = this.getPosition() - 1L;
+					if ((c == '\r') && (this.peek() == '\n'))
+					{
+						this.read();
+					}
+					break;
+				}
+				// A line break within a quoted piece.
+				this.buffer[this.length++] = (byte) c;
+				if ((c == '\n') || (this.peek() != '\n'))
+				{
+					this.lineNumber++;
+					if (++this.recordLineCount > MappedCsvReader.MAX_RECORD_LINES)
+					{
+						this.recordLineCount = -1;
+						return false;
+					}
+				}
+			}
+			else if ((quoteChar == MappedCsvReader.EMPTY_BYTE) && (c == this.separatorByte))
+			{
+				if (c > ' ')
+				{
+					blank = false;
+				}
+				this.endPiece(pieceStart, pieceQuoteChar);
+				pieceStart = this.length + 1;
+				this.length = pieceStart;
+				pieceQuoteChar = MappedCsvReader.EMPTY_BYTE;
+			}
+			else if (MappedCsvReader.isQuoteChar(c))
+			{
+				blank = false;
+				// Any quote which is written to the piece may need to be grouped with the next.
+				this.pieceHasQuotes = true;
+				// Only a quote depends on the byte after it; the end of the line is the end of the piece, as far as the quotes are concerned.
+				int cNext = this.peek();
+				if ((cNext == '\n') || (cNext == '\r') || (cNext < 0))
+				{
+					cNext = MappedCsvReader.EMPTY_BYTE;
+				}
+				if ((this.length == pieceStart) && (quoteChar == MappedCsvReader.EMPTY_BYTE))
+				{
+					// This is the opening quote of the piece.
+					quoteChar = c;
+					pieceQuoteChar = c;
+				}
+				else if (this.groupDuplicateRogueQuotes && (quoteChar == MappedCsvReader.EMPTY_BYTE) && (c == cNext))
+				{
+					this.buffer[this.length++] = (byte) c;
+					this.buffer[this.length++] = (byte) this.read();
+				}
+				else if ((quoteChar != MappedCsvReader.EMPTY_BYTE) && (c == cNext))
+				{
+					this.buffer[this.length++] = (byte) c;
+					if (this.groupDuplicateRogueQuotes || (quoteChar == c))
+					{
+						this.buffer[this.length++] = (byte) this.read();
+					}
+				}
+				else if (quoteChar == c)
+				{
+					quoteChar = MappedCsvReader.EMPTY_BYTE;
+					// If the closing quote is not at the end of the piece, it was not a closing quote; so the quotes are put back.
+					if ((cNext != MappedCsvReader.EMPTY_BYTE) && (cNext != this.separatorByte))
+					{
+						this.buffer[--pieceStart] = (byte) c;
+						this.buffer[this.length++] = (byte) c;
+					}
+				}
+				else
+				{
+					this.buffer[this.length++] = (byte) c;
+				}
+			}
+			else
+			{
+				if (c > ' ')
+				{
+					blank = false;
+				}
+				this.buffer[this.length++] = (byte) c;
+				blank &= this.copyPlainBytes(quoteChar == MappedCsvReader.EMPTY_BYTE);
+			}
+			c = this.read();
+		}
+		if (c < 0)
+		{
+			this.recordEnd = this.fileSize;
+		}
+		// If the piece began with a quote which never got closed, it was not supposed to be a quote; nor is the piece wrapped by it.
+		if (quoteChar != MappedCsvReader.EMPTY_BYTE)
+		{
+			if (spanLines && (this.recordLineCount > 1))
+			{
+				this.recordLineCount = -1;
+				return false;
+			}
+			this.buffer[--pieceStart] = (byte) quoteChar;
+			pieceQuoteChar = MappedCsvReader.EMPTY_BYTE;
+		}
+		this.endPiece(pieceStart, pieceQuoteChar);
+		return blank;
+	}
+
+	/**
+	 * This method will copy the bytes which follow, up to the next line
+	 * break, quotation mark or separator, straight into the current piece;
+	 * most of the bytes of a file are copied by this tight loop, rather than
+	 * one at a time by {@link MappedCsvReader#scanRecord(boolean)
+	 * scanRecord(boolean)}. <br />
+	 * The bytes of a piece which is not one of the columns which are needed
+	 * are skipped over, rather than copied.
+	 *
+	 * @param stopAtSeparator
+	 * <code>true</code> if the copying should stop at the separator;
+	 * <code>false</code> if within a quoted piece, where the separator is
+	 * just another byte.
+	 *
+	 * @return
+	 * <code>true</code> if all of the bytes copied were white-space.
+	 * */
+	private boolean copyPlainBytes(final boolean stopAtSeparator)
+	{
+		final byte[] input = this.input;
+		final int limit = this.inputLimit;
+		final int separator = stopAtSeparator ? this.separatorByte : -1;
+		int position = this.inputPosition;
+		boolean blank = true;
+		if (!this.pieceProjected)
+		{
+			while (position < limit)
+			{
+				final int c = input[position] & 0xFF;
+				if ((c == '\n') || (c == '\r') || (c == separator) || (c == CsvParser.QUOTE_CHAR_DOUBLE) || (c == CsvParser.QUOTE_CHAR_SINGLE))
+				{
+					break;
+				}
+				if (c > ' ')
+				{
+					blank = false;
+				}
+				position++;
+			}
+			this.inputPosition = position;
+			return blank;
+		}
+		this.ensureCapacity(this.length + (limit - position) + 3);
+		final byte[] buffer = this.buffer;
+		int length = this.length;
+		while (position < limit)
+		{
+			final int c = input[position] & 0xFF;
+			if ((c == '\n') || (c == '\r') || (c == separator) || (c == CsvParser.QUOTE_CHAR_DOUBLE) || (c == CsvParser.QUOTE_CHAR_SINGLE))
+			{
+				break;
+			}
+			if (c > ' ')
+			{
+				blank = false;
+			}
+			buffer[length++] = (byte) c;
+			position++;
+		}
+		this.inputPosition = position;
+		this.length = length;
+		return blank;
+	}
+
+	/**
+	 * This method will end the current piece; grouping its duplicate quotes
+	 * and trimming it, as configured.
+	 *
+	 * @param pieceStart
+	 * The offset of the first byte of the piece.
+	 * @param pieceQuoteChar
+	 * The quotation mark the piece was wrapped with or
+	 * {@link MappedCsvReader#EMPTY_BYTE} if it was not.
+	 * */
+	private void endPiece(final int pieceStart, final int pieceQuoteChar)
+	{
+		if (this.pieceCount == this.starts.length)
+		{
+			final int capacity = this.starts.length * 2;
+			this.starts = Arrays.copyOf(this.starts, capacity);
+			this.ends = Arrays.copyOf(this.ends, capacity);
+		}
+		if (!this.pieceProjected)
+		{
+			// Whatever was copied of a piece which is not needed is dropped.
+			this.length = pieceStart;
+			this.starts[this.pieceCount] = pieceStart;
+			this.ends[this.pieceCount] = pieceStart;
+			this.pieceCount++;
+			this.pieceHasQuotes = false;
+			this.pieceProjected = this.isProjected(this.pieceCount);
+			return;
+		}
+		// Pairs of the quotation mark the piece was wrapped with always become one; pairs of any other only if grouping rogue quotes.
+		final boolean groupSingle = this.groupDuplicateRogueQuotes || (pieceQuoteChar == CsvParser.QUOTE_CHAR_SINGLE);
+		final boolean groupDouble = this.groupDuplicateRogueQuotes || (pieceQuoteChar == CsvParser.QUOTE_CHAR_DOUBLE);
+		int end = this.length;
+		if ((groupSingle || groupDouble) && this.pieceHasQuotes)
+		{
+			int write = pieceStart;
+			int read = pieceStart;
+			while (read < end)
+			{
+				final byte c = this.buffer[read];
+				this.buffer[write++] = c;
+				if (((read + 1) < end) && (this.buffer[read + 1] == c) && ((groupSingle && (c == CsvParser.QUOTE_CHAR_SINGLE)) || (groupDouble && (c == CsvParser.QUOTE_CHAR_DOUBLE))))
+				{
+					read += 2;
+				}
+				else
+				{
+					read++;
+				}
+			}
+			end = write;
+			this.length = write;
+		}
+		int start = pieceStart;
+		if (this.trimPieces)
+		{
+			// The same white-space as String.trim(); the bytes of a multi-byte character are never white-space.
+			while ((start < end) && ((this.buffer[start] & 0xFF) <= ' '))
+			{
+				start++;
+			}
+			while ((end > start) && ((this.buffer[end - 1] & 0xFF) <= ' '))
+			{
+				end--;
+			}
+		}
+		this.starts[this.pieceCount] = start;
+		this.ends[this.pieceCount] = end;
+		this.pieceCount++;
+		this.pieceHasQuotes = false;
+		this.pieceProjected = this.isProjected(this.pieceCount);
+	}
+
+	/**
+	 * This method will make sure the buffer can hold the specified number of
+	 * bytes.
+	 *
+	 * @param capacity
+	 * The number of bytes the buffer must hold.
+	 * */
+	private void ensureCapacity(final int capacity)
+	{
+		if (this.buffer.length < capacity)
+		{
+			this.buffer = Arrays.copyOf(this.buffer, Math.max(capacity, this.buffer.length * 2));
+		}
+	}
+
+	/**
+	 * This method will read the next byte of the file.
+	 *
+	 * @return
+	 * The next byte, from 0 to 255, or <code>-1</code> if the end of the file
+	 * has been reached.
+	 *
+	 * @throws IOException
+	 * If the next region of the file could not be mapped.
+	 * */
+	private int read() throws IOException
+	{
+		if ((this.inputPosition < this.inputLimit) || this.fill())
+		{
+			return this.input[this.inputPosition++] & 0xFF;
+		}
+		return -1;
+	}
+
+	/**
+	 * This method will get the next byte of the file; without reading it.
+	 *
+	 * @return
+	 * The next byte, from 0 to 255, or <code>-1</code> if the end of the file
+	 * has been reached.
+	 *
+	 * @throws IOException
+	 * If the next region of the file could not be mapped.
+	 * */
+	private int peek() throws IOException
+	{
+		if ((this.inputPosition < this.inputLimit) || this.fill())
+		{
+			return this.input[this.inputPosition] & 0xFF;
+		}
+		return -1;
+	}
+
+	/**
+	 * This method will copy the next block of bytes out of the mapped region
+	 * of the file; mapping the next region once the current one has been
+	 * read. <br />
+	 * The bytes are scanned from a small array, rather than read one at a time
+	 * from the {@link MappedByteBuffer}, as a bulk copy is far cheaper than the
+	 * bounds checks of each read.
+	 *
+	 * @return
+	 * <code>true</code> if any bytes were copied; <code>false</code> if the end
+	 * of the file has been reached.
+	 *
+	 * @throws IOException
+	 * If the next region of the file could not be mapped.
+	 * */
+	private boolean fill() throws IOException
+	{
+		final long position = this.getPosition();
+		if (position >= this.fileSize)
+		{
+			return false;
+		}
+		if (!this.window.hasRemaining())
+		{
+			this.map(position);
+		}
+		this.inputOffset = position;
+		this.inputPosition = 0;
+		this.inputLimit = Math.min(this.input.length, this.window.remaining());
+		this.window.get(this.input, 0, this.inputLimit);
+		return true;
+	}
+
+	/**
+	 * This method will move to the specified offset within the file.
+	 *
+	 * @param position
+	 * The offset, within the file, of the next byte to be read.
+	 *
+	 * @throws IOException
+	 * If the region of the file could not be mapped.
+	 * */
+	private void seek(final long position) throws IOException
+	{
+		if ((position >= this.inputOffset) && (position <= (this.inputOffset + this.inputLimit)))
+		{
+			this.inputPosition = (int) (position - this.inputOffset);
+			return;
+		}
+		if ((this.window != null) && (position >= this.windowPosition) && (position < (this.windowPosition + this.window.limit())))
+		{
+			this.window.position((int) (position - this.windowPosition));
+		}
+		else
+		{
+			this.map(position);
+		}
+		this.inputOffset = position;
+		this.inputPosition = 0;
+		this.inputLimit = 0;
+	}
+
+	/**
+	 * This method will map the region of the file which starts at the
+	 * specified offset.
+	 *
+	 * @param position
+	 * The offset, within the file, of the start of the region.
+	 *
+	 * @throws IOException
+	 * If the region of the file could not be mapped.
+	 * */
+	private void map(final long position) throws IOException
+	{
+		this.windowPosition = position;
+		this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MappedCsvReader.WINDOW_SIZE, this.fileSize - position));
+	}
+
+	/**
+	 * This method will determine if the specified byte is a quotation mark.
+	 *
+	 * @param c
+	 * The byte to check.
+	 *
+	 * @return
+	 * <code>true</code> if the byte is a quotation mark; <code>false</code>
+	 * otherwise.
+	 * */
+	private static boolean isQuoteChar(final int c)
+	{
+		return (c == CsvParser.QUOTE_CHAR_DOUBLE) || (c == CsvParser.QUOTE_CHAR_SINGLE);
+	}
+
+	/* PRIVATE CONSTANTS */
+	/**
+	 * The charset of the file.
+	 * */
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	/**
+	 * This is used in place of a byte when there is none; the same as
+	 * {@link CsvParser#EMPTY_CHAR}.
+	 * */
+	private static final int EMPTY_BYTE = CsvParser.EMPTY_CHAR;
+	/**
+	 * The largest ASCII character.
+	 * */
+	private static final char MAX_ASCII_CHAR = '\u007F';
+	/**
+	 * The largest region of the file which is mapped at once.
+	 * */
+	private static final long WINDOW_SIZE = 1L << 30;
+	/**
+	 * The number of bytes which are copied out of the mapped region at once.
+	 * */
+	private static final int INPUT_SIZE = 64 * 1024;
+	/**
+	 * The number of bytes which can be held before the buffer is grown.
+	 * */
+	private static final int DEFAULT_BUFFER_CAPACITY = 1024;
+	/**
+	 * The number of pieces which can be held before the offsets are grown.
+	 * */
+	private static final int DEFAULT_PIECE_CAPACITY = 16;
+
+	/* PRIVATE VARIABLES */
+	private final int separatorByte;
+	private final boolean groupDuplicateRogueQuotes;
+	private final boolean trimPieces;
+	private final boolean spanLines;
+	private final RandomAccessFile file;
+	private FileChannel channel = null;
+	private long fileSize = 0L;
+	private long rangeEnd = 0L;
+	private MappedByteBuffer window = null;
+	private long windowPosition = 0L;
+	private final byte[] input = new byte[MappedCsvReader.INPUT_SIZE];
+	private long inputOffset = 0L;
+	private int inputPosition = 0;
+	private int inputLimit = 0;
+	private byte[] buffer = new byte[MappedCsvReader.DEFAULT_BUFFER_CAPACITY];
+	private char[] chars = new char[MappedCsvReader.DEFAULT_BUFFER_CAPACITY];
+	private boolean charsValid = false;
+	private int length = 0;
+	private int[] starts = new int[MappedCsvReader.DEFAULT_PIECE_CAPACITY];
+	private int[] ends = new int[MappedCsvReader.DEFAULT_PIECE_CAPACITY];
+	private int pieceCount = 0;
+	private boolean pieceHasQuotes = false;
+	private boolean pieceProjected = true;
+	private int lineNumber = 0;
+	private int recordLineNumber = 0;
+	private int recordLineCount = 0;
+	private long recordStart = -1L;
+	private long recordEnd = -1L;
+
+}
@@ -0,0 +1,605 @@
+package com.theEd209s.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import com.theEd209s.utils.CsvRecordSource.RecordFilter;
+
+/**
+ * This class will parse a large CSV file on several threads; by splitting it
+ * into chunks, which are each scanned by a {@link MappedCsvReader} on a
+ * {@link ForkJoinPool}. <br />
+ * <br />
+ * The chunks are split at line breaks; which are the ends of records, unless
+ * they are within a quoted column. Every chunk records where its last record
+ * really ended, so a chunk which was split within a quoted column is found
+ * once the chunk before it has been parsed; it is then parsed again from the
+ * end of that record, before any of its rows are handed on. <br />
+ * If the records do not span lines, every line break is the end of a record;
+ * so no chunk is ever parsed again, and the records are read exactly as a
+ * {@link CsvRecordReader} reads them. <br />
+ * <br />
+ * The rows of each chunk are handed to the {@link RecordSink} once the chunk
+ * is known to have been parsed from the start of a record:
+ * <ul>
+ * <li>if the order is preserved, the chunks are handed on one at a time, in
+ * the order of the file, by the thread which called
+ * {@link ParallelCsvScanner#scan(File, RecordParser, RecordSink, boolean)
+ * scan(File, RecordParser, RecordSink, boolean)}; so the {@link RecordSink}
+ * need not be thread-safe;</li>
+ * <li>otherwise the chunks are handed on by the threads of the
+ * {@link ForkJoinPool}, in any order, and possibly at the same time; so the
+ * {@link RecordSink} must be thread-safe.</li>
+ * </ul>
+ * Only a few chunks are parsed, or waiting to be handed on, ahead of the
+ * {@link RecordSink} in either mode; so a slow {@link RecordSink} does not
+ * end up with the whole file held in memory.
+ * */
+public class ParallelCsvScanner
+{
+
+	/* CONSTRUCTORS */
+	/**
+	 * This will create a new instance of a {@link ParallelCsvScanner} using the
+	 * same rules as a default {@link CsvParser}.
+	 *
+	 * @param pool
+	 * The {@link ForkJoinPool} to parse the chunks on.
+	 * @param chunkSize
+	 * The number of bytes in each chunk; each chunk is extended to the end of
+	 * its last line.
+	 * */
+	public ParallelCsvScanner(final ForkJoinPool pool, final long chunkSize)
+	{
+		this(pool, chunkSize, CsvParser.DEFAULT_SEPARATOR_CHAR, false, false);
+	}
+
+	/**
+	 * This will create a new instance of a {@link ParallelCsvScanner}.
+	 *
+	 * @param pool
+	 * The {@link ForkJoinPool} to parse the chunks on.
+	 * @param chunkSize
+	 * The number of bytes in each chunk; each chunk is extended to the end of
+	 * its last line.
+	 * @param separatorChar
+	 * The <code>char</code> which is to be used as the separating character
+	 * between the columns; as for a {@link MappedCsvReader}.
+	 * @param groupDuplicateRogueQuotes
+	 * <code>true</code> if any groups of 2 quotation marks should be grouped
+	 * together when the column in question is not being wrapped with the same
+	 * quotation marks.
+	 * @param trimPieces
+	 * <code>true</code> if the contents of each column should be trimmed of
+	 * any white-space surrounding it.
+	 * */
+	public ParallelCsvScanner(final ForkJoinPool pool, final long chunkSize, final char separatorChar, final boolean groupDuplicateRogueQuotes, final boolean trimPieces)
+	{
+		this(pool, chunkSize, separatorChar, groupDuplicateRogueQuotes, trimPieces, true);
+	}
+
+	/**
+	 * This will create a new instance of a {@link ParallelCsvScanner}.
+	 *
+	 * @param pool
+	 * The {@link ForkJoinPool} to parse the chunks on.
+	 * @param chunkSize
+	 * The number of bytes in each chunk; each chunk is extended to the end of
+	 * its last line.
+	 * @param separatorChar
+	 * The <code>char</code> which is to be used as the separating character
+	 * between the columns; as for a {@link MappedCsvReader}.
+	 * @param groupDuplicateRogueQuotes
+	 * <code>true</code> if any groups of 2 quotation marks should be grouped
+	 * together when the column in question is not being wrapped with the same
+	 * quotation marks.
+	 * @param trimPieces
+	 * <code>true</code> if the contents of each column should be trimmed of
+	 * any white-space surrounding it.
+	 * @param spanLines
+	 * <code>true</code> if a quoted column may span several lines;
+	 * <code>false</code> if every line is a record, as for a
+	 * {@link CsvRecordReader}.
+	 * */
+	public ParallelCsvScanner(final ForkJoinPool pool, final long chunkSize, final char separatorChar, final boolean groupDuplicateRogueQuotes, final boolean trimPieces, final boolean spanLines)
+	{
+		this.pool = pool;
+		this.chunkSize = Math.max(ParallelCsvScanner.MIN_CHUNK_SIZE, chunkSize);
+		this.separatorChar = separatorChar;
+		this.groupDuplicateRogueQuotes = groupDuplicateRogueQuotes;
+		this.trimPieces = trimPieces;
+		this.spanLines = spanLines;
+	}
+
+	/* PUBLIC METHODS */
+	/**
+	 * This method will parse the specified CSV {@link File}; handing the rows
+	 * which are parsed from its records to the specified {@link RecordSink}.
+	 *
+	 * @param file
+	 * The CSV {@link File} to parse.
+	 * @param parser
+	 * The {@link RecordParser} which parses the rows from each record; it is
+	 * called by several threads at once.
+	 * @param sink
+	 * The {@link RecordSink} which the rows are handed to.
+	 * @param preserveOrder
+	 * <code>true</code> if the rows should be handed to the {@link RecordSink}
+	 * in the order of the file, by the calling thread; <code>false</code> if
+	 * they may be handed on in any order, by any thread.
+	 *
+	 * @return
+	 * The number of rows which were handed to the {@link RecordSink}.
+	 *
+	 * @throws IOException
+	 * If the {@link File} could not be read.
+	 * @throws InterruptedException
+	 * If the calling thread was interrupted while waiting for the chunks.
+	 * */
+	public <T> int scan(final File file, final RecordParser<T> parser, final RecordSink<T> sink, final boolean preserveOrder) throws IOException, InterruptedException
+	{
+		final long[] bounds = this.split(file);
+		final int chunkCount = bounds.length - 1;
+		final int maxPending = Math.max(2, this.pool.getParallelism() * 2);
+		final List<ForkJoinTask<Chunk<T>>> chunkTasks = new ArrayList<ForkJoinTask<Chunk<T>>>(chunkCount);
+		final Deque<ForkJoinTask<?>> sinkTasks = new ArrayDeque<ForkJoinTask<?>>();
+		int rowCount = 0;
+		long expectedStart = bounds[0];
+		try
+		{
+			for (int n = 0; n < chunkCount; n++)
+			{
+				while ((chunkTasks.size() < chunkCount) && (chunkTasks.size() < (n + maxPending)))
+				{
+					final int index = chunkTasks.size();
+					chunkTasks.add(this.pool.submit(new ChunkTask<T>(file, bounds[index], bounds[index + 1], parser)));
+				}
+				Chunk<T> chunk = ParallelCsvScanner.get(chunkTasks.get(n));
+				chunkTasks.set(n, null);
+				if (chunk.start != expectedStart)
+				{
+					// The chunk was split within a record which the previous chunk has since read to its end.
+					chunk = (expectedStart < chunk.end) ? this.parseChunk(file, expectedStart, chunk.end, parser) : new Chunk<T>(expectedStart, chunk.end, expectedStart, Collections.<T> emptyList());
+				}
+				expectedStart = chunk.nextStart;
+				if (chunk.rows.size() > 0)
+				{
+					rowCount += chunk.rows.size();
+					if (preserveOrder)
+					{
+						sink.add(chunk.rows);
+					}
+					else
+					{
+						// Wait for the oldest chunk to be handed on, so that no more than a few are held ahead of a slow sink.
+						while (sinkTasks.size() >= maxPending)
+						{
+							ParallelCsvScanner.get(sinkTasks.removeFirst());
+						}
+						sinkTasks.addLast(this.pool.submit(new SinkTask<T>(sink, chunk.rows)));
+					}
+				}
+			}
+			while (!sinkTasks.isEmpty())
+			{
+				ParallelCsvScanner.get(sinkTasks.removeFirst());
+			}
+		}
+		finally
+		{
+			for (ForkJoinTask<Chunk<T>> chunkTask : chunkTasks)
+			{
+				if (chunkTask != null)
+				{
+					chunkTask.cancel(true);
+				}
+			}
+		}
+		return rowCount;
+	}
+
+	/* GETTERS & SETTERS */
+	/**
+	 * This method will set the columns which are needed; as for
+	 * {@link CsvRecordSource#setColumns(int...)}.
+	 *
+	 * @param columns
+	 * The indexes of the columns which are needed or <code>null</code> if all
+	 * of them are.
+	 * */
+	public void setColumns(final int... columns)
+	{
+		this.columns = columns;
+	}
+
+	/**
+	 * This method will set the {@link RecordFilter} which decides which
+	 * records are handed to the {@link RecordParser}; as for
+	 * {@link CsvRecordSource#setFilter(RecordFilter)}. It is called by several
+	 * threads at once, so it must be thread-safe.
+	 *
+	 * @param filter
+	 * The {@link RecordFilter} or <code>null</code> if every record is to be
+	 * parsed.
+	 * */
+	public void setFilter(final RecordFilter filter)
+	{
+		this.filter = filter;
+	}
+
+	/* PUBLIC CLASSES */
+	/**
+	 * This interface parses the rows of a record; it is called by several
+	 * threads at once, each with its own {@link CsvRecordSource}, so it must
+	 * be thread-safe.
+	 * */
+	public static interface RecordParser<T>
+	{
+
+		/**
+		 * This method will parse the rows of the current record of the
+		 * specified {@link CsvRecordSource}.
+		 *
+		 * @param record
+		 * The {@link CsvRecordSource} which is positioned on the record.
+		 * @param rows
+		 * The {@link List} to add the rows to; a record may have any number of
+		 * rows.
+		 * */
+		public void parse(final CsvRecordSource record, final List<T> rows);
+
+	}
+
+	/**
+	 * This interface receives the rows which are parsed from a file; one chunk
+	 * at a time.
+	 * */
+	public static interface RecordSink<T>
+	{
+
+		/**
+		 * This method will receive the rows of a chunk of the file; in the
+		 * order they were parsed.
+		 *
+		 * @param rows
+		 * The rows of the chunk.
+		 * */
+		public void add(final List<T> rows);
+
+	}
+
+	/* PRIVATE METHODS */
+	/**
+	 * This method will split the specified {@link File} into chunks; each of
+	 * which ends just after a line break.
+	 *
+	 * @param file
+	 * The {@link File} to split.
+	 *
+	 * @return
+	 * The offsets of the start of each chunk, followed by the size of the
+	 * {@link File}.
+	 *
+	 * @throws IOException
+	 * If the {@link File} could not be read.
+	 * */
+	private long[] split(final File file) throws IOException
+	{
+		final List<Long> bounds = new ArrayList<Long>();
+		bounds.add(Long.valueOf(0L));
+		final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try
+		{
+			final FileChannel channel = randomAccessFile.getChannel();
+			final long fileSize = channel.size();
+			final ByteBuffer buffer = ByteBuffer.allocate(ParallelCsvScanner.SPLIT_BUFFER_SIZE);
+			long position = this.chunkSize;
+			while (position < fileSize)
+			{
+				final long lineEnd = ParallelCsvScanner.findLineEnd(channel, buffer, position, fileSize);
+				if (lineEnd >= fileSize)
+				{
+					break;
+				}
+				bounds.add(Long.valueOf(lineEnd));
+				position = lineEnd + this.chunkSize;
+			}
+			bounds.add(Long.valueOf(fileSize));
+		}
+		finally
+		{
+			randomAccessFile.close();
+		}
+		final long[] boundsArray = new long[bounds.size()];
+		for (int n = 0; n < boundsArray.length; n++)
+		{
+			boundsArray[n] = bounds.get(n).longValue();
+		}
+		return boundsArray;
+	}
+
+	/**
+	 * This method will parse the records which start within the specified
+	 * range of the specified {@link File}.
+	 *
+	 * @param file
+	 * The {@link File} to parse.
+	 * @param start
+	 * The offset of the first record to parse.
+	 * @param end
+	 * The offset before which the last record to parse starts.
+	 * @param parser
+	 * The {@link RecordParser} which parses the rows from each record.
+	 *
+	 * @return
+	 * The parsed {@link Chunk}.
+	 *
+	 * @throws IOException
+	 * If the {@link File} could not be read.
+	 * */
+	private <T> Chunk<T> parseChunk(final File file, final long start, final long end, final RecordParser<T> parser) throws IOException
+	{
+		final List<T> rows = new ArrayList<T>();
+		final MappedCsvReader records = new MappedCsvReader(file, start, end, this.separatorChar, this.groupDuplicateRogueQuotes, this.trimPieces, this.spanLines);
+		records.setColumns(this.columns);
+		records.setFilter(this.filter);
+		try
+		{
+			while (records.next())
+			{
+				parser.parse(records, rows);
+			}
+			return new Chunk<T>(start, end, records.getPosition(), rows);
+		}
+		finally
+		{
+			records.close();
+		}
+	}
+
+	/**
+	 * This method will find the offset just after the first line break at, or
+	 * after, the specified offset.
+	 *
+	 * @param channel
+	 * The {@link FileChannel} to search.
+	 * @param buffer
+	 * The {@link ByteBuffer} to read into.
+	 * @param position
+	 * The offset to start searching from.
+	 * @param fileSize
+	 * The size of the file.
+	 *
+	 * @return
+	 * The offset just after the line break or the size of the file if there
+	 * is none.
+	 *
+	 * @throws IOException
+	 * If the file could not be read.
+	 * */
+	private static long findLineEnd(final FileChannel channel, final ByteBuffer buffer, long position, final long fileSize) throws IOException
+	{
+		while (position < fileSize)
+		{
+			buffer.clear();
+			final int read = channel.read(buffer, position);
+			if (read <= 0)
+			{
+				break;
+			}
+			for (int n = 0; n < read; n++)
+			{
+				if (buffer.get(n) == '\n')
+				{
+					return position + n + 1;
+				}
+			}
+			position += read;
+		}
+		return fileSize;
+	}
+
+	/**
+	 * This method will wait for the specified task and get its result;
+	 * rethrowing anything it threw.
+	 *
+	 * @param task
+	 * The task to wait for.
+	 *
+	 * @return
+	 * The result of the task.
+	 *
+	 * @throws IOException
+	 * If the task failed to read the file.
+	 * @throws InterruptedException
+	 * If the calling thread was interrupted while waiting.
+	 * */
+	private static <V> V get(final ForkJoinTask<V> task) throws IOException, InterruptedException
+	{
+		try
+		{
+			return task.get();
+		}
+		catch (ExecutionException ee)
+		{
+			final Throwable cause = ee.getCause();
+			if (cause instanceof IOException)
+			{
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException)
+			{
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error)
+			{
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+
+	/* PRIVATE CLASSES */
+	/**
+	 * This class is the rows of a parsed chunk, along with where its last
+	 * record ended.
+	 * */
+	private static class Chunk<T>
+	{
+
+		/* CONSTRUCTORS */
+		/**
+		 * This will create a new instance of a {@link Chunk}.
+		 *
+		 * @param start
+		 * The offset the chunk was parsed from.
+		 * @param end
+		 * The offset before which the last record of the chunk starts.
+		 * @param nextStart
+		 * The offset just after the last record of the chunk; which is the
+		 * start of the first record of the next chunk.
+		 * @param rows
+		 * The rows parsed from the chunk.
+		 * */
+		private Chunk(final long start, final long end, final long nextStart, final List<T> rows)
+		{
+			this.start = start;
+			this.end = end;
+			this.nextStart = nextStart;
+			this.rows = rows;
+		}
+
+		/* PRIVATE VARIABLES */
+		private final long start;
+		private final long end;
+		private final long nextStart;
+		private final List<T> rows;
+
+	}
+
+	/**
+	 * This class parses a single chunk on the {@link ForkJoinPool}.
+	 * */
+	private class ChunkTask<T> extends RecursiveTask<Chunk<T>>
+	{
+
+		/* CONSTRUCTORS */
+		/**
+		 * This will create a new instance of a {@link ChunkTask}.
+		 *
+		 * @param file
+		 * The {@link File} to parse.
+		 * @param start
+		 * The offset of the first record to parse.
+		 * @param end
+		 * The offset before which the last record to parse starts.
+		 * @param parser
+		 * The {@link RecordParser} which parses the rows from each record.
+		 * */
+		private ChunkTask(final File file, final long start, final long end, final RecordParser<T> parser)
+		{
+			this.file = file;
+			this.start = start;
+			this.end = end;
+			this.parser = parser;
+		}
+
+		/* PROTECTED METHODS */
+		@Override
+		protected Chunk<T> compute()
+		{
+			try
+			{
+				return ParallelCsvScanner.this.parseChunk(this.file, this.start, this.end, this.parser);
+			}
+			catch (IOException ioe)
+			{
+				this.completeExceptionally(ioe);
+				return null;
+			}
+		}
+
+		/* PRIVATE CONSTANTS */
+		private static final long serialVersionUID = 1L;
+
+		/* PRIVATE VARIABLES */
+		private final File file;
+		private final long start;
+		private final long end;
+		private final RecordParser<T> parser;
+
+	}
+
+	/**
+	 * This class hands the rows of a chunk to the {@link RecordSink} on the
+	 * {@link ForkJoinPool}.
+	 * */
+	private static class SinkTask<T> extends RecursiveAction
+	{
+
+		/* CONSTRUCTORS */
+		/**
+		 * This will create a new instance of a {@link SinkTask}.
+		 *
+		 * @param sink
+		 * The {@link RecordSink} to hand the rows to.
+		 * @param rows
+		 * The rows of the chunk.
+		 * */
+		private SinkTask(final RecordSink<T> sink, final List<T> rows)
+		{
+			this.sink = sink;
+			this.rows = rows;
+		}
+
+		/* PROTECTED METHODS */
+		@Override
+		protected void compute()
+		{
+			this.sink.add(this.rows);
+		}
+
+		/* PRIVATE CONSTANTS */
+		private static final long serialVersionUID = 1L;
+
+		/* PRIVATE VARIABLES */
+		private final RecordSink<T> sink;
+		private final List<T> rows;
+
+	}
+
+	/* PRIVATE CONSTANTS */
+	/**
+	 * The smallest chunk which a file is split into.
+	 * */
+	private static final long MIN_CHUNK_SIZE = 64L * 1024L;
+	/**
+	 * The number of bytes which are read at once while looking for the line
+	 * break at the end of a chunk.
+	 * */
+	private static final int SPLIT_BUFFER_SIZE = 8 * 1024;
+
+	/* PRIVATE VARIABLES */
+	private final ForkJoinPool pool;
+	private final long chunkSize;
+	private final char separatorChar;
+	private final boolean groupDuplicateRogueQuotes;
+	private final boolean trimPieces;
+	private final boolean spanLines;
+	private int[] columns = null;
+	private RecordFilter filter = null;
+
+}
@@ -10,6 +10,23 @@ import com.theEd209s.logging.Logger;
 public class StringUtils
 {	
 	
+	/* PUBLIC CONSTANTS */
+	/**
+	 * This is the status of a range of characters which was parsed as a
+	 * valid number.
+	 * */
+	public static final int PARSE_OK = 0;
+	/**
+	 * This is the status of a range of characters which was empty, or only
+	 * white-space, so did not contain a number.
+	 * */
+	public static final int PARSE_EMPTY = 1;
+	/**
+	 * This is the status of a range of characters which was not a valid
+	 * number; such as a footnote or a <code>...</code> placeholder.
+	 * */
+	public static final int PARSE_INVALID = 2;
+	
 	/**
 	 * This method will determine if the passed-in {@link String} is
 	 * <code>null</code> or an empty {@link String} (after trimming).
@@ -598,11 +615,351 @@ public class StringUtils
 		return 0L;
 	}
 	
+	/**
+	 * This method will determine if the specified range of characters is a
+	 * valid <code>int</code>; as would be parsed by
+	 * {@link StringUtils#parseInt(char[], int, int, int) parseInt(char[], int,
+	 * int, int)}.
+	 * 
+	 * @param chars
+	 * The characters to check.
+	 * @param start
+	 * The offset of the first character of the range.
+	 * @param end
+	 * The offset after the last character of the range.
+	 * 
+	 * @return
+	 * {@link StringUtils#PARSE_OK}, {@link StringUtils#PARSE_EMPTY} or
+	 * {@link StringUtils#PARSE_INVALID}.
+	 * */
+	public static int checkInt(final char[] chars, final int start, final int end)
+	{
+		final int trimmedStart = StringUtils.trimStart(chars, start, end);
+		final int trimmedEnd = StringUtils.trimEnd(chars, trimmedStart, end);
+		if (trimmedStart == trimmedEnd)
+		{
+			return StringUtils.PARSE_EMPTY;
+		}
+		return (StringUtils.parseIntRange(chars, trimmedStart, trimmedEnd) != StringUtils.INVALID_INT) ? StringUtils.PARSE_OK : StringUtils.PARSE_INVALID;
+	}
+	
+	/**
+	 * This method will parse the specified range of characters as an
+	 * <code>int</code>, without throwing an exception if it is not one. <br />
+	 * <br />
+	 * The range is trimmed of any surrounding white-space and may start with
+	 * a <code>+</code> or <code>-</code> sign; otherwise it must only contain
+	 * decimal digits and fit in an <code>int</code>.
+	 * 
+	 * @param chars
+	 * The characters to parse.
+	 * @param start
+	 * The offset of the first character of the range.
+	 * @param end
+	 * The offset after the last character of the range.
+	 * @param invalidValue
+	 * The value to return if the range is empty or is not a valid
+	 * <code>int</code>.
+	 * 
+	 * @return
+	 * The parsed <code>int</code> or the specified invalid value.
+	 * */
+	public static int parseInt(final char[] chars, final int start, final int end, final int invalidValue)
+	{
+		final int trimmedStart = StringUtils.trimStart(chars, start, end);
+		final long value = StringUtils.parseIntRange(chars, trimmedStart, StringUtils.trimEnd(chars, trimmedStart, end));
+		return (value != StringUtils.INVALID_INT) ? (int) value : invalidValue;
+	}
+	
+	/**
+	 * This method will determine if the specified range of characters is a
+	 * valid <code>float</code>; as would be parsed by
+	 * {@link StringUtils#parseFloat(char[], int, int, float) parseFloat(char[],
+	 * int, int, float)}.
+	 * 
+	 * @param chars
+	 * The characters to check.
+	 * @param start
+	 * The offset of the first character of the range.
+	 * @param end
+	 * The offset after the last character of the range.
+	 * 
+	 * @return
+	 * {@link StringUtils#PARSE_OK}, {@link StringUtils#PARSE_EMPTY} or
+	 * {@link StringUtils#PARSE_INVALID}.
+	 * */
+	public static int checkFloat(final char[] chars, final int start, final int end)
+	{
+		final int trimmedStart = StringUtils.trimStart(chars, start, end);
+		final int trimmedEnd = StringUtils.trimEnd(chars, trimmedStart, end);
+		if (trimmedStart == trimmedEnd)
+		{
+			return StringUtils.PARSE_EMPTY;
+		}
+		return Float.isNaN(StringUtils.parseFloatRange(chars, trimmedStart, trimmedEnd)) ? StringUtils.PARSE_INVALID : StringUtils.PARSE_OK;
+	}
+	
+	/**
+	 * This method will parse the specified range of characters as a
+	 * <code>float</code>, without throwing an exception if it is not one.
+	 * <br />
+	 * <br />
+	 * The range is trimmed of any surrounding white-space and must be a
+	 * decimal number, such as <code>-12.5</code>, <code>.5</code> or
+	 * <code>1.5E3</code>; the result is the same as
+	 * {@link Float#parseFloat(String)}. Hexadecimal numbers, type suffixes,
+	 * <code>NaN</code> and <code>Infinity</code> are not valid.
+	 * 
+	 * @param chars
+	 * The characters to parse.
+	 * @param start
+	 * The offset of the first character of the range.
+	 * @param end
+	 * The offset after the last character of the range.
+	 * @param invalidValue
+	 * The value to return if the range is empty or is not a valid
+	 * <code>float</code>.
+	 * 
+	 * @return
+	 * The parsed <code>float</code> or the specified invalid value.
+	 * */
+	public static float parseFloat(final char[] chars, final int start, final int end, final float invalidValue)
+	{
+		final int trimmedStart = StringUtils.trimStart(chars, start, end);
+		final float value = StringUtils.parseFloatRange(chars, trimmedStart, StringUtils.trimEnd(chars, trimmedStart, end));
+		return Float.isNaN(value) ? invalidValue : value;
+	}
+	
+	/* PRIVATE METHODS */
+	/**
+	 * This method will get the offset of the first character in the
+	 * specified range which is not white-space; using the same white-space
+	 * as {@link String#trim()}.
+	 * 
+	 * @param chars
+	 * The characters to check.
+	 * @param start
+	 * The offset of the first character of the range.
+	 * @param end
+	 * The offset after the last character of the range.
+	 * 
+	 * @return
+	 * The offset of the first character which is not white-space or the end
+	 * of the range if there is none.
+	 * */
+	private static int trimStart(final char[] chars, int start, final int end)
+	{
+		while ((start < end) && (chars[start] <= ' '))
+		{
+			start++;
+		}
+		return start;
+	}
+	
+	/**
+	 * This method will get the offset after the last character in the
+	 * specified range which is not white-space; using the same white-space as
+	 * {@link String#trim()}.
+	 * 
+	 * @param chars
+	 * The characters to check.
+	 * @param start
+	 * The offset of the first character of the range.
+	 * @param end
+	 * The offset after the last character of the range.
+	 * 
+	 * @return
+	 * The offset after the last character which is not white-space or the
+	 * start of the range if there is none.
+	 * */
+	private static int trimEnd(final char[] chars, final int start, int end)
+	{
+		while ((end > start) && (chars[end - 1] <= ' '))
+		{
+			end--;
+		}
+		return end;
+	}
+	
+	/**
+	 * This method will parse the specified trimmed range of characters as an
+	 * <code>int</code>.
+	 * 
+	 * @param chars
+	 * The characters to parse.
+	 * @param start
+	 * The offset of the first character of the range.
+	 * @param end
+	 * The offset after the last character of the range.
+	 * 
+	 * @return
+	 * The parsed <code>int</code> or {@link StringUtils#INVALID_INT} if the
+	 * range is not a valid <code>int</code>.
+	 * */
+	private static long parseIntRange(final char[] chars, int start, final int end)
+	{
+		if (start >= end)
+		{
+			return StringUtils.INVALID_INT;
+		}
+		final boolean negative = (chars[start] == '-');
+		if (negative || (chars[start] == '+'))
+		{
+			start++;
+			if (start == end)
+			{
+				return StringUtils.INVALID_INT;
+			}
+		}
+		long value = 0L;
+		for (int n = start; n < end; n++)
+		{
+			final char c = chars[n];
+			if ((c < '0') || (c > '9'))
+			{
+				return StringUtils.INVALID_INT;
+			}
+			value = (value * 10L) + (c - '0');
+			if (value > (((long) Integer.MAX_VALUE) + 1L))
+			{
+				return StringUtils.INVALID_INT;
+			}
+		}
+		if (negative)
+		{
+			return -value;
+		}
+		return (value <= Integer.MAX_VALUE) ? value : StringUtils.INVALID_INT;
+	}
+	
+	/**
+	 * This method will parse the specified trimmed range of characters as a
+	 * <code>float</code>. <br />
+	 * <br />
+	 * Numbers with up to 7 significant digits and 10 decimal places, which
+	 * covers any rate or index, are converted directly; a single
+	 * <code>float</code> multiplication or division of two exact values is
+	 * correctly rounded, so it gives the same result as
+	 * {@link Float#parseFloat(String)}. Any other valid number is handed to
+	 * {@link Float#parseFloat(String)}.
+	 * 
+	 * @param chars
+	 * The characters to parse.
+	 * @param start
+	 * The offset of the first character of the range.
+	 * @param end
+	 * The offset after the last character of the range.
+	 * 
+	 * @return
+	 * The parsed <code>float</code> or {@link Float#NaN} if the range is not a
+	 * valid <code>float</code>.
+	 * */
+	private static float parseFloatRange(final char[] chars, final int start, final int end)
+	{
+		int n = start;
+		boolean negative = false;
+		if ((n < end) && ((chars[n] == '-') || (chars[n] == '+')))
+		{
+			negative = (chars[n] == '-');
+			n++;
+		}
+		long mantissa = 0L;
+		int digitCount = 0;
+		int significantDigitCount = 0;
+		int exponent = 0;
+		boolean exact = true;
+		boolean fraction = false;
+		for (; n < end; n++)
+		{
+			final char c = chars[n];
+			if ((c >= '0') && (c <= '9'))
+			{
+				digitCount++;
+				if ((mantissa > 0L) || (c != '0'))
+				{
+					significantDigitCount++;
+				}
+				if (significantDigitCount <= StringUtils.MAX_LONG_DIGITS)
+				{
+					mantissa = (mantissa * 10L) + (c - '0');
+					if (fraction)
+					{
+						exponent--;
+					}
+				}
+				else
+				{
+					exact = false;
+				}
+			}
+			else if ((c == '.') && (!fraction))
+			{
+				fraction = true;
+			}
+			else
+			{
+				break;
+			}
+		}
+		if (digitCount == 0)
+		{
+			return Float.NaN;
+		}
+		if (n < end)
+		{
+			if ((chars[n] != 'e') && (chars[n] != 'E'))
+			{
+				return Float.NaN;
+			}
+			n++;
+			if ((n < end) && ((chars[n] == '-') || (chars[n] == '+')))
+			{
+				n++;
+			}
+			if (n == end)
+			{
+				return Float.NaN;
+			}
+			for (; n < end; n++)
+			{
+				if ((chars[n] < '0') || (chars[n] > '9'))
+				{
+					return Float.NaN;
+				}
+			}
+			exact = false;
+		}
+		if (exact && (mantissa <= StringUtils.MAX_EXACT_FLOAT_MANTISSA) && (-exponent < StringUtils.FLOAT_POWERS_OF_TEN.length))
+		{
+			final float value = (float) mantissa / StringUtils.FLOAT_POWERS_OF_TEN[-exponent];
+			return negative ? -value : value;
+		}
+		// The syntax has already been checked, so this will not throw.
+		return Float.parseFloat(new String(chars, start, end - start));
+	}
+	
 	/* PRIVATE CONSTANTS */
 	/**
 	 * This will be used to log any errors to a log file.
 	 * */
 	private static final Logger logger = new Logger(StringUtils.class.getName());
+	/**
+	 * This is returned when a range of characters is not a valid
+	 * <code>int</code>; it is outside of the range of an <code>int</code>.
+	 * */
+	private static final long INVALID_INT = Long.MIN_VALUE;
+	/**
+	 * The number of decimal digits which always fit in a <code>long</code>.
+	 * */
+	private static final int MAX_LONG_DIGITS = 18;
+	/**
+	 * The largest mantissa which a <code>float</code> holds exactly.
+	 * */
+	private static final long MAX_EXACT_FLOAT_MANTISSA = 1L << 24;
+	/**
+	 * The powers of ten which a <code>float</code> holds exactly.
+	 * */
+	private static final float[] FLOAT_POWERS_OF_TEN = { 1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f };
 	
 	/* PUBLIC ENUMS */
 	/**
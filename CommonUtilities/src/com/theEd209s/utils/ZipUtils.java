@@ -5,7 +5,9 @@ import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Enumeration;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -24,7 +26,11 @@ import com.theEd209s.logging.Logger;
  * To extract the contents of a zip file to a directory, use the
  * {@link ZipUtils#unzip(boolean, String) unzip(boolean, String)} or
  * {@link ZipUtils#unzip(boolean, String, String) unzip(boolean, String,
- * String)} methods.
+ * String)} methods. <br />
+ * <br />
+ * To read a single entry of a zip file, without extracting anything to disk,
+ * use the {@link ZipUtils#openEntry(File, EntryFilter) openEntry(File,
+ * EntryFilter)} method.
  * 
  * @author Matthew Weiler
  * */
@@ -235,6 +241,63 @@ public class ZipUtils
 		}
 	}
 	
+	/**
+	 * This method will open the first entry of the specified zip file which is
+	 * accepted by the specified {@link EntryFilter}, for reading; nothing is
+	 * extracted to disk, and the other entries are never decompressed.
+	 * <br />
+	 * The entries are checked in the order of the zip file's central directory,
+	 * and directories are skipped.
+	 * 
+	 * @param zippedFile
+	 * The zip {@link File} from which to read.
+	 * @param filter
+	 * The {@link EntryFilter} which decides which entry to open; if <code>null</code>,
+	 * the first entry which is not a directory is opened.
+	 * 
+	 * @return
+	 * The {@link ZipEntryInputStream} of the entry or <code>null</code> if no entry
+	 * was accepted.
+	 * <br />
+	 * <i>closing it also closes the zip file</i>
+	 * 
+	 * @throws IOException
+	 * If the zip file could not be read.
+	 * */
+	public static ZipEntryInputStream openEntry(final File zippedFile, final EntryFilter filter) throws IOException
+	{
+		if ((zippedFile == null) || !zippedFile.isFile())
+		{
+			throw new IOException("Invalid source zip file.");
+		}
+		final ZipFile zipFile = new ZipFile(zippedFile);
+		try
+		{
+			final Enumeration<? extends ZipEntry> e = zipFile.entries();
+			while (e.hasMoreElements())
+			{
+				final ZipEntry entry = e.nextElement();
+				if (!entry.isDirectory() && ((filter == null) || filter.accept(entry)))
+				{
+					ZipUtils.logger.debug("openEntry", "Opening entry (" + entry.getName() + ") of (" + zippedFile.getAbsolutePath() + ").");
+					return new ZipEntryInputStream(zipFile, entry);
+				}
+			}
+		}
+		catch (IOException ioe)
+		{
+			zipFile.close();
+			throw ioe;
+		}
+		catch (RuntimeException re)
+		{
+			zipFile.close();
+			throw re;
+		}
+		zipFile.close();
+		return null;
+	}
+	
 	/**
 	 * This will create a new zip file, gathering and compressing the
 	 * contents of the source directory into this new zip file.
@@ -998,6 +1061,89 @@ public class ZipUtils
 		}
 	}
 	
+	/* PUBLIC CLASSES */
+	/**
+	 * This class is the {@link InputStream} of a single entry of a zip file, as
+	 * opened by the {@link ZipUtils#openEntry(File, EntryFilter) openEntry(File,
+	 * EntryFilter)} method; the bytes are decompressed as they are read.
+	 * <br />
+	 * Closing it also closes the zip file.
+	 * */
+	public static class ZipEntryInputStream extends FilterInputStream
+	{
+		
+		/* CONSTRUCTORS */
+		/**
+		 * This will create a new instance of a {@link ZipEntryInputStream}.
+		 * 
+		 * @param zipFile
+		 * The {@link ZipFile} which holds the entry.
+		 * @param entry
+		 * The {@link ZipEntry} to read.
+		 * */
+		private ZipEntryInputStream(final ZipFile zipFile, final ZipEntry entry) throws IOException
+		{
+			super(zipFile.getInputStream(entry));
+			this.zipFile = zipFile;
+			this.entry = entry;
+		}
+		
+		/* PUBLIC METHODS */
+		@Override
+		public void close() throws IOException
+		{
+			try
+			{
+				super.close();
+			}
+			finally
+			{
+				this.zipFile.close();
+			}
+		}
+		
+		/* GETTERS & SETTERS */
+		/**
+		 * This method will get the {@link ZipEntry} being read; such as to learn its name
+		 * or its uncompressed size.
+		 * 
+		 * @return
+		 * The {@link ZipEntry}.
+		 * */
+		public ZipEntry getEntry()
+		{
+			return this.entry;
+		}
+		
+		/* PRIVATE VARIABLES */
+		private final ZipFile zipFile;
+		private final ZipEntry entry;
+		
+	}
+	
+	/* PUBLIC INTERFACES */
+	/**
+	 * This interface decides which entry of a zip file is opened by the
+	 * {@link ZipUtils#openEntry(File, EntryFilter) openEntry(File, EntryFilter)}
+	 * method.
+	 * */
+	public static interface EntryFilter
+	{
+		
+		/**
+		 * This method will decide if the specified entry is the one to open.
+		 * 
+		 * @param entry
+		 * The {@link ZipEntry}; it is never a directory.
+		 * 
+		 * @return
+		 * <code>true</code> if the entry should be opened; <code>false</code> if the
+		 * next entry should be checked.
+		 * */
+		public boolean accept(final ZipEntry entry);
+		
+	}
+	
 	/* PRIVATE CONSTANTS */
 	/**
 	 * This will be used to log any activity in the {@link ZipUtils} class.
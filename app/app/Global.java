@@ -2,6 +2,8 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Formatter;
 import java.util.logging.Handler;
 import java.util.logging.Level;
@@ -15,6 +17,7 @@ import models.CSDType;
 import models.City;
 import models.CityVacancy;
 import models.CkanRevision;
+import models.DataVersion;
 import models.MortgageRate;
 import models.NewHousingPriceIndex;
 import models.Province;
@@ -27,7 +30,10 @@ import play.db.ebean.Model;
 
 import com.avaje.ebean.Ebean;
 import com.avaje.ebean.Transaction;
+import com.theEd209s.dataLoading.CkanRefresher;
 import com.theEd209s.dataLoading.DataLoader;
+import com.theEd209s.dataLoading.IngestionService;
+import com.theEd209s.dataLoading.LoaderScheduler;
 import com.theEd209s.dataLoading.dynamicLoaders.MortgageRateLoader;
 import com.theEd209s.dataLoading.dynamicLoaders.NewHousingPriceIndexLoader;
 import com.theEd209s.dataLoading.dynamicLoaders.RentalRatesLoader;
@@ -40,6 +46,10 @@ import com.theEd209s.dataLoading.staticLoaders.CsdIndexesLoader;
 import com.theEd209s.dataLoading.staticLoaders.CsdTypesLoader;
 import com.theEd209s.dataLoading.staticLoaders.ProvinceLoader;
 import com.theEd209s.dataLoading.staticLoaders.UnitTypesLoader;
+import com.theEd209s.lookup.DataRevisions;
+import com.theEd209s.lookup.PlaceNameIndex;
+import com.theEd209s.lookup.PriceIndexStore;
+import com.theEd209s.lookup.ReferenceDataRegistry;
 import com.theEd209s.utils.StringUtils;
 
 /**
@@ -56,70 +66,199 @@ public class Global extends GlobalSettings
 	{
 		
 		Global.attachCommonUtilsLogger();
+		ReferenceDataRegistry.reload();
+		PlaceNameIndex.rebuild();
+		PriceIndexStore.rebuild();
+		DataRevisions.reload();
 		if (!app.isTest())
 		{
-			/* TRUNCATION */
-			if (play.Play.application().configuration().getBoolean("truncateAllStaticTables", false))
+			// Load the data in the background; the node reports that it is not ready until the load completes, as the static stages truncate the tables they reload.
+			// A load which truncates nothing, over tables which are already loaded, keeps it ready; the dynamic stages only merge their changes.
+			// A failed load only keeps it not ready if it removed data; otherwise the previous data is still served.
+			IngestionService.start(new Runnable()
 			{
-				InitData.truncateAllStaticTables();
-			}
-			if (play.Play.application().configuration().getBoolean("truncateAllDynamicTables", false))
-			{
-				InitData.truncateAllDynamicTables();
-			}
-			
-			/* STATIC LOADERS */
-			if (play.Play.application().configuration().getBoolean("populateBuildingType", false))
-			{
-				InitData.checkAndPopulateBuildingType();
-			}
-			if (play.Play.application().configuration().getBoolean("populateUnitType", false))
+				@Override
+				public void run()
+				{
+					Global.ingestData();
+				}
+			}, Global.isIngestionWithoutRemoval());
+			Global.startCkanRefresher();
+		}
+		else
+		{
+			// The in-memory test database starts empty, and H2 can not truncate with a cascade.
+			InitData.populateBuildingType();
+			InitData.populateUnitType();
+		}
+	}
+	
+	@Override
+	public void onStop(Application app)
+	{
+		if (Global.ckanRefresher != null)
+		{
+			Global.ckanRefresher.stop();
+			Global.ckanRefresher = null;
+		}
+		IngestionService.stop();
+	}
+	
+	/* PRIVATE METHODS */
+	/**
+	 * This method will truncate and populate the tables, as configured. <br />
+	 * <br />
+	 * This is run in the background by the {@link IngestionService}.
+	 * 
+	 * @throws IllegalStateException
+	 *             If any of the loading stages failed after its tables had
+	 *             been truncated; so that the ingestion is reported as failed
+	 *             rather than ready.
+	 * @throws IngestionService.StaleDataException
+	 *             If any of the loading stages failed, but none had its
+	 *             tables truncated; so that the ingestion is only reported as
+	 *             stale, as the previously loaded data is still complete.
+	 * */
+	private static void ingestData()
+	{
+		/* TRUNCATION */
+		final boolean truncatedStatic = play.Play.application().configuration().getBoolean("truncateAllStaticTables", false);
+		final boolean truncatedDynamic = play.Play.application().configuration().getBoolean("truncateAllDynamicTables", false);
+		if (truncatedStatic)
+		{
+			InitData.truncateAllStaticTables();
+			ReferenceDataRegistry.reload();
+			PlaceNameIndex.rebuild();
+			DataRevisions.reload();
+		}
+		if (truncatedDynamic)
+		{
+			InitData.truncateAllDynamicTables();
+			PriceIndexStore.rebuild();
+			DataRevisions.reload();
+		}
+		
+		/* LOADERS */
+		// The loaders run concurrently, each once the loaders it depends on have finished.
+		final LoaderScheduler scheduler = new LoaderScheduler(play.Play.application().configuration().getInt("dataLoading.threads", Global.DEFAULT_LOADER_THREADS));
+		for (LoaderStage stage : LoaderStage.values())
+		{
+			if (play.Play.application().configuration().getBoolean(stage.configKey, false))
 			{
-				InitData.checkAndPopulateUnitType();
+				scheduler.schedule(stage.name(), stage, stage.dependencies);
 			}
-			if (play.Play.application().configuration().getBoolean("populateCSDType", false))
+		}
+		try
+		{
+			scheduler.run();
+		}
+		catch (InterruptedException e)
+		{
+			Logger.error("Interrupted while waiting for the data loaders.", e);
+			Thread.currentThread().interrupt();
+			return;
+		}
+		final List<String> failedStages = scheduler.getFailedStages();
+		if (!failedStages.isEmpty())
+		{
+			// The tables of a failed stage are only missing rows if they were truncated; otherwise they still hold the previous data.
+			boolean removedData = truncatedStatic || truncatedDynamic;
+			for (String failedStage : failedStages)
 			{
-				InitData.checkAndPopulateCSDType();
+				removedData |= LoaderStage.valueOf(failedStage).truncating;
 			}
-			if (play.Play.application().configuration().getBoolean("populateCSDIndex", false))
+			if (removedData)
 			{
-				InitData.checkAndPopulateCSDIndex();
+				throw new IllegalStateException("The data loading stages failed: " + failedStages);
 			}
-			if (play.Play.application().configuration().getBoolean("populateProvinces", false))
+			throw new IngestionService.StaleDataException("The data loading stages failed without removing any data: " + failedStages);
+		}
+	}
+	
+	/**
+	 * This method will determine if the configured ingestion removes no data;
+	 * no table is truncated, by the truncate flags or a static stage, and
+	 * every table which is loaded already holds data, so the complete data is
+	 * served while it runs.
+	 * 
+	 * @return <code>true</code> if the configured ingestion removes no data;
+	 *         <code>false</code> otherwise.
+	 * */
+	private static boolean isIngestionWithoutRemoval()
+	{
+		if (play.Play.application().configuration().getBoolean("truncateAllStaticTables", false) || play.Play.application().configuration().getBoolean("truncateAllDynamicTables", false))
+		{
+			return false;
+		}
+		for (LoaderStage stage : LoaderStage.values())
+		{
+			if (play.Play.application().configuration().getBoolean(stage.configKey, false) && (stage.truncating || !stage.hasData()))
 			{
-				InitData.checkAndPopulateProvinces();
+				return false;
 			}
-			if (play.Play.application().configuration().getBoolean("populateCities", false))
+		}
+		return City.find.findRowCount() > 0;
+	}
+	
+	/**
+	 * This method will start polling the CKAN revisions of the dynamic
+	 * data-sets, so that new releases are loaded without a restart; unless
+	 * <code>dataLoading.refresh.enabled</code> is <code>false</code>.
+	 * */
+	private static void startCkanRefresher()
+	{
+		if (!play.Play.application().configuration().getBoolean("dataLoading.refresh.enabled", true))
+		{
+			return;
+		}
+		final long intervalMillis = TimeUnit.MINUTES.toMillis(play.Play.application().configuration().getInt("dataLoading.refresh.intervalMinutes", Global.DEFAULT_REFRESH_INTERVAL_MINUTES));
+		final long jitterMillis = TimeUnit.SECONDS.toMillis(play.Play.application().configuration().getInt("dataLoading.refresh.jitterSeconds", Global.DEFAULT_REFRESH_JITTER_SECONDS));
+		final long maxBackoffMillis = TimeUnit.MINUTES.toMillis(play.Play.application().configuration().getInt("dataLoading.refresh.maxBackoffMinutes", Global.DEFAULT_REFRESH_MAX_BACKOFF_MINUTES));
+		final CkanRefresher refresher = new CkanRefresher(intervalMillis, jitterMillis, maxBackoffMillis);
+		refresher.register("mortgage rates", MortgageRateLoader.CKAN_URL, MortgageRateLoader.CKAN_DATASET_ID, MortgageRateLoader.CKAN_RESOURCE_ID, new CkanRefresher.LoaderFactory()
+		{
+			@Override
+			public DataLoader createLoader()
 			{
-				InitData.checkAndPopulateCities();
+				return new MortgageRateLoader();
 			}
-			
-			/* DYNAMIC LOADING */
-			if (play.Play.application().configuration().getBoolean("populateMortgageRates", false))
+		});
+		refresher.register("rental rates", RentalRatesLoader.CKAN_URL, RentalRatesLoader.CKAN_DATASET_ID, RentalRatesLoader.CKAN_RESOURCE_ID, new CkanRefresher.LoaderFactory()
+		{
+			@Override
+			public DataLoader createLoader()
 			{
-				InitData.checkAndPopulateMortgageRates();
+				return new RentalRatesLoader();
 			}
-			if (play.Play.application().configuration().getBoolean("populateRentalRates", false))
+		});
+		refresher.register("new house price indexes", NewHousingPriceIndexLoader.CKAN_URL, NewHousingPriceIndexLoader.CKAN_DATASET_ID, NewHousingPriceIndexLoader.CKAN_RESOURCE_ID, new CkanRefresher.LoaderFactory()
+		{
+			@Override
+			public DataLoader createLoader()
 			{
-				InitData.checkAndPopulateRentalRates();
+				return new NewHousingPriceIndexLoader();
 			}
-			if (play.Play.application().configuration().getBoolean("populateNewHousePriceIndexes", false))
+		});
+		refresher.register("vacancy rates 1", VacancyData1.CKAN_URL, VacancyData1.CKAN_DATASET_ID, VacancyData1.CKAN_RESOURCE_ID, new CkanRefresher.LoaderFactory()
+		{
+			@Override
+			public DataLoader createLoader()
 			{
-				InitData.checkAndPopulateNewHousePriceIndexes();
+				return new VacancyRateLoader(VacancyData1.CKAN_URL, VacancyData1.CKAN_DATASET_ID, VacancyData1.CKAN_RESOURCE_ID);
 			}
-			if (play.Play.application().configuration().getBoolean("populateVacancyRates", false))
+		});
+		refresher.register("vacancy rates 2", VacancyData2.CKAN_URL, VacancyData2.CKAN_DATASET_ID, VacancyData2.CKAN_RESOURCE_ID, new CkanRefresher.LoaderFactory()
+		{
+			@Override
+			public DataLoader createLoader()
 			{
-				InitData.checkAndPopulateVacancyRates();
+				return new VacancyRateLoader(VacancyData2.CKAN_URL, VacancyData2.CKAN_DATASET_ID, VacancyData2.CKAN_RESOURCE_ID);
 			}
-		}
-		else
-		{
-			InitData.checkAndPopulateBuildingType();
-			InitData.checkAndPopulateUnitType();
-		}
+		});
+		refresher.start();
+		Global.ckanRefresher = refresher;
 	}
 	
-	/* PRIVATE METHODS */
 	/**
 	 * This method will attach the Common Utilities
 	 * {@link com.theEd209s.logging.Logger} to the Play {@link Logger}.
@@ -233,6 +372,178 @@ public class Global extends GlobalSettings
 	}
 	
 	/* PRIVATE CLASSES */
+	/**
+	 * This enum contains all of the data loading stages, in the order they
+	 * were originally run, along with the configuration flag which enables
+	 * each and the stages each depends on. <br />
+	 * <br />
+	 * Truncating a table cascades to the tables which reference it, so a
+	 * stage also depends on every stage whose table it references, even
+	 * indirectly; the dependency still holds when a stage in between is
+	 * disabled. <br />
+	 * The cascades of stages which do not depend on one another, such as
+	 * {@link LoaderStage#BUILDING_TYPES BUILDING_TYPES} and
+	 * {@link LoaderStage#PROVINCES PROVINCES}, still overlap; so the truncates
+	 * themselves are run one at a time, and a stage whose truncate fails
+	 * fails without loading. <br />
+	 * <br />
+	 * The static stages truncate their tables before they reload them, so if
+	 * one fails its tables, and those it cascades to, may be missing rows; the
+	 * dynamic stages never truncate their tables, so if one fails its table
+	 * still holds the previous data.
+	 * */
+	private static enum LoaderStage implements Runnable
+	{
+		/* STATIC LOADING */
+		BUILDING_TYPES("populateBuildingType", true)
+		{
+			@Override
+			public void run()
+			{
+				InitData.checkAndPopulateBuildingType();
+			}
+		},
+		UNIT_TYPES("populateUnitType", true)
+		{
+			@Override
+			public void run()
+			{
+				InitData.checkAndPopulateUnitType();
+			}
+		},
+		CSD_TYPES("populateCSDType", true)
+		{
+			@Override
+			public void run()
+			{
+				InitData.checkAndPopulateCSDType();
+			}
+		},
+		PROVINCES("populateProvinces", true)
+		{
+			@Override
+			public void run()
+			{
+				InitData.checkAndPopulateProvinces();
+			}
+		},
+		CSD_INDEX("populateCSDIndex", true, "CSD_TYPES", "PROVINCES")
+		{
+			@Override
+			public void run()
+			{
+				InitData.checkAndPopulateCSDIndex();
+			}
+		},
+		CITIES("populateCities", true, "CSD_TYPES", "PROVINCES", "CSD_INDEX")
+		{
+			@Override
+			public void run()
+			{
+				InitData.checkAndPopulateCities();
+			}
+		},
+		
+		/* DYNAMIC LOADING */
+		// The mortgage rates are national, so they do not wait for any geography.
+		MORTGAGE_RATES("populateMortgageRates", false)
+		{
+			@Override
+			public void run()
+			{
+				InitData.checkAndPopulateMortgageRates();
+			}
+			
+			@Override
+			public boolean hasData()
+			{
+				return MortgageRate.find.findRowCount() > 0;
+			}
+		},
+		RENTAL_RATES("populateRentalRates", false, "BUILDING_TYPES", "UNIT_TYPES", "PROVINCES", "CITIES")
+		{
+			@Override
+			public void run()
+			{
+				InitData.checkAndPopulateRentalRates();
+			}
+			
+			@Override
+			public boolean hasData()
+			{
+				return RentalRate.find.findRowCount() > 0;
+			}
+		},
+		NEW_HOUSE_PRICE_INDEXES("populateNewHousePriceIndexes", false, "PROVINCES", "CITIES")
+		{
+			@Override
+			public void run()
+			{
+				InitData.checkAndPopulateNewHousePriceIndexes();
+			}
+			
+			@Override
+			public boolean hasData()
+			{
+				return NewHousingPriceIndex.find.findRowCount() > 0;
+			}
+		},
+		VACANCY_RATES("populateVacancyRates", false, "PROVINCES", "CITIES")
+		{
+			@Override
+			public void run()
+			{
+				InitData.checkAndPopulateVacancyRates();
+			}
+			
+			@Override
+			public boolean hasData()
+			{
+				return CityVacancy.find.findRowCount() > 0;
+			}
+		};
+		
+		/* CONSTRUCTORS */
+		/**
+		 * This will create a new instance of a {@link LoaderStage}.
+		 * 
+		 * @param configKey
+		 *            The configuration flag which enables the stage.
+		 * @param truncating
+		 *            <code>true</code> if the stage truncates its tables
+		 *            before loading them; <code>false</code> otherwise.
+		 * @param dependencies
+		 *            The names of the stages which must finish before this
+		 *            stage starts.
+		 * */
+		private LoaderStage(final String configKey, final boolean truncating, final String... dependencies)
+		{
+			this.configKey = configKey;
+			this.truncating = truncating;
+			this.dependencies = dependencies;
+		}
+		
+		/* PUBLIC METHODS */
+		/**
+		 * This method will determine if the tables of the stage already hold
+		 * data. The static stages always truncate their tables, so only the
+		 * dynamic stages check.
+		 * 
+		 * @return <code>true</code> if the tables of the stage hold data;
+		 *         <code>false</code> otherwise.
+		 * */
+		public boolean hasData()
+		{
+			return true;
+		}
+		
+		/* PRIVATE VARIABLES */
+		private final String configKey;
+		private final boolean truncating;
+		private final String[] dependencies;
+		
+	}
+	
 	/**
 	 * This class contains all methods for initializing data.
 	 * */
@@ -276,11 +587,21 @@ public class Global extends GlobalSettings
 			{	
 				
 			}
+			InitData.populateBuildingType();
+		}
+		
+		/**
+		 * This method will import the building types, without truncating them
+		 * first.
+		 * */
+		public static void populateBuildingType()
+		{
 			Logger.info("Importing building types ....");
 			final DataLoader loader = new BuildingTypesLoader();
-			startTime = (new Date()).getTime();
+			long startTime = (new Date()).getTime();
 			loader.parseFile();
-			endTime = (new Date()).getTime();
+			InitData.checkLoaded(loader, "building types");
+			long endTime = (new Date()).getTime();
 			try
 			{
 				Logger.info("Imported building types completed: " + StringUtils.humanReadableElapsedTime(endTime - startTime));
@@ -305,11 +626,21 @@ public class Global extends GlobalSettings
 			{	
 				
 			}
+			InitData.populateUnitType();
+		}
+		
+		/**
+		 * This method will import the unit types, without truncating them
+		 * first.
+		 * */
+		public static void populateUnitType()
+		{
 			Logger.info("Importing unit types ....");
 			final DataLoader loader = new UnitTypesLoader();
-			startTime = (new Date()).getTime();
+			long startTime = (new Date()).getTime();
 			loader.parseFile();
-			endTime = (new Date()).getTime();
+			InitData.checkLoaded(loader, "unit types");
+			long endTime = (new Date()).getTime();
 			try
 			{
 				Logger.info("Imported unit types completed: " + StringUtils.humanReadableElapsedTime(endTime - startTime));
@@ -338,6 +669,7 @@ public class Global extends GlobalSettings
 			final DataLoader loader = new CsdTypesLoader();
 			startTime = (new Date()).getTime();
 			loader.parseFile();
+			InitData.checkLoaded(loader, "CSD types");
 			endTime = (new Date()).getTime();
 			try
 			{
@@ -367,6 +699,7 @@ public class Global extends GlobalSettings
 			final DataLoader loader = new CsdIndexesLoader();
 			startTime = (new Date()).getTime();
 			loader.parseFile();
+			InitData.checkLoaded(loader, "CSD indexes");
 			endTime = (new Date()).getTime();
 			try
 			{
@@ -396,6 +729,7 @@ public class Global extends GlobalSettings
 			final ProvinceLoader loader = new ProvinceLoader();
 			startTime = (new Date()).getTime();
 			loader.parseFile();
+			InitData.checkLoaded(loader, "Provinces");
 			endTime = (new Date()).getTime();
 			try
 			{
@@ -426,7 +760,10 @@ public class Global extends GlobalSettings
 			
 			startTime = (new Date()).getTime();
 			CitiesLoader loader = new CitiesLoader();
-			loader.populateCities();
+			if (!loader.populateCities())
+			{
+				throw new IllegalStateException("Failed to import cities.");
+			}
 			
 			endTime = (new Date()).getTime();
 			try
@@ -466,6 +803,7 @@ public class Global extends GlobalSettings
 			final DataLoader loader = new RentalRatesLoader();
 			long startTime = (new Date()).getTime();
 			loader.parseFile();
+			InitData.checkLoaded(loader, "rental rates");
 			long endTime = (new Date()).getTime();
 			try
 			{
@@ -483,6 +821,7 @@ public class Global extends GlobalSettings
 			final DataLoader loader = new MortgageRateLoader();
 			long startTime = (new Date()).getTime();
 			loader.parseFile();
+			InitData.checkLoaded(loader, "mortgage rates");
 			long endTime = (new Date()).getTime();
 			try
 			{
@@ -500,6 +839,7 @@ public class Global extends GlobalSettings
 			final DataLoader loader = new NewHousingPriceIndexLoader();
 			long startTime = (new Date()).getTime();
 			loader.parseFile();
+			InitData.checkLoaded(loader, "new house price indexes");
 			long endTime = (new Date()).getTime();
 			try
 			{
@@ -514,9 +854,9 @@ public class Global extends GlobalSettings
 		public static void checkAndPopulateVacancyRates()
 		{
 			Logger.info("Importing new vacancy rates 1 ....");
-			DataLoader loader = new VacancyRateLoader(VacancyData1.CKAN_URL, VacancyData1.CKAN_DATASET_ID, VacancyData1.CKAN_RESOURCE_ID);
+			final DataLoader firstLoader = new VacancyRateLoader(VacancyData1.CKAN_URL, VacancyData1.CKAN_DATASET_ID, VacancyData1.CKAN_RESOURCE_ID);
 			long startTime = (new Date()).getTime();
-			loader.parseFile();
+			firstLoader.parseFile();
 			long endTime = (new Date()).getTime();
 			try
 			{
@@ -527,9 +867,9 @@ public class Global extends GlobalSettings
 				
 			}
 			Logger.info("Importing new vacancy rates 2 ....");
-			loader = new VacancyRateLoader(VacancyData2.CKAN_URL, VacancyData2.CKAN_DATASET_ID, VacancyData2.CKAN_RESOURCE_ID);
+			final DataLoader secondLoader = new VacancyRateLoader(VacancyData2.CKAN_URL, VacancyData2.CKAN_DATASET_ID, VacancyData2.CKAN_RESOURCE_ID);
 			startTime = (new Date()).getTime();
-			loader.parseFile();
+			secondLoader.parseFile();
 			endTime = (new Date()).getTime();
 			try
 			{
@@ -539,16 +879,43 @@ public class Global extends GlobalSettings
 			{	
 				
 			}
+			// Both are loaded before either failure fails the stage.
+			InitData.checkLoaded(firstLoader, "new vacancy rates 1");
+			InitData.checkLoaded(secondLoader, "new vacancy rates 2");
 		}
 		
-		/* PRIVATE METHODS */
 		/* PRIVATE METHODS */
+		/**
+		 * This method will fail the stage if the specified
+		 * {@link DataLoader} failed to load its file.
+		 * 
+		 * @param loader
+		 *            The {@link DataLoader} which has been run.
+		 * @param name
+		 *            The name of the data which it loads.
+		 * 
+		 * @throws IllegalStateException
+		 *             If the {@link DataLoader} failed.
+		 * */
+		private static void checkLoaded(final DataLoader loader, final String name)
+		{
+			if (loader.hasFailed())
+			{
+				throw new IllegalStateException("Failed to import " + name + ".");
+			}
+		}
+		
 		/**
 		 * This method will truncate the table referenced by the specified
-		 * class.
+		 * class, along with every table which references it. <br />
+		 * <br />
+		 * Only one table is truncated at a time, even by concurrent stages.
 		 * 
 		 * @param entityClass
 		 *            The {@link Model} class to truncate.
+		 * 
+		 * @throws IllegalStateException
+		 *             If the table could not be truncated.
 		 * */
 		private static void truncateTable(Class<? extends Model> entityClass)
 		{
@@ -560,39 +927,79 @@ public class Global extends GlobalSettings
 					final String tableName = table.name();
 					if (!StringUtils.isNullOrEmpty(tableName))
 					{
-						final Transaction tran = Ebean.beginTransaction();
-						Connection conn = null;
-						try
-						{
-							conn = tran.getConnection();
-							conn.createStatement().executeUpdate("truncate table " + tableName + " cascade");
-							Ebean.commitTransaction();
-						}
-						catch (SQLException e)
+						// The truncates cascade to overlapping tables; run concurrently, each could hold a table that another is waiting for.
+						synchronized (InitData.TRUNCATE_LOCK)
 						{
-							Logger.error("Error truncating table" + tableName, e);
-						}
-						finally
-						{
-							Ebean.endTransaction();
-							if (conn != null)
+							final Transaction tran = Ebean.beginTransaction();
+							Connection conn = null;
+							try
 							{
-								try
-								{
-									conn.close();
-								}
-								catch (SQLException e)
+								conn = tran.getConnection();
+								conn.createStatement().executeUpdate("truncate table " + tableName + " cascade");
+								Ebean.commitTransaction();
+							}
+							catch (SQLException e)
+							{
+								// Loading on top of the old rows would duplicate them.
+								throw new IllegalStateException("Error truncating table " + tableName, e);
+							}
+							finally
+							{
+								Ebean.endTransaction();
+								if (conn != null)
 								{
-									Logger.warn("Failed to close connection.", e);
+									try
+									{
+										conn.close();
+									}
+									catch (SQLException e)
+									{
+										Logger.warn("Failed to close connection.", e);
+									}
 								}
 							}
 						}
 						Ebean.getServerCacheManager().clearAll();
+						// The responses built while the table is empty must not outlive it, even if the same rows are reloaded.
+						DataVersion.advance();
+						DataRevisions.reload();
 					}
 				}
 			}
 		}
 		
+		/* PRIVATE CONSTANTS */
+		/**
+		 * The lock which serializes the truncates.
+		 * */
+		private static final Object TRUNCATE_LOCK = new Object();
+		
 	}
 	
+	/* PRIVATE CONSTANTS */
+	/**
+	 * The number of loaders which may run at the same time, unless
+	 * <code>dataLoading.threads</code> is configured.
+	 * */
+	private static final int DEFAULT_LOADER_THREADS = 4;
+	/**
+	 * The number of minutes between CKAN refresh polls, unless
+	 * <code>dataLoading.refresh.intervalMinutes</code> is configured.
+	 * */
+	private static final int DEFAULT_REFRESH_INTERVAL_MINUTES = 360;
+	/**
+	 * The maximum number of seconds added to each CKAN refresh interval,
+	 * unless <code>dataLoading.refresh.jitterSeconds</code> is configured.
+	 * */
+	private static final int DEFAULT_REFRESH_JITTER_SECONDS = 300;
+	/**
+	 * The maximum number of minutes a failing data-set is left before it is
+	 * attempted again, unless <code>dataLoading.refresh.maxBackoffMinutes</code>
+	 * is configured.
+	 * */
+	private static final int DEFAULT_REFRESH_MAX_BACKOFF_MINUTES = 1440;
+	
+	/* PRIVATE VARIABLES */
+	private static CkanRefresher ckanRefresher = null;
+	
 }
@@ -0,0 +1,648 @@
+package com.theEd209s.dataLoading;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import play.Logger;
+
+import com.theEd209s.utils.DownloadUtils;
+import com.theEd209s.utils.DownloadUtils.Downloader;
+import com.theEd209s.utils.DownloadUtils.Downloader.DownloadCompleteCmd;
+
+/**
+ * This class is a persistent, on-disk cache of the files which the
+ * {@link DataLoader}s download; so that a file which has not changed is not
+ * downloaded again. <br />
+ * <br />
+ * The files are stored by the SHA-256 hash of their content, so identical
+ * files are only stored once; each url is mapped to the file it last served,
+ * along with the CKAN revision it was fetched for and the <code>ETag</code>
+ * and <code>Last-Modified</code> headers it was served with. <br />
+ * A file is served straight from the cache if it was fetched for the same
+ * revision; otherwise it is requested with <code>If-None-Match</code> and
+ * <code>If-Modified-Since</code>, so that an unchanged file costs a
+ * <code>304</code> rather than a full transfer. <br />
+ * Every request is made through a {@link Downloader}; so the files are
+ * retried, resumed and split into segments just as any other download. <br />
+ * <br />
+ * Once the cache grows beyond its maximum size, the least recently used
+ * files are evicted; except for those which are leased, by this or any other
+ * node, as they are still being parsed. Each fetched file is leased until it
+ * is {@link ArtifactCache#release(File) released}. <br />
+ * Every file is downloaded to a separate directory and then moved into
+ * place, so that several nodes may share the same directory; a node which
+ * finds that another has already stored the same content uses that.
+ * */
+public class ArtifactCache
+{
+
+	/* CONSTRUCTORS */
+	/**
+	 * This will create a new instance of an {@link ArtifactCache}.
+	 *
+	 * @param directory
+	 * The directory to store the files in; it is created if it does not
+	 * exist.
+	 * @param maxSize
+	 * The maximum total size, in bytes, of the files.
+	 * */
+	public ArtifactCache(final File directory, final long maxSize)
+	{
+		this(directory, maxSize, 1);
+	}
+
+	/**
+	 * This will create a new instance of an {@link ArtifactCache}.
+	 *
+	 * @param directory
+	 * The directory to store the files in; it is created if it does not
+	 * exist.
+	 * @param maxSize
+	 * The maximum total size, in bytes, of the files.
+	 * @param segmentCount
+	 * The number of connections to download each file over; if greater than
+	 * 1, the files are fetched in segments where the server allows it.
+	 * */
+	public ArtifactCache(final File directory, final long maxSize, final int segmentCount)
+	{
+		this.contentDir = new File(directory, "content");
+		this.indexDir = new File(directory, "index");
+		this.downloadDir = new File(directory, "download");
+		this.leaseDir = new File(directory, "lease");
+		this.maxSize = maxSize;
+		this.segmentCount = segmentCount;
+	}
+
+	/* PUBLIC METHODS */
+	/**
+	 * This method will get the file at the specified url, for the specified
+	 * revision; downloading it only if the cached file is missing or has
+	 * changed. <br />
+	 * <br />
+	 * The returned {@link File} belongs to the cache; it must not be modified
+	 * or deleted. It is leased to the caller, and so is not evicted, until it
+	 * is passed to the {@link ArtifactCache#release(File) release(File)}
+	 * method.
+	 *
+	 * @param sourceUrl
+	 * The url of the file.
+	 * @param revision
+	 * The revision which the file is wanted for; such as the CKAN revision
+	 * time.
+	 *
+	 * @return
+	 * The cached {@link File}.
+	 *
+	 * @throws IOException
+	 * If the file is not cached and could not be downloaded.
+	 * */
+	public File fetch(final URL sourceUrl, final String revision) throws IOException
+	{
+		if ((!this.contentDir.isDirectory() && !this.contentDir.mkdirs()) || (!this.indexDir.isDirectory() && !this.indexDir.mkdirs()) || (!this.downloadDir.isDirectory() && !this.downloadDir.mkdirs()) || (!this.leaseDir.isDirectory() && !this.leaseDir.mkdirs()))
+		{
+			throw new IOException("Failed to create artifact cache directory: " + this.contentDir.getParentFile().getAbsolutePath());
+		}
+		final File indexFile = new File(this.indexDir, ArtifactCache.toHex(ArtifactCache.digest().digest(sourceUrl.toExternalForm().getBytes(ArtifactCache.UTF_8))) + ".properties");
+		Properties index = this.readIndex(indexFile);
+		File cachedFile = (index != null) ? new File(this.contentDir, index.getProperty(ArtifactCache.KEY_CONTENT, "")) : null;
+		if ((cachedFile != null) && !cachedFile.isFile())
+		{
+			// The file has been evicted since it was last fetched.
+			index = null;
+			cachedFile = null;
+		}
+		if ((index != null) && revision.equals(index.getProperty(ArtifactCache.KEY_REVISION)))
+		{
+			if (this.leaseIfPresent(cachedFile))
+			{
+				Logger.info("Artifact cache hit: " + sourceUrl);
+				return cachedFile;
+			}
+			// Another node evicted the file before it could be leased.
+			index = null;
+		}
+		final File downloadFile = File.createTempFile("download", ArtifactCache.TMP_EXTENSION, this.downloadDir);
+		final Downloader downloader;
+		try
+		{
+			downloader = this.download(sourceUrl, index, downloadFile);
+			if (downloader.isNotModified() && (index != null))
+			{
+				if (!this.leaseIfPresent(cachedFile))
+				{
+					throw new IOException("Artifact was evicted while it was revalidated: " + sourceUrl);
+				}
+				Logger.info("Artifact cache revalidated: " + sourceUrl);
+				index.setProperty(ArtifactCache.KEY_REVISION, revision);
+				this.writeIndex(indexFile, index);
+				return cachedFile;
+			}
+			Logger.info("Artifact cache miss: " + sourceUrl);
+			cachedFile = this.store(downloadFile, ArtifactCache.getExtension(sourceUrl));
+			this.lease(cachedFile);
+		}
+		finally
+		{
+			ArtifactCache.delete(downloadFile);
+			// The Downloader keeps a partial download beside the destination; it is of no use once it has given up.
+			ArtifactCache.delete(new File(this.downloadDir, downloadFile.getName() + "_tmpDownload"));
+		}
+		index = new Properties();
+		index.setProperty(ArtifactCache.KEY_URL, sourceUrl.toExternalForm());
+		index.setProperty(ArtifactCache.KEY_REVISION, revision);
+		index.setProperty(ArtifactCache.KEY_CONTENT, cachedFile.getName());
+		index.setProperty(ArtifactCache.KEY_LAST_MODIFIED, String.valueOf(downloader.getLastModified()));
+		if (downloader.getETag() != null)
+		{
+			index.setProperty(ArtifactCache.KEY_ETAG, downloader.getETag());
+		}
+		this.writeIndex(indexFile, index);
+		this.evict();
+		return cachedFile;
+	}
+
+	/**
+	 * This method will end the lease of the specified {@link File}, which was
+	 * returned by the {@link ArtifactCache#fetch(URL, String) fetch(URL,
+	 * String)} method; once every lease of it has ended, it may be evicted.
+	 *
+	 * @param cachedFile
+	 * The cached {@link File}.
+	 * */
+	public synchronized void release(final File cachedFile)
+	{
+		final Integer count = this.leaseCounts.get(cachedFile.getName());
+		if (count == null)
+		{
+			return;
+		}
+		if (count.intValue() > 1)
+		{
+			this.leaseCounts.put(cachedFile.getName(), Integer.valueOf(count.intValue() - 1));
+			return;
+		}
+		this.leaseCounts.remove(cachedFile.getName());
+		ArtifactCache.delete(this.getLeaseFile(cachedFile));
+	}
+
+	/* PRIVATE METHODS */
+	/**
+	 * This method will download the file at the specified url, via a
+	 * {@link Downloader}; so that it is retried, resumed and split into
+	 * segments, just as any other download. <br />
+	 * If the url has been cached, the request is made conditional on the
+	 * validators of the cached file.
+	 *
+	 * @param sourceUrl
+	 * The url of the file.
+	 * @param index
+	 * The index of the url or <code>null</code> if it has not been cached.
+	 * @param downloadFile
+	 * The {@link File} to download to.
+	 *
+	 * @return
+	 * The {@link Downloader} which completed the download; if it reports
+	 * {@link Downloader#isNotModified() isNotModified()}, nothing was
+	 * downloaded.
+	 *
+	 * @throws IOException
+	 * If the file could not be downloaded.
+	 * */
+	private Downloader download(final URL sourceUrl, final Properties index, final File downloadFile) throws IOException
+	{
+		final boolean[] downloadSuccessful = new boolean[] { false };
+		final DownloadCompleteCmd downloadCompleteCmd = new DownloadCompleteCmd()
+		{
+			@Override
+			public void downloadComplete(final boolean successful)
+			{
+				downloadSuccessful[0] = successful;
+			}
+		};
+		final Downloader downloader = (this.segmentCount > 1) ? DownloadUtils.getSegmentedDownloader(downloadCompleteCmd, null, null, 0L, sourceUrl, 0L, downloadFile, null, -1, -1, 0, true, this.segmentCount) : DownloadUtils.getDownloader(downloadCompleteCmd, null, null, 0L, sourceUrl, 0L, downloadFile, null, -1, -1, 0, true);
+		if (index != null)
+		{
+			downloader.setValidators(index.getProperty(ArtifactCache.KEY_ETAG), Long.parseLong(index.getProperty(ArtifactCache.KEY_LAST_MODIFIED, "0")));
+		}
+		downloader.run();
+		if (!downloadSuccessful[0])
+		{
+			throw new IOException("Failed to download: " + sourceUrl);
+		}
+		return downloader;
+	}
+
+	/**
+	 * This method will move the specified downloaded {@link File} into the
+	 * cache; under the SHA-256 hash of its content.
+	 *
+	 * @param downloadFile
+	 * The downloaded {@link File}.
+	 * @param extension
+	 * The extension of the file; such as <code>.zip</code>.
+	 *
+	 * @return
+	 * The cached {@link File}.
+	 * */
+	private File store(final File downloadFile, final String extension) throws IOException
+	{
+		final MessageDigest digest = ArtifactCache.digest();
+		final InputStream is = new FileInputStream(downloadFile);
+		try
+		{
+			final byte[] buffer = new byte[ArtifactCache.BUFFER_SIZE];
+			int count = 0;
+			while ((count = is.read(buffer)) != -1)
+			{
+				digest.update(buffer, 0, count);
+			}
+		}
+		finally
+		{
+			is.close();
+		}
+		final File cachedFile = new File(this.contentDir, ArtifactCache.toHex(digest.digest()) + extension);
+		if (cachedFile.isFile())
+		{
+			// The same content is already cached; for another url or an earlier revision.
+			return this.touch(cachedFile);
+		}
+		try
+		{
+			Files.move(downloadFile.toPath(), cachedFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (FileAlreadyExistsException faee)
+		{
+			// Another node stored the same content since it was checked for.
+			return this.touch(cachedFile);
+		}
+		return cachedFile;
+	}
+
+	/**
+	 * This method will delete the least recently used files until the total
+	 * size of the cache is within its maximum; the files which are leased, by
+	 * this or any other node, are never deleted.
+	 * */
+	private synchronized void evict()
+	{
+		final File[] files = this.contentDir.listFiles();
+		if (files == null)
+		{
+			return;
+		}
+		final File[] leaseFiles = this.leaseDir.listFiles();
+		long totalSize = 0L;
+		for (File file : files)
+		{
+			totalSize += file.length();
+		}
+		if (totalSize <= this.maxSize)
+		{
+			return;
+		}
+		Arrays.sort(files, new Comparator<File>()
+		{
+			@Override
+			public int compare(final File a, final File b)
+			{
+				return Long.compare(a.lastModified(), b.lastModified());
+			}
+		});
+		for (File file : files)
+		{
+			if (totalSize <= this.maxSize)
+			{
+				break;
+			}
+			if (ArtifactCache.isLeased(file, leaseFiles))
+			{
+				continue;
+			}
+			final long size = file.length();
+			if (file.delete())
+			{
+				Logger.info("Evicted from artifact cache: " + file.getName());
+				totalSize -= size;
+			}
+		}
+	}
+
+	/**
+	 * This method will lease the specified {@link File}, if it is still
+	 * cached; the lease is taken before the {@link File} is checked for, so
+	 * that it can not be evicted once found.
+	 *
+	 * @param cachedFile
+	 * The cached {@link File}.
+	 *
+	 * @return
+	 * <code>true</code> if the {@link File} is cached, and has been leased;
+	 * <code>false</code> otherwise.
+	 * */
+	private boolean leaseIfPresent(final File cachedFile) throws IOException
+	{
+		this.lease(cachedFile);
+		if (!cachedFile.isFile())
+		{
+			this.release(cachedFile);
+			return false;
+		}
+		this.touch(cachedFile);
+		return true;
+	}
+
+	/**
+	 * This method will lease the specified {@link File}; the first lease
+	 * which this node takes of it creates its lease file, so that the other
+	 * nodes sharing the directory do not evict it either.
+	 *
+	 * @param cachedFile
+	 * The cached {@link File}.
+	 * */
+	private synchronized void lease(final File cachedFile) throws IOException
+	{
+		final Integer count = this.leaseCounts.get(cachedFile.getName());
+		if (count == null)
+		{
+			final File leaseFile = this.getLeaseFile(cachedFile);
+			if (!leaseFile.createNewFile() && !leaseFile.isFile())
+			{
+				throw new IOException("Failed to lease cached artifact: " + cachedFile.getAbsolutePath());
+			}
+		}
+		this.leaseCounts.put(cachedFile.getName(), Integer.valueOf((count == null) ? 1 : (count.intValue() + 1)));
+	}
+
+	/**
+	 * This method will get the lease file of this node for the specified
+	 * {@link File}.
+	 *
+	 * @param cachedFile
+	 * The cached {@link File}.
+	 *
+	 * @return
+	 * The lease file.
+	 * */
+	private File getLeaseFile(final File cachedFile)
+	{
+		return new File(this.leaseDir, cachedFile.getName() + "." + this.leaseId + ArtifactCache.LEASE_EXTENSION);
+	}
+
+	/**
+	 * This method will determine if the specified {@link File} is leased by
+	 * any node; a lease which is older than
+	 * {@link ArtifactCache#STALE_LEASE_MILLIS} was left behind by a node
+	 * which stopped without releasing it, and is ignored.
+	 *
+	 * @param file
+	 * The cached {@link File}.
+	 * @param leaseFiles
+	 * The lease files of every node or <code>null</code> if there are none.
+	 *
+	 * @return
+	 * <code>true</code> if the {@link File} is leased; <code>false</code>
+	 * otherwise.
+	 * */
+	private static boolean isLeased(final File file, final File[] leaseFiles)
+	{
+		if (leaseFiles == null)
+		{
+			return false;
+		}
+		final String prefix = file.getName() + ".";
+		final long staleTime = System.currentTimeMillis() - ArtifactCache.STALE_LEASE_MILLIS;
+		for (File leaseFile : leaseFiles)
+		{
+			if (leaseFile.getName().startsWith(prefix) && (leaseFile.lastModified() > staleTime))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * This method will mark the specified {@link File} as used; so that it is
+	 * the last to be evicted.
+	 *
+	 * @param file
+	 * The cached {@link File}.
+	 *
+	 * @return
+	 * The cached {@link File}.
+	 * */
+	private File touch(final File file)
+	{
+		if (!file.setLastModified(System.currentTimeMillis()))
+		{
+			Logger.warn("Failed to touch cached artifact: " + file.getAbsolutePath());
+		}
+		return file;
+	}
+
+	/**
+	 * This method will delete the specified {@link File}, if it exists;
+	 * logging, rather than throwing, any failure.
+	 *
+	 * @param file
+	 * The {@link File} to delete.
+	 * */
+	private static void delete(final File file)
+	{
+		if (file.exists() && !file.delete())
+		{
+			Logger.warn("Failed to delete temporary artifact file: " + file.getAbsolutePath());
+		}
+	}
+
+	/**
+	 * This method will read the specified index file.
+	 *
+	 * @param indexFile
+	 * The index file of a url.
+	 *
+	 * @return
+	 * The index or <code>null</code> if the url has not been cached.
+	 * */
+	private Properties readIndex(final File indexFile)
+	{
+		if (!indexFile.isFile())
+		{
+			return null;
+		}
+		final Properties index = new Properties();
+		try
+		{
+			final InputStream is = new FileInputStream(indexFile);
+			try
+			{
+				index.load(is);
+			}
+			finally
+			{
+				is.close();
+			}
+		}
+		catch (IOException ioe)
+		{
+			Logger.warn("Failed to read artifact cache index: " + indexFile.getAbsolutePath(), ioe);
+			return null;
+		}
+		return index.containsKey(ArtifactCache.KEY_CONTENT) ? index : null;
+	}
+
+	/**
+	 * This method will write the specified index file; replacing it in a
+	 * single move, so that it is never read half written.
+	 *
+	 * @param indexFile
+	 * The index file of a url.
+	 * @param index
+	 * The index to write.
+	 * */
+	private void writeIndex(final File indexFile, final Properties index) throws IOException
+	{
+		final File tmpFile = File.createTempFile("index", ArtifactCache.TMP_EXTENSION, this.indexDir);
+		try
+		{
+			final OutputStream os = new FileOutputStream(tmpFile);
+			try
+			{
+				index.store(os, null);
+			}
+			finally
+			{
+				os.close();
+			}
+			Files.move(tmpFile.toPath(), indexFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		finally
+		{
+			if (tmpFile.exists() && !tmpFile.delete())
+			{
+				Logger.warn("Failed to delete temporary index file: " + tmpFile.getAbsolutePath());
+			}
+		}
+	}
+
+	/**
+	 * This method will get the extension of the file at the specified url;
+	 * such as <code>.zip</code>.
+	 *
+	 * @param sourceUrl
+	 * The url of the file.
+	 *
+	 * @return
+	 * The extension, including the dot, or an empty {@link String} if it
+	 * has none.
+	 * */
+	private static String getExtension(final URL sourceUrl)
+	{
+		final String path = sourceUrl.getPath();
+		final int lastDotIndex = path.lastIndexOf('.');
+		if ((lastDotIndex > path.lastIndexOf('/')) && (lastDotIndex < (path.length() - 1)))
+		{
+			return path.substring(lastDotIndex).toLowerCase();
+		}
+		return "";
+	}
+
+	/**
+	 * This method will create a SHA-256 {@link MessageDigest}.
+	 *
+	 * @return
+	 * The {@link MessageDigest}.
+	 * */
+	private static MessageDigest digest()
+	{
+		try
+		{
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException nsae)
+		{
+			// Every Java platform is required to support SHA-256.
+			throw new IllegalStateException(nsae);
+		}
+	}
+
+	/**
+	 * This method will convert the specified bytes to lower-case hex.
+	 *
+	 * @param bytes
+	 * The bytes.
+	 *
+	 * @return
+	 * The hex {@link String}.
+	 * */
+	private static String toHex(final byte[] bytes)
+	{
+		final StringBuilder hex = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes)
+		{
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
+	/* PRIVATE CONSTANTS */
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final String KEY_URL = "url";
+	private static final String KEY_REVISION = "revision";
+	private static final String KEY_CONTENT = "content";
+	private static final String KEY_ETAG = "etag";
+	private static final String KEY_LAST_MODIFIED = "lastModified";
+	/**
+	 * The extension of the files which are still being written.
+	 * */
+	private static final String TMP_EXTENSION = ".tmp";
+	/**
+	 * The extension of the lease files.
+	 * */
+	private static final String LEASE_EXTENSION = ".lease";
+	/**
+	 * The age, in milliseconds, after which a lease is ignored; no file takes
+	 * anywhere near this long to parse.
+	 * */
+	private static final long STALE_LEASE_MILLIS = TimeUnit.DAYS.toMillis(1L);
+	/**
+	 * The number of bytes read at a time when hashing a downloaded file.
+	 * */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/* PRIVATE VARIABLES */
+	private final File contentDir;
+	private final File indexDir;
+	private final File downloadDir;
+	private final File leaseDir;
+	private final long maxSize;
+	private final int segmentCount;
+	/**
+	 * The ID of this node's lease files.
+	 * */
+	private final String leaseId = UUID.randomUUID().toString();
+	/**
+	 * The number of leases this node holds of each file; by its name.
+	 * */
+	private final Map<String, Integer> leaseCounts = new HashMap<String, Integer>();
+
+}
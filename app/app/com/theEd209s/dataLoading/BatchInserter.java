@@ -0,0 +1,210 @@
+package com.theEd209s.dataLoading;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import play.Logger;
+
+import com.avaje.ebean.Ebean;
+import com.avaje.ebean.EbeanServer;
+import com.avaje.ebean.Transaction;
+
+/**
+ * This class will insert entities into the database in batches. <br />
+ * <br />
+ * The entities are queued via {@link BatchInserter#add(Object) add(Object)};
+ * each time the queue reaches the batch size it is saved within a single
+ * explicit transaction, using JDBC batching, rather than each entity being
+ * saved in its own implicit transaction. <br />
+ * The entities are always inserted, never updated. <br />
+ * If a batch fails, it is rolled back and its entities are retried one at a
+ * time, so only the entities which can not be saved are lost; the failure is
+ * reported per batch. <br />
+ * <br />
+ * Once all of the entities have been added,
+ * {@link BatchInserter#flush() flush()} must be called to save the final,
+ * partial, batch.
+ * */
+public class BatchInserter implements RowSink
+{
+
+	/* CONSTRUCTORS */
+	/**
+	 * This will create a new instance of a {@link BatchInserter}.
+	 *
+	 * @param name
+	 * The name of the data being inserted; used when reporting failures.
+	 * @param batchSize
+	 * The number of entities to save within each transaction.
+	 * */
+	public BatchInserter(final String name, final int batchSize)
+	{
+		this.name = name;
+		this.batchSize = Math.max(1, batchSize);
+		this.pending = new ArrayList<Object>(this.batchSize);
+		this.server = Ebean.getServer(null);
+	}
+
+	/* PUBLIC METHODS */
+	/**
+	 * This method will queue the specified entity to be inserted; saving the
+	 * current batch if it is full.
+	 *
+	 * @param entity
+	 * The entity to insert.
+	 * */
+	@Override
+	public void add(final Object entity)
+	{
+		this.pending.add(entity);
+		if (this.pending.size() >= this.batchSize)
+		{
+			this.flush();
+		}
+	}
+
+	/**
+	 * This method will save all of the queued entities.
+	 * */
+	@Override
+	public void flush()
+	{
+		if (this.pending.size() > 0)
+		{
+			this.batchCount++;
+			try
+			{
+				this.saveBatch();
+				this.insertedCount += this.pending.size();
+			}
+			catch (Exception e)
+			{
+				Logger.warn(this.name + " batch " + this.batchCount + " of " + this.pending.size() + " rows failed; retrying the rows one at a time.", e);
+				this.saveIndividually();
+			}
+			finally
+			{
+				this.pending.clear();
+			}
+		}
+	}
+
+	/**
+	 * This method will drop all of the queued entities without saving them.
+	 * */
+	@Override
+	public void discard()
+	{
+		this.pending.clear();
+	}
+
+	/**
+	 * This method does nothing; every entity has already been saved by
+	 * {@link BatchInserter#flush() flush()}.
+	 * */
+	@Override
+	public void complete()
+	{
+
+	}
+
+	/**
+	 * This method will get the number of entities which have been inserted.
+	 *
+	 * @return
+	 * The number of entities which have been inserted.
+	 * */
+	@Override
+	public int getInsertedCount()
+	{
+		return this.insertedCount;
+	}
+
+	/**
+	 * This method will get the number of entities which could not be
+	 * inserted.
+	 *
+	 * @return
+	 * The number of entities which could not be inserted.
+	 * */
+	@Override
+	public int getFailedCount()
+	{
+		return this.failedCount;
+	}
+
+	/**
+	 * This method will get the number of batches which have been saved.
+	 *
+	 * @return
+	 * The number of batches which have been saved.
+	 * */
+	public int getBatchCount()
+	{
+		return this.batchCount;
+	}
+
+	/* PRIVATE METHODS */
+	/**
+	 * This method will save all of the queued entities within a single
+	 * transaction.
+	 * */
+	private void saveBatch()
+	{
+		final Transaction transaction = this.server.createTransaction();
+		try
+		{
+			transaction.setBatchMode(true);
+			transaction.setBatchSize(this.batchSize);
+			// None of the loaders need the generated IDs; fetching them would defeat the batching.
+			transaction.setBatchGetGeneratedKeys(false);
+			for (Object entity : this.pending)
+			{
+				this.server.insert(entity, transaction);
+			}
+			transaction.commit();
+		}
+		finally
+		{
+			transaction.end();
+		}
+	}
+
+	/**
+	 * This method will save each of the queued entities within its own
+	 * transaction; reporting those which fail.
+	 * */
+	private void saveIndividually()
+	{
+		int batchFailedCount = 0;
+		for (Object entity : this.pending)
+		{
+			try
+			{
+				// Always insert; a bean from the failed batch may already be marked as saved.
+				this.server.insert(entity);
+				this.insertedCount++;
+			}
+			catch (Exception e)
+			{
+				batchFailedCount++;
+				Logger.debug("Failed to save " + this.name + " row to database: " + entity, e);
+			}
+		}
+		if (batchFailedCount > 0)
+		{
+			this.failedCount += batchFailedCount;
+			Logger.error(this.name + " batch " + this.batchCount + ": " + batchFailedCount + " of " + this.pending.size() + " rows could not be saved.");
+		}
+	}
+
+	/* PRIVATE VARIABLES */
+	private final EbeanServer server;
+	private final String name;
+	private final int batchSize;
+	private final List<Object> pending;
+	private int insertedCount = 0;
+	private int failedCount = 0;
+	private int batchCount = 0;
+
+}
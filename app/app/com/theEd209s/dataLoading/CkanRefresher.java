@@ -0,0 +1,426 @@
+package com.theEd209s.dataLoading;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import models.CkanRevision;
+import play.Logger;
+
+/**
+ * This class will periodically check the CKAN revisions of the registered
+ * data-sets and reload those which have been updated; so that new releases
+ * are picked up without restarting the application. <br />
+ * <br />
+ * Each poll only reads the metadata of the data-sets, via
+ * {@link RemoteRevision}; a data-set is only downloaded and loaded when its
+ * remote revision is newer than the {@link CkanRevision} that was last loaded.
+ * <br />
+ * The polls are spaced by the interval plus a random jitter, so that several
+ * nodes do not all poll, and load, at the same moment. <br />
+ * When checking or loading a data-set fails, it is not attempted again until
+ * a backoff has passed; the backoff doubles with each consecutive failure, up
+ * to a maximum. <br />
+ * <br />
+ * No poll is made while the {@link IngestionService} is loading, as that
+ * ingestion will already load any updated data-sets. A poll which finds every
+ * data-set up to date clears a stale ingestion; see
+ * {@link IngestionService#markRefreshed()}.
+ * */
+public class CkanRefresher
+{
+
+	/* CONSTRUCTORS */
+	/**
+	 * This will create a new instance of a {@link CkanRefresher}.
+	 *
+	 * @param intervalMillis
+	 * The minimum time, in milliseconds, between polls.
+	 * @param jitterMillis
+	 * The maximum random time, in milliseconds, added to the interval.
+	 * @param maxBackoffMillis
+	 * The maximum time, in milliseconds, to wait before attempting a
+	 * data-set which has failed.
+	 * */
+	public CkanRefresher(final long intervalMillis, final long jitterMillis, final long maxBackoffMillis)
+	{
+		this.intervalMillis = Math.max(1L, intervalMillis);
+		this.jitterMillis = Math.max(0L, jitterMillis);
+		this.maxBackoffMillis = Math.max(this.intervalMillis, maxBackoffMillis);
+	}
+
+	/* PUBLIC METHODS */
+	/**
+	 * This method will register a data-set to be refreshed.
+	 *
+	 * @param name
+	 * The name of the data-set; used when logging.
+	 * @param ckanUrl
+	 * The base CKAN url.
+	 * @param ckanDatesetId
+	 * The CKAN data-set ID.
+	 * @param ckanResourceId
+	 * The CKAN resource ID.
+	 * @param loaderFactory
+	 * The {@link LoaderFactory} which creates the {@link DataLoader} for the
+	 * data-set.
+	 * */
+	public synchronized void register(final String name, final String ckanUrl, final String ckanDatesetId, final String ckanResourceId, final LoaderFactory loaderFactory)
+	{
+		this.datasets.add(new Dataset(name, ckanUrl, ckanDatesetId, ckanResourceId, loaderFactory));
+	}
+
+	/**
+	 * This method will start polling; the first poll is made after the first
+	 * interval, as the data-sets are loaded when the application starts.
+	 * */
+	public synchronized void start()
+	{
+		if (this.executor == null)
+		{
+			this.executor = Executors.newSingleThreadScheduledExecutor(new RefresherThreadFactory());
+			this.scheduleNextPoll();
+			Logger.info("CKAN refresh scheduled every " + TimeUnit.MILLISECONDS.toMinutes(this.intervalMillis) + " minutes for " + this.datasets.size() + " data-sets.");
+		}
+	}
+
+	/**
+	 * This method will stop polling; interrupting any data-set which is being
+	 * loaded.
+	 * */
+	public synchronized void stop()
+	{
+		if (this.executor != null)
+		{
+			this.executor.shutdownNow();
+			this.executor = null;
+		}
+	}
+
+	/**
+	 * This method will check every registered data-set, which is not backing
+	 * off, and load those whose remote revision is newer than the one that
+	 * was last loaded. <br />
+	 * <br />
+	 * If every data-set is then up to date, the {@link IngestionService} is
+	 * told that the data has been refreshed.
+	 * */
+	public void poll()
+	{
+		if (IngestionService.getState() == IngestionService.State.LOADING)
+		{
+			Logger.info("Skipping the CKAN refresh; the data ingestion is still running.");
+			return;
+		}
+		final List<Dataset> pollDatasets;
+		synchronized (this)
+		{
+			pollDatasets = new ArrayList<Dataset>(this.datasets);
+		}
+		boolean upToDate = true;
+		for (Dataset dataset : pollDatasets)
+		{
+			if (Thread.currentThread().isInterrupted())
+			{
+				return;
+			}
+			if (System.currentTimeMillis() >= dataset.nextAttemptTime)
+			{
+				try
+				{
+					if (this.refresh(dataset))
+					{
+						dataset.failureCount = 0;
+						dataset.nextAttemptTime = 0L;
+					}
+					else
+					{
+						upToDate = false;
+						this.backOff(dataset, null);
+					}
+				}
+				catch (Throwable thrown)
+				{
+					upToDate = false;
+					this.backOff(dataset, thrown);
+				}
+			}
+			else
+			{
+				// A data-set which is backing off has not been brought up to date.
+				upToDate = false;
+			}
+		}
+		if (upToDate)
+		{
+			IngestionService.markRefreshed();
+		}
+	}
+
+	/**
+	 * This method will get the number of consecutive times that checking or
+	 * loading the specified data-set has failed.
+	 *
+	 * @param name
+	 * The name the data-set was registered with.
+	 *
+	 * @return
+	 * The number of consecutive failures; <code>0</code> if the last attempt
+	 * succeeded, or if there is no such data-set.
+	 * */
+	public synchronized int getFailureCount(final String name)
+	{
+		for (Dataset dataset : this.datasets)
+		{
+			if (dataset.name.equals(name))
+			{
+				return dataset.failureCount;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * This method will get the time to wait after the specified number of
+	 * consecutive failures; the interval doubled for each failure, up to the
+	 * maximum backoff.
+	 *
+	 * @param failureCount
+	 * The number of consecutive failures.
+	 *
+	 * @return
+	 * The time, in milliseconds, to wait.
+	 * */
+	public long getBackoffMillis(final int failureCount)
+	{
+		long backoffMillis = this.intervalMillis;
+		for (int n = 0; (n < failureCount) && (backoffMillis < this.maxBackoffMillis); n++)
+		{
+			backoffMillis *= 2L;
+		}
+		return Math.min(backoffMillis, this.maxBackoffMillis);
+	}
+
+	/* PUBLIC CLASSES */
+	/**
+	 * This interface creates the {@link DataLoader} of a data-set; a new
+	 * {@link DataLoader} is needed for each load.
+	 * */
+	public static interface LoaderFactory
+	{
+
+		/**
+		 * This method will create a new {@link DataLoader} for the data-set.
+		 *
+		 * @return
+		 * The new {@link DataLoader}.
+		 * */
+		public DataLoader createLoader();
+
+	}
+
+	/* PROTECTED METHODS */
+	/**
+	 * This method will get the time of the current revision of the specified
+	 * CKAN resource; only its metadata is read, via {@link RemoteRevision}.
+	 *
+	 * @param ckanUrl
+	 * The base CKAN url.
+	 * @param ckanDatesetId
+	 * The CKAN data-set ID.
+	 * @param ckanResourceId
+	 * The CKAN resource ID.
+	 *
+	 * @return
+	 * The time of the current revision or <code>-1</code> if it could not be
+	 * fetched.
+	 * */
+	protected long fetchRevisionTime(final String ckanUrl, final String ckanDatesetId, final String ckanResourceId)
+	{
+		final RemoteRevision remoteRevision = RemoteRevision.fetch(ckanUrl, ckanDatesetId, ckanResourceId);
+		return (remoteRevision != null) ? remoteRevision.getRevisionTime() : -1L;
+	}
+
+	/* PRIVATE METHODS */
+	/**
+	 * This method will check the specified data-set and load it if its remote
+	 * revision has advanced.
+	 *
+	 * @param dataset
+	 * The data-set to check.
+	 *
+	 * @return
+	 * <code>true</code> if the data-set is up to date; <code>false</code> if
+	 * it could not be checked or loaded.
+	 * */
+	private boolean refresh(final Dataset dataset)
+	{
+		final long remoteRevisionTime = this.fetchRevisionTime(dataset.ckanUrl, dataset.ckanDatesetId, dataset.ckanResourceId);
+		if (remoteRevisionTime < 0L)
+		{
+			Logger.warn("Failed to get the CKAN revision of " + dataset.name + ".");
+			return false;
+		}
+		if (remoteRevisionTime <= CkanRefresher.getLocalRevisionTime(dataset))
+		{
+			Logger.debug(dataset.name + " is up to date.");
+			return true;
+		}
+		Logger.info(dataset.name + " has a new CKAN revision; reloading it ....");
+		dataset.loaderFactory.createLoader().parseFile();
+		// The loader only saves the revision once the data-set has been loaded.
+		if (CkanRefresher.getLocalRevisionTime(dataset) >= remoteRevisionTime)
+		{
+			Logger.info(dataset.name + " has been reloaded.");
+			return true;
+		}
+		Logger.warn("Failed to reload " + dataset.name + ".");
+		return false;
+	}
+
+	/**
+	 * This method will record a failure of the specified data-set and
+	 * postpone its next attempt.
+	 *
+	 * @param dataset
+	 * The data-set which failed.
+	 * @param thrown
+	 * The cause of the failure; may be <code>null</code>.
+	 * */
+	private void backOff(final Dataset dataset, final Throwable thrown)
+	{
+		dataset.failureCount++;
+		final long backoffMillis = this.getBackoffMillis(dataset.failureCount);
+		dataset.nextAttemptTime = System.currentTimeMillis() + backoffMillis;
+		final String message = "CKAN refresh of " + dataset.name + " failed " + dataset.failureCount + " time(s) in a row; next attempt in " + TimeUnit.MILLISECONDS.toMinutes(backoffMillis) + " minutes.";
+		if (thrown != null)
+		{
+			Logger.error(message, thrown);
+		}
+		else
+		{
+			Logger.error(message);
+		}
+	}
+
+	/**
+	 * This method will schedule the next poll after the interval plus a
+	 * random jitter.
+	 * */
+	private synchronized void scheduleNextPoll()
+	{
+		if (this.executor != null)
+		{
+			final long jitter = (this.jitterMillis > 0L) ? (long) (this.random.nextDouble() * this.jitterMillis) : 0L;
+			this.executor.schedule(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					try
+					{
+						CkanRefresher.this.poll();
+					}
+					catch (Throwable thrown)
+					{
+						Logger.error("CKAN refresh failed.", thrown);
+					}
+					finally
+					{
+						CkanRefresher.this.scheduleNextPoll();
+					}
+				}
+			}, this.intervalMillis + jitter, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * This method will get the revision time of the specified data-set which
+	 * was last loaded.
+	 *
+	 * @param dataset
+	 * The data-set.
+	 *
+	 * @return
+	 * The revision time which was last loaded or <code>-1</code> if the
+	 * data-set has never been loaded.
+	 * */
+	private static long getLocalRevisionTime(final Dataset dataset)
+	{
+		final CkanRevision ckanRevision = CkanRevision.getCkanRevision(dataset.ckanDatesetId, dataset.ckanResourceId);
+		return (ckanRevision != null) ? ckanRevision.lastRevisionTime : -1L;
+	}
+
+	/* PRIVATE CLASSES */
+	/**
+	 * This class is a registered data-set, along with its failures.
+	 * */
+	private static class Dataset
+	{
+
+		/* CONSTRUCTORS */
+		/**
+		 * This will create a new instance of a {@link Dataset}.
+		 *
+		 * @param name
+		 * The name of the data-set.
+		 * @param ckanUrl
+		 * The base CKAN url.
+		 * @param ckanDatesetId
+		 * The CKAN data-set ID.
+		 * @param ckanResourceId
+		 * The CKAN resource ID.
+		 * @param loaderFactory
+		 * The {@link LoaderFactory} of the data-set.
+		 * */
+		private Dataset(final String name, final String ckanUrl, final String ckanDatesetId, final String ckanResourceId, final LoaderFactory loaderFactory)
+		{
+			this.name = name;
+			this.ckanUrl = ckanUrl;
+			this.ckanDatesetId = ckanDatesetId;
+			this.ckanResourceId = ckanResourceId;
+			this.loaderFactory = loaderFactory;
+		}
+
+		/* PRIVATE VARIABLES */
+		private final String name;
+		private final String ckanUrl;
+		private final String ckanDatesetId;
+		private final String ckanResourceId;
+		private final LoaderFactory loaderFactory;
+		private int failureCount = 0;
+		private long nextAttemptTime = 0L;
+
+	}
+
+	/**
+	 * This class names the polling thread and makes sure it does not keep
+	 * the JVM alive.
+	 * */
+	private static class RefresherThreadFactory implements ThreadFactory
+	{
+
+		/* PUBLIC METHODS */
+		@Override
+		public Thread newThread(final Runnable runnable)
+		{
+			final Thread thread = new Thread(runnable, "CkanRefresher");
+			thread.setDaemon(true);
+			return thread;
+		}
+
+	}
+
+	/* PRIVATE VARIABLES */
+	private final long intervalMillis;
+	private final long jitterMillis;
+	private final long maxBackoffMillis;
+	private final List<Dataset> datasets = new ArrayList<Dataset>();
+	private final Random random = new Random();
+	private ScheduledExecutorService executor = null;
+
+}
@@ -0,0 +1,445 @@
+package com.theEd209s.dataLoading;
+
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.postgresql.PGConnection;
+
+import play.Logger;
+
+import com.avaje.ebean.Ebean;
+import com.avaje.ebean.EbeanServer;
+import com.avaje.ebean.Transaction;
+import com.jolbox.bonecp.ConnectionHandle;
+
+/**
+ * This class will bulk load entities into a PostgreSQL table using
+ * <code>COPY ... FROM STDIN</code>, bypassing Ebean entity saves. <br />
+ * <br />
+ * The entities are converted to rows, by the {@link CopyTable} of their
+ * table, as they are queued; each time the queue reaches the batch size the
+ * rows are streamed through the PostgreSQL {@link org.postgresql.copy.CopyManager
+ * CopyManager} within a single transaction. <br />
+ * A <code>COPY</code> is all or nothing, so if a batch fails it is handed to a
+ * {@link BatchInserter}, which will save all of its entities but those which
+ * can not be saved. <br />
+ * <br />
+ * As <code>COPY</code> is only supported by PostgreSQL, instances should be
+ * created via {@link CopyRowSink#create(String, CopyTable, int) create(String,
+ * CopyTable, int)}, which will fall back to a {@link BatchInserter} for any
+ * other database (such as the in-memory H2 database used by the tests).
+ * */
+public class CopyRowSink<T> implements RowSink
+{
+
+	/* CONSTRUCTORS */
+	/**
+	 * This will create a new instance of a {@link CopyRowSink}.
+	 *
+	 * @param name
+	 * The name of the data being inserted; used when reporting failures.
+	 * @param table
+	 * The {@link CopyTable} which describes the table to load.
+	 * @param batchSize
+	 * The number of rows to copy within each transaction.
+	 * @param fallbackBatchSize
+	 * The number of rows to insert within each transaction when a batch has
+	 * to be inserted instead.
+	 * */
+	private CopyRowSink(final String name, final CopyTable<T> table, final int batchSize, final int fallbackBatchSize)
+	{
+		this.name = name;
+		this.table = table;
+		this.batchSize = Math.max(1, batchSize);
+		this.pending = new ArrayList<T>(this.batchSize);
+		this.row = new CopyRow(this.rows);
+		this.server = Ebean.getServer(null);
+		this.fallback = new BatchInserter(name, fallbackBatchSize);
+		this.copySql = table.getCopySql();
+	}
+
+	/* PUBLIC METHODS */
+	/**
+	 * This method will create the {@link RowSink} for the specified table; a
+	 * {@link CopyRowSink} if the database supports <code>COPY</code> and it
+	 * has not been disabled via <code>dataLoading.copy</code>, otherwise a
+	 * {@link BatchInserter}. <br />
+	 * The number of rows copied within each transaction is set via
+	 * <code>dataLoading.copyBatchSize</code>.
+	 *
+	 * @param name
+	 * The name of the data being inserted; used when reporting failures.
+	 * @param table
+	 * The {@link CopyTable} which describes the table to load.
+	 * @param batchSize
+	 * The number of rows to insert within each transaction when falling back
+	 * to a {@link BatchInserter}.
+	 *
+	 * @return
+	 * The {@link RowSink} for the specified table.
+	 * */
+	public static <T> RowSink create(final String name, final CopyTable<T> table, final int batchSize)
+	{
+		if (play.Play.application().configuration().getBoolean("dataLoading.copy", true) && CopyRowSink.isCopySupported())
+		{
+			return new CopyRowSink<T>(name, table, play.Play.application().configuration().getInt("dataLoading.copyBatchSize", CopyRowSink.DEFAULT_BATCH_SIZE), batchSize);
+		}
+		return new BatchInserter(name, batchSize);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void add(final Object entity)
+	{
+		this.pending.add((T) entity);
+		this.table.appendValues((T) entity, this.row);
+		this.row.end();
+		if (this.pending.size() >= this.batchSize)
+		{
+			this.flush();
+		}
+	}
+
+	@Override
+	public void flush()
+	{
+		if (this.pending.size() > 0)
+		{
+			this.batchCount++;
+			try
+			{
+				this.copyBatch();
+				this.insertedCount += this.pending.size();
+			}
+			catch (Exception e)
+			{
+				Logger.warn(this.name + " copy batch " + this.batchCount + " of " + this.pending.size() + " rows failed; falling back to inserts.", e);
+				for (T entity : this.pending)
+				{
+					this.fallback.add(entity);
+				}
+				this.fallback.flush();
+			}
+			finally
+			{
+				this.pending.clear();
+				this.rows.setLength(0);
+			}
+		}
+	}
+
+	@Override
+	public void complete()
+	{
+
+	}
+
+	@Override
+	public void discard()
+	{
+		this.pending.clear();
+		this.rows.setLength(0);
+		this.fallback.discard();
+	}
+
+	@Override
+	public int getInsertedCount()
+	{
+		return this.insertedCount + this.fallback.getInsertedCount();
+	}
+
+	@Override
+	public int getFailedCount()
+	{
+		return this.fallback.getFailedCount();
+	}
+
+	/**
+	 * This method will get the PostgreSQL connection which the specified
+	 * connection wraps; so that its {@link org.postgresql.copy.CopyManager
+	 * CopyManager} can be used. <br />
+	 * <br />
+	 * The connections handed out by the pool are
+	 * {@link ConnectionHandle ConnectionHandles}, which are unwrapped to the
+	 * connection of the driver. The pinned driver does not implement
+	 * {@link Connection#unwrap(Class) unwrap(Class)}, so it is only relied on
+	 * for any other wrapper.
+	 *
+	 * @param connection
+	 * The connection to unwrap.
+	 *
+	 * @return
+	 * The {@link PGConnection} which the specified connection wraps, or
+	 * <code>null</code> if it is not a PostgreSQL connection.
+	 * */
+	public static PGConnection getCopyConnection(final Connection connection)
+	{
+		final Connection driverConnection = CopyRowSink.getDriverConnection(connection);
+		if (driverConnection instanceof PGConnection)
+		{
+			return (PGConnection) driverConnection;
+		}
+		if (driverConnection != null)
+		{
+			try
+			{
+				if (driverConnection.isWrapperFor(PGConnection.class))
+				{
+					return driverConnection.unwrap(PGConnection.class);
+				}
+			}
+			catch (SQLException e)
+			{
+				// the driver does not support unwrapping
+			}
+			catch (AbstractMethodError e)
+			{
+				// the driver pre-dates JDBC 4
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * This method will get the connection of the driver which the specified
+	 * connection wraps; stripping any {@link ConnectionHandle
+	 * ConnectionHandles} of the pool.
+	 *
+	 * @param connection
+	 * The connection to unwrap.
+	 *
+	 * @return
+	 * The connection of the driver.
+	 * */
+	public static Connection getDriverConnection(final Connection connection)
+	{
+		Connection current = connection;
+		while (current instanceof ConnectionHandle)
+		{
+			current = ((ConnectionHandle) current).getInternalConnection();
+		}
+		return current;
+	}
+
+	/* PRIVATE METHODS */
+	/**
+	 * This method will determine if the database supports <code>COPY</code>;
+	 * which is to say that it is PostgreSQL.
+	 *
+	 * @return
+	 * <code>true</code> if the database supports <code>COPY</code>;
+	 * <code>false</code> otherwise.
+	 * */
+	private static boolean isCopySupported()
+	{
+		final Transaction transaction = Ebean.getServer(null).createTransaction();
+		try
+		{
+			return CopyRowSink.getCopyConnection(transaction.getConnection()) != null;
+		}
+		catch (Exception e)
+		{
+			Logger.warn("Failed to determine if the database supports COPY.", e);
+			return false;
+		}
+		finally
+		{
+			transaction.end();
+		}
+	}
+
+	/**
+	 * This method will copy all of the queued rows into the table within a
+	 * single transaction.
+	 *
+	 * @throws Exception
+	 * If the rows could not be copied.
+	 * */
+	private void copyBatch() throws Exception
+	{
+		final Transaction transaction = this.server.createTransaction();
+		try
+		{
+			final PGConnection connection = CopyRowSink.getCopyConnection(transaction.getConnection());
+			if (connection == null)
+			{
+				throw new SQLException("The connection does not support COPY.");
+			}
+			connection.getCopyAPI().copyIn(this.copySql, new StringReader(this.rows.toString()));
+			transaction.commit();
+		}
+		finally
+		{
+			transaction.end();
+		}
+	}
+
+	/* PUBLIC CLASSES */
+	/**
+	 * This class describes a table which can be loaded via
+	 * <code>COPY</code>; the sub-classes convert each entity into a row of
+	 * the table.
+	 * */
+	public static abstract class CopyTable<T>
+	{
+
+		/* CONSTRUCTORS */
+		/**
+		 * This will create a new instance of a {@link CopyTable}.
+		 *
+		 * @param tableName
+		 * The name of the table.
+		 * @param columnNames
+		 * The names of the columns which are written for each row; the
+		 * generated ID column should be left out.
+		 * */
+		public CopyTable(final String tableName, final String... columnNames)
+		{
+			this.tableName = tableName;
+			this.columnNames = columnNames;
+		}
+
+		/* PROTECTED METHODS */
+		/**
+		 * This method will write the values of the specified entity to the
+		 * specified {@link CopyRow}; one per column, in the order they were
+		 * specified.
+		 *
+		 * @param entity
+		 * The entity to write.
+		 * @param row
+		 * The {@link CopyRow} to write the values to.
+		 * */
+		protected abstract void appendValues(final T entity, final CopyRow row);
+
+		/* PRIVATE METHODS */
+		/**
+		 * This method will get the <code>COPY</code> statement for this table.
+		 *
+		 * @return
+		 * The <code>COPY</code> statement for this table.
+		 * */
+		private String getCopySql()
+		{
+			final StringBuilder sql = new StringBuilder("COPY ").append(this.tableName).append(" (");
+			for (int n = 0; n < this.columnNames.length; n++)
+			{
+				if (n > 0)
+				{
+					sql.append(", ");
+				}
+				sql.append(this.columnNames[n]);
+			}
+			return sql.append(") FROM STDIN").toString();
+		}
+
+		/* PRIVATE VARIABLES */
+		private final String tableName;
+		private final String[] columnNames;
+
+	}
+
+	/**
+	 * This class writes the values of a row in the <code>COPY</code> text
+	 * format.
+	 * */
+	public static final class CopyRow
+	{
+
+		/* CONSTRUCTORS */
+		/**
+		 * This will create a new instance of a {@link CopyRow}.
+		 *
+		 * @param rows
+		 * The {@link StringBuilder} to write the rows to.
+		 * */
+		private CopyRow(final StringBuilder rows)
+		{
+			this.rows = rows;
+		}
+
+		/* PUBLIC METHODS */
+		/**
+		 * This method will write the specified value as the next column of
+		 * the row.
+		 *
+		 * @param value
+		 * The value to write; <code>null</code> is written as a SQL
+		 * <code>NULL</code>.
+		 *
+		 * @return
+		 * This {@link CopyRow}.
+		 * */
+		public CopyRow add(final Object value)
+		{
+			if (this.columnCount > 0)
+			{
+				this.rows.append('\t');
+			}
+			this.columnCount++;
+			if (value == null)
+			{
+				this.rows.append("\\N");
+				return this;
+			}
+			final String text = value.toString();
+			for (int n = 0; n < text.length(); n++)
+			{
+				final char c = text.charAt(n);
+				switch (c)
+				{
+					case '\\':
+						this.rows.append("\\\\");
+						break;
+					case '\t':
+						this.rows.append("\\t");
+						break;
+					case '\n':
+						this.rows.append("\\n");
+						break;
+					case '\r':
+						this.rows.append("\\r");
+						break;
+					default:
+						this.rows.append(c);
+				}
+			}
+			return this;
+		}
+
+		/* PRIVATE METHODS */
+		/**
+		 * This method will end the current row.
+		 * */
+		private void end()
+		{
+			this.rows.append('\n');
+			this.columnCount = 0;
+		}
+
+		/* PRIVATE VARIABLES */
+		private final StringBuilder rows;
+		private int columnCount = 0;
+
+	}
+
+	/* PRIVATE CONSTANTS */
+	private static final int DEFAULT_BATCH_SIZE = 10000;
+
+	/* PRIVATE VARIABLES */
+	private final EbeanServer server;
+	private final String name;
+	private final CopyTable<T> table;
+	private final int batchSize;
+	private final List<T> pending;
+	private final StringBuilder rows = new StringBuilder();
+	private final CopyRow row;
+	private final BatchInserter fallback;
+	private final String copySql;
+	private int insertedCount = 0;
+	private int batchCount = 0;
+
+}
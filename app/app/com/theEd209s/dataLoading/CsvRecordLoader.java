@@ -0,0 +1,490 @@
+package com.theEd209s.dataLoading;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import play.Logger;
+
+import com.theEd209s.utils.CsvParser;
+import com.theEd209s.utils.CsvRecordReader;
+import com.theEd209s.utils.CsvRecordSource;
+import com.theEd209s.utils.CsvRecordSource.RecordFilter;
+import com.theEd209s.utils.MappedCsvReader;
+import com.theEd209s.utils.ParallelCsvScanner;
+import com.theEd209s.utils.ParallelCsvScanner.RecordParser;
+import com.theEd209s.utils.ParallelCsvScanner.RecordSink;
+
+/**
+ * This class is the base for all loaders of a CSV file which is parsed one
+ * record at a time; each record is parsed by the
+ * {@link CsvRecordLoader#parseRecord(CsvRecordSource, List)
+ * parseRecord(CsvRecordSource, List)} method, which every sub-class must
+ * implement. <br />
+ * <br />
+ * A stream is read by a {@link CsvRecordReader}, line by line. A downloaded
+ * {@link File} is scanned through a {@link MappedCsvReader}, and a large
+ * {@link File} is scanned in parallel; unless <code>dataLoading.mapped</code>
+ * is disabled, in which case it is read just as a stream is. <br />
+ * Either way every line is a record, so a file is loaded the same whether it
+ * is streamed or saved first.
+ * */
+public abstract class CsvRecordLoader extends StreamingDataLoader
+{
+
+	/* CONSTRUCTORS */
+	/**
+	 * This will create a new instance of a {@link CsvRecordLoader}.
+	 *
+	 * @param sourceFile
+	 * The source {@link File}.
+	 * @param allowDeleteFile
+	 * <code>true</code> if the specified {@link File} can be deleted once
+	 * done; <code>false</code> if the specified {@link File} can not be
+	 * deleted once processed.
+	 * */
+	public CsvRecordLoader(final File sourceFile, final boolean allowDeleteFile)
+	{
+		super(sourceFile, allowDeleteFile);
+	}
+
+	/**
+	 * This will create a new instance of a {@link CsvRecordLoader}.
+	 *
+	 * @param ckanUrl
+	 *            The base CKAN url.
+	 * @param ckanDatesetId
+	 *            The CKAN data-set ID.
+	 * @param ckanResourceId
+	 *            The CKAN resource ID.
+	 * */
+	public CsvRecordLoader(final String ckanUrl, final String ckanDatesetId, final String ckanResourceId)
+	{
+		super(ckanUrl, ckanDatesetId, ckanResourceId);
+	}
+
+	/* PROTECTED METHODS */
+	/**
+	 * This method will parse the specified {@link File} via the
+	 * {@link CsvRecordLoader#parseFileAsRecords(File)
+	 * parseFileAsRecords(File)} method.
+	 *
+	 * @param downloadedFile
+	 *            The {@link File} to parse.
+	 *
+	 * @return
+	 * The total number of rows inserted.
+	 * */
+	@Override
+	protected int parseFile(final File downloadedFile) throws Throwable
+	{
+		return this.parseFileAsRecords(downloadedFile);
+	}
+
+	/**
+	 * This method will parse the specified {@link InputStream} via the
+	 * {@link CsvRecordLoader#parseStreamAsRecords(InputStream)
+	 * parseStreamAsRecords(InputStream)} method.
+	 *
+	 * @param inputStream
+	 *            The {@link InputStream} to parse.
+	 *
+	 * @return
+	 * The total number of rows inserted.
+	 * */
+	@Override
+	protected int parseStream(final InputStream inputStream) throws Throwable
+	{
+		return this.parseStreamAsRecords(inputStream);
+	}
+
+	/**
+	 * This method will attempt to parse the records of a CSV file; whether
+	 * they are read from a stream or from a local {@link File}. <br />
+	 * <br />
+	 * By default, providing {@link CsvRecordLoader#isReadyToParse()
+	 * isReadyToParse()}, only the {@link CsvRecordLoader#getColumns() columns} of
+	 * the records which pass the {@link CsvRecordLoader#getRecordFilter() filter}
+	 * are read, and each of those records is parsed by the
+	 * {@link CsvRecordLoader#parseRecord(CsvRecordSource, List)
+	 * parseRecord(CsvRecordSource, List)} method and its rows are inserted.
+	 * <br />
+	 * <br />
+	 * Any failure to read or parse a record is thrown; the rows which are
+	 * still queued are then discarded, and the file is reported as failed.
+	 * 
+	 * @param records
+	 *            The {@link CsvRecordSource} to parse. <br />
+	 *            This {@link CsvRecordSource} will be closed after this
+	 *            method completes its execution; there is no need to close it
+	 *            here.
+	 * 
+	 * @return
+	 * The total number of rows inserted.
+	 * */
+	protected int parseRecords(final CsvRecordSource records) throws Throwable
+	{
+		int rowsInserted = 0;
+		if (this.isReadyToParse())
+		{
+			records.setColumns(this.getColumns());
+			records.setFilter(this.getRecordFilter());
+			// Loop over the CSV file; any failure is thrown, so that a partial file is never completed.
+			final List<Object> rows = new ArrayList<Object>();
+			while (records.next())
+			{
+				this.parseRecord(records, rows);
+				for (Object row : rows)
+				{
+					this.insert(row);
+				}
+				rowsInserted += rows.size();
+				rows.clear();
+			}
+		}
+		return rowsInserted;
+	}
+
+	/**
+	 * This method will determine if everything which the records of a CSV
+	 * file are parsed against, such as the reference data, has been loaded;
+	 * logging why not, if it has not. <br />
+	 * <br />
+	 * By default this is <code>true</code>.
+	 * 
+	 * @return
+	 * <code>true</code> if the records can be parsed; <code>false</code> if
+	 * none of them should be.
+	 * */
+	protected boolean isReadyToParse()
+	{
+		return true;
+	}
+
+	/**
+	 * This method will get the indexes of the columns of a CSV file which the
+	 * {@link CsvRecordLoader#parseRecord(CsvRecordSource, List)
+	 * parseRecord(CsvRecordSource, List)} method reads; the rest are read as
+	 * missing and are never copied out of the file. <br />
+	 * <br />
+	 * By default this is <code>null</code>; all of the columns are read.
+	 * 
+	 * @return
+	 * The indexes of the columns which are read or <code>null</code> if all
+	 * of them are.
+	 * */
+	protected int[] getColumns()
+	{
+		return null;
+	}
+
+	/**
+	 * This method will get the {@link RecordFilter} which decides which
+	 * records of a CSV file are parsed; such as a {@link GeoCodeFilter}, which
+	 * skips the records of geographies with no known city. <br />
+	 * <br />
+	 * A large {@link File} is parsed on several threads at once, so the
+	 * {@link RecordFilter} must be thread-safe. <br />
+	 * By default this is <code>null</code>; every record is parsed.
+	 * 
+	 * @return
+	 * The {@link RecordFilter} or <code>null</code> if every record is to be
+	 * parsed.
+	 * */
+	protected RecordFilter getRecordFilter()
+	{
+		return null;
+	}
+
+	/**
+	 * This method will parse the rows of the current record of a CSV file. <br />
+	 * <br />
+	 * A large {@link File} is parsed on several threads at once, so this
+	 * must be thread-safe; it must not keep any state between records, other
+	 * than per thread.
+	 * 
+	 * @param record
+	 *            The {@link CsvRecordSource} which is positioned on the
+	 *            record.
+	 * @param rows
+	 *            The {@link List} to add the rows which are to be inserted to.
+	 * */
+	protected abstract void parseRecord(final CsvRecordSource record, final List<Object> rows);
+
+	/**
+	 * This method will parse the specified UTF-8 {@link InputStream} via the
+	 * {@link CsvRecordLoader#parseRecords(CsvRecordSource)
+	 * parseRecords(CsvRecordSource)} method; one record per line.
+	 * 
+	 * @param inputStream
+	 *            The {@link InputStream} to parse.
+	 * 
+	 * @return
+	 * The total number of rows inserted.
+	 * */
+	protected int parseStreamAsRecords(final InputStream inputStream) throws Throwable
+	{
+		int rowsInserted = 0;
+		if (inputStream != null)
+		{
+			final CsvRecordReader records = new CsvRecordReader(new InputStreamReader(inputStream, "UTF-8"));
+			try
+			{
+				rowsInserted = this.parseRecords(records);
+			}
+			finally
+			{
+				CsvRecordLoader.close(records);
+			}
+		}
+		return rowsInserted;
+	}
+
+	/**
+	 * This method will parse the specified UTF-8 {@link File} via the
+	 * {@link CsvRecordLoader#parseRecords(CsvRecordSource)
+	 * parseRecords(CsvRecordSource)} method. <br />
+	 * <br />
+	 * The {@link File} is scanned through a {@link MappedCsvReader}, one record
+	 * per line, and a {@link File} which is larger than
+	 * <code>dataLoading.parallel.chunkSizeMB</code> is scanned in chunks, on
+	 * <code>dataLoading.parallel.threads</code> threads, via the
+	 * {@link CsvRecordLoader#parseFileInParallel(File, long)
+	 * parseFileInParallel(File, long)} method; unless
+	 * <code>dataLoading.mapped</code> is disabled, in which case it is decoded
+	 * line by line, just as a stream is.
+	 * 
+	 * @param downloadedFile
+	 *            The {@link File} to parse.
+	 * 
+	 * @return
+	 * The total number of rows inserted.
+	 * */
+	protected int parseFileAsRecords(final File downloadedFile) throws Throwable
+	{
+		int rowsInserted = 0;
+		if ((downloadedFile != null) && downloadedFile.exists() && downloadedFile.isFile())
+		{
+			if (CsvRecordLoader.isMapped())
+			{
+				if (CsvRecordLoader.isParsedInParallel(downloadedFile.length()))
+				{
+					rowsInserted = this.parseFileInParallel(downloadedFile, CsvRecordLoader.getParallelChunkSize());
+				}
+				else
+				{
+					final MappedCsvReader records = new MappedCsvReader(downloadedFile, CsvParser.DEFAULT_SEPARATOR_CHAR, false, false, false);
+					try
+					{
+						rowsInserted = this.parseRecords(records);
+					}
+					finally
+					{
+						CsvRecordLoader.close(records);
+					}
+				}
+			}
+			else
+			{
+				final FileInputStream fis = new FileInputStream(downloadedFile);
+				try
+				{
+					rowsInserted = this.parseStreamAsRecords(fis);
+				}
+				finally
+				{
+					try
+					{
+						fis.close();
+					}
+					catch (IOException ioe)
+					{
+						Logger.warn("Failed to close FileInputStream.", ioe);
+					}
+				}
+			}
+		}
+		return rowsInserted;
+	}
+
+	/**
+	 * This method will determine if a {@link File} of the specified size is
+	 * parsed in parallel by the {@link CsvRecordLoader#parseFileAsRecords(File)
+	 * parseFileAsRecords(File)} method.
+	 * 
+	 * @param size
+	 *            The size of the {@link File}, in bytes; or <code>-1</code>
+	 *            if it is not known.
+	 * 
+	 * @return
+	 * <code>true</code> if the {@link File} is parsed in chunks, on several
+	 * threads; <code>false</code> otherwise.
+	 * */
+	protected static boolean isParsedInParallel(final long size)
+	{
+		return CsvRecordLoader.isMapped() && (size > CsvRecordLoader.getParallelChunkSize()) && (CsvRecordLoader.getParsingPool() != null);
+	}
+
+	/* PRIVATE METHODS */
+	/**
+	 * This method will parse the specified UTF-8 {@link File} in chunks, on
+	 * the threads of the {@link CsvRecordLoader#getParsingPool()
+	 * getParsingPool()}, via a {@link ParallelCsvScanner}. <br />
+	 * <br />
+	 * Each record is parsed by the
+	 * {@link CsvRecordLoader#parseRecord(CsvRecordSource, List)
+	 * parseRecord(CsvRecordSource, List)} method, as it would be by the
+	 * {@link CsvRecordLoader#parseRecords(CsvRecordSource)
+	 * parseRecords(CsvRecordSource)} method; the rows are inserted in the
+	 * order of the {@link File}, by this thread, as the {@link RowSink} is not
+	 * thread-safe and a {@link DeltaSink} matches the rows in that order.
+	 * 
+	 * @param downloadedFile
+	 *            The {@link File} to parse.
+	 * @param chunkSize
+	 *            The number of bytes in each chunk.
+	 * 
+	 * @return
+	 * The total number of rows inserted.
+	 * */
+	private int parseFileInParallel(final File downloadedFile, final long chunkSize) throws Throwable
+	{
+		final RowInserter rowInserter = new RowInserter();
+		if (this.isReadyToParse())
+		{
+			final ParallelCsvScanner scanner = new ParallelCsvScanner(CsvRecordLoader.getParsingPool(), chunkSize, CsvParser.DEFAULT_SEPARATOR_CHAR, false, false, false);
+			scanner.setColumns(this.getColumns());
+			scanner.setFilter(this.getRecordFilter());
+			scanner.scan(downloadedFile, new RecordParser<Object>()
+			{
+				@Override
+				public void parse(final CsvRecordSource record, final List<Object> rows)
+				{
+					CsvRecordLoader.this.parseRecord(record, rows);
+				}
+			}, rowInserter, true);
+		}
+		return rowInserter.rowsInserted;
+	}
+
+	/**
+	 * This method will close the specified {@link CsvRecordSource}; logging,
+	 * rather than throwing, any failure.
+	 * 
+	 * @param records
+	 *            The {@link CsvRecordSource} to close.
+	 * */
+	private static void close(final CsvRecordSource records)
+	{
+		try
+		{
+			records.close();
+		}
+		catch (IOException ioe)
+		{
+			Logger.warn("Failed to close " + records.getClass().getSimpleName() + ".", ioe);
+		}
+	}
+
+	/**
+	 * This method will determine if the downloaded files are scanned through
+	 * a {@link MappedCsvReader}; as configured via
+	 * <code>dataLoading.mapped</code>.
+	 * 
+	 * @return
+	 * <code>true</code> if the files are memory-mapped; <code>false</code> if
+	 * they are read just as a stream is.
+	 * */
+	private static boolean isMapped()
+	{
+		return play.Play.application().configuration().getBoolean("dataLoading.mapped", true);
+	}
+
+	/**
+	 * This method will get the number of bytes in each chunk of a
+	 * {@link File} which is parsed in parallel; as configured via
+	 * <code>dataLoading.parallel.chunkSizeMB</code>.
+	 * 
+	 * @return
+	 * The number of bytes in each chunk.
+	 * */
+	private static long getParallelChunkSize()
+	{
+		return play.Play.application().configuration().getInt("dataLoading.parallel.chunkSizeMB", CsvRecordLoader.DEFAULT_PARALLEL_CHUNK_SIZE_MB) * 1024L * 1024L;
+	}
+
+	/**
+	 * This method will get the {@link ForkJoinPool} which large files are
+	 * parsed on; it is shared by all of the {@link CsvRecordLoader}s, and is
+	 * created, with <code>dataLoading.parallel.threads</code> threads, the
+	 * first time it is needed.
+	 * 
+	 * @return
+	 * The {@link ForkJoinPool} or <code>null</code> if files are not to be
+	 * parsed in parallel.
+	 * */
+	private static synchronized ForkJoinPool getParsingPool()
+	{
+		if (!CsvRecordLoader.parsingPoolCreated)
+		{
+			final int threads = play.Play.application().configuration().getInt("dataLoading.parallel.threads", Runtime.getRuntime().availableProcessors());
+			if (threads > 1)
+			{
+				CsvRecordLoader.parsingPool = new ForkJoinPool(threads);
+			}
+			CsvRecordLoader.parsingPoolCreated = true;
+		}
+		return CsvRecordLoader.parsingPool;
+	}
+
+	/* PRIVATE CLASSES */
+	/**
+	 * This class inserts the rows of each chunk of a file which is parsed in
+	 * parallel; counting them as it goes.
+	 * */
+	private class RowInserter implements RecordSink<Object>
+	{
+		
+		/* PUBLIC METHODS */
+		@Override
+		public void add(final List<Object> rows)
+		{
+			for (Object row : rows)
+			{
+				CsvRecordLoader.this.insert(row);
+			}
+			this.rowsInserted += rows.size();
+		}
+		
+		/* PRIVATE VARIABLES */
+		private int rowsInserted = 0;
+		
+	}
+
+	/* PRIVATE CONSTANTS */
+	/**
+	 * The number of megabytes in each chunk of a file which is parsed in
+	 * parallel, unless <code>dataLoading.parallel.chunkSizeMB</code> is
+	 * configured; no smaller file is parsed in parallel.
+	 * */
+	private static final int DEFAULT_PARALLEL_CHUNK_SIZE_MB = 16;
+
+	/* PRIVATE VARIABLES */
+	/**
+	 * The {@link ForkJoinPool} which large files are parsed on; see
+	 * {@link CsvRecordLoader#getParsingPool() getParsingPool()}.
+	 * */
+	private static ForkJoinPool parsingPool = null;
+	/**
+	 * This will store the flag to denote if the
+	 * {@link CsvRecordLoader#parsingPool parsingPool} has been created; or found
+	 * not to be needed.
+	 * */
+	private static boolean parsingPoolCreated = false;
+
+}
@@ -1,30 +1,29 @@
 package com.theEd209s.dataLoading;
 
 import java.io.File;
-import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Date;
-import java.util.List;
+import java.util.zip.ZipEntry;
 
 import models.CkanRevision;
+import models.DataVersion;
 import play.Logger;
 
+import com.theEd209s.lookup.DataRevisions;
 import com.theEd209s.utils.DownloadUtils;
 import com.theEd209s.utils.DownloadUtils.Downloader;
 import com.theEd209s.utils.DownloadUtils.Downloader.DownloadCancelledCmd;
 import com.theEd209s.utils.DownloadUtils.Downloader.DownloadCompleteCmd;
 import com.theEd209s.utils.DownloadUtils.Downloader.UpdateGuiDownloadProgressCmd;
-import com.theEd209s.utils.FileUtils;
 import com.theEd209s.utils.StringUtils;
 import com.theEd209s.utils.ZipUtils;
-
-import eu.trentorise.opendata.jackan.ckan.CkanClient;
-import eu.trentorise.opendata.jackan.ckan.CkanDataset;
-import eu.trentorise.opendata.jackan.ckan.CkanResource;
+import com.theEd209s.utils.ZipUtils.EntryFilter;
+import com.theEd209s.utils.ZipUtils.ZipEntryInputStream;
 
 /**
  * This class can be used in implement standard data loading logic. <br />
@@ -32,7 +31,11 @@ import eu.trentorise.opendata.jackan.ckan.CkanResource;
  * the temporary downloaded file. <br />
  * <br />
  * After instantiating an instance of this class, just call the
- * {@link DataLoader#parseFile() parseFile()} method.
+ * {@link DataLoader#parseFile() parseFile()} method. <br />
+ * <br />
+ * Sub-classes which can parse an {@link InputStream} can opt in to having the
+ * remote file parsed while it is still being downloaded, rather than once it
+ * has been saved to disk, by extending {@link StreamingDataLoader}.
  * 
  * @author Matthew Weiler
  * */
@@ -68,81 +71,35 @@ public abstract class DataLoader
 	 * */
 	public DataLoader(final String ckanUrl, final String ckanDatesetId, final String ckanResourceId)
 	{
-		if (!StringUtils.isNullOrEmpty(ckanUrl))
+		final RemoteRevision remoteRevision = RemoteRevision.fetch(ckanUrl, ckanDatesetId, ckanResourceId);
+		if (remoteRevision != null)
 		{
-			Logger.info("CKAN URL: " + ckanUrl);
-			if (!StringUtils.isNullOrEmpty(ckanDatesetId))
+			long localRevisionTime = -1L;
+			CkanRevision ckanRevision = CkanRevision.getCkanRevision(ckanDatesetId, ckanResourceId);
+			if (ckanRevision != null)
 			{
-				Logger.info("CKAN Dataset ID: " + ckanDatesetId);
-				if (!StringUtils.isNullOrEmpty(ckanResourceId))
-				{
-					Logger.info("CKAN Resource ID: " + ckanResourceId);
-					final CkanClient client = new CkanClient(ckanUrl);
-					if (client != null)
-					{
-						final CkanDataset dataset = client.getDataset(ckanDatesetId);
-						if (dataset != null)
-						{
-							final List<CkanResource> resources = dataset.getResources();
-							if ((resources != null) && (resources.size() > 0))
-							{
-								for (CkanResource resource : resources)
-								{
-									if (ckanResourceId.equalsIgnoreCase(resource.getId()))
-									{
-										long localRevisionTime = -1L;
-										CkanRevision ckanRevision = CkanRevision.getCkanRevision(ckanDatesetId, ckanResourceId);
-										if (ckanRevision != null)
-										{
-											localRevisionTime = ckanRevision.lastRevisionTime;
-										}
-										else
-										{
-											ckanRevision = new CkanRevision();
-											ckanRevision.datasetId = ckanDatesetId;
-											ckanRevision.resourceId = ckanResourceId;
-										}
-										long remoteRevisionTime = -1L;
-										final String remoteRevisionTimestamp = resource.getRevisionTimestamp();
-										if (!StringUtils.isNullOrEmpty(remoteRevisionTimestamp))
-										{
-											SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd hh:mm:ss.SSSSSS");
-											try
-											{
-												final Date remoteRevisionDate = formatter.parse(remoteRevisionTimestamp.replace("T", " "));
-												remoteRevisionTime = remoteRevisionDate.getTime();
-											}
-											catch (ParseException e)
-											{	
-												
-											}
-										}
-										if (remoteRevisionTime > -1L)
-										{
-											ckanRevision.lastRevisionTime = remoteRevisionTime;
-											this.sourceExtName = resource.getFormat();
-											if (localRevisionTime >= 0L)
-											{
-												if (remoteRevisionTime > localRevisionTime)
-												{
-													this.sourceUrl = resource.getUrl();
-													this.ckanRevision = ckanRevision;
-												}
-											}
-											else
-											{
-												this.sourceUrl = resource.getUrl();
-												this.ckanRevision = ckanRevision;
-											}
-										}
-									}
-								}
-							}
-						}
-					}
-				}
+				localRevisionTime = ckanRevision.lastRevisionTime;
+			}
+			else
+			{
+				ckanRevision = new CkanRevision();
+				ckanRevision.datasetId = ckanDatesetId;
+				ckanRevision.resourceId = ckanResourceId;
+			}
+			ckanRevision.lastRevisionTime = remoteRevision.getRevisionTime();
+			this.sourceExtName = remoteRevision.getFormat();
+			if ((localRevisionTime < 0L) || (remoteRevision.getRevisionTime() > localRevisionTime))
+			{
+				this.sourceUrl = remoteRevision.getUrl();
+				this.ckanRevision = ckanRevision;
 			}
 		}
+		else
+		{
+			// Without the revision it is unknown whether the data-set is up to date.
+			this.failed = true;
+			Logger.error("Failed to get the CKAN revision of resource " + ckanResourceId + ".");
+		}
 	}
 	
 	/* PUBLIC METHODS */
@@ -153,12 +110,33 @@ public abstract class DataLoader
 	 * <br />
 	 * If the download fails or is cancelled, the
 	 * {@link DataLoader#downloadFailed(File) downloadFailed(File)} method will
-	 * be called.
+	 * be called. <br />
+	 * <br />
+	 * If this {@link DataLoader} is a {@link StreamingDataLoader}, and
+	 * streaming has not been disabled via <code>dataLoading.streaming</code>, the
+	 * {@link DataLoader#sourceUrl sourceUrl} is instead parsed as it is
+	 * downloaded; see {@link DataLoader#parseSourceStream()
+	 * parseSourceStream()}. <br />
+	 * <br />
+	 * If an {@link ArtifactCache} is configured, via
+	 * <code>dataLoading.cache.dir</code>, the {@link DataLoader#sourceUrl
+	 * sourceUrl} is instead fetched through it, ahead of streaming, and
+	 * parsed from the cached {@link File}; see
+	 * {@link DataLoader#parseCachedFile() parseCachedFile()}.
 	 * */
 	public void parseFile()
 	{
-		if (!StringUtils.isNullOrEmpty(this.sourceUrl))
+		if (!StringUtils.isNullOrEmpty(this.sourceUrl) && (DataLoader.getArtifactCache() != null))
+		{
+			this.parseCachedFile();
+		}
+		else if (!StringUtils.isNullOrEmpty(this.sourceUrl) && (this instanceof StreamingDataLoader) && play.Play.application().configuration().getBoolean("dataLoading.streaming", true))
+		{
+			this.parseSourceStream();
+		}
+		else if (!StringUtils.isNullOrEmpty(this.sourceUrl))
 		{
+			Downloader downloader = null;
 			try
 			{
 				final URL sourceUrl = new URL(this.sourceUrl);
@@ -180,7 +158,7 @@ public abstract class DataLoader
 					{
 						if (downloadSuccessful)
 						{
-							DataLoader.this.parseDownloadedFile(destinationFile);
+							DataLoader.this.parseDownloadedFile(destinationFile, true);
 						}
 						else
 						{
@@ -197,7 +175,8 @@ public abstract class DataLoader
 					}
 				};
 				final UpdateGuiDownloadProgressCmd updateGuiDownloadProgressCmd = null;
-				final Downloader downloader = DownloadUtils.getDownloader(downloadCompleteCmd, downloadCancelledCmd, updateGuiDownloadProgressCmd, 0L, sourceUrl, 0L, destinationFile, null, -1, -1, 0, true);
+				final int segments = play.Play.application().configuration().getInt("dataLoading.download.segments", 1);
+				downloader = (segments > 1) ? DownloadUtils.getSegmentedDownloader(downloadCompleteCmd, downloadCancelledCmd, updateGuiDownloadProgressCmd, 0L, sourceUrl, 0L, destinationFile, null, -1, -1, 0, true, segments) : DownloadUtils.getDownloader(downloadCompleteCmd, downloadCancelledCmd, updateGuiDownloadProgressCmd, 0L, sourceUrl, 0L, destinationFile, null, -1, -1, 0, true);
 				final Thread downloaderThread = new Thread(downloader);
 				downloaderThread.start();
 				// Wait until the loading completes ...
@@ -210,14 +189,18 @@ public abstract class DataLoader
 			}
 			catch (InterruptedException e)
 			{
+				// The data was not loaded; the download is cancelled rather than left running, and the interrupt is kept for the caller.
 				Logger.error("Failed to wait for downloader thread.", e);
+				this.failed = true;
+				downloader.requestCancel();
+				Thread.currentThread().interrupt();
 			}
 		}
 		else if ((this.localFile != null) && this.localFile.exists() && this.localFile.isFile())
 		{
-			this.parseDownloadedFile(this.localFile);
+			this.parseDownloadedFile(this.localFile, true);
 		}
-		else
+		else if (!this.failed)
 		{
 			Logger.info("No valid source url was specified for the data loading (we likely already have the latest version).");
 		}
@@ -233,6 +216,23 @@ public abstract class DataLoader
 		return this.sourceUrl;
 	}
 	
+	/**
+	 * This method will determine if the CKAN revision could not be fetched,
+	 * or the download or the parsing of the file failed; in which case its
+	 * rows were not loaded. <br />
+	 * <br />
+	 * This is only meaningful once {@link DataLoader#parseFile() parseFile()}
+	 * has returned.
+	 * 
+	 * @return
+	 * <code>true</code> if the file failed to load; <code>false</code>
+	 * otherwise.
+	 * */
+	public boolean hasFailed()
+	{
+		return this.failed;
+	}
+	
 	/* PROTECTED METHODS */
 	/**
 	 * This method will attempt to parse the {@link File} which was downloaded.
@@ -247,6 +247,47 @@ public abstract class DataLoader
 	 * */
 	protected abstract int parseFile(final File downloadedFile) throws Throwable;
 	
+	/**
+	 * This method will queue the specified entity to be inserted into the
+	 * database. <br />
+	 * <br />
+	 * The entities are saved in batches, within explicit transactions, rather
+	 * than one at a time; the final batch is saved once the
+	 * {@link DataLoader#parseFile(File) parseFile(File)} method returns, or
+	 * discarded if it throws. <br />
+	 * This may only be called from within the
+	 * {@link DataLoader#parseFile(File) parseFile(File)} method.
+	 * 
+	 * @param entity
+	 * The entity to insert.
+	 * */
+	protected void insert(final Object entity)
+	{
+		this.rowSink.add(entity);
+	}
+	
+	/**
+	 * This method will create the {@link RowSink} which the rows parsed from
+	 * a file are written to. <br />
+	 * <br />
+	 * By default this is a {@link BatchInserter}; sub-classes which load large
+	 * tables can override this to bulk load them, such as via a
+	 * {@link CopyRowSink}, or to only write the rows which changed since the
+	 * last revision, via a {@link DeltaSink}.
+	 * 
+	 * @param name
+	 * The name of the data being inserted; used when reporting failures.
+	 * @param batchSize
+	 * The configured number of rows to insert within each transaction.
+	 * 
+	 * @return
+	 * The {@link RowSink} to write the rows to.
+	 * */
+	protected RowSink createRowSink(final String name, final int batchSize)
+	{
+		return new BatchInserter(name, batchSize);
+	}
+	
 	/**
 	 * This method will be called if the downloading of the {@link File} fails
 	 * for some reason.
@@ -259,92 +300,75 @@ public abstract class DataLoader
 	 * */
 	protected abstract void parseFailed();
 	
+	/**
+	 * This method will be called once the parsing of the {@link File} has
+	 * finished; whether it succeeded or failed. <br />
+	 * <br />
+	 * By default this does nothing; sub-classes can override this to refresh
+	 * any in-memory data that is built from the loaded table.
+	 * */
+	protected void parseCompleted()
+	{
+		
+	}
+	
 	/* PRIVATE METHODS */
 	/**
 	 * This method will attempt to parse the {@link File} which was downloaded. <br />
 	 * <br />
 	 * Providing the {@link File} is verified to exist, the
 	 * {@link DataLoader#parseFile(File) parseFile(File)} method will be called. <br />
+	 * If the {@link File} is a zip file, only its first entry with the
+	 * expected format is read; see {@link DataLoader#openZipEntry(File)
+	 * openZipEntry(File)}. <br />
 	 * <br />
 	 * If the {@link File} does not exist, the
 	 * {@link DataLoader#downloadFailed(File)} method will be called.
 	 * 
 	 * @param downloadedFile
 	 *            The {@link File} that was downloaded.
+	 * @param deleteDownloadedFile
+	 *            <code>false</code> if the {@link File} belongs to the
+	 *            {@link ArtifactCache}, and so must be kept; <code>true</code>
+	 *            otherwise.
 	 * */
-	private void parseDownloadedFile(final File downloadedFile)
+	private void parseDownloadedFile(final File downloadedFile, final boolean deleteDownloadedFile)
 	{
 		if ((downloadedFile != null) && downloadedFile.isFile() && downloadedFile.exists())
 		{
 			this.localFile = null;
-			File unzippedDir = null;
+			final boolean zipped = downloadedFile.getName().toLowerCase().endsWith(".zip");
+			ZipEntryInputStream entryStream = null;
 			try
 			{
-				if (downloadedFile.getName().toLowerCase().endsWith(".zip"))
+				if (zipped)
 				{
-					unzippedDir = new File(downloadedFile.getParentFile(), downloadedFile.getName() + "_unzippedDir");
-					try
-					{
-						ZipUtils.unzip(true, downloadedFile.getAbsolutePath(), unzippedDir.getAbsolutePath());
-						final File[] unzippedFiles = unzippedDir.listFiles(new FilenameFilter()
-						{
-							@Override
-							public boolean accept(File dir, String name)
-							{
-								if (!StringUtils.isNullOrEmpty(DataLoader.this.sourceExtName))
-								{
-									return name.trim().toLowerCase().endsWith("." + DataLoader.this.sourceExtName.toLowerCase());
-								}
-								else
-								{
-									return true;
-								}
-							}
-						});
-						if ((unzippedFiles != null) && (unzippedFiles.length > 0))
-						{
-							this.localFile = unzippedFiles[0];
-						}
-					}
-					catch (IOException ioe)
-					{
-						if ((unzippedDir != null) && unzippedDir.exists() && unzippedDir.isDirectory())
-						{
-							FileUtils.recursiveDelete(unzippedDir, false);
-						}
-						throw ioe;
-					}
-					finally
-					{
-						if ((downloadedFile != null) && downloadedFile.exists() && downloadedFile.isFile() && (!downloadedFile.delete()))
-						{
-							Logger.warn("Failed to delete temporary downloaded file: " + downloadedFile.getAbsolutePath());
-						}
-					}
+					entryStream = this.openZipEntry(downloadedFile);
 				}
 				else
 				{
 					this.localFile = downloadedFile;
 				}
-				if ((this.localFile != null) && this.localFile.exists() && this.localFile.isFile())
+				if ((entryStream != null) || ((this.localFile != null) && this.localFile.exists() && this.localFile.isFile()))
 				{
-					final int recordsInserted = this.parseFile(this.localFile);
-					if (recordsInserted > 0)
+					this.rowSink = this.createRowSink();
+					final int recordsQueued;
+					try
 					{
-						if (this.ckanRevision != null)
-						{
-							this.ckanRevision.save();
-						}
-						Logger.info("Successfully inserted " + recordsInserted + " records.");
+						recordsQueued = (entryStream != null) ? ((StreamingDataLoader) this).parseStream(entryStream) : this.parseFile(this.localFile);
 					}
-					else
+					catch (Throwable thrown)
 					{
-						Logger.info("No records inserted.");
+						// A partial file must not be completed; the missing rows would be deleted.
+						this.rowSink.discard();
+						throw thrown;
 					}
+					this.rowSink.flush();
+					this.recordsParsed(recordsQueued);
 				}
 				else
 				{
-					this.downloadFailed(downloadedFile);
+					this.downloadFailed(deleteDownloadedFile ? downloadedFile : null);
 				}
 			}
 			catch (Throwable thrown)
@@ -357,23 +381,241 @@ public abstract class DataLoader
 				{
 					Logger.error("Failed to parse the downloaded file: " + downloadedFile.getAbsolutePath(), thrown);
 				}
-				this.parseFailed(this.localFile);
+				this.parseFailed((deleteDownloadedFile || (this.localFile != downloadedFile)) ? this.localFile : null);
 			}
 			finally
 			{
-				if (this.allowDeleteFile && (this.localFile != null) && this.localFile.isFile() && this.localFile.exists())
+				if (entryStream != null)
+				{
+					try
+					{
+						entryStream.close();
+					}
+					catch (IOException ioe)
+					{
+						Logger.warn("Failed to close zip entry.", ioe);
+					}
+				}
+				if (this.allowDeleteFile && (deleteDownloadedFile || (this.localFile != downloadedFile)) && (this.localFile != null) && this.localFile.isFile() && this.localFile.exists())
 				{
 					this.localFile.delete();
 				}
-				if (this.allowDeleteFile && (unzippedDir != null) && unzippedDir.exists() && unzippedDir.isDirectory())
+				if (zipped && deleteDownloadedFile && downloadedFile.exists() && (!downloadedFile.delete()))
+				{
+					Logger.warn("Failed to delete temporary downloaded file: " + downloadedFile.getAbsolutePath());
+				}
+			}
+			this.parseCompleted();
+			// Only now that everything built from the new data is current, may the API tag responses with its revision.
+			DataRevisions.reload();
+		}
+		else
+		{
+			this.downloadFailed(deleteDownloadedFile ? downloadedFile : null);
+		}
+	}
+	
+	/**
+	 * This method will open the first entry of the specified zip {@link File}
+	 * with the expected format; none of the other entries, such as the
+	 * metadata which StatCan bundles with its data, are decompressed. <br />
+	 * <br />
+	 * If this {@link DataLoader} is a {@link StreamingDataLoader}, the entry
+	 * is returned to be parsed as it is decompressed, via the
+	 * {@link StreamingDataLoader#parseStream(InputStream)
+	 * parseStream(InputStream)} method; unless it is large enough to be
+	 * parsed in parallel, which needs a {@link File}. Otherwise the entry alone is extracted, to
+	 * <code>java.io.tmpdir</code>, and becomes the
+	 * {@link DataLoader#localFile localFile}.
+	 * 
+	 * @param zippedFile
+	 *            The zip {@link File}.
+	 * 
+	 * @return
+	 * The {@link ZipEntryInputStream} to parse or <code>null</code> if the
+	 * entry was extracted, or if the zip {@link File} has no such entry.
+	 * */
+	private ZipEntryInputStream openZipEntry(final File zippedFile) throws IOException
+	{
+		final ZipEntryInputStream entryStream = ZipUtils.openEntry(zippedFile, new EntryFilter()
+		{
+			@Override
+			public boolean accept(final ZipEntry entry)
+			{
+				if (!StringUtils.isNullOrEmpty(DataLoader.this.sourceExtName))
+				{
+					return entry.getName().trim().toLowerCase().endsWith("." + DataLoader.this.sourceExtName.toLowerCase());
+				}
+				else
 				{
-					FileUtils.recursiveDelete(unzippedDir, false);
+					return true;
 				}
 			}
+		});
+		if ((entryStream == null) || ((this instanceof StreamingDataLoader) && !((this instanceof CsvRecordLoader) && CsvRecordLoader.isParsedInParallel(entryStream.getEntry().getSize()))))
+		{
+			return entryStream;
+		}
+		try
+		{
+			final File extractedFile = File.createTempFile("dataLoading_", "_" + new File(entryStream.getEntry().getName()).getName());
+			this.localFile = extractedFile;
+			Files.copy(entryStream, extractedFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		finally
+		{
+			entryStream.close();
+		}
+		return null;
+	}
+	
+	/**
+	 * This method will fetch the {@link DataLoader#sourceUrl sourceUrl}
+	 * through the {@link ArtifactCache}, for the revision being loaded, and
+	 * parse the cached {@link File}; which is kept for the next time, and is
+	 * leased until it has been parsed so that it is not evicted. <br />
+	 * <br />
+	 * If the {@link File} can not be fetched, the
+	 * {@link DataLoader#downloadFailed(File) downloadFailed(File)} method will
+	 * be called.
+	 * */
+	private void parseCachedFile()
+	{
+		final File cachedFile;
+		try
+		{
+			cachedFile = DataLoader.getArtifactCache().fetch(new URL(this.sourceUrl), (this.ckanRevision != null) ? String.valueOf(this.ckanRevision.lastRevisionTime) : "");
+		}
+		catch (IOException e)
+		{
+			Logger.error("Failed to fetch file through the artifact cache: " + this.sourceUrl, e);
+			this.downloadFailed((File) null);
+			return;
+		}
+		try
+		{
+			this.parseDownloadedFile(cachedFile, false);
+		}
+		finally
+		{
+			DataLoader.getArtifactCache().release(cachedFile);
+		}
+	}
+	
+	/**
+	 * This method will parse the {@link DataLoader#sourceUrl sourceUrl} while
+	 * it is being downloaded. <br />
+	 * <br />
+	 * The download runs on its own thread and is handed over through a
+	 * bounded queue, by a {@link StreamingDownload}, to the
+	 * {@link StreamingDataLoader#parseStream(InputStream)
+	 * parseStream(InputStream)} method; nothing is written to disk. <br />
+	 * <br />
+	 * If the download fails, at any point, the
+	 * {@link DataLoader#downloadFailed(File) downloadFailed(File)} method will
+	 * be called and the {@link CkanRevision} will not be saved; even if the
+	 * failure was swallowed by the parser.
+	 * */
+	private void parseSourceStream()
+	{
+		StreamingDownload download = null;
+		try
+		{
+			download = StreamingDownload.open(new URL(this.sourceUrl), this.sourceExtName, play.Play.application().configuration().getInt("dataLoading.streamingQueueSize", DataLoader.DEFAULT_STREAMING_QUEUE_SIZE));
+		}
+		catch (IOException e)
+		{
+			Logger.error("Failed to start streaming download.", e);
+			this.downloadFailed((File) null);
+			return;
+		}
+		try
+		{
+			this.rowSink = this.createRowSink();
+			final int recordsQueued;
+			try
+			{
+				recordsQueued = ((StreamingDataLoader) this).parseStream(download);
+			}
+			catch (Throwable thrown)
+			{
+				// A partial file must not be completed; the missing rows would be deleted.
+				this.rowSink.discard();
+				throw thrown;
+			}
+			if (download.getFailure() != null)
+			{
+				this.rowSink.discard();
+				this.downloadFailed((File) null);
+			}
+			else
+			{
+				this.rowSink.flush();
+				this.recordsParsed(recordsQueued);
+			}
+		}
+		catch (Throwable thrown)
+		{
+			Logger.error("Failed to parse the streamed file: " + this.sourceUrl, thrown);
+			if (download.getFailure() != null)
+			{
+				this.downloadFailed((File) null);
+			}
+			else
+			{
+				this.parseFailed((File) null);
+			}
+		}
+		finally
+		{
+			download.close();
+		}
+		this.parseCompleted();
+		// Only now that everything built from the new data is current, may the API tag responses with its revision.
+		DataRevisions.reload();
+	}
+	
+	/**
+	 * This method will create the {@link RowSink} for the file about to be
+	 * parsed.
+	 * 
+	 * @return
+	 * The {@link RowSink} to write the rows to.
+	 * */
+	private RowSink createRowSink()
+	{
+		return this.createRowSink(this.getClass().getSimpleName(), play.Play.application().configuration().getInt("dataLoading.batchSize", DataLoader.DEFAULT_BATCH_SIZE));
+	}
+	
+	/**
+	 * This method will be called once a file has been parsed and all of its
+	 * rows have been written; it will complete the {@link RowSink}, report the
+	 * number of rows inserted and, if there were any, save the
+	 * {@link CkanRevision}.
+	 * 
+	 * @param recordsQueued
+	 *            The number of rows which the file was parsed into.
+	 * */
+	private void recordsParsed(final int recordsQueued)
+	{
+		this.rowSink.complete();
+		final int recordsInserted = recordsQueued - this.rowSink.getFailedCount();
+		if (this.rowSink.getFailedCount() > 0)
+		{
+			Logger.warn("Failed to insert " + this.rowSink.getFailedCount() + " records.");
+		}
+		if (recordsInserted > 0)
+		{
+			if (this.ckanRevision != null)
+			{
+				this.ckanRevision.loadedTime = DataVersion.toModifiedTime(System.currentTimeMillis());
+				this.ckanRevision.save();
+			}
+			Logger.info("Successfully inserted " + recordsInserted + " records.");
 		}
 		else
 		{
-			this.downloadFailed(downloadedFile);
+			Logger.info("No records inserted.");
 		}
 	}
 	
@@ -390,6 +632,7 @@ public abstract class DataLoader
 	 * */
 	private void downloadFailed(final File downloadedFile)
 	{
+		this.failed = true;
 		Logger.error("Failed to download the remote file.");
 		if (this.allowDeleteFile && (downloadedFile != null) && (downloadedFile.exists() && (!downloadedFile.delete())))
 		{
@@ -410,6 +653,7 @@ public abstract class DataLoader
 	 * */
 	private void parseFailed(final File downloadedFile)
 	{
+		this.failed = true;
 		Logger.error("Failed to parse the downloaded file.");
 		if (this.allowDeleteFile && (downloadedFile != null) && (downloadedFile.exists() && (!downloadedFile.delete())))
 		{
@@ -418,6 +662,50 @@ public abstract class DataLoader
 		this.parseFailed();
 	}
 	
+	/**
+	 * This method will get the {@link ArtifactCache} which the remote files
+	 * are fetched through; it is shared by all of the {@link DataLoader}s, and
+	 * is created, in <code>dataLoading.cache.dir</code> and bounded by
+	 * <code>dataLoading.cache.maxSizeMB</code>, the first time it is needed;
+	 * it downloads over <code>dataLoading.download.segments</code>
+	 * connections, just as a download which is not cached.
+	 * 
+	 * @return
+	 * The {@link ArtifactCache} or <code>null</code> if no cache directory is
+	 * configured.
+	 * */
+	private static synchronized ArtifactCache getArtifactCache()
+	{
+		if (!DataLoader.artifactCacheCreated)
+		{
+			final String directory = play.Play.application().configuration().getString("dataLoading.cache.dir");
+			if (!StringUtils.isNullOrEmpty(directory))
+			{
+				DataLoader.artifactCache = new ArtifactCache(new File(directory), play.Play.application().configuration().getInt("dataLoading.cache.maxSizeMB", DataLoader.DEFAULT_CACHE_MAX_SIZE_MB) * 1024L * 1024L, play.Play.application().configuration().getInt("dataLoading.download.segments", 1));
+			}
+			DataLoader.artifactCacheCreated = true;
+		}
+		return DataLoader.artifactCache;
+	}
+	
+	/* PRIVATE CONSTANTS */
+	/**
+	 * The number of rows inserted within each transaction, unless
+	 * <code>dataLoading.batchSize</code> is configured.
+	 * */
+	private static final int DEFAULT_BATCH_SIZE = 500;
+	/**
+	 * The number of downloaded chunks which may be queued for parsing, unless
+	 * <code>dataLoading.streamingQueueSize</code> is configured.
+	 * */
+	private static final int DEFAULT_STREAMING_QUEUE_SIZE = 64;
+	/**
+	 * The maximum number of megabytes of files kept in the
+	 * {@link ArtifactCache}, unless <code>dataLoading.cache.maxSizeMB</code>
+	 * is configured.
+	 * */
+	private static final int DEFAULT_CACHE_MAX_SIZE_MB = 2048;
+	
 	/* PROTECTED VARIABLES */
 	/**
 	 * The localFile that needs to be parsed
@@ -425,6 +713,17 @@ public abstract class DataLoader
 	protected File localFile = null;
 	
 	/* PRIVATE VARIABLES */
+	/**
+	 * The {@link ArtifactCache} which the remote files are fetched through;
+	 * see {@link DataLoader#getArtifactCache() getArtifactCache()}.
+	 * */
+	private static ArtifactCache artifactCache = null;
+	/**
+	 * This will store the flag to denote if the
+	 * {@link DataLoader#artifactCache artifactCache} has been created; or
+	 * found not to be configured.
+	 * */
+	private static boolean artifactCacheCreated = false;
 	/**
 	 * This will store the flag to denote if the local file can be deleted once
 	 * its done being processed.
@@ -444,5 +743,15 @@ public abstract class DataLoader
 	 * parseFile()} method is fired.
 	 * */
 	private CkanRevision ckanRevision = null;
+	/**
+	 * The {@link RowSink} which the rows parsed from the current file are
+	 * queued on.
+	 * */
+	private RowSink rowSink = null;
+	/**
+	 * This will store the flag to denote if the download or the parsing of
+	 * the file failed.
+	 * */
+	private boolean failed = false;
 	
 }
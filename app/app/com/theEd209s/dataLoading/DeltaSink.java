@@ -0,0 +1,511 @@
+package com.theEd209s.dataLoading;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import play.Logger;
+
+import com.avaje.ebean.Ebean;
+import com.avaje.ebean.EbeanServer;
+import com.avaje.ebean.Query;
+import com.avaje.ebean.Transaction;
+
+/**
+ * This class will apply the rows parsed from a file to a table as a delta;
+ * only the rows which are new, changed or gone are written, rather than every
+ * row being inserted again. <br />
+ * <br />
+ * The current contents of the table are read once, when the
+ * {@link DeltaSink} is created, and keyed on the natural key of each row, as
+ * defined by the {@link DeltaTable} of the table. Only the ID and the
+ * {@link DeltaTable#properties properties} of each current row are read, and
+ * only the rows within the scope of the {@link DeltaSink}, such as those of a
+ * single data-set of a shared table, if it has one. Each row which is then
+ * added is matched to a current row with the same key:
+ * <ul>
+ * <li>if there is none, the row is inserted, via the {@link RowSink} the
+ * loader would otherwise have used;</li>
+ * <li>if its values differ, the current row is updated;</li>
+ * <li>otherwise nothing is written.</li>
+ * </ul>
+ * Once the whole file has been added, any current rows which were not matched
+ * are deleted; unless the {@link DeltaTable} does not delete the missing
+ * rows.
+ * <br />
+ * Each current row is only matched once, so a key which is parsed several
+ * times ends up with one row per occurrence; just as a full reload would.
+ * <br />
+ * <br />
+ * Instances should be created via
+ * {@link DeltaSink#create(String, DeltaTable, RowSink, int) create(String,
+ * DeltaTable, RowSink, int)}, which will only use a {@link DeltaSink} if it
+ * has not been disabled via <code>dataLoading.delta</code>.
+ * */
+public class DeltaSink<T> implements RowSink
+{
+
+	/* CONSTRUCTORS */
+	/**
+	 * This will create a new instance of a {@link DeltaSink}; reading the
+	 * current contents of the table.
+	 *
+	 * @param name
+	 * The name of the data being loaded; used when reporting failures.
+	 * @param table
+	 * The {@link DeltaTable} which describes the table to load.
+	 * @param insertSink
+	 * The {@link RowSink} which the new rows are inserted via.
+	 * @param batchSize
+	 * The number of rows to update, or delete, within each transaction.
+	 * */
+	public DeltaSink(final String name, final DeltaTable<T> table, final RowSink insertSink, final int batchSize)
+	{
+		this(name, table, null, insertSink, batchSize);
+	}
+
+	/**
+	 * This will create a new instance of a {@link DeltaSink}; reading the
+	 * current contents of the table which are within the specified scope.
+	 *
+	 * @param name
+	 * The name of the data being loaded; used when reporting failures.
+	 * @param table
+	 * The {@link DeltaTable} which describes the table to load.
+	 * @param scope
+	 * The values of the properties which every row of the file has, such as
+	 * the data-set it belongs to; only the current rows with these values are
+	 * matched, or deleted. <code>null</code> if the file holds the whole
+	 * table.
+	 * @param insertSink
+	 * The {@link RowSink} which the new rows are inserted via.
+	 * @param batchSize
+	 * The number of rows to update, or delete, within each transaction.
+	 * */
+	public DeltaSink(final String name, final DeltaTable<T> table, final Map<String, Object> scope, final RowSink insertSink, final int batchSize)
+	{
+		this.name = name;
+		this.table = table;
+		this.insertSink = insertSink;
+		this.batchSize = Math.max(1, batchSize);
+		this.pendingUpdates = new ArrayList<T>(this.batchSize);
+		this.server = Ebean.getServer(null);
+		final Query<T> query = this.server.find(table.entityClass).select(table.properties);
+		if (scope != null)
+		{
+			query.where().allEq(scope);
+		}
+		for (T entity : query.orderBy().asc(table.idProperty).findList())
+		{
+			final Object key = table.getKey(entity);
+			List<T> currentRows = this.currentRows.get(key);
+			if (currentRows == null)
+			{
+				currentRows = new LinkedList<T>();
+				this.currentRows.put(key, currentRows);
+			}
+			currentRows.add(entity);
+		}
+	}
+
+	/* PUBLIC METHODS */
+	/**
+	 * This method will create the {@link RowSink} for the specified table; a
+	 * {@link DeltaSink} unless it has been disabled via
+	 * <code>dataLoading.delta</code>, in which case every row is inserted via
+	 * the specified {@link RowSink}.
+	 *
+	 * @param name
+	 * The name of the data being loaded; used when reporting failures.
+	 * @param table
+	 * The {@link DeltaTable} which describes the table to load.
+	 * @param insertSink
+	 * The {@link RowSink} which the new rows are inserted via.
+	 * @param batchSize
+	 * The number of rows to update, or delete, within each transaction.
+	 *
+	 * @return
+	 * The {@link RowSink} for the specified table.
+	 * */
+	public static <T> RowSink create(final String name, final DeltaTable<T> table, final RowSink insertSink, final int batchSize)
+	{
+		return DeltaSink.create(name, table, null, insertSink, batchSize);
+	}
+
+	/**
+	 * This method will create the {@link RowSink} for the rows of the
+	 * specified table which are within the specified scope; a
+	 * {@link DeltaSink} unless it has been disabled via
+	 * <code>dataLoading.delta</code>, in which case every row is inserted via
+	 * the specified {@link RowSink}.
+	 *
+	 * @param name
+	 * The name of the data being loaded; used when reporting failures.
+	 * @param table
+	 * The {@link DeltaTable} which describes the table to load.
+	 * @param scope
+	 * The values of the properties which every row of the file has; see
+	 * {@link DeltaSink#DeltaSink(String, DeltaTable, Map, RowSink, int)
+	 * DeltaSink(String, DeltaTable, Map, RowSink, int)}.
+	 * @param insertSink
+	 * The {@link RowSink} which the new rows are inserted via.
+	 * @param batchSize
+	 * The number of rows to update, or delete, within each transaction.
+	 *
+	 * @return
+	 * The {@link RowSink} for the specified table.
+	 * */
+	public static <T> RowSink create(final String name, final DeltaTable<T> table, final Map<String, Object> scope, final RowSink insertSink, final int batchSize)
+	{
+		if (play.Play.application().configuration().getBoolean("dataLoading.delta", true))
+		{
+			return new DeltaSink<T>(name, table, scope, insertSink, batchSize);
+		}
+		return insertSink;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void add(final Object entity)
+	{
+		this.addedCount++;
+		final List<T> currentRows = this.currentRows.get(this.table.getKey((T) entity));
+		if ((currentRows != null) && (currentRows.size() > 0))
+		{
+			final T currentRow = currentRows.remove(0);
+			if (this.table.copyValues((T) entity, currentRow))
+			{
+				this.pendingUpdates.add(currentRow);
+				if (this.pendingUpdates.size() >= this.batchSize)
+				{
+					this.flushUpdates();
+				}
+			}
+			else
+			{
+				this.unchangedCount++;
+			}
+		}
+		else
+		{
+			this.insertSink.add(entity);
+		}
+	}
+
+	@Override
+	public void flush()
+	{
+		this.flushUpdates();
+		this.insertSink.flush();
+	}
+
+	/**
+	 * This method will delete the current rows which were not matched by any
+	 * of the added rows; unless the table is shared, or no rows were added at
+	 * all, which would more likely be a broken file than an empty data-set.
+	 * */
+	@Override
+	public void complete()
+	{
+		this.insertSink.complete();
+		if (this.table.deleteMissing && (this.addedCount > 0))
+		{
+			final List<T> missingRows = new ArrayList<T>(this.batchSize);
+			for (List<T> currentRows : this.currentRows.values())
+			{
+				for (T currentRow : currentRows)
+				{
+					missingRows.add(currentRow);
+					if (missingRows.size() >= this.batchSize)
+					{
+						this.writeBatch(missingRows, true);
+					}
+				}
+			}
+			this.writeBatch(missingRows, true);
+		}
+		this.currentRows.clear();
+		Logger.info(this.name + " delta: " + this.insertSink.getInsertedCount() + " inserted, " + this.updatedCount + " updated, " + this.unchangedCount + " unchanged, " + this.deletedCount + " deleted.");
+	}
+
+	/**
+	 * This method will drop the queued updates and inserts; none of the
+	 * current rows are deleted.
+	 * */
+	@Override
+	public void discard()
+	{
+		this.pendingUpdates.clear();
+		this.insertSink.discard();
+		this.currentRows.clear();
+	}
+
+	@Override
+	public int getInsertedCount()
+	{
+		return this.insertSink.getInsertedCount() + this.updatedCount + this.unchangedCount;
+	}
+
+	@Override
+	public int getFailedCount()
+	{
+		return this.insertSink.getFailedCount() + this.failedCount;
+	}
+
+	/**
+	 * This method will get the number of current rows which were updated.
+	 *
+	 * @return
+	 * The number of current rows which were updated.
+	 * */
+	public int getUpdatedCount()
+	{
+		return this.updatedCount;
+	}
+
+	/**
+	 * This method will get the number of current rows which were left as
+	 * they were.
+	 *
+	 * @return
+	 * The number of current rows which were left as they were.
+	 * */
+	public int getUnchangedCount()
+	{
+		return this.unchangedCount;
+	}
+
+	/**
+	 * This method will get the number of current rows which were deleted.
+	 *
+	 * @return
+	 * The number of current rows which were deleted.
+	 * */
+	public int getDeletedCount()
+	{
+		return this.deletedCount;
+	}
+
+	/* PUBLIC CLASSES */
+	/**
+	 * This class describes a table which can be loaded as a delta; the
+	 * sub-classes define the natural key of its rows and which of their
+	 * values may change.
+	 * */
+	public static abstract class DeltaTable<T>
+	{
+
+		/* CONSTRUCTORS */
+		/**
+		 * This will create a new instance of a {@link DeltaTable}.
+		 *
+		 * @param entityClass
+		 * The entity {@link Class} of the table.
+		 * @param idProperty
+		 * The name of the ID property of the entity; the current rows are
+		 * matched in the order of their IDs.
+		 * @param properties
+		 * The comma separated names of the properties which the key and the
+		 * values are read from; only these, and the ID, are read for each
+		 * current row.
+		 * @param deleteMissing
+		 * <code>true</code> if the current rows which are not in the file
+		 * should be deleted; <code>false</code> if the table is shared by
+		 * several data-sets, and a {@link DeltaSink} is not scoped to just one
+		 * of them, so a row missing from one may belong to another.
+		 * */
+		public DeltaTable(final Class<T> entityClass, final String idProperty, final String properties, final boolean deleteMissing)
+		{
+			this.entityClass = entityClass;
+			this.idProperty = idProperty;
+			this.properties = properties;
+			this.deleteMissing = deleteMissing;
+		}
+
+		/* PROTECTED METHODS */
+		/**
+		 * This method will get the natural key of the specified entity; two
+		 * entities with equal keys are the same row.
+		 *
+		 * @param entity
+		 * The entity to get the key of.
+		 *
+		 * @return
+		 * The natural key of the entity; such as a {@link List} of its key
+		 * values.
+		 * */
+		protected abstract Object getKey(final T entity);
+
+		/**
+		 * This method will copy the values which are not part of the key
+		 * from the specified parsed entity to the specified current entity.
+		 *
+		 * @param parsed
+		 * The entity which was parsed from the file.
+		 * @param current
+		 * The entity which is currently in the table, with the same key.
+		 *
+		 * @return
+		 * <code>true</code> if any of the values changed; <code>false</code>
+		 * if the current entity was already up to date.
+		 * */
+		protected abstract boolean copyValues(final T parsed, final T current);
+
+		/* PRIVATE VARIABLES */
+		private final Class<T> entityClass;
+		private final String idProperty;
+		private final String properties;
+		private final boolean deleteMissing;
+
+	}
+
+	/* PRIVATE METHODS */
+	/**
+	 * This method will save all of the queued updates.
+	 * */
+	private void flushUpdates()
+	{
+		this.writeBatch(this.pendingUpdates, false);
+	}
+
+	/**
+	 * This method will update, or delete, the specified entities within a
+	 * single transaction; if that fails they are retried one at a time, so
+	 * only the entities which can not be written are lost. <br />
+	 * The specified {@link List} is cleared once written.
+	 *
+	 * @param entities
+	 * The entities to write.
+	 * @param delete
+	 * <code>true</code> to delete the entities; <code>false</code> to update
+	 * them.
+	 * */
+	private void writeBatch(final List<T> entities, final boolean delete)
+	{
+		if (entities.size() > 0)
+		{
+			try
+			{
+				final Transaction transaction = this.server.createTransaction();
+				try
+				{
+					transaction.setBatchMode(true);
+					transaction.setBatchSize(this.batchSize);
+					for (T entity : entities)
+					{
+						this.write(entity, delete, transaction);
+					}
+					transaction.commit();
+				}
+				finally
+				{
+					transaction.end();
+				}
+				this.written(entities.size(), delete);
+			}
+			catch (Exception e)
+			{
+				Logger.warn(this.name + " batch of " + entities.size() + (delete ? " deletes" : " updates") + " failed; retrying the rows one at a time.", e);
+				int batchFailedCount = 0;
+				for (T entity : entities)
+				{
+					try
+					{
+						this.write(entity, delete, null);
+						this.written(1, delete);
+					}
+					catch (Exception ex)
+					{
+						batchFailedCount++;
+						Logger.debug("Failed to " + (delete ? "delete " : "update ") + this.name + " row: " + entity, ex);
+					}
+				}
+				if (batchFailedCount > 0)
+				{
+					Logger.error(this.name + ": " + batchFailedCount + " of " + entities.size() + " rows could not be " + (delete ? "deleted." : "updated."));
+					// A row which could not be deleted is stale, but it was not parsed; only the parsed rows count as failed.
+					if (!delete)
+					{
+						this.failedCount += batchFailedCount;
+					}
+				}
+			}
+			finally
+			{
+				entities.clear();
+			}
+		}
+	}
+
+	/**
+	 * This method will update, or delete, the specified entity.
+	 *
+	 * @param entity
+	 * The entity to write.
+	 * @param delete
+	 * <code>true</code> to delete the entity; <code>false</code> to update it.
+	 * @param transaction
+	 * The {@link Transaction} to write the entity within; <code>null</code>
+	 * to write it within its own.
+	 * */
+	private void write(final T entity, final boolean delete, final Transaction transaction)
+	{
+		if (transaction == null)
+		{
+			if (delete)
+			{
+				this.server.delete(entity);
+			}
+			else
+			{
+				this.server.update(entity);
+			}
+		}
+		else if (delete)
+		{
+			this.server.delete(entity, transaction);
+		}
+		else
+		{
+			this.server.update(entity, transaction);
+		}
+	}
+
+	/**
+	 * This method will count the specified number of rows as written.
+	 *
+	 * @param count
+	 * The number of rows which were written.
+	 * @param delete
+	 * <code>true</code> if the rows were deleted; <code>false</code> if they
+	 * were updated.
+	 * */
+	private void written(final int count, final boolean delete)
+	{
+		if (delete)
+		{
+			this.deletedCount += count;
+		}
+		else
+		{
+			this.updatedCount += count;
+		}
+	}
+
+	/* PRIVATE VARIABLES */
+	private final EbeanServer server;
+	private final String name;
+	private final DeltaTable<T> table;
+	private final RowSink insertSink;
+	private final int batchSize;
+	private final Map<Object, List<T>> currentRows = new HashMap<Object, List<T>>();
+	private final List<T> pendingUpdates;
+	private int addedCount = 0;
+	private int updatedCount = 0;
+	private int unchangedCount = 0;
+	private int deletedCount = 0;
+	private int failedCount = 0;
+
+}
@@ -0,0 +1,76 @@
+package com.theEd209s.dataLoading;
+
+import com.theEd209s.lookup.GeoCodeIndex;
+import com.theEd209s.lookup.ReferenceDataRegistry;
+import com.theEd209s.utils.CsvRecordSource;
+import com.theEd209s.utils.CsvRecordSource.RecordFilter;
+
+/**
+ * This class is a {@link RecordFilter} which only accepts the records of a
+ * StatCan data-set whose geo classification codes match a known city; most
+ * of the lines of those data-sets are for geographies which are not loaded,
+ * or are footnotes. <br />
+ * <br />
+ * The codes are parsed straight from the column and looked up in the current
+ * {@link GeoCodeIndex}; so a rejected record never has a {@link String}
+ * created for it. <br />
+ * This class is thread-safe.
+ * */
+public class GeoCodeFilter implements RecordFilter
+{
+	
+	/* CONSTRUCTORS */
+	/**
+	 * This will create a new instance of a {@link GeoCodeFilter}.
+	 * 
+	 * @param column
+	 * The index of the column which holds the comma separated geo
+	 * classification codes.
+	 * @param maxGeoCodes
+	 * The most geo classification codes which are read from the column.
+	 * */
+	public GeoCodeFilter(final int column, final int maxGeoCodes)
+	{
+		this.column = column;
+		this.geoCodes = new ThreadLocal<int[]>()
+		{
+			@Override
+			protected int[] initialValue()
+			{
+				return new int[maxGeoCodes];
+			}
+		};
+	}
+	
+	/* PUBLIC METHODS */
+	@Override
+	public boolean accept(final CsvRecordSource record)
+	{
+		final int[] geoCodes = this.geoCodes.get();
+		final int geoCodeCount = record.getInts(this.column, ',', geoCodes);
+		if (geoCodeCount > 0)
+		{
+			final GeoCodeIndex geoCodeIndex = ReferenceDataRegistry.getInstance().getGeoCodeIndex();
+			for (int n = 0; n < geoCodeCount; n++)
+			{
+				if (geoCodeIndex.contains(geoCodes[n]))
+				{
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	/* PRIVATE VARIABLES */
+	/**
+	 * The index of the column which holds the geo classification codes.
+	 * */
+	private final int column;
+	/**
+	 * The geo classification codes of the current record; one array per
+	 * thread, as the records may be filtered on several threads at once.
+	 * */
+	private final ThreadLocal<int[]> geoCodes;
+	
+}
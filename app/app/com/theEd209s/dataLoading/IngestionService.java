@@ -0,0 +1,386 @@
+package com.theEd209s.dataLoading;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import play.Logger;
+
+/**
+ * This class will run the data ingestion in the background, so that the
+ * application can start while new data is being loaded. <br />
+ * <br />
+ * The ingestion is started via {@link IngestionService#start(Runnable)
+ * start(Runnable)} and runs on its own thread; its progress is tracked as a
+ * {@link State}, which can be used to tell a node that is serving complete
+ * data apart from one that is not. <br />
+ * <br />
+ * While an ingestion is running the node keeps serving whatever is in the
+ * tables, but the static stages truncate the tables they reload, which
+ * cascades to the dynamic tables, so the tables may be empty or partially
+ * loaded until it completes; the node is therefore not
+ * {@link IngestionService#isReady() ready} while it is
+ * {@link State#LOADING LOADING}, unless the ingestion was started as one
+ * which removes no data, over data which was complete; see
+ * {@link IngestionService#start(Runnable, boolean) start(Runnable, boolean)}.
+ * <br />
+ * An ingestion which fails after truncating a table it did not reload is
+ * {@link State#FAILED FAILED}; its data may be missing, so the node is not
+ * ready until an ingestion completes. An ingestion which fails without
+ * removing any data, by throwing a {@link StaleDataException}, is only
+ * {@link State#STALE STALE}; the previously loaded data is still complete
+ * and served, so the node stays ready until a later ingestion, or a
+ * {@link CkanRefresher} poll, brings the data up to date; see
+ * {@link IngestionService#markRefreshed() markRefreshed()}. <br />
+ * Only one ingestion may run at a time; {@link IngestionService#stop()
+ * stop()} should be called when the application stops.
+ * */
+public final class IngestionService
+{
+
+	/* CONSTRUCTORS */
+	/**
+	 * This class only has static methods.
+	 * */
+	private IngestionService()
+	{
+
+	}
+
+	/* PUBLIC METHODS */
+	/**
+	 * This method will start the specified ingestion on the background
+	 * thread, unless an ingestion is already running; the node is not
+	 * {@link IngestionService#isReady() ready} until it completes.
+	 *
+	 * @param ingestion
+	 * The {@link Runnable} which loads the data.
+	 *
+	 * @return
+	 * <code>true</code> if the ingestion was started; <code>false</code> if
+	 * an ingestion is already running.
+	 * */
+	public static boolean start(final Runnable ingestion)
+	{
+		return IngestionService.start(ingestion, false);
+	}
+
+	/**
+	 * This method will start the specified ingestion on the background
+	 * thread, unless an ingestion is already running. <br />
+	 * <br />
+	 * An ingestion which removes no data, such as one which only merges new
+	 * rows into tables which are already loaded, leaves the node
+	 * {@link IngestionService#isReady() ready} while it runs; providing the
+	 * node was ready when it started.
+	 *
+	 * @param ingestion
+	 * The {@link Runnable} which loads the data.
+	 * @param removesNoData
+	 * <code>true</code> if the ingestion truncates no table, and every table
+	 * it loads already holds data; <code>false</code> otherwise.
+	 *
+	 * @return
+	 * <code>true</code> if the ingestion was started; <code>false</code> if
+	 * an ingestion is already running.
+	 * */
+	public static synchronized boolean start(final Runnable ingestion, final boolean removesNoData)
+	{
+		if (IngestionService.state == State.LOADING)
+		{
+			Logger.warn("Data ingestion is already running; not starting another.");
+			return false;
+		}
+		if (IngestionService.executor == null)
+		{
+			IngestionService.executor = Executors.newSingleThreadExecutor(new IngestionThreadFactory());
+		}
+		IngestionService.readyWhileLoading = removesNoData && IngestionService.isReady();
+		IngestionService.state = State.LOADING;
+		IngestionService.startedTime = System.currentTimeMillis();
+		IngestionService.completedTime = -1L;
+		IngestionService.executor.execute(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				IngestionService.runIngestion(ingestion);
+			}
+		});
+		return true;
+	}
+
+	/**
+	 * This method will stop the background thread; interrupting the ingestion
+	 * if it is still running.
+	 * */
+	public static void stop()
+	{
+		final ExecutorService stoppingExecutor;
+		synchronized (IngestionService.class)
+		{
+			stoppingExecutor = IngestionService.executor;
+			IngestionService.executor = null;
+		}
+		if (stoppingExecutor != null)
+		{
+			stoppingExecutor.shutdownNow();
+			try
+			{
+				if (!stoppingExecutor.awaitTermination(IngestionService.STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+				{
+					Logger.warn("Data ingestion did not stop within " + IngestionService.STOP_TIMEOUT_SECONDS + " seconds.");
+				}
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			synchronized (IngestionService.class)
+			{
+				// The ingestion may have been stopped before it even started.
+				if (IngestionService.state == State.LOADING)
+				{
+					IngestionService.completedTime = System.currentTimeMillis();
+					IngestionService.state = State.FAILED;
+				}
+			}
+		}
+	}
+
+	/**
+	 * This method will get the {@link State} of the data ingestion.
+	 *
+	 * @return
+	 * The {@link State} of the data ingestion.
+	 * */
+	public static State getState()
+	{
+		return IngestionService.state;
+	}
+
+	/**
+	 * This method will record that every data-set has been brought up to
+	 * date outside of an ingestion, such as by a {@link CkanRefresher} poll;
+	 * which clears a {@link State#STALE STALE} ingestion. <br />
+	 * <br />
+	 * A {@link State#FAILED FAILED} ingestion is not cleared, as the tables
+	 * it truncated are not reloaded by a refresh.
+	 * */
+	public static synchronized void markRefreshed()
+	{
+		if (IngestionService.state == State.STALE)
+		{
+			Logger.info("Data has been refreshed since the failed ingestion; it is up to date.");
+			IngestionService.state = State.READY;
+		}
+	}
+
+	/**
+	 * This method will determine if complete data is being served; which is
+	 * the case unless an ingestion which may remove data is running, or the
+	 * last ingestion failed after removing data.
+	 *
+	 * @return
+	 * <code>true</code> if complete data is being served;
+	 * <code>false</code> otherwise.
+	 * */
+	public static boolean isReady()
+	{
+		final State currentState = IngestionService.state;
+		if (currentState == State.LOADING)
+		{
+			return IngestionService.readyWhileLoading;
+		}
+		return (currentState == State.IDLE) || (currentState == State.READY) || (currentState == State.STALE);
+	}
+
+	/**
+	 * This method will get the time at which the last ingestion started.
+	 *
+	 * @return
+	 * The time, in milliseconds, at which the last ingestion started or
+	 * <code>-1</code> if none has been started.
+	 * */
+	public static long getStartedTime()
+	{
+		return IngestionService.startedTime;
+	}
+
+	/**
+	 * This method will get the time at which the last ingestion finished;
+	 * whether it succeeded or failed.
+	 *
+	 * @return
+	 * The time, in milliseconds, at which the last ingestion finished or
+	 * <code>-1</code> if it has not finished.
+	 * */
+	public static long getCompletedTime()
+	{
+		return IngestionService.completedTime;
+	}
+
+	/* PUBLIC CLASSES */
+	/**
+	 * This enum contains the states of the data ingestion.
+	 * */
+	public static enum State
+	{
+		/**
+		 * No ingestion has been started; the data in the database is all
+		 * there is.
+		 * */
+		IDLE("idle"),
+		/**
+		 * The ingestion is running; the tables being reloaded may be empty or
+		 * partially loaded.
+		 * */
+		LOADING("loading"),
+		/**
+		 * The ingestion has completed.
+		 * */
+		READY("ready"),
+		/**
+		 * The ingestion, or any of its stages, failed without removing any
+		 * data; the previously loaded data is still served, but may be out of
+		 * date.
+		 * */
+		STALE("stale"),
+		/**
+		 * The ingestion, or any of its stages, failed or was interrupted,
+		 * possibly after removing data; the data may be missing.
+		 * */
+		FAILED("failed");
+
+		/* CONSTRUCTORS */
+		/**
+		 * This will create a new instance of a {@link State}.
+		 *
+		 * @param label
+		 * The label which is reported for the state.
+		 * */
+		private State(final String label)
+		{
+			this.label = label;
+		}
+
+		/* PUBLIC METHODS */
+		/**
+		 * This method will get the label which is reported for this state.
+		 *
+		 * @return
+		 * The label which is reported for this state.
+		 * */
+		public String getLabel()
+		{
+			return this.label;
+		}
+
+		/* PRIVATE VARIABLES */
+		private final String label;
+
+	}
+
+	/**
+	 * This exception is thrown by an ingestion which failed without removing
+	 * any data, such as when a file could not be downloaded; the ingestion is
+	 * then {@link State#STALE STALE} rather than {@link State#FAILED FAILED}.
+	 * */
+	public static class StaleDataException extends RuntimeException
+	{
+
+		/* CONSTRUCTORS */
+		/**
+		 * This will create a new instance of a {@link StaleDataException}.
+		 *
+		 * @param message
+		 * The description of the failure.
+		 * */
+		public StaleDataException(final String message)
+		{
+			super(message);
+		}
+
+		/* PRIVATE CONSTANTS */
+		private static final long serialVersionUID = 1L;
+
+	}
+
+	/* PRIVATE METHODS */
+	/**
+	 * This method will run the specified ingestion on the background thread
+	 * and record how it finished.
+	 *
+	 * @param ingestion
+	 * The {@link Runnable} which loads the data.
+	 * */
+	private static void runIngestion(final Runnable ingestion)
+	{
+		State finishedState = State.FAILED;
+		try
+		{
+			Logger.info("Data ingestion started.");
+			ingestion.run();
+			if (Thread.currentThread().isInterrupted())
+			{
+				Logger.warn("Data ingestion was interrupted.");
+			}
+			else
+			{
+				finishedState = State.READY;
+				Logger.info("Data ingestion completed.");
+			}
+		}
+		catch (StaleDataException e)
+		{
+			finishedState = State.STALE;
+			Logger.error("Data ingestion failed; the previously loaded data is still being served.", e);
+		}
+		catch (Throwable thrown)
+		{
+			Logger.error("Data ingestion failed.", thrown);
+		}
+		finally
+		{
+			synchronized (IngestionService.class)
+			{
+				IngestionService.completedTime = System.currentTimeMillis();
+				IngestionService.state = finishedState;
+			}
+		}
+	}
+
+	/* PRIVATE CLASSES */
+	/**
+	 * This class names the background thread and makes sure it does not keep
+	 * the JVM alive.
+	 * */
+	private static class IngestionThreadFactory implements ThreadFactory
+	{
+
+		/* PUBLIC METHODS */
+		@Override
+		public Thread newThread(final Runnable runnable)
+		{
+			final Thread thread = new Thread(runnable, "IngestionService");
+			thread.setDaemon(true);
+			return thread;
+		}
+
+	}
+
+	/* PRIVATE CONSTANTS */
+	/**
+	 * The number of seconds to wait for the ingestion to stop.
+	 * */
+	private static final long STOP_TIMEOUT_SECONDS = 30L;
+
+	/* PRIVATE VARIABLES */
+	private static ExecutorService executor = null;
+	private static volatile State state = State.IDLE;
+	private static volatile boolean readyWhileLoading = false;
+	private static volatile long startedTime = -1L;
+	private static volatile long completedTime = -1L;
+
+}
@@ -0,0 +1,388 @@
+package com.theEd209s.dataLoading;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import play.Logger;
+
+import com.theEd209s.utils.StringUtils;
+
+/**
+ * This class will run a set of data loading stages, such as truncating and
+ * populating a table, while respecting the dependencies between them. <br />
+ * <br />
+ * Each stage is added via
+ * {@link LoaderScheduler#schedule(String, Runnable, String...)
+ * schedule(String, Runnable, String...)}, along with the names of the stages
+ * it depends on; {@link LoaderScheduler#run() run()} then starts every stage
+ * as soon as all of its dependencies have finished, running independent
+ * stages concurrently on a bounded pool of threads. <br />
+ * A dependency on a stage which was never scheduled, such as a loader which
+ * has been disabled, is ignored; the data it would have loaded is assumed to
+ * already be in the database. <br />
+ * A stage which fails does not stop its dependents from running; just as
+ * when the stages were run one after another. The stages which failed are
+ * reported by {@link LoaderScheduler#getFailedStages() getFailedStages()}
+ * once they have all finished, so that the caller can tell a complete load
+ * from a partial one. <br />
+ * <br />
+ * The time taken by each stage is recorded and logged once all of the stages
+ * have finished.
+ * */
+public class LoaderScheduler
+{
+
+	/* CONSTRUCTORS */
+	/**
+	 * This will create a new instance of a {@link LoaderScheduler}.
+	 *
+	 * @param threadCount
+	 * The maximum number of stages to run at the same time.
+	 * */
+	public LoaderScheduler(final int threadCount)
+	{
+		this.threadCount = Math.max(1, threadCount);
+	}
+
+	/* PUBLIC METHODS */
+	/**
+	 * This method will add a stage to be run.
+	 *
+	 * @param name
+	 * The unique name of the stage.
+	 * @param stage
+	 * The {@link Runnable} which runs the stage.
+	 * @param dependencies
+	 * The names of the stages which must finish before this stage starts.
+	 *
+	 * @throws IllegalArgumentException
+	 * If a stage with the specified name has already been added.
+	 * */
+	public void schedule(final String name, final Runnable stage, final String... dependencies)
+	{
+		if (this.stages.containsKey(name))
+		{
+			throw new IllegalArgumentException("A loader stage named " + name + " has already been scheduled.");
+		}
+		this.stages.put(name, new Stage(name, stage, dependencies));
+	}
+
+	/**
+	 * This method will run all of the added stages and wait for them to
+	 * finish.
+	 *
+	 * @throws IllegalStateException
+	 * If the dependencies between the stages are circular.
+	 * @throws InterruptedException
+	 * If interrupted while waiting for the stages; any stages which are still
+	 * running will be interrupted.
+	 * */
+	public void run() throws InterruptedException
+	{
+		if (this.stages.isEmpty())
+		{
+			return;
+		}
+		this.resolveDependencies();
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.min(this.threadCount, this.stages.size()), new StageThreadFactory());
+		final CompletionService<Stage> completionService = new ExecutorCompletionService<Stage>(executor);
+		this.startTime = System.currentTimeMillis();
+		boolean interrupted = true;
+		try
+		{
+			int runningCount = 0;
+			for (Stage stage : this.stages.values())
+			{
+				if (stage.remainingDependencies == 0)
+				{
+					completionService.submit(stage);
+					runningCount++;
+				}
+			}
+			while (runningCount > 0)
+			{
+				final Stage finished = completionService.take().get();
+				runningCount--;
+				for (Stage dependent : finished.dependents)
+				{
+					dependent.remainingDependencies--;
+					if (dependent.remainingDependencies == 0)
+					{
+						completionService.submit(dependent);
+						runningCount++;
+					}
+				}
+			}
+			interrupted = false;
+		}
+		catch (ExecutionException e)
+		{
+			// Stage.call() catches everything its stage throws, so this can not happen.
+			throw new IllegalStateException("Loader stage failed unexpectedly.", e.getCause());
+		}
+		finally
+		{
+			if (interrupted)
+			{
+				executor.shutdownNow();
+			}
+			else
+			{
+				executor.shutdown();
+			}
+		}
+		this.totalElapsedTime = System.currentTimeMillis() - this.startTime;
+		this.logTimings();
+	}
+
+	/**
+	 * This method will get the time taken by the specified stage.
+	 *
+	 * @param name
+	 * The name of the stage.
+	 *
+	 * @return
+	 * The time, in milliseconds, taken by the stage or <code>-1</code> if it
+	 * has not been run.
+	 * */
+	public long getElapsedTime(final String name)
+	{
+		final Stage stage = this.stages.get(name);
+		return (stage != null) ? stage.elapsedTime : -1L;
+	}
+
+	/**
+	 * This method will get the names of the stages which failed; that is,
+	 * those which threw.
+	 *
+	 * @return
+	 * The names of the stages which failed, in the order they were
+	 * scheduled; this will be empty if none failed or they have not been run.
+	 * */
+	public List<String> getFailedStages()
+	{
+		final List<String> failedStages = new ArrayList<String>();
+		for (Stage stage : this.stages.values())
+		{
+			if (stage.failed)
+			{
+				failedStages.add(stage.name);
+			}
+		}
+		return failedStages;
+	}
+
+	/**
+	 * This method will get the time taken to run all of the stages.
+	 *
+	 * @return
+	 * The time, in milliseconds, taken to run all of the stages or
+	 * <code>-1</code> if they have not been run.
+	 * */
+	public long getTotalElapsedTime()
+	{
+		return this.totalElapsedTime;
+	}
+
+	/* PRIVATE METHODS */
+	/**
+	 * This method will link every stage to the stages which depend on it and
+	 * count the dependencies each stage is waiting for; then verify that every
+	 * stage can be reached.
+	 *
+	 * @throws IllegalStateException
+	 * If the dependencies between the stages are circular.
+	 * */
+	private void resolveDependencies()
+	{
+		for (Stage stage : this.stages.values())
+		{
+			stage.dependents.clear();
+			stage.remainingDependencies = 0;
+			stage.failed = false;
+		}
+		for (Stage stage : this.stages.values())
+		{
+			for (String dependencyName : stage.dependencies)
+			{
+				final Stage dependency = this.stages.get(dependencyName);
+				if ((dependency != null) && (!dependency.dependents.contains(stage)))
+				{
+					dependency.dependents.add(stage);
+					stage.remainingDependencies++;
+				}
+			}
+		}
+		// Walk the stages in the order they would run; any which are never reached are part of a cycle.
+		final Map<Stage, Integer> remaining = new LinkedHashMap<Stage, Integer>();
+		final List<Stage> ready = new ArrayList<Stage>();
+		for (Stage stage : this.stages.values())
+		{
+			remaining.put(stage, Integer.valueOf(stage.remainingDependencies));
+			if (stage.remainingDependencies == 0)
+			{
+				ready.add(stage);
+			}
+		}
+		int reachedCount = 0;
+		while (!ready.isEmpty())
+		{
+			final Stage stage = ready.remove(ready.size() - 1);
+			reachedCount++;
+			for (Stage dependent : stage.dependents)
+			{
+				final int dependentRemaining = remaining.get(dependent).intValue() - 1;
+				remaining.put(dependent, Integer.valueOf(dependentRemaining));
+				if (dependentRemaining == 0)
+				{
+					ready.add(dependent);
+				}
+			}
+		}
+		if (reachedCount < this.stages.size())
+		{
+			final StringBuilder cycle = new StringBuilder();
+			for (Map.Entry<Stage, Integer> entry : remaining.entrySet())
+			{
+				if (entry.getValue().intValue() > 0)
+				{
+					cycle.append((cycle.length() > 0) ? ", " : "").append(entry.getKey().name);
+				}
+			}
+			throw new IllegalStateException("The loader stages have circular dependencies: " + cycle);
+		}
+	}
+
+	/**
+	 * This method will log the time taken by each stage, in the order they
+	 * were scheduled, along with the total time taken.
+	 * */
+	private void logTimings()
+	{
+		long stageTotal = 0L;
+		for (Stage stage : this.stages.values())
+		{
+			stageTotal += stage.elapsedTime;
+			Logger.info("Loader stage " + stage.name + (stage.failed ? " failed" : " completed") + ": " + LoaderScheduler.formatElapsedTime(stage.elapsedTime) + " (started after " + LoaderScheduler.formatElapsedTime(stage.startOffset) + ")");
+		}
+		final List<String> failedStages = this.getFailedStages();
+		if (!failedStages.isEmpty())
+		{
+			Logger.error(failedStages.size() + " of " + this.stages.size() + " loader stages failed: " + failedStages);
+		}
+		Logger.info("All " + this.stages.size() + " loader stages finished: " + LoaderScheduler.formatElapsedTime(this.totalElapsedTime) + " (" + LoaderScheduler.formatElapsedTime(stageTotal) + " if run one after another)");
+	}
+
+	/**
+	 * This method will format the specified elapsed time for logging.
+	 *
+	 * @param elapsedTime
+	 * The elapsed time, in milliseconds.
+	 *
+	 * @return
+	 * The human readable elapsed time.
+	 * */
+	private static String formatElapsedTime(final long elapsedTime)
+	{
+		try
+		{
+			return StringUtils.humanReadableElapsedTime(elapsedTime);
+		}
+		catch (Exception e)
+		{
+			return elapsedTime + " ms";
+		}
+	}
+
+	/* PRIVATE CLASSES */
+	/**
+	 * This class is a single stage; it records the time taken to run it.
+	 * */
+	private class Stage implements Callable<Stage>
+	{
+
+		/* CONSTRUCTORS */
+		/**
+		 * This will create a new instance of a {@link Stage}.
+		 *
+		 * @param name
+		 * The unique name of the stage.
+		 * @param runnable
+		 * The {@link Runnable} which runs the stage.
+		 * @param dependencies
+		 * The names of the stages which must finish before this stage starts.
+		 * */
+		private Stage(final String name, final Runnable runnable, final String[] dependencies)
+		{
+			this.name = name;
+			this.runnable = runnable;
+			this.dependencies = dependencies;
+		}
+
+		/* PUBLIC METHODS */
+		@Override
+		public Stage call()
+		{
+			final long startTime = System.currentTimeMillis();
+			this.startOffset = startTime - LoaderScheduler.this.startTime;
+			Logger.info("Starting loader stage " + this.name + " ....");
+			try
+			{
+				this.runnable.run();
+			}
+			catch (Throwable thrown)
+			{
+				this.failed = true;
+				Logger.error("Loader stage " + this.name + " failed.", thrown);
+			}
+			this.elapsedTime = System.currentTimeMillis() - startTime;
+			return this;
+		}
+
+		/* PRIVATE VARIABLES */
+		private final String name;
+		private final Runnable runnable;
+		private final String[] dependencies;
+		private final List<Stage> dependents = new ArrayList<Stage>();
+		private int remainingDependencies = 0;
+		private volatile long startOffset = 0L;
+		private volatile long elapsedTime = -1L;
+		private volatile boolean failed = false;
+
+	}
+
+	/**
+	 * This class names the threads which run the stages.
+	 * */
+	private static class StageThreadFactory implements ThreadFactory
+	{
+
+		/* PUBLIC METHODS */
+		@Override
+		public Thread newThread(final Runnable runnable)
+		{
+			return new Thread(runnable, "LoaderScheduler-" + this.threadNumber.incrementAndGet());
+		}
+
+		/* PRIVATE VARIABLES */
+		private final AtomicInteger threadNumber = new AtomicInteger();
+
+	}
+
+	/* PRIVATE VARIABLES */
+	private final int threadCount;
+	private final Map<String, Stage> stages = new LinkedHashMap<String, Stage>();
+	private volatile long startTime = 0L;
+	private long totalElapsedTime = -1L;
+
+}
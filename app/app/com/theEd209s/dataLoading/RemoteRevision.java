@@ -0,0 +1,168 @@
+package com.theEd209s.dataLoading;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+
+import play.Logger;
+
+import com.theEd209s.utils.StringUtils;
+
+import eu.trentorise.opendata.jackan.ckan.CkanClient;
+import eu.trentorise.opendata.jackan.ckan.CkanDataset;
+import eu.trentorise.opendata.jackan.ckan.CkanResource;
+
+/**
+ * This class is the current revision of a CKAN resource, as published by the
+ * CKAN server. <br />
+ * <br />
+ * It is retrieved via
+ * {@link RemoteRevision#fetch(String, String, String) fetch(String, String,
+ * String)}, which only reads the metadata of the data-set; the resource
+ * itself is not downloaded.
+ * */
+public final class RemoteRevision
+{
+
+	/* CONSTRUCTORS */
+	/**
+	 * This will create a new instance of a {@link RemoteRevision}.
+	 *
+	 * @param url
+	 * The url of the resource.
+	 * @param format
+	 * The format of the resource.
+	 * @param revisionTime
+	 * The time of the revision of the resource.
+	 * */
+	private RemoteRevision(final String url, final String format, final long revisionTime)
+	{
+		this.url = url;
+		this.format = format;
+		this.revisionTime = revisionTime;
+	}
+
+	/* PUBLIC METHODS */
+	/**
+	 * This method will get the current revision of the specified CKAN
+	 * resource.
+	 *
+	 * @param ckanUrl
+	 * The base CKAN url.
+	 * @param ckanDatesetId
+	 * The CKAN data-set ID.
+	 * @param ckanResourceId
+	 * The CKAN resource ID.
+	 *
+	 * @return
+	 * The {@link RemoteRevision} of the resource or <code>null</code> if the
+	 * resource could not be found or has no valid revision timestamp.
+	 * */
+	public static RemoteRevision fetch(final String ckanUrl, final String ckanDatesetId, final String ckanResourceId)
+	{
+		if (!StringUtils.isNullOrEmpty(ckanUrl))
+		{
+			Logger.info("CKAN URL: " + ckanUrl);
+			if (!StringUtils.isNullOrEmpty(ckanDatesetId))
+			{
+				Logger.info("CKAN Dataset ID: " + ckanDatesetId);
+				if (!StringUtils.isNullOrEmpty(ckanResourceId))
+				{
+					Logger.info("CKAN Resource ID: " + ckanResourceId);
+					final CkanClient client = new CkanClient(ckanUrl);
+					final CkanDataset dataset = client.getDataset(ckanDatesetId);
+					if (dataset != null)
+					{
+						final List<CkanResource> resources = dataset.getResources();
+						if ((resources != null) && (resources.size() > 0))
+						{
+							for (CkanResource resource : resources)
+							{
+								if (ckanResourceId.equalsIgnoreCase(resource.getId()))
+								{
+									final long revisionTime = RemoteRevision.parseRevisionTimestamp(resource.getRevisionTimestamp());
+									if (revisionTime > -1L)
+									{
+										return new RemoteRevision(resource.getUrl(), resource.getFormat(), revisionTime);
+									}
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * This method will get the url of the resource.
+	 *
+	 * @return
+	 * The url of the resource.
+	 * */
+	public String getUrl()
+	{
+		return this.url;
+	}
+
+	/**
+	 * This method will get the format of the resource; such as
+	 * <code>CSV</code>.
+	 *
+	 * @return
+	 * The format of the resource.
+	 * */
+	public String getFormat()
+	{
+		return this.format;
+	}
+
+	/**
+	 * This method will get the time of the revision of the resource.
+	 *
+	 * @return
+	 * The time of the revision of the resource.
+	 * */
+	public long getRevisionTime()
+	{
+		return this.revisionTime;
+	}
+
+	/* PRIVATE METHODS */
+	/**
+	 * This method will parse the specified CKAN revision timestamp.
+	 *
+	 * @param revisionTimestamp
+	 * The CKAN revision timestamp.
+	 *
+	 * @return
+	 * The time of the revision or <code>-1</code> if the timestamp is not
+	 * valid.
+	 * */
+	private static long parseRevisionTimestamp(final String revisionTimestamp)
+	{
+		if (!StringUtils.isNullOrEmpty(revisionTimestamp))
+		{
+			// The stored revision times were all parsed with this pattern, so it must not change.
+			final SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd hh:mm:ss.SSSSSS");
+			try
+			{
+				final Date revisionDate = formatter.parse(revisionTimestamp.replace("T", " "));
+				return revisionDate.getTime();
+			}
+			catch (ParseException e)
+			{
+
+			}
+		}
+		return -1L;
+	}
+
+	/* PRIVATE VARIABLES */
+	private final String url;
+	private final String format;
+	private final long revisionTime;
+
+}
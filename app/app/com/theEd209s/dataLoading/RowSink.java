@@ -0,0 +1,64 @@
+package com.theEd209s.dataLoading;
+
+/**
+ * This interface is implemented by the classes that a {@link DataLoader}
+ * writes its parsed rows to. <br />
+ * <br />
+ * Rows are queued via {@link RowSink#add(Object) add(Object)} and may be
+ * written at any time; once all of the rows have been added,
+ * {@link RowSink#flush() flush()} must be called to write any which are
+ * still queued. <br />
+ * Once the whole file has been parsed without failing,
+ * {@link RowSink#complete() complete()} is also called; so that any changes
+ * which depend on having seen every row can be applied. <br />
+ * If the parsing fails instead, {@link RowSink#discard() discard()} is
+ * called; the rows which are still queued are dropped, rather than written,
+ * and nothing is completed.
+ * */
+public interface RowSink
+{
+	
+	/**
+	 * This method will queue the specified entity to be inserted.
+	 * 
+	 * @param entity
+	 * The entity to insert.
+	 * */
+	public void add(final Object entity);
+	
+	/**
+	 * This method will write all of the queued entities.
+	 * */
+	public void flush();
+	
+	/**
+	 * This method will be called once every row of the file has been added
+	 * and flushed; it is not called if the parsing failed.
+	 * */
+	public void complete();
+	
+	/**
+	 * This method will drop all of the queued entities without writing them;
+	 * it is called, instead of {@link RowSink#flush() flush()} and
+	 * {@link RowSink#complete() complete()}, if the parsing failed.
+	 * */
+	public void discard();
+	
+	/**
+	 * This method will get the number of entities which have been inserted.
+	 * 
+	 * @return
+	 * The number of entities which have been inserted.
+	 * */
+	public int getInsertedCount();
+	
+	/**
+	 * This method will get the number of entities which could not be
+	 * inserted.
+	 * 
+	 * @return
+	 * The number of entities which could not be inserted.
+	 * */
+	public int getFailedCount();
+	
+}
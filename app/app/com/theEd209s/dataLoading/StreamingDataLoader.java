@@ -0,0 +1,112 @@
+package com.theEd209s.dataLoading;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import play.Logger;
+
+/**
+ * This class is the base for all loaders which can parse an
+ * {@link InputStream}. <br />
+ * <br />
+ * Extending this class opts in to having the remote file parsed while it is
+ * still being downloaded, rather than once it has been saved to disk; and to
+ * having a zipped file parsed as its entry is decompressed. <br />
+ * This can be disabled via <code>dataLoading.streaming</code>, in which case
+ * the file is downloaded first and parsed by the
+ * {@link DataLoader#parseFile(File) parseFile(File)} method; which by default
+ * reads the {@link File} via the
+ * {@link StreamingDataLoader#parseStream(InputStream)
+ * parseStream(InputStream)} method.
+ * */
+public abstract class StreamingDataLoader extends DataLoader
+{
+
+	/* CONSTRUCTORS */
+	/**
+	 * This will create a new instance of a {@link StreamingDataLoader}.
+	 *
+	 * @param sourceFile
+	 * The source {@link File}.
+	 * @param allowDeleteFile
+	 * <code>true</code> if the specified {@link File} can be deleted once
+	 * done; <code>false</code> if the specified {@link File} can not be
+	 * deleted once processed.
+	 * */
+	public StreamingDataLoader(final File sourceFile, final boolean allowDeleteFile)
+	{
+		super(sourceFile, allowDeleteFile);
+	}
+
+	/**
+	 * This will create a new instance of a {@link StreamingDataLoader}.
+	 *
+	 * @param ckanUrl
+	 *            The base CKAN url.
+	 * @param ckanDatesetId
+	 *            The CKAN data-set ID.
+	 * @param ckanResourceId
+	 *            The CKAN resource ID.
+	 * */
+	public StreamingDataLoader(final String ckanUrl, final String ckanDatesetId, final String ckanResourceId)
+	{
+		super(ckanUrl, ckanDatesetId, ckanResourceId);
+	}
+
+	/* PROTECTED METHODS */
+	/**
+	 * This method will attempt to parse the specified {@link InputStream};
+	 * which is the content of the remote file, unzipped, as it is being
+	 * downloaded.
+	 *
+	 * @param inputStream
+	 *            The {@link InputStream} to parse. <br />
+	 *            This {@link InputStream} will be closed after this method
+	 *            completes its execution; there is no need to close it here.
+	 *
+	 * @return
+	 * The total number of rows inserted.
+	 * */
+	protected abstract int parseStream(final InputStream inputStream) throws Throwable;
+
+	/**
+	 * This method will parse the specified {@link File} via the
+	 * {@link StreamingDataLoader#parseStream(InputStream)
+	 * parseStream(InputStream)} method; so that a local or downloaded
+	 * {@link File} is parsed the same way as a stream.
+	 *
+	 * @param downloadedFile
+	 *            The {@link File} to parse.
+	 *
+	 * @return
+	 * The total number of rows inserted.
+	 * */
+	@Override
+	protected int parseFile(final File downloadedFile) throws Throwable
+	{
+		int rowsInserted = 0;
+		if ((downloadedFile != null) && downloadedFile.exists() && downloadedFile.isFile())
+		{
+			final FileInputStream fis = new FileInputStream(downloadedFile);
+			try
+			{
+				rowsInserted = this.parseStream(fis);
+			}
+			finally
+			{
+				try
+				{
+					fis.close();
+				}
+				catch (IOException ioe)
+				{
+					Logger.warn("Failed to close FileInputStream.", ioe);
+				}
+			}
+		}
+		return rowsInserted;
+	}
+
+}
@@ -0,0 +1,541 @@
+package com.theEd209s.dataLoading;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import play.Logger;
+
+import com.theEd209s.Constants;
+import com.theEd209s.utils.StringUtils;
+
+/**
+ * This class will stream a remote file, so that it can be parsed while it is
+ * still being downloaded. <br />
+ * <br />
+ * A producer thread reads the HTTP response, unzipping it on the fly if it
+ * is a zip file, and queues the bytes in chunks on a bounded queue; this
+ * {@link InputStream} is the consumer of that queue. <br />
+ * When the parsing falls behind, the producer blocks once the queue is full
+ * rather than buffering the rest of the file in memory; when the download
+ * falls behind, the parsing blocks until the next chunk arrives. So the time
+ * taken is roughly that of the slower of the two, and nothing is written to
+ * disk. <br />
+ * <br />
+ * A connection which fails, or is dropped, part way through the response is
+ * resumed from the next byte with a <code>Range</code> request, after an
+ * exponentially growing delay, up to
+ * {@link Constants#DOWNLOAD_FILE_MAX_RETRIES_DEFAULT} times; as a saved
+ * download is. The <code>If-Range</code> of each resumed request holds the
+ * <code>ETag</code>, or <code>Last-Modified</code>, of the first response, so
+ * the rest of a file which has changed since is never joined onto it. The
+ * bytes already queued can not be taken back, so a server which answers with
+ * anything other than the requested range fails the download rather than
+ * restarting it. A dropped connection is told apart from the end of the
+ * response by its Content-Length. <br />
+ * <br />
+ * If the download fails, the failure is thrown from the next read once all of
+ * the bytes before it have been consumed. The failure can also be retrieved via
+ * {@link StreamingDownload#getFailure() getFailure()}, as a parser may not
+ * propagate it. <br />
+ * {@link StreamingDownload#close() close()} must always be called; it will
+ * stop the download if it has not finished.
+ * */
+public class StreamingDownload extends InputStream
+{
+
+	/* CONSTRUCTORS */
+	/**
+	 * This will create a new instance of a {@link StreamingDownload}.
+	 *
+	 * @param name
+	 * The name of the file being downloaded; used when reporting failures.
+	 * @param source
+	 * The {@link ResumingInputStream} of the HTTP response.
+	 * @param zipped
+	 * <code>true</code> if the response is a zip file; <code>false</code>
+	 * otherwise.
+	 * @param entryExtName
+	 * The extension of the zip entry to stream.
+	 * @param queueCapacity
+	 * The maximum number of chunks which may be queued.
+	 * */
+	private StreamingDownload(final String name, final ResumingInputStream source, final boolean zipped, final String entryExtName, final int queueCapacity)
+	{
+		this.name = name;
+		this.source = source;
+		this.zipped = zipped;
+		this.entryExtName = entryExtName;
+		this.queue = new ArrayBlockingQueue<byte[]>(Math.max(1, queueCapacity));
+		this.producer = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				StreamingDownload.this.produce();
+			}
+		}, "StreamingDownload-" + name);
+		this.producer.setDaemon(true);
+	}
+
+	/* PUBLIC METHODS */
+	/**
+	 * This method will connect to the specified url and start streaming it.
+	 * <br />
+	 * <br />
+	 * If the url is a zip file, only the first entry with the specified
+	 * extension is streamed.
+	 *
+	 * @param sourceUrl
+	 * The url of the file to stream.
+	 * @param entryExtName
+	 * The extension of the zip entry to stream; any entry will do if this is
+	 * <code>null</code> or empty.
+	 * @param queueCapacity
+	 * The maximum number of chunks which may be queued; each chunk is at most
+	 * 64KB.
+	 *
+	 * @return
+	 * The {@link StreamingDownload} to read the file from.
+	 *
+	 * @throws IOException
+	 * If the connection could not be opened.
+	 * */
+	public static StreamingDownload open(final URL sourceUrl, final String entryExtName, final int queueCapacity) throws IOException
+	{
+		final boolean zipped = sourceUrl.getPath().toLowerCase().endsWith(".zip");
+		final StreamingDownload download = new StreamingDownload(sourceUrl.toString(), new ResumingInputStream(sourceUrl), zipped, entryExtName, queueCapacity);
+		download.producer.start();
+		return download;
+	}
+
+	@Override
+	public int read() throws IOException
+	{
+		if (!this.nextChunk())
+		{
+			return -1;
+		}
+		return this.chunk[this.chunkOffset++] & 0xFF;
+	}
+
+	@Override
+	public int read(final byte[] buffer, final int offset, final int length) throws IOException
+	{
+		if (length == 0)
+		{
+			return 0;
+		}
+		if (!this.nextChunk())
+		{
+			return -1;
+		}
+		final int count = Math.min(length, this.chunk.length - this.chunkOffset);
+		System.arraycopy(this.chunk, this.chunkOffset, buffer, offset, count);
+		this.chunkOffset += count;
+		return count;
+	}
+
+	/**
+	 * This method will stop the download, if it has not finished, and
+	 * discard any queued chunks.
+	 * */
+	@Override
+	public void close()
+	{
+		this.closed = true;
+		this.producer.interrupt();
+		this.queue.clear();
+	}
+
+	/**
+	 * This method will get the reason the download failed.
+	 *
+	 * @return
+	 * The reason the download failed or <code>null</code> if it has not
+	 * failed.
+	 * */
+	public Throwable getFailure()
+	{
+		return this.failure;
+	}
+
+	/* PRIVATE METHODS */
+	/**
+	 * This method will make sure there is a chunk with unread bytes; waiting
+	 * for the producer if needed.
+	 *
+	 * @return
+	 * <code>true</code> if there is a chunk with unread bytes;
+	 * <code>false</code> if the end of the file has been reached.
+	 *
+	 * @throws IOException
+	 * If the download failed or the wait was interrupted.
+	 * */
+	private boolean nextChunk() throws IOException
+	{
+		while ((this.chunk == null) || (this.chunkOffset >= this.chunk.length))
+		{
+			if (this.chunk == StreamingDownload.END_OF_STREAM)
+			{
+				return false;
+			}
+			try
+			{
+				this.chunk = this.queue.take();
+				this.chunkOffset = 0;
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting for the download of " + this.name + ".", e);
+			}
+			if ((this.chunk == StreamingDownload.END_OF_STREAM) && (this.failure != null))
+			{
+				throw new IOException("Failed to download " + this.name + ".", this.failure);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * This method is run by the producer thread; it will read the HTTP
+	 * response and queue its bytes until the end is reached, the download
+	 * fails or this {@link StreamingDownload} is closed.
+	 * */
+	private void produce()
+	{
+		byte[] buffer = new byte[StreamingDownload.CHUNK_SIZE];
+		int count = 0;
+		try
+		{
+			InputStream inputStream = new BufferedInputStream(this.source, StreamingDownload.CHUNK_SIZE);
+			if (this.zipped)
+			{
+				inputStream = this.openEntry(new ZipInputStream(inputStream));
+			}
+			int read = 0;
+			while ((read = inputStream.read(buffer, count, buffer.length - count)) != -1)
+			{
+				count += read;
+				// Only queue full chunks, so that the queue bounds the memory used.
+				if (count == buffer.length)
+				{
+					this.queue.put(buffer);
+					buffer = new byte[StreamingDownload.CHUNK_SIZE];
+					count = 0;
+				}
+			}
+		}
+		catch (InterruptedException e)
+		{
+			// The stream was closed; there is nobody left to read the rest of it.
+		}
+		catch (Throwable thrown)
+		{
+			if (!this.closed)
+			{
+				Logger.error("Failed to download " + this.name + ".", thrown);
+				this.failure = thrown;
+			}
+		}
+		finally
+		{
+			try
+			{
+				this.source.close();
+			}
+			catch (IOException ioe)
+			{
+				Logger.warn("Failed to close the download of " + this.name + ".", ioe);
+			}
+			if (!this.closed)
+			{
+				try
+				{
+					// The bytes which were received before any failure are still handed on.
+					if (count > 0)
+					{
+						this.queue.put(Arrays.copyOf(buffer, count));
+					}
+					this.queue.put(StreamingDownload.END_OF_STREAM);
+				}
+				catch (InterruptedException e)
+				{
+					// The stream was closed while waiting for room on the queue.
+				}
+			}
+		}
+	}
+
+	/**
+	 * This method will check if the server responded to a <code>Range</code>
+	 * request with the part of the file which starts at the specified byte.
+	 *
+	 * @param connection
+	 * The {@link URLConnection} which requested the range.
+	 * @param firstByte
+	 * The index of the first byte which was requested.
+	 *
+	 * @return
+	 * <code>true</code> if the response holds the requested part of the file;
+	 * <code>false</code> if the server sent anything else, such as the whole
+	 * file.
+	 * */
+	private static boolean isPartialContentFrom(final URLConnection connection, final long firstByte) throws IOException
+	{
+		if (!(connection instanceof HttpURLConnection) || (((HttpURLConnection) connection).getResponseCode() != HttpURLConnection.HTTP_PARTIAL))
+		{
+			return false;
+		}
+		final String contentRange = connection.getHeaderField("Content-Range");
+		return (contentRange != null) && contentRange.trim().startsWith("bytes " + firstByte + "-");
+	}
+
+	/**
+	 * This method will position the specified {@link ZipInputStream} at the
+	 * first entry with the expected extension.
+	 *
+	 * @param zipInputStream
+	 * The {@link ZipInputStream} of the HTTP response.
+	 *
+	 * @return
+	 * The specified {@link ZipInputStream}; positioned at the entry.
+	 *
+	 * @throws IOException
+	 * If there is no entry with the expected extension.
+	 * */
+	private InputStream openEntry(final ZipInputStream zipInputStream) throws IOException
+	{
+		ZipEntry entry = null;
+		while ((entry = zipInputStream.getNextEntry()) != null)
+		{
+			if (!entry.isDirectory())
+			{
+				if (StringUtils.isNullOrEmpty(this.entryExtName) || entry.getName().trim().toLowerCase().endsWith("." + this.entryExtName.toLowerCase()))
+				{
+					return zipInputStream;
+				}
+			}
+		}
+		throw new IOException("No entry of " + this.name + " matches the extension: " + this.entryExtName);
+	}
+
+	/* PRIVATE CLASSES */
+	/**
+	 * This class reads the body of an HTTP response; resuming it, with a
+	 * <code>Range</code> request, whenever the connection fails or is
+	 * dropped part way through.
+	 * */
+	private static class ResumingInputStream extends InputStream
+	{
+
+		/* CONSTRUCTORS */
+		/**
+		 * This will create a new instance of a {@link ResumingInputStream}; opening
+		 * the first connection.
+		 * 
+		 * @param sourceUrl
+		 * The url of the file to read.
+		 * 
+		 * @throws IOException
+		 * If the connection could not be opened.
+		 * */
+		private ResumingInputStream(final URL sourceUrl) throws IOException
+		{
+			this.sourceUrl = sourceUrl;
+			final URLConnection connection = this.connect(0L);
+			this.current = connection.getInputStream();
+			this.contentLength = connection.getContentLengthLong();
+			this.eTag = connection.getHeaderField("ETag");
+			this.lastModified = connection.getHeaderField("Last-Modified");
+		}
+
+		/* PUBLIC METHODS */
+		@Override
+		public int read() throws IOException
+		{
+			final byte[] single = new byte[1];
+			return (this.read(single, 0, 1) == -1) ? -1 : (single[0] & 0xFF);
+		}
+
+		@Override
+		public int read(final byte[] buffer, final int offset, final int length) throws IOException
+		{
+			while (true)
+			{
+				IOException failure = null;
+				try
+				{
+					final int read = this.current.read(buffer, offset, length);
+					if (read != -1)
+					{
+						this.received += read;
+						return read;
+					}
+					// A connection which is dropped part way through often looks like the normal
+					// end of the stream, so the length of the response is needed to tell them apart.
+					if ((this.contentLength < 0L) || (this.received >= this.contentLength))
+					{
+						return -1;
+					}
+					failure = new EOFException("Connection closed after " + this.received + " of " + this.contentLength + " bytes.");
+				}
+				catch (IOException e)
+				{
+					failure = e;
+				}
+				this.resume(failure);
+			}
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			this.current.close();
+		}
+
+		/* PRIVATE METHODS */
+		/**
+		 * This method will open a connection to the url; asking for the bytes
+		 * from the specified one onwards, if it is not the first.
+		 * 
+		 * @param firstByte
+		 * The index of the first byte to read.
+		 * 
+		 * @return
+		 * The {@link URLConnection}.
+		 * 
+		 * @throws IOException
+		 * If the connection could not be opened.
+		 * */
+		private URLConnection connect(final long firstByte) throws IOException
+		{
+			final URLConnection connection = this.sourceUrl.openConnection();
+			connection.setConnectTimeout(Constants.TIMEOUT_CONNECTION);
+			connection.setReadTimeout(Constants.TIMEOUT_READ);
+			if (firstByte > 0L)
+			{
+				connection.setRequestProperty("Range", "bytes=" + firstByte + "-");
+				// Only the same file may be resumed; a server holding a different one sends it whole.
+				if (!StringUtils.isNullOrEmpty(this.eTag))
+				{
+					connection.setRequestProperty("If-Range", this.eTag);
+				}
+				else if (!StringUtils.isNullOrEmpty(this.lastModified))
+				{
+					connection.setRequestProperty("If-Range", this.lastModified);
+				}
+			}
+			return connection;
+		}
+
+		/**
+		 * This method will wait, and then resume the response from the next
+		 * byte which has not been received.
+		 * 
+		 * @param failure
+		 * The failure of the previous connection.
+		 * 
+		 * @throws IOException
+		 * If there are no retries left, the wait was interrupted, or the
+		 * server did not answer with the rest of the same file.
+		 * */
+		private void resume(final IOException failure) throws IOException
+		{
+			IOException lastFailure = failure;
+			while (true)
+			{
+				try
+				{
+					this.current.close();
+				}
+				catch (IOException ioe)
+				{
+					// The connection has already failed.
+				}
+				if (this.attempts >= Constants.DOWNLOAD_FILE_MAX_RETRIES_DEFAULT)
+				{
+					throw lastFailure;
+				}
+				final long ceiling = Math.min(Constants.DOWNLOAD_FILE_RETRY_DELAY_MAX, Constants.DOWNLOAD_FILE_RETRY_DELAY_INITIAL << Math.min(this.attempts, 16));
+				final long delay = (ceiling / 2L) + ThreadLocalRandom.current().nextLong((ceiling / 2L) + 1L);
+				this.attempts++;
+				Logger.warn("Download of " + this.sourceUrl + " failed after " + this.received + " bytes; resuming in " + delay + "ms.", lastFailure);
+				try
+				{
+					Thread.sleep(delay);
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while waiting to resume the download of " + this.sourceUrl + ".");
+				}
+				final URLConnection connection;
+				final InputStream inputStream;
+				try
+				{
+					connection = this.connect(this.received);
+					inputStream = connection.getInputStream();
+				}
+				catch (IOException e)
+				{
+					lastFailure = e;
+					continue;
+				}
+				// The bytes which have been received have been handed on already, so only the rest of the same file will do.
+				if ((this.received > 0L) && !StreamingDownload.isPartialContentFrom(connection, this.received))
+				{
+					inputStream.close();
+					throw new IOException("The server did not resume the download of " + this.sourceUrl + " from byte " + this.received + ".", failure);
+				}
+				this.current = inputStream;
+				return;
+			}
+		}
+
+		/* PRIVATE VARIABLES */
+		private final URL sourceUrl;
+		private final long contentLength;
+		private final String eTag;
+		private final String lastModified;
+		private InputStream current;
+		private long received = 0L;
+		private int attempts = 0;
+
+	}
+
+	/* PRIVATE CONSTANTS */
+	/**
+	 * The size of the chunks which are queued.
+	 * */
+	private static final int CHUNK_SIZE = 64 * 1024;
+	/**
+	 * The chunk which is queued once the end of the file has been reached.
+	 * */
+	private static final byte[] END_OF_STREAM = new byte[0];
+
+	/* PRIVATE VARIABLES */
+	private final String name;
+	private final ResumingInputStream source;
+	private final boolean zipped;
+	private final String entryExtName;
+	private final BlockingQueue<byte[]> queue;
+	private final Thread producer;
+	private volatile Throwable failure = null;
+	private volatile boolean closed = false;
+	private byte[] chunk = null;
+	private int chunkOffset = 0;
+
+}
@@ -1,27 +1,27 @@
 package com.theEd209s.dataLoading.dynamicLoaders;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.io.InputStreamReader;
 import java.sql.Date;
-
-import javax.persistence.PersistenceException;
+import java.util.List;
 
 import models.MortgageRate;
 import play.Logger;
 
+import com.theEd209s.dataLoading.CopyRowSink;
+import com.theEd209s.dataLoading.CopyRowSink.CopyRow;
+import com.theEd209s.dataLoading.CopyRowSink.CopyTable;
+import com.theEd209s.dataLoading.CsvRecordLoader;
 import com.theEd209s.dataLoading.DataLoader;
-import com.theEd209s.utils.CsvParser;
-import com.theEd209s.utils.StringUtils;
+import com.theEd209s.dataLoading.DeltaSink;
+import com.theEd209s.dataLoading.DeltaSink.DeltaTable;
+import com.theEd209s.dataLoading.RowSink;
+import com.theEd209s.utils.CsvRecordSource;
 
 /**
  * This class will load the mortgage rates into the database.
  * 
  * @author Matthew Weiler
  * */
-public class MortgageRateLoader extends DataLoader
+public class MortgageRateLoader extends CsvRecordLoader
 {	
 	
 	/* PUBLIC CONSTANTS */
@@ -48,117 +48,42 @@ public class MortgageRateLoader extends DataLoader
 	}
 	
 	/* PROTECTED METHODS */
+	@Override
+	protected int[] getColumns()
+	{
+		return MortgageRateLoader.COLUMNS;
+	}
+	
 	@SuppressWarnings("deprecation")
 	@Override
-	protected int parseFile(File downloadedFile) throws Throwable
+	protected void parseRecord(final CsvRecordSource record, final List<Object> rows)
 	{
-		int rowsInserted = 0;
-		if ((downloadedFile != null) && downloadedFile.exists() && downloadedFile.isFile())
+		if (record.getColumnCount() == 5)
 		{
-			// Loop over the CSV file.
-			BufferedReader br = null;
-			InputStreamReader isr = null;
-			FileInputStream fis = null;
-			try
+			final int referenceYearMonth = record.getYearMonth(0, -1);
+			if (referenceYearMonth > 0)
 			{
-				fis = new FileInputStream(downloadedFile);
-				isr = new InputStreamReader(fis, "UTF-8");
-				br = new BufferedReader(isr);
-				final CsvParser parser = new CsvParser();
-				String tmpLine = null;
-				String[] lineElements = null;
-				
-				int referenceYear = -1;
-				int referenceMonth = -1;
-				float mortgageRateValue = -1.0F;
-				String[] tmpDateItems = null;
-				
-				while ((tmpLine = br.readLine()) != null)
+				final float mortgageRateValue = record.getFloat(4, Float.NaN);
+				if (!Float.isNaN(mortgageRateValue))
 				{
-					if (!StringUtils.isNullOrEmpty(tmpLine))
-					{
-						lineElements = parser.parseLine(tmpLine);
-						if ((lineElements != null) && (lineElements.length > 0))
-						{
-							if (lineElements.length == 5)
-							{
-								try
-								{
-									tmpDateItems = lineElements[0].trim().split("/");
-									if ((tmpDateItems != null) && (tmpDateItems.length == 2))
-									{
-										referenceYear = Integer.parseInt(tmpDateItems[0]);
-										referenceMonth = Integer.parseInt(tmpDateItems[1]);
-										if ((referenceYear > 0) && (referenceMonth > 0))
-										{
-											mortgageRateValue = Float.parseFloat(lineElements[4]);
-											final MortgageRate mortgageRate = new MortgageRate();
-											mortgageRate.referenceDate = new Date(referenceYear, referenceMonth, 1);
-											mortgageRate.rate = mortgageRateValue;
-											mortgageRate.save();
-											rowsInserted++;
-										}
-									}
-								}
-								catch (NumberFormatException nfe)
-								{
-									// ignore ...
-								}
-								catch (PersistenceException pe)
-								{
-									Logger.error("Failed to save mortgage rate to database.", pe);
-								}
-							}
-							else
-							{
-								Logger.warn("Invalid number of fields in mortgage rate CSV file line: " + tmpLine);
-							}
-						}
-					}
-				}
-			}
-			catch (Throwable thrown)
-			{
-				Logger.warn("Failed to read downloaded file.", thrown);
-			}
-			finally
-			{
-				if (fis != null)
-				{
-					try
-					{
-						fis.close();
-					}
-					catch (IOException ioe)
-					{
-						Logger.warn("Failed to close FileInputStream.", ioe);
-					}
-				}
-				if (isr != null)
-				{
-					try
-					{
-						isr.close();
-					}
-					catch (IOException ioe)
-					{
-						Logger.warn("Failed to close InputStreamReader.", ioe);
-					}
-				}
-				if (br != null)
-				{
-					try
-					{
-						br.close();
-					}
-					catch (IOException ioe)
-					{
-						Logger.warn("Failed to close BufferedReader.", ioe);
-					}
+					final MortgageRate mortgageRate = new MortgageRate();
+					mortgageRate.referenceDate = new Date(referenceYearMonth / 100, referenceYearMonth % 100, 1);
+					mortgageRate.rate = mortgageRateValue;
+					rows.add(mortgageRate);
 				}
 			}
 		}
-		return rowsInserted;
+		else
+		{
+			Logger.warn("Invalid number of fields in mortgage rate CSV file line: " + record.getLine());
+		}
+	}
+	
+	@Override
+	protected RowSink createRowSink(final String name, final int batchSize)
+	{
+		// Only the mortgage rates which changed are written; the new ones are bulk loaded via COPY, when the database supports it.
+		return DeltaSink.create(name, MortgageRateLoader.MORTGAGE_RATE_DELTA, CopyRowSink.create(name, MortgageRateLoader.MORTGAGE_RATE_TABLE, batchSize), batchSize);
 	}
 	
 	@Override
@@ -173,4 +98,47 @@ public class MortgageRateLoader extends DataLoader
 		
 	}
 	
+	/* PRIVATE CONSTANTS */
+	/**
+	 * The indexes of the columns which are read from each line.
+	 * */
+	private static final int[] COLUMNS = { 0, 4 };
+	
+	/**
+	 * This describes how a {@link MortgageRate} is written to its table by COPY.
+	 * */
+	private static final CopyTable<MortgageRate> MORTGAGE_RATE_TABLE = new CopyTable<MortgageRate>("mortgage_rate", "ref_date", "rate")
+	{
+		@Override
+		protected void appendValues(final MortgageRate mortgageRate, final CopyRow row)
+		{
+			row.add(mortgageRate.referenceDate);
+			row.add(mortgageRate.rate);
+		}
+	};
+	
+	/**
+	 * This describes how a {@link MortgageRate} is keyed, on its reference
+	 * date, when only the changed rows are written.
+	 * */
+	private static final DeltaTable<MortgageRate> MORTGAGE_RATE_DELTA = new DeltaTable<MortgageRate>(MortgageRate.class, "mortgageRateId", "referenceDate, rate", true)
+	{
+		@Override
+		protected Object getKey(final MortgageRate mortgageRate)
+		{
+			return Long.valueOf(mortgageRate.referenceDate.getTime());
+		}
+		
+		@Override
+		protected boolean copyValues(final MortgageRate parsed, final MortgageRate current)
+		{
+			if (Float.compare(parsed.rate, current.rate) != 0)
+			{
+				current.rate = parsed.rate;
+				return true;
+			}
+			return false;
+		}
+	};
+	
 }
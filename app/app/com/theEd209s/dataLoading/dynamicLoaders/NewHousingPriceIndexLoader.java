@@ -1,30 +1,34 @@
 package com.theEd209s.dataLoading.dynamicLoaders;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.io.InputStreamReader;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.List;
 
-import javax.persistence.NonUniqueResultException;
-import javax.persistence.PersistenceException;
-
 import models.City;
 import models.NewHousingPriceIndex;
 import play.Logger;
 
-import com.theEd209s.dataLoading.DataLoader;
-import com.theEd209s.utils.CsvParser;
-import com.theEd209s.utils.StringUtils;
+import com.theEd209s.dataLoading.CopyRowSink;
+import com.theEd209s.dataLoading.CopyRowSink.CopyRow;
+import com.theEd209s.dataLoading.CopyRowSink.CopyTable;
+import com.theEd209s.dataLoading.CsvRecordLoader;
+import com.theEd209s.dataLoading.DeltaSink;
+import com.theEd209s.dataLoading.DeltaSink.DeltaTable;
+import com.theEd209s.dataLoading.GeoCodeFilter;
+import com.theEd209s.dataLoading.RowSink;
+import com.theEd209s.lookup.PriceIndexStore;
+import com.theEd209s.lookup.GeoCodeIndex;
+import com.theEd209s.lookup.ReferenceDataRegistry;
+import com.theEd209s.utils.CsvRecordSource;
+import com.theEd209s.utils.CsvRecordSource.RecordFilter;
 
 /**
  * This class will load the new housing price index into the database.
  * 
  * @author Matthew Weiler
  * */
-public class NewHousingPriceIndexLoader extends DataLoader
+public class NewHousingPriceIndexLoader extends CsvRecordLoader
 {
 	
 	/* PUBLIC CONSTANTS */
@@ -50,159 +54,89 @@ public class NewHousingPriceIndexLoader extends DataLoader
 		super(NewHousingPriceIndexLoader.CKAN_URL, NewHousingPriceIndexLoader.CKAN_DATASET_ID, NewHousingPriceIndexLoader.CKAN_RESOURCE_ID);
 	}
 	
+	/**
+	 * This will create a new instance of a {@link NewHousingPriceIndexLoader}
+	 * which loads a local {@link File}, rather than the CKAN resource.
+	 * 
+	 * @param sourceFile
+	 *            The source {@link File}.
+	 * @param allowDeleteFile
+	 *            <code>true</code> if the specified {@link File} can be deleted
+	 *            once done; <code>false</code> if the specified {@link File}
+	 *            can not be deleted once processed.
+	 * */
+	public NewHousingPriceIndexLoader(final File sourceFile, final boolean allowDeleteFile)
+	{
+		super(sourceFile, allowDeleteFile);
+	}
+	
 	/* PROTECTED METHODS */
 	@Override
-	protected int parseFile(File downloadedFile) throws Throwable
+	protected int[] getColumns()
+	{
+		return NewHousingPriceIndexLoader.COLUMNS;
+	}
+	
+	@Override
+	protected RecordFilter getRecordFilter()
+	{
+		return NewHousingPriceIndexLoader.GEO_CODE_FILTER;
+	}
+	
+	@Override
+	protected boolean isReadyToParse()
 	{
-		int rowsInserted = 0;
-		if ((downloadedFile != null) && downloadedFile.exists() && downloadedFile.isFile())
+		return !ReferenceDataRegistry.getInstance().getGeoCodeIndex().isEmpty();
+	}
+	
+	@Override
+	protected void parseRecord(final CsvRecordSource record, final List<Object> rows)
+	{
+		if (record.getColumnCount() == 7)
 		{
-			final List<City> cities = City.loadAllCities();
-			if ((cities != null) && (cities.size() > 0))
+			final int referenceYearMonth = record.getYearMonth(0, -1);
+			if (referenceYearMonth > 0)
 			{
-				// Loop over the CSV file.
-				BufferedReader br = null;
-				InputStreamReader isr = null;
-				FileInputStream fis = null;
-				try
+				final int[] geoClassifications = NewHousingPriceIndexLoader.GEO_CLASSIFICATIONS.get();
+				final int geoClassificationCount = record.getInts(2, ',', geoClassifications);
+				final float newHousingPriceIndexValue = record.getFloat(6, Float.NaN);
+				if ((geoClassificationCount > 0) && (!Float.isNaN(newHousingPriceIndexValue)))
 				{
-					fis = new FileInputStream(downloadedFile);
-					isr = new InputStreamReader(fis, "UTF-8");
-					br = new BufferedReader(isr);
-					final CsvParser parser = new CsvParser();
-					String tmpLine = null;
-					String[] lineElements = null;
-					
-					int referenceYear = -1;
-					int referenceMonth = -1;
-					float newHousingPriceIndexValue = -1.0F;
-					int tmpGeoClassificationInt = -1;
-					String[] tmpDateItems = null;
-					
-					Calendar cal = Calendar.getInstance();
-
-					while ((tmpLine = br.readLine()) != null)
+					final GeoCodeIndex geoCodeIndex = ReferenceDataRegistry.getInstance().getGeoCodeIndex();
+					final Calendar cal = NewHousingPriceIndexLoader.CALENDAR.get();
+					for (int n = 0; n < geoClassificationCount; n++)
 					{
-						if (!StringUtils.isNullOrEmpty(tmpLine))
+						if (geoClassifications[n] > 0)
 						{
-							lineElements = parser.parseLine(tmpLine);
-							if ((lineElements != null) && (lineElements.length > 0))
+							for (City city : geoCodeIndex.getCities(geoClassifications[n]))
 							{
-								if (lineElements.length == 7)
-								{
-									try
-									{
-										tmpDateItems = lineElements[0].trim().split("/");
-										if ((tmpDateItems != null) && (tmpDateItems.length == 2))
-										{
-											referenceYear = Integer.parseInt(tmpDateItems[0]);
-											referenceMonth = Integer.parseInt(tmpDateItems[1]);
-											if ((referenceYear > 0) && (referenceMonth > 0))
-											{
-												final String[] geoClassifications = lineElements[2].trim().split(",");
-												if (geoClassifications.length > 0)
-												{
-													newHousingPriceIndexValue = Float.parseFloat(lineElements[6]);
-													for (String geoClassification : geoClassifications)
-													{
-														try
-														{
-															tmpGeoClassificationInt = Integer.parseInt(geoClassification);
-															if (tmpGeoClassificationInt > 0)
-															{
-																for (City city : cities)
-																{
-																	try
-																	{
-																		if ((tmpGeoClassificationInt == city.cityId) || (tmpGeoClassificationInt == city.cityParentId))
-																		{
-																			final NewHousingPriceIndex newHousingPriceIndex = new NewHousingPriceIndex();
-																			
-																			cal.set(referenceYear, referenceMonth, 1);
-																			newHousingPriceIndex.referenceDate = new java.sql.Date(cal.getTime().getTime());
-																			newHousingPriceIndex.city = city;
-																			newHousingPriceIndex.province = city.province;
-																			newHousingPriceIndex.priceIndex = newHousingPriceIndexValue;
-																			newHousingPriceIndex.save();
-																			rowsInserted++;
-																		}
-																	}
-																	catch (NonUniqueResultException e)
-																	{
-																		// ignore ...
-																	}
-																}
-															}
-														}
-														catch (NumberFormatException nfe)
-														{
-															// ignore ...
-														}
-														catch (PersistenceException pe)
-														{
-															Logger.error("Failed to save new housing price index to database.", pe);
-														}
-													}
-												}
-											}
-										}
-									}
-									catch (NumberFormatException nfe)
-									{
-										// ignore ...
-									}
-								}
-								else
-								{
-									Logger.warn("Invalid number of fields in new housing price index CSV file line: " + tmpLine);
-								}
+								final NewHousingPriceIndex newHousingPriceIndex = new NewHousingPriceIndex();
+								
+								// The time of day must be cleared, or the date never equals the one which was stored.
+								cal.clear();
+								cal.set(referenceYearMonth / 100, referenceYearMonth % 100, 1);
+								newHousingPriceIndex.referenceDate = new java.sql.Date(cal.getTime().getTime());
+								newHousingPriceIndex.city = city;
+								newHousingPriceIndex.province = city.province;
+								newHousingPriceIndex.priceIndex = newHousingPriceIndexValue;
+								rows.add(newHousingPriceIndex);
 							}
 						}
 					}
 				}
-				catch (Throwable thrown)
-				{
-					Logger.warn("Failed to read downloaded file.", thrown);
-				}
-				finally
-				{
-					if (fis != null)
-					{
-						try
-						{
-							fis.close();
-						}
-						catch (IOException ioe)
-						{
-							Logger.warn("Failed to close FileInputStream.", ioe);
-						}
-					}
-					if (isr != null)
-					{
-						try
-						{
-							isr.close();
-						}
-						catch (IOException ioe)
-						{
-							Logger.warn("Failed to close InputStreamReader.", ioe);
-						}
-					}
-					if (br != null)
-					{
-						try
-						{
-							br.close();
-						}
-						catch (IOException ioe)
-						{
-							Logger.warn("Failed to close BufferedReader.", ioe);
-						}
-					}
-				}
 			}
 		}
-		return rowsInserted;
+		else
+		{
+			Logger.warn("Invalid number of fields in new housing price index CSV file line: " + record.getLine());
+		}
+	}
+	
+	@Override
+	protected RowSink createRowSink(final String name, final int batchSize)
+	{
+		// Only the new housing price indexes which changed are written; the new ones are bulk loaded via COPY, when the database supports it.
+		return DeltaSink.create(name, NewHousingPriceIndexLoader.NEW_HOUSING_PRICE_INDEX_DELTA, CopyRowSink.create(name, NewHousingPriceIndexLoader.NEW_HOUSING_PRICE_INDEX_TABLE, batchSize), batchSize);
 	}
 	
 	@Override
@@ -217,4 +151,88 @@ public class NewHousingPriceIndexLoader extends DataLoader
 		
 	}
 	
+	@Override
+	protected void parseCompleted()
+	{
+		// Re-average the price indexes now, rather than on every request.
+		PriceIndexStore.rebuild();
+	}
+	
+	/* PRIVATE CONSTANTS */
+	/**
+	 * The most geographic classifications which are read from a single line.
+	 * */
+	private static final int MAX_GEO_CLASSIFICATIONS = 64;
+	/**
+	 * The geographic classifications of the current line; one array per
+	 * thread, as the lines may be parsed on several threads at once.
+	 * */
+	private static final ThreadLocal<int[]> GEO_CLASSIFICATIONS = new ThreadLocal<int[]>()
+	{
+		@Override
+		protected int[] initialValue()
+		{
+			return new int[NewHousingPriceIndexLoader.MAX_GEO_CLASSIFICATIONS];
+		}
+	};
+	/**
+	 * The indexes of the columns which are read from each line.
+	 * */
+	private static final int[] COLUMNS = { 0, 2, 6 };
+	/**
+	 * The {@link GeoCodeFilter} which skips the lines with no known city.
+	 * */
+	private static final GeoCodeFilter GEO_CODE_FILTER = new GeoCodeFilter(2, NewHousingPriceIndexLoader.MAX_GEO_CLASSIFICATIONS);
+	/**
+	 * The {@link Calendar} which the reference dates are built with; one per
+	 * thread, as a {@link Calendar} is not thread-safe.
+	 * */
+	private static final ThreadLocal<Calendar> CALENDAR = new ThreadLocal<Calendar>()
+	{
+		@Override
+		protected Calendar initialValue()
+		{
+			return Calendar.getInstance();
+		}
+	};
+	
+	/**
+	 * This describes how a {@link NewHousingPriceIndex} is written to its table by COPY.
+	 * */
+	private static final CopyTable<NewHousingPriceIndex> NEW_HOUSING_PRICE_INDEX_TABLE = new CopyTable<NewHousingPriceIndex>("new_house_price_indexes", "city_id", "province_id", "ref_date", "price_index")
+	{
+		@Override
+		protected void appendValues(final NewHousingPriceIndex newHousingPriceIndex, final CopyRow row)
+		{
+			row.add(newHousingPriceIndex.city.cityId);
+			row.add(newHousingPriceIndex.province.provinceId);
+			row.add(newHousingPriceIndex.referenceDate);
+			row.add(newHousingPriceIndex.priceIndex);
+		}
+	};
+	
+	/**
+	 * This describes how a {@link NewHousingPriceIndex} is keyed, on its city
+	 * and reference date, when only the changed rows are written.
+	 * */
+	private static final DeltaTable<NewHousingPriceIndex> NEW_HOUSING_PRICE_INDEX_DELTA = new DeltaTable<NewHousingPriceIndex>(NewHousingPriceIndex.class, "newHousePriceIndexId", "city, referenceDate, priceIndex", true)
+	{
+		@Override
+		protected Object getKey(final NewHousingPriceIndex newHousingPriceIndex)
+		{
+			return Arrays.asList(newHousingPriceIndex.city.cityId, newHousingPriceIndex.referenceDate.getTime());
+		}
+		
+		@Override
+		protected boolean copyValues(final NewHousingPriceIndex parsed, final NewHousingPriceIndex current)
+		{
+			if (Float.compare(parsed.priceIndex, current.priceIndex) != 0)
+			{
+				current.priceIndex = parsed.priceIndex;
+				return true;
+			}
+			return false;
+		}
+	};
+	
 }
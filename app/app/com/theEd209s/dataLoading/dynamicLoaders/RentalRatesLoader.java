@@ -1,23 +1,27 @@
 package com.theEd209s.dataLoading.dynamicLoaders;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.io.InputStreamReader;
+import java.util.Arrays;
 import java.util.List;
 
-import javax.persistence.NonUniqueResultException;
-import javax.persistence.PersistenceException;
-
 import models.BuildingType;
 import models.City;
 import models.RentalRate;
 import models.UnitType;
 import play.Logger;
 
+import com.theEd209s.dataLoading.CopyRowSink;
+import com.theEd209s.dataLoading.CopyRowSink.CopyRow;
+import com.theEd209s.dataLoading.CopyRowSink.CopyTable;
+import com.theEd209s.dataLoading.CsvRecordLoader;
 import com.theEd209s.dataLoading.DataLoader;
-import com.theEd209s.utils.CsvParser;
+import com.theEd209s.dataLoading.DeltaSink;
+import com.theEd209s.dataLoading.DeltaSink.DeltaTable;
+import com.theEd209s.dataLoading.GeoCodeFilter;
+import com.theEd209s.dataLoading.RowSink;
+import com.theEd209s.lookup.GeoCodeIndex;
+import com.theEd209s.lookup.ReferenceDataRegistry;
+import com.theEd209s.utils.CsvRecordSource;
+import com.theEd209s.utils.CsvRecordSource.RecordFilter;
 import com.theEd209s.utils.StringUtils;
 
 /**
@@ -25,7 +29,7 @@ import com.theEd209s.utils.StringUtils;
  * 
  * @author Matthew Weiler
  * */
-public class RentalRatesLoader extends DataLoader
+public class RentalRatesLoader extends CsvRecordLoader
 {	
 	
 	/* PUBLIC CONSTANTS */
@@ -53,194 +57,113 @@ public class RentalRatesLoader extends DataLoader
 	
 	/* PROTECTED METHODS */
 	@Override
-	protected int parseFile(File downloadedFile) throws Throwable
+	protected int[] getColumns()
+	{
+		return RentalRatesLoader.COLUMNS;
+	}
+	
+	@Override
+	protected RecordFilter getRecordFilter()
+	{
+		// Most of the lines are for geographies with no known city.
+		return RentalRatesLoader.GEO_CODE_FILTER;
+	}
+	
+	@Override
+	protected boolean isReadyToParse()
+	{
+		// Look up the building types, unit types and cities from the reference data.
+		final ReferenceDataRegistry registry = ReferenceDataRegistry.getInstance();
+		if (registry.getBuildingTypeCount() > 0)
+		{
+			if (registry.getUnitTypeCount() > 0)
+			{
+				if (!registry.getGeoCodeIndex().isEmpty())
+				{
+					return true;
+				}
+				else
+				{
+					Logger.error("Failed to load all cities.");
+				}
+			}
+			else
+			{
+				Logger.error("Failed to load all unit types.");
+			}
+		}
+		else
+		{
+			Logger.error("Failed to load all building types.");
+		}
+		return false;
+	}
+	
+	@Override
+	protected void parseRecord(final CsvRecordSource record, final List<Object> rows)
 	{
-		int rowsInserted = 0;
-		if ((downloadedFile != null) && downloadedFile.exists() && downloadedFile.isFile())
+		if (record.getColumnCount() == 8)
 		{
-			// Load all building types, unit types and cities.
-			final List<BuildingType> buildingTypes = BuildingType.loadAllBuildingTypes();
-			if ((buildingTypes != null) && (buildingTypes.size() > 0))
+			final int referenceYear = record.getInt(0, -1);
+			if (referenceYear > 0)
 			{
-				final List<UnitType> unitTypes = UnitType.loadAllUnitTypes();
-				if ((unitTypes != null) && (unitTypes.size() > 0))
+				final int[] geoClassifications = RentalRatesLoader.GEO_CLASSIFICATIONS.get();
+				final int geoClassificationCount = record.getInts(2, ',', geoClassifications);
+				if (geoClassificationCount > 0)
 				{
-					final List<City> cities = City.loadAllCities();
-					if ((cities != null) && (cities.size() > 0))
+					final ReferenceDataRegistry registry = ReferenceDataRegistry.getInstance();
+					final String buildingAbbr = BuildingType.determineAbbr(record.getString(3).trim());
+					if (!StringUtils.isNullOrEmpty(buildingAbbr))
 					{
-						// Loop over the CSV file.
-						BufferedReader br = null;
-						InputStreamReader isr = null;
-						FileInputStream fis = null;
-						try
+						final BuildingType buildingType = registry.getBuildingTypeByAbbreviation(buildingAbbr);
+						if (buildingType != null)
 						{
-							fis = new FileInputStream(downloadedFile);
-							isr = new InputStreamReader(fis, "UTF-8");
-							br = new BufferedReader(isr);
-							final CsvParser parser = new CsvParser();
-							String tmpLine = null;
-							String[] lineElements = null;
-							
-							int referenceYear = -1;
-							float rentalRateValue = -1.0F;
-							int tmpGeoClassificationInt = -1;
-							
-							while ((tmpLine = br.readLine()) != null)
+							final String unitAbbr = UnitType.determineAbbr(record.getString(4).trim());
+							if (!StringUtils.isNullOrEmpty(unitAbbr))
 							{
-								if (!StringUtils.isNullOrEmpty(tmpLine))
+								final UnitType unitType = registry.getUnitTypeByAbbreviation(unitAbbr);
+								if (unitType != null)
 								{
-									lineElements = parser.parseLine(tmpLine);
-									if ((lineElements != null) && (lineElements.length > 0))
+									final float rentalRateValue = record.getFloat(7, -1.0F);
+									if (rentalRateValue > 0.0F)
 									{
-										if (lineElements.length == 8)
+										final GeoCodeIndex geoCodeIndex = registry.getGeoCodeIndex();
+										for (int n = 0; n < geoClassificationCount; n++)
 										{
-											try
+											if (geoClassifications[n] > 0)
 											{
-												referenceYear = Integer.parseInt(lineElements[0].trim());
-												if (referenceYear > 0)
+												for (City city : geoCodeIndex.getCities(geoClassifications[n]))
 												{
-													final String[] geoClassifications = lineElements[2].trim().split(",");
-													if (geoClassifications.length > 0)
-													{
-														final String buildingAbbr = BuildingType.determineAbbr(lineElements[3].trim());
-														if (!StringUtils.isNullOrEmpty(buildingAbbr))
-														{
-															for (BuildingType buildingType : buildingTypes)
-															{
-																if (buildingAbbr.equalsIgnoreCase(buildingType.abbreviation))
-																{
-																	final String unitAbbr = UnitType.determineAbbr(lineElements[4].trim());
-																	if (!StringUtils.isNullOrEmpty(unitAbbr))
-																	{
-																		for (UnitType unitType : unitTypes)
-																		{
-																			if (unitAbbr.equalsIgnoreCase(unitType.abbreviation))
-																			{
-																				rentalRateValue = Float.parseFloat(lineElements[7].trim());
-																				if (rentalRateValue > 0.0F)
-																				{
-																					for (String geoClassification : geoClassifications)
-																					{
-																						try
-																						{
-																							tmpGeoClassificationInt = Integer.parseInt(geoClassification);
-																							if (tmpGeoClassificationInt > 0)
-																							{
-																								for (City city : cities)
-																								{
-																									try
-																									{
-																										if ((tmpGeoClassificationInt == city.cityId) || (tmpGeoClassificationInt == city.cityParentId))
-																										{
-																											final RentalRate rentalRate = new RentalRate();
-																											rentalRate.buildingType = buildingType;
-																											rentalRate.unitType = unitType;
-																											rentalRate.referenceYear = referenceYear;
-																											rentalRate.rentalRate = rentalRateValue;
-																											rentalRate.city = city;
-																											rentalRate.province = city.province;
-																											rentalRate.save();
-																											rowsInserted++;
-																										}
-																									}
-																									catch (NonUniqueResultException e)
-																									{
-																										// ignore ...
-																									}
-																								}
-																							}
-																						}
-																						catch (NumberFormatException nfe)
-																						{
-																							// ignore ...
-																						}
-																						catch (PersistenceException pe)
-																						{
-																							Logger.error("Failed to save rental rate to database.", pe);
-																						}
-																					}
-																				}
-																				break;
-																			}
-																		}
-																	}
-																	break;
-																}
-															}
-														}
-													}
+													final RentalRate rentalRate = new RentalRate();
+													rentalRate.buildingType = buildingType;
+													rentalRate.unitType = unitType;
+													rentalRate.referenceYear = referenceYear;
+													rentalRate.rentalRate = rentalRateValue;
+													rentalRate.city = city;
+													rentalRate.province = city.province;
+													rows.add(rentalRate);
 												}
 											}
-											catch (NumberFormatException nfe)
-											{
-												// ignore ...
-											}
-										}
-										else
-										{
-											Logger.warn("Invalid number of fields in rental rate CSV file line: " + tmpLine);
 										}
 									}
 								}
 							}
 						}
-						catch (Throwable thrown)
-						{
-							Logger.warn("Failed to read downloaded file.", thrown);
-						}
-						finally
-						{
-							if (fis != null)
-							{
-								try
-								{
-									fis.close();
-								}
-								catch (IOException ioe)
-								{
-									Logger.warn("Failed to close FileInputStream.", ioe);
-								}
-							}
-							if (isr != null)
-							{
-								try
-								{
-									isr.close();
-								}
-								catch (IOException ioe)
-								{
-									Logger.warn("Failed to close InputStreamReader.", ioe);
-								}
-							}
-							if (br != null)
-							{
-								try
-								{
-									br.close();
-								}
-								catch (IOException ioe)
-								{
-									Logger.warn("Failed to close BufferedReader.", ioe);
-								}
-							}
-						}
-					}
-					else
-					{
-						Logger.error("Failed to load all cities.");
 					}
 				}
-				else
-				{
-					Logger.error("Failed to load all unit types.");
-				}
-			}
-			else
-			{
-				Logger.error("Failed to load all building types.");
 			}
 		}
-		return rowsInserted;
+		else
+		{
+			Logger.warn("Invalid number of fields in rental rate CSV file line: " + record.getLine());
+		}
+	}
+	
+	@Override
+	protected RowSink createRowSink(final String name, final int batchSize)
+	{
+		// Only the rental rates which changed are written; the new ones are bulk loaded via COPY, when the database supports it.
+		return DeltaSink.create(name, RentalRatesLoader.RENTAL_RATE_DELTA, CopyRowSink.create(name, RentalRatesLoader.RENTAL_RATE_TABLE, batchSize), batchSize);
 	}
 	
 	@Override
@@ -255,5 +178,72 @@ public class RentalRatesLoader extends DataLoader
 		
 	}
 	
+	/* PRIVATE CONSTANTS */
+	/**
+	 * The most geographic classifications which are read from a single line.
+	 * */
+	private static final int MAX_GEO_CLASSIFICATIONS = 64;
+	/**
+	 * The geographic classifications of the current line; one array per
+	 * thread, as the lines may be parsed on several threads at once.
+	 * */
+	private static final ThreadLocal<int[]> GEO_CLASSIFICATIONS = new ThreadLocal<int[]>()
+	{
+		@Override
+		protected int[] initialValue()
+		{
+			return new int[RentalRatesLoader.MAX_GEO_CLASSIFICATIONS];
+		}
+	};
+	/**
+	 * The indexes of the columns which are read from each line.
+	 * */
+	private static final int[] COLUMNS = { 0, 2, 3, 4, 7 };
+	/**
+	 * The {@link GeoCodeFilter} which skips the lines with no known city.
+	 * */
+	private static final GeoCodeFilter GEO_CODE_FILTER = new GeoCodeFilter(2, RentalRatesLoader.MAX_GEO_CLASSIFICATIONS);
+	
+	/**
+	 * This describes how a {@link RentalRate} is written to its table by COPY.
+	 * */
+	private static final CopyTable<RentalRate> RENTAL_RATE_TABLE = new CopyTable<RentalRate>("rental_rate", "building_type_id", "unit_type_id", "city_id", "province_id", "ref_year", "rental_rate")
+	{
+		@Override
+		protected void appendValues(final RentalRate rentalRate, final CopyRow row)
+		{
+			row.add(rentalRate.buildingType.buildingTypeId);
+			row.add(rentalRate.unitType.unitTypeId);
+			row.add(rentalRate.city.cityId);
+			row.add(rentalRate.province.provinceId);
+			row.add(rentalRate.referenceYear);
+			row.add(rentalRate.rentalRate);
+		}
+	};
+	
+	/**
+	 * This describes how a {@link RentalRate} is keyed, on its city, reference
+	 * year, building type and unit type, when only the changed rows are
+	 * written.
+	 * */
+	private static final DeltaTable<RentalRate> RENTAL_RATE_DELTA = new DeltaTable<RentalRate>(RentalRate.class, "rentalRateId", "city, referenceYear, buildingType, unitType, rentalRate", true)
+	{
+		@Override
+		protected Object getKey(final RentalRate rentalRate)
+		{
+			return Arrays.asList(rentalRate.city.cityId, rentalRate.referenceYear, rentalRate.buildingType.buildingTypeId, rentalRate.unitType.unitTypeId);
+		}
+		
+		@Override
+		protected boolean copyValues(final RentalRate parsed, final RentalRate current)
+		{
+			if (Float.compare(parsed.rentalRate, current.rentalRate) != 0)
+			{
+				current.rentalRate = parsed.rentalRate;
+				return true;
+			}
+			return false;
+		}
+	};
 	
 }
@@ -1,31 +1,32 @@
 package com.theEd209s.dataLoading.dynamicLoaders;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.io.InputStreamReader;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
-import javax.persistence.NonUniqueResultException;
-import javax.persistence.PersistenceException;
-
 import models.City;
 import models.CityVacancy;
-
-import org.h2.util.StringUtils;
-
 import play.Logger;
 
-import com.theEd209s.dataLoading.DataLoader;
-import com.theEd209s.utils.CsvParser;
+import com.theEd209s.dataLoading.CopyRowSink;
+import com.theEd209s.dataLoading.CopyRowSink.CopyRow;
+import com.theEd209s.dataLoading.CopyRowSink.CopyTable;
+import com.theEd209s.dataLoading.CsvRecordLoader;
+import com.theEd209s.dataLoading.DeltaSink;
+import com.theEd209s.dataLoading.DeltaSink.DeltaTable;
+import com.theEd209s.dataLoading.GeoCodeFilter;
+import com.theEd209s.dataLoading.RowSink;
+import com.theEd209s.lookup.GeoCodeIndex;
+import com.theEd209s.lookup.ReferenceDataRegistry;
+import com.theEd209s.utils.CsvRecordSource;
+import com.theEd209s.utils.CsvRecordSource.RecordFilter;
 
 /**
  * Loads to parse the vacancy rates data and put them in db
  * 
  * @author Kiran
  */
-public class VacancyRateLoader extends DataLoader
+public class VacancyRateLoader extends CsvRecordLoader
 {
 	
 	/**
@@ -73,144 +74,72 @@ public class VacancyRateLoader extends DataLoader
 	public VacancyRateLoader(final String ckanUrl, final String ckanDatesetId, final String ckanResourceId)
 	{
 		super(ckanUrl, ckanDatesetId, ckanResourceId);
+		this.resourceId = ckanResourceId;
+	}
+	
+	@Override
+	protected int[] getColumns()
+	{
+		return VacancyRateLoader.COLUMNS;
+	}
+	
+	@Override
+	protected RecordFilter getRecordFilter()
+	{
+		return VacancyRateLoader.GEO_CODE_FILTER;
+	}
+	
+	@Override
+	protected boolean isReadyToParse()
+	{
+		// check if cities exist
+		return !ReferenceDataRegistry.getInstance().getGeoCodeIndex().isEmpty();
 	}
 	
 	@Override
-	protected int parseFile(final File downloadedFile) throws Throwable
+	protected void parseRecord(final CsvRecordSource record, final List<Object> rows)
 	{
-		int rowsInserted = 0;
-		if ((downloadedFile != null) && downloadedFile.exists() && downloadedFile.isFile())
+		final int[] geoClassifications = VacancyRateLoader.GEO_CLASSIFICATIONS.get();
+		final int geoClassificationCount = record.getInts(2, ',', geoClassifications);
+		
+		// do this only if there is geo classification available
+		if (geoClassificationCount > 0)
 		{
-			if ((downloadedFile != null) && downloadedFile.exists() && downloadedFile.isFile())
+			final float tmpValue = record.getFloat(5, Float.NaN);
+			final int tmpRefYear = record.getInt(0, -1);
+			
+			if (Float.isNaN(tmpValue) || (tmpRefYear == -1))
 			{
-				final List<City> cities = City.loadAllCities();
-				
-				// check if cities exist
-				if (cities != null && cities.size() > 0)
+				// The line number is not known when a file is parsed in chunks.
+				Logger.debug("Could not parse either value " + record.getString(5) + " or the year " + record.getString(0) + " on line: " + record.getLine());
+				return;
+			}
+			
+			final GeoCodeIndex geoCodeIndex = ReferenceDataRegistry.getInstance().getGeoCodeIndex();
+			for (int n = 0; n < geoClassificationCount; n++)
+			{
+				if (geoClassifications[n] > 0)
 				{
-					BufferedReader br = null;
-					InputStreamReader isr = null;
-					FileInputStream fis = null;
-					
-					try
-					{
-						fis = new FileInputStream(downloadedFile);
-						isr = new InputStreamReader(fis, "UTF-8");
-						br = new BufferedReader(isr);
-						
-						// parse the csv file
-						final CsvParser parser = new CsvParser();
-						String readLine = null;
-						
-						while ((readLine = br.readLine()) != null)
-						{
-							if (!StringUtils.isNullOrEmpty(readLine))
-							{
-								String[] lineElements = parser.parseLine(readLine);
-								
-								if (lineElements != null && lineElements.length > 0)
-								{
-									final String[] geoClassifications = lineElements[2].trim().split(",");
-									
-									// do this only if there is geo classification available
-									if (geoClassifications != null && geoClassifications.length > 0)
-									{
-										for (String geoClassification : geoClassifications)
-										{
-											try
-											{
-												int tmpGeoClassificationInt = Integer.parseInt(geoClassification);
-												
-												if (tmpGeoClassificationInt > 0)
-												{
-													try
-													{
-														final float tmpValue = Float.parseFloat(lineElements[5].trim());
-														final int tmpRefYear = Integer.parseInt(lineElements[0].trim());
-														
-														for (City city : cities)
-														{
-															if ((tmpGeoClassificationInt == city.cityId) || (tmpGeoClassificationInt == city.cityParentId))
-															{
-																final CityVacancy cityVacancy = new CityVacancy();
-																cityVacancy.city = city;
-																cityVacancy.province = city.province;
-																cityVacancy.referenceYear = tmpRefYear;
-																cityVacancy.vacancyRate = tmpValue;
-																cityVacancy.save();
-																rowsInserted++;
-															}
-														}
-													}
-													catch (NonUniqueResultException e)
-													{
-														// ignore ...
-													}
-													catch (NumberFormatException nex)
-													{
-														Logger.debug("Could not parse either value " + lineElements[5] + " or the year " + lineElements[0], nex);
-													}
-													catch (PersistenceException pe)
-													{
-														Logger.error("Failed to save rental rate to database.", pe);
-													}
-												}
-											}
-											catch (NumberFormatException nexOut)
-											{
-												// ignore ...
-											}
-										}
-									}
-								}
-							}
-						}
-					}
-					catch (Throwable thrown)
+					for (City city : geoCodeIndex.getCities(geoClassifications[n]))
 					{
-						Logger.warn("Failed to read downloaded file.", thrown);
-					}
-					finally
-					{
-						if (fis != null)
-						{
-							try
-							{
-								fis.close();
-							}
-							catch (IOException ioe)
-							{
-								Logger.warn("Failed to close FileInputStream.", ioe);
-							}
-						}
-						if (isr != null)
-						{
-							try
-							{
-								isr.close();
-							}
-							catch (IOException ioe)
-							{
-								Logger.warn("Failed to close InputStreamReader.", ioe);
-							}
-						}
-						if (br != null)
-						{
-							try
-							{
-								br.close();
-							}
-							catch (IOException ioe)
-							{
-								Logger.warn("Failed to close BufferedReader.", ioe);
-							}
-						}
+						final CityVacancy cityVacancy = new CityVacancy();
+						cityVacancy.resourceId = this.resourceId;
+						cityVacancy.city = city;
+						cityVacancy.province = city.province;
+						cityVacancy.referenceYear = tmpRefYear;
+						cityVacancy.vacancyRate = tmpValue;
+						rows.add(cityVacancy);
 					}
 				}
-				
 			}
 		}
-		return rowsInserted;
+	}
+	
+	@Override
+	protected RowSink createRowSink(final String name, final int batchSize)
+	{
+		// Only the vacancy rates of this resource which changed are written; the new ones are bulk loaded via COPY, when the database supports it.
+		return DeltaSink.create(name, VacancyRateLoader.CITY_VACANCY_DELTA, Collections.<String, Object> singletonMap("resourceId", this.resourceId), CopyRowSink.create(name, VacancyRateLoader.CITY_VACANCY_TABLE, batchSize), batchSize);
 	}
 	
 	@Override
@@ -227,4 +156,81 @@ public class VacancyRateLoader extends DataLoader
 		
 	}
 	
+	/* PRIVATE CONSTANTS */
+	/**
+	 * The most geographic classifications which are read from a single line.
+	 * */
+	private static final int MAX_GEO_CLASSIFICATIONS = 64;
+	/**
+	 * The geographic classifications of the current line; one array per
+	 * thread, as the lines may be parsed on several threads at once.
+	 * */
+	private static final ThreadLocal<int[]> GEO_CLASSIFICATIONS = new ThreadLocal<int[]>()
+	{
+		@Override
+		protected int[] initialValue()
+		{
+			return new int[VacancyRateLoader.MAX_GEO_CLASSIFICATIONS];
+		}
+	};
+	/**
+	 * The indexes of the columns which are read from each line.
+	 * */
+	private static final int[] COLUMNS = { 0, 2, 5 };
+	/**
+	 * The {@link GeoCodeFilter} which skips the lines with no known city.
+	 * */
+	private static final GeoCodeFilter GEO_CODE_FILTER = new GeoCodeFilter(2, VacancyRateLoader.MAX_GEO_CLASSIFICATIONS);
+	
+	/**
+	 * This describes how a {@link CityVacancy} is written to its table by COPY.
+	 * */
+	private static final CopyTable<CityVacancy> CITY_VACANCY_TABLE = new CopyTable<CityVacancy>("city_vacancies", "resource_id", "city_id", "province_id", "ref_year", "vacancy_rate")
+	{
+		@Override
+		protected void appendValues(final CityVacancy cityVacancy, final CopyRow row)
+		{
+			row.add(cityVacancy.resourceId);
+			row.add(cityVacancy.city.cityId);
+			row.add(cityVacancy.province.provinceId);
+			row.add(cityVacancy.referenceYear);
+			row.add(cityVacancy.vacancyRate);
+		}
+	};
+	
+	/**
+	 * This describes how a {@link CityVacancy} is keyed, on its resource, city
+	 * and reference year, when only the changed rows are written. <br />
+	 * Both vacancy data-sets are loaded into the same table, so each
+	 * {@link DeltaSink} is scoped to the rows of its own resource; only those
+	 * are matched, or deleted once missing.
+	 * */
+	private static final DeltaTable<CityVacancy> CITY_VACANCY_DELTA = new DeltaTable<CityVacancy>(CityVacancy.class, "cityVacancyId", "resourceId, city, referenceYear, vacancyRate", true)
+	{
+		@Override
+		protected Object getKey(final CityVacancy cityVacancy)
+		{
+			return Arrays.asList(cityVacancy.resourceId, cityVacancy.city.cityId, cityVacancy.referenceYear);
+		}
+		
+		@Override
+		protected boolean copyValues(final CityVacancy parsed, final CityVacancy current)
+		{
+			if (Float.compare(parsed.vacancyRate, current.vacancyRate) != 0)
+			{
+				current.vacancyRate = parsed.vacancyRate;
+				return true;
+			}
+			return false;
+		}
+	};
+	
+	/* PRIVATE VARIABLES */
+	/**
+	 * The CKAN resource ID which the vacancy rates are loaded from; it is
+	 * part of the key of each {@link CityVacancy}, so the two data-sets never
+	 * overwrite each other's rows.
+	 * */
+	private final String resourceId;
+	
 }
@@ -12,7 +12,6 @@ import models.BuildingType;
 import play.Logger;
 import play.Play;
 
-import com.theEd209s.dataLoading.DataLoader;
 import com.theEd209s.utils.StringUtils;
 
 /**
@@ -20,7 +19,7 @@ import com.theEd209s.utils.StringUtils;
  * 
  * @author Matthew Weiler
  * */
-public class BuildingTypesLoader extends DataLoader
+public class BuildingTypesLoader extends StaticDataLoader
 {	
 	
 	/* PUBLIC CONSTANTS */
@@ -64,7 +63,7 @@ public class BuildingTypesLoader extends DataLoader
 						{
 							final BuildingType buildingType = new BuildingType();
 							buildingType.abbreviation = tmpLine;
-							buildingType.save();
+							this.insert(buildingType);
 							rowsInserted++;
 						}
 						catch (NonUniqueResultException e)
@@ -3,18 +3,29 @@ package com.theEd209s.dataLoading.staticLoaders;
 import play.Logger;
 import models.CSDIndex;
 import models.City;
-import models.Province;
+import models.DataVersion;
 
+import com.theEd209s.lookup.DataRevisions;
+import com.theEd209s.lookup.ReferenceDataRegistry;
 import com.theEd209s.utils.StringUtils;
 
 public class CitiesLoader 
 {   
-	public void populateCities()
+	/**
+	 * This method will populate the cities from the CSD indexes.
+	 * 
+	 * @return
+	 * <code>true</code> if the cities were populated; <code>false</code> if
+	 * they failed to be.
+	 * */
+	public boolean populateCities()
 	{	
+		boolean populated = false;
 		try
 		{				
 			final java.util.List<CSDIndex> csdIndexes=  CSDIndex.getAllCityNamesAndIds();
 			
+			final ReferenceDataRegistry registry = ReferenceDataRegistry.getInstance();
 			if(csdIndexes !=null && csdIndexes.size() > 0)
 			{			
 				for(CSDIndex index: csdIndexes)
@@ -36,15 +47,20 @@ public class CitiesLoader
 						city.cityId = Integer.parseInt(tmpcityId);
 						city.cityName = tmpCityName;
 						city.cityParentId = Integer.parseInt(tmpParentId);
-						city.province = Province.getProvinceById(index.provinceCode);
+						city.province = registry.getProvince(index.provinceCode);
 						city.checkAndSave();
 					}
 				}				
 			}
+			populated = true;
 		}
 		catch (Exception e)
 		{
 			Logger.error("Error populating city table", e);
 		} 
+		ReferenceDataRegistry.reload();
+		DataVersion.advance();
+		DataRevisions.reload();
+		return populated;
 	}
 }
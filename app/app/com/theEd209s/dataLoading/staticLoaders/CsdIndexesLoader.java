@@ -16,7 +16,8 @@ import models.CSDType;
 import play.Logger;
 import play.Play;
 
-import com.theEd209s.dataLoading.DataLoader;
+import com.theEd209s.lookup.PlaceNameIndex;
+import com.theEd209s.lookup.ReferenceDataRegistry;
 import com.theEd209s.utils.StringUtils;
 
 /**
@@ -24,7 +25,7 @@ import com.theEd209s.utils.StringUtils;
  * 
  * @author Matthew Weiler
  * */
-public class CsdIndexesLoader extends DataLoader
+public class CsdIndexesLoader extends StaticDataLoader
 {
 	
 	/* PUBLIC CONSTANTS */
@@ -61,7 +62,7 @@ public class CsdIndexesLoader extends DataLoader
 				br = new BufferedReader(isr);
 				String tmpLine = null;
 				CSDIndex tmpCsdValue = null;
-				List<String> csdTypeAcronyms =  CSDType.getAllCSDAccronyms();
+				List<String> csdTypeAcronyms =  ReferenceDataRegistry.getInstance().getCSDAccronyms();
 				while ((tmpLine = br.readLine()) != null)
 				{
 					Matcher m = CsdIndexesLoader.agglomerationCodesPattern.matcher(tmpLine);
@@ -77,15 +78,9 @@ public class CsdIndexesLoader extends DataLoader
 						tmpCsdValue.placeName = cityName;
 						tmpCsdValue.csdType = csdType;
 						CsdIndexesLoader.buildCSDIndex(tmpCsdValue, anAgglomerationCode);
-						try
-						{
-							tmpCsdValue.save();
-							rowsInserted++;
-						}
-						catch (PersistenceException e)
-						{
-							Logger.debug("If this is a unique error then the data we got was not well defined. We will ignore the failed duplicates.", e);
-						}
+						// If a batch fails on a unique error then the data we got was not well defined; the failed duplicates are skipped.
+						this.insert(tmpCsdValue);
+						rowsInserted++;
 						continue;
 					}
 					else
@@ -150,6 +145,13 @@ public class CsdIndexesLoader extends DataLoader
 		
 	}
 	
+	@Override
+	protected void parseCompleted()
+	{
+		super.parseCompleted();
+		PlaceNameIndex.rebuild();
+	}
+	
 	private static String refineCityName(String name,List<String> csdTypeAcronyms)
 	{
 		if(!StringUtils.isNullOrEmpty(name))
@@ -188,7 +190,7 @@ public class CsdIndexesLoader extends DataLoader
 		final String[] cityWords = cityName.trim().split(" ");
 		try
 		{
-			CSDType csdType = CSDType.getCSDByAccronym(cityWords[cityWords.length - 1]);
+			CSDType csdType = ReferenceDataRegistry.getInstance().getCSDTypeByAccronym(cityWords[cityWords.length - 1]);
 			return csdType == null ? null : csdType.accronym;
 		}
 		catch (PersistenceException e)
@@ -13,7 +13,6 @@ import models.CSDType;
 import play.Logger;
 import play.Play;
 
-import com.theEd209s.dataLoading.DataLoader;
 import com.theEd209s.utils.CsvParser;
 import com.theEd209s.utils.StringUtils;
 
@@ -22,7 +21,7 @@ import com.theEd209s.utils.StringUtils;
  * 
  * @author Matthew Weiler
  * */
-public class CsdTypesLoader extends DataLoader
+public class CsdTypesLoader extends StaticDataLoader
 {	
 	
 	/* PUBLIC CONSTANTS */
@@ -74,7 +73,7 @@ public class CsdTypesLoader extends DataLoader
 									tmpType = new CSDType();
 									tmpType.accronym = new String(results[0].getBytes("UTF8"), "UTF8");
 									tmpType.name = results[0];
-									tmpType.save();
+									this.insert(tmpType);
 									rowsInserted++;
 								}
 								catch (NonUniqueResultException e)
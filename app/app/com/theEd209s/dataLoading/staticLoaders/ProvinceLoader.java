@@ -11,10 +11,10 @@ import models.Province;
 import play.Logger;
 import play.Play;
 
-import com.theEd209s.dataLoading.DataLoader;
+import com.theEd209s.lookup.PlaceNameIndex;
 import com.theEd209s.utils.CsvParser;
 
-public class ProvinceLoader extends DataLoader
+public class ProvinceLoader extends StaticDataLoader
 {
 	/**
 	 * This stores the relative path of the source file containing
@@ -58,7 +58,7 @@ public class ProvinceLoader extends DataLoader
 						Province prs = new Province();
 						prs.provinceId = Integer.parseInt(results[0]);
 						prs.abbreviation = results[1];
-						prs.save();
+						this.insert(prs);
 						rowsInserted++;
 					}
 					lineNumber++;
@@ -118,5 +118,13 @@ public class ProvinceLoader extends DataLoader
 		// TODO Auto-generated method stub
 		
 	}
+	
+	@Override
+	protected void parseCompleted()
+	{
+		super.parseCompleted();
+		// The place name index carries the province abbreviations.
+		PlaceNameIndex.rebuild();
+	}
 
 }
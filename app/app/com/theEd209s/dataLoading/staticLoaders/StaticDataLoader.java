@@ -0,0 +1,44 @@
+package com.theEd209s.dataLoading.staticLoaders;
+
+import java.io.File;
+
+import models.DataVersion;
+
+import com.theEd209s.dataLoading.DataLoader;
+import com.theEd209s.lookup.ReferenceDataRegistry;
+
+/**
+ * This class is the base for all loaders of the static (reference) tables. <br />
+ * <br />
+ * Once a static table has been loaded, the {@link ReferenceDataRegistry} is
+ * reloaded so that it reflects the new contents, and the {@link DataVersion}
+ * is advanced; the static tables have no CKAN revision to record the change.
+ * */
+public abstract class StaticDataLoader extends DataLoader
+{
+
+	/* CONSTRUCTORS */
+	/**
+	 * This will create a new instance of a {@link StaticDataLoader}.
+	 *
+	 * @param sourceFile
+	 * The source {@link File}.
+	 * @param allowDeleteFile
+	 * <code>true</code> if the specified {@link File} can be deleted once
+	 * done; <code>false</code> if the specified {@link File} can not be
+	 * deleted once processed.
+	 * */
+	public StaticDataLoader(final File sourceFile, final boolean allowDeleteFile)
+	{
+		super(sourceFile, allowDeleteFile);
+	}
+
+	/* PROTECTED METHODS */
+	@Override
+	protected void parseCompleted()
+	{
+		DataVersion.advance();
+		ReferenceDataRegistry.reload();
+	}
+
+}
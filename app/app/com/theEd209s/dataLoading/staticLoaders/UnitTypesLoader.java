@@ -13,7 +13,6 @@ import models.UnitType;
 import play.Logger;
 import play.Play;
 
-import com.theEd209s.dataLoading.DataLoader;
 import com.theEd209s.utils.StringUtils;
 
 /**
@@ -21,7 +20,7 @@ import com.theEd209s.utils.StringUtils;
  * 
  * @author Matthew Weiler
  * */
-public class UnitTypesLoader extends DataLoader
+public class UnitTypesLoader extends StaticDataLoader
 {	
 	
 	/* PUBLIC CONSTANTS */
@@ -65,7 +64,7 @@ public class UnitTypesLoader extends DataLoader
 						{
 							final UnitType unitType = new UnitType();
 							unitType.abbreviation = tmpLine;
-							unitType.save();
+							this.insert(unitType);
 							rowsInserted++;
 						}
 						catch (NonUniqueResultException e)
@@ -0,0 +1,224 @@
+package com.theEd209s.lookup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import models.CkanRevision;
+import models.DataVersion;
+import play.Logger;
+
+/**
+ * This class is an immutable snapshot of the revision of every data-set that
+ * the API serves. <br />
+ * <br />
+ * The dynamic data-sets are identified by their CKAN resource ID and are at
+ * the {@link CkanRevision#lastRevisionTime lastRevisionTime} which was last
+ * loaded; the static tables are at the {@link ReferenceDataRegistry#getVersion()
+ * version} of their contents, and the CSD indexes at the
+ * {@link PlaceNameIndex#getVersion() version} of the place name index. <br />
+ * A table may be truncated and then reloaded with the same rows, so the
+ * revisions alone can not tell the responses built while it was empty apart
+ * from those built once it was reloaded; every such change advances the
+ * persisted {@link DataVersion}, which is also part of the snapshot. <br />
+ * The API uses these to tag the responses it caches, so that a response is
+ * only served while none of the data-sets it was built from have changed. <br />
+ * <br />
+ * Every value is read from the database, rather than counted by this node,
+ * so all of the nodes serving the same data agree on the <code>ETag</code>
+ * and <code>Last-Modified</code> of a response once they have reloaded, and a
+ * restart changes neither. <br />
+ * The <code>Last-Modified</code> of a response is the latest time at which
+ * any of the data-sets it was built from was loaded, or the data was
+ * otherwise changed; not the CKAN revision time, which is earlier than the
+ * load. <br />
+ * <br />
+ * The current snapshot is retrieved via {@link DataRevisions#getInstance()
+ * getInstance()} and is replaced atomically by {@link DataRevisions#reload()
+ * reload()}, which must be called once new data has been loaded <b>and</b>
+ * any in-memory data built from it has been refreshed; as well as once any
+ * table has been truncated.
+ * */
+public final class DataRevisions
+{
+
+	/* CONSTRUCTORS */
+	/**
+	 * This will create a new instance of a {@link DataRevisions} containing
+	 * the specified revisions.
+	 *
+	 * @param ckanRevisions
+	 * The {@link CkanRevision} of every dynamic data-set which has been
+	 * loaded.
+	 * @param staticDataVersion
+	 * The version of the contents of the static tables.
+	 * @param placesVersion
+	 * The version of the place name index.
+	 * @param dataVersion
+	 * The {@link DataVersion} of the loaded data or <code>null</code> if it
+	 * has never changed.
+	 * */
+	private DataRevisions(final List<CkanRevision> ckanRevisions, final long staticDataVersion, final long placesVersion, final DataVersion dataVersion)
+	{
+		for (CkanRevision ckanRevision : ckanRevisions)
+		{
+			this.revisionTimes.put(ckanRevision.resourceId, Long.valueOf(ckanRevision.lastRevisionTime));
+			this.loadedTimes.put(ckanRevision.resourceId, Long.valueOf(ckanRevision.loadedTime));
+		}
+		this.staticDataVersion = staticDataVersion;
+		this.placesVersion = placesVersion;
+		this.dataVersion = (dataVersion != null) ? dataVersion.version : 0L;
+		this.dataModifiedTime = (dataVersion != null) ? dataVersion.modifiedTime : 0L;
+	}
+
+	/* PUBLIC METHODS */
+	/**
+	 * This method will get the current {@link DataRevisions} snapshot.
+	 *
+	 * @return
+	 * The current {@link DataRevisions}; this will never be
+	 * <code>null</code>.
+	 * */
+	public static DataRevisions getInstance()
+	{
+		return DataRevisions.current;
+	}
+
+	/**
+	 * This method will load the revision of every data-set into a new
+	 * snapshot and then publish it, replacing the current one. <br />
+	 * <br />
+	 * If the reload fails, the current snapshot is left in place.
+	 *
+	 * @return
+	 * The {@link DataRevisions} which is current once this method returns.
+	 * */
+	public static synchronized DataRevisions reload()
+	{
+		try
+		{
+			DataRevisions.current = new DataRevisions(CkanRevision.find.all(), ReferenceDataRegistry.getInstance().getVersion(), PlaceNameIndex.getInstance().getVersion(), DataVersion.getCurrent());
+		}
+		catch (Exception e)
+		{
+			Logger.error("Failed to reload the data revisions; keeping the previous snapshot.", e);
+		}
+		return DataRevisions.current;
+	}
+
+	/**
+	 * This method will get the revision time of the data-set with the
+	 * specified CKAN resource ID.
+	 *
+	 * @param resourceId
+	 * The CKAN resource ID of the data-set.
+	 *
+	 * @return
+	 * The revision time of the data-set or <code>-1</code> if it has never
+	 * been loaded.
+	 * */
+	public long getRevisionTime(final String resourceId)
+	{
+		final Long revisionTime = this.revisionTimes.get(resourceId);
+		return (revisionTime != null) ? revisionTime.longValue() : -1L;
+	}
+
+	/**
+	 * This method will get the version of the contents of the static tables.
+	 *
+	 * @return
+	 * The version of the static tables.
+	 * */
+	public long getStaticDataVersion()
+	{
+		return this.staticDataVersion;
+	}
+
+	/**
+	 * This method will get the version of the place name index; which is
+	 * built from the CSD indexes.
+	 *
+	 * @return
+	 * The version of the place name index.
+	 * */
+	public long getPlacesVersion()
+	{
+		return this.placesVersion;
+	}
+
+	/**
+	 * This method will get the {@link DataVersion#version version} of the
+	 * loaded data; which is advanced by every change that the CKAN revisions
+	 * do not record.
+	 *
+	 * @return
+	 * The version of the loaded data.
+	 * */
+	public long getDataVersion()
+	{
+		return this.dataVersion;
+	}
+
+	/**
+	 * This method will get a tag which identifies the current version of the
+	 * loaded data, the static tables and the CSD indexes, along with the
+	 * revisions of the data-sets with the specified CKAN resource IDs. <br />
+	 * <br />
+	 * The tag changes whenever a different revision of any of those data-sets
+	 * is loaded, or any table is truncated or reloaded.
+	 *
+	 * @param resourceIds
+	 * The CKAN resource IDs of the dynamic data-sets.
+	 *
+	 * @return
+	 * The tag.
+	 * */
+	public String getTag(final String... resourceIds)
+	{
+		final StringBuilder tag = new StringBuilder(Long.toString(this.dataVersion, Character.MAX_RADIX));
+		tag.append('.').append(Long.toString(this.staticDataVersion, Character.MAX_RADIX));
+		tag.append('.').append(Long.toString(this.placesVersion, Character.MAX_RADIX));
+		for (String resourceId : resourceIds)
+		{
+			tag.append('.').append(Long.toString(this.getRevisionTime(resourceId), Character.MAX_RADIX));
+		}
+		return tag.toString();
+	}
+
+	/**
+	 * This method will get the time at which the data-sets with the specified
+	 * CKAN resource IDs were last loaded, or any table was last truncated or
+	 * reloaded; whichever is the latest.
+	 *
+	 * @param resourceIds
+	 * The CKAN resource IDs of the dynamic data-sets.
+	 *
+	 * @return
+	 * The time, in milliseconds, of the last change.
+	 * */
+	public long getLastModified(final String... resourceIds)
+	{
+		long lastModified = this.dataModifiedTime;
+		for (String resourceId : resourceIds)
+		{
+			final Long loadedTime = this.loadedTimes.get(resourceId);
+			if (loadedTime != null)
+			{
+				lastModified = Math.max(lastModified, loadedTime.longValue());
+			}
+		}
+		return lastModified;
+	}
+
+	/* PRIVATE VARIABLES */
+	private static volatile DataRevisions current = new DataRevisions(new ArrayList<CkanRevision>(), 0L, 0L, null);
+
+	private final Map<String, Long> revisionTimes = new HashMap<String, Long>();
+	private final Map<String, Long> loadedTimes = new HashMap<String, Long>();
+	private final long staticDataVersion;
+	private final long placesVersion;
+	private final long dataVersion;
+	private final long dataModifiedTime;
+
+}
@@ -0,0 +1,131 @@
+package com.theEd209s.lookup;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import models.City;
+
+import com.theEd209s.utils.IntObjectHashMap;
+
+/**
+ * This class is an immutable index of {@link City}s by their geo
+ * classification codes; both the {@link City#cityId} and the
+ * {@link City#cityParentId}. <br />
+ * <br />
+ * The StatCan data-sets reference a geography by a single code, which matches
+ * every {@link City} that either is that geography or is within it; this
+ * index answers that lookup with a single hash probe rather than a scan of
+ * every {@link City}. <br />
+ * The index is built once per {@link ReferenceDataRegistry} snapshot and is
+ * retrieved via {@link ReferenceDataRegistry#getGeoCodeIndex()}.
+ * */
+public final class GeoCodeIndex
+{
+
+	/* CONSTRUCTORS */
+	/**
+	 * This will create a new instance of a {@link GeoCodeIndex} containing
+	 * the specified {@link City}s.
+	 *
+	 * @param cities
+	 * All {@link City}s.
+	 * */
+	GeoCodeIndex(final List<City> cities)
+	{
+		final IntObjectHashMap<List<City>> matches = new IntObjectHashMap<List<City>>(cities.size());
+		for (City city : cities)
+		{
+			GeoCodeIndex.addMatch(matches, city.cityId, city);
+			if (city.cityParentId != city.cityId)
+			{
+				GeoCodeIndex.addMatch(matches, city.cityParentId, city);
+			}
+		}
+		final int[] geoCodes = matches.keys();
+		this.citiesByGeoCode = new IntObjectHashMap<City[]>(geoCodes.length);
+		for (int geoCode : geoCodes)
+		{
+			final List<City> geoCodeCities = matches.get(geoCode);
+			this.citiesByGeoCode.put(geoCode, geoCodeCities.toArray(new City[geoCodeCities.size()]));
+		}
+	}
+
+	/* PUBLIC METHODS */
+	/**
+	 * This method will get all of the {@link City}s which match the specified
+	 * geo classification code; those whose {@link City#cityId} or
+	 * {@link City#cityParentId} is the code. <br />
+	 * The {@link City}s are in the order they were loaded from the database
+	 * and each appears only once.
+	 *
+	 * @param geoCode
+	 * The geo classification code.
+	 *
+	 * @return
+	 * The matching {@link City}s; an empty array if there are none. The
+	 * returned array is shared and must not be modified.
+	 * */
+	public City[] getCities(final int geoCode)
+	{
+		final City[] cities = this.citiesByGeoCode.get(geoCode);
+		return (cities != null) ? cities : GeoCodeIndex.NO_CITIES;
+	}
+
+	/**
+	 * This method will determine if any {@link City} matches the specified geo
+	 * classification code.
+	 *
+	 * @param geoCode
+	 * The geo classification code.
+	 *
+	 * @return
+	 * <code>true</code> if any {@link City} matches the code;
+	 * <code>false</code> otherwise.
+	 * */
+	public boolean contains(final int geoCode)
+	{
+		return this.citiesByGeoCode.containsKey(geoCode);
+	}
+
+	/**
+	 * This method will determine if this index contains no {@link City}s.
+	 *
+	 * @return
+	 * <code>true</code> if this index contains no {@link City}s;
+	 * <code>false</code> otherwise.
+	 * */
+	public boolean isEmpty()
+	{
+		return this.citiesByGeoCode.isEmpty();
+	}
+
+	/* PRIVATE METHODS */
+	/**
+	 * This method will add the specified {@link City} to the matches of the
+	 * specified geo classification code.
+	 *
+	 * @param matches
+	 * The matches being built.
+	 * @param geoCode
+	 * The geo classification code.
+	 * @param city
+	 * The matching {@link City}.
+	 * */
+	private static void addMatch(final IntObjectHashMap<List<City>> matches, final int geoCode, final City city)
+	{
+		List<City> geoCodeCities = matches.get(geoCode);
+		if (geoCodeCities == null)
+		{
+			geoCodeCities = new ArrayList<City>(1);
+			matches.put(geoCode, geoCodeCities);
+		}
+		geoCodeCities.add(city);
+	}
+
+	/* PRIVATE CONSTANTS */
+	private static final City[] NO_CITIES = new City[0];
+
+	/* PRIVATE VARIABLES */
+	private final IntObjectHashMap<City[]> citiesByGeoCode;
+
+}
@@ -0,0 +1,457 @@
+package com.theEd209s.lookup;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import models.CSDIndex;
+import models.Province;
+import play.Logger;
+
+import com.theEd209s.utils.StringUtils;
+
+/**
+ * This class is an immutable, in-memory search index over the place names of
+ * every {@link CSDIndex}. <br />
+ * <br />
+ * The place names are normalized (lower case, accents removed and whitespace
+ * collapsed) and kept in sorted order, so that prefix matches can be found
+ * with a binary search. <br />
+ * Every place name is also broken into trigrams; the posting list of each
+ * trigram holds the places which contain it, so that infix matches only need
+ * to check the places containing the rarest trigram of the query. <br />
+ * <br />
+ * Each {@link Place} already carries the {@link Province} abbreviation and the
+ * SGC codes, so searching never touches the database. <br />
+ * The current index is retrieved via {@link PlaceNameIndex#getInstance()
+ * getInstance()} and is replaced atomically by
+ * {@link PlaceNameIndex#rebuild() rebuild()}; each index has a
+ * {@link PlaceNameIndex#getVersion() version} computed from its places, so
+ * that the responses built from it can be tagged.
+ * */
+public final class PlaceNameIndex
+{
+
+	/* CONSTRUCTORS */
+	/**
+	 * This will create a new instance of a {@link PlaceNameIndex} containing
+	 * the specified {@link Place}s.
+	 *
+	 * @param places
+	 * The {@link Place}s to index.
+	 * */
+	private PlaceNameIndex(final List<Place> places)
+	{
+		this.places = places.toArray(new Place[places.size()]);
+		Arrays.sort(this.places, new Comparator<Place>()
+		{
+			@Override
+			public int compare(Place p1, Place p2)
+			{
+				return p1.normalizedName.compareTo(p2.normalizedName);
+			}
+		});
+		this.normalizedNames = new String[this.places.length];
+		final Map<Long, List<Integer>> postings = new HashMap<Long, List<Integer>>();
+		// The places are summed so that the version does not depend on the order they were read in.
+		long version = 0L;
+		for (int n = 0; n < this.places.length; n++)
+		{
+			final Place place = this.places[n];
+			version += ReferenceDataRegistry.hashRow("csdIndex", place.name, place.csdType, place.provinceAbbreviation, place.scgCode5, place.scgCode7);
+			final String normalizedName = place.normalizedName;
+			this.normalizedNames[n] = normalizedName;
+			for (int i = 0; (i + PlaceNameIndex.GRAM_LENGTH) <= normalizedName.length(); i++)
+			{
+				final Long trigram = Long.valueOf(PlaceNameIndex.trigram(normalizedName, i));
+				List<Integer> posting = postings.get(trigram);
+				if (posting == null)
+				{
+					posting = new ArrayList<Integer>();
+					postings.put(trigram, posting);
+				}
+				// The places are visited in order, so a repeated trigram is always at the end.
+				if ((posting.size() == 0) || (posting.get(posting.size() - 1).intValue() != n))
+				{
+					posting.add(Integer.valueOf(n));
+				}
+			}
+		}
+		for (Map.Entry<Long, List<Integer>> posting : postings.entrySet())
+		{
+			final int[] placeIndexes = new int[posting.getValue().size()];
+			for (int i = 0; i < placeIndexes.length; i++)
+			{
+				placeIndexes[i] = posting.getValue().get(i).intValue();
+			}
+			this.trigramPostings.put(posting.getKey(), placeIndexes);
+		}
+		this.version = version;
+	}
+
+	/* PUBLIC METHODS */
+	/**
+	 * This method will get the current {@link PlaceNameIndex}. <br />
+	 * Until the first {@link PlaceNameIndex#rebuild() rebuild()} this will be
+	 * an empty index.
+	 *
+	 * @return
+	 * The current {@link PlaceNameIndex}; this will never be
+	 * <code>null</code>.
+	 * */
+	public static PlaceNameIndex getInstance()
+	{
+		return PlaceNameIndex.current;
+	}
+
+	/**
+	 * This method will load every {@link CSDIndex} from the database into a
+	 * new index and then publish it, replacing the current one. <br />
+	 * <br />
+	 * The {@link Province} abbreviations are taken from the
+	 * {@link ReferenceDataRegistry}, so it should be reloaded first. <br />
+	 * If the rebuild fails, the current index is left in place.
+	 *
+	 * @return
+	 * The {@link PlaceNameIndex} which is current once this method returns.
+	 * */
+	public static synchronized PlaceNameIndex rebuild()
+	{
+		try
+		{
+			final ReferenceDataRegistry registry = ReferenceDataRegistry.getInstance();
+			final List<CSDIndex> csdIndexes = CSDIndex.find.all();
+			final List<Place> places = new ArrayList<Place>(csdIndexes.size());
+			for (CSDIndex csdIndex : csdIndexes)
+			{
+				if (!StringUtils.isNullOrEmpty(csdIndex.placeName))
+				{
+					final Province province = registry.getProvince(csdIndex.provinceCode);
+					places.add(new Place(csdIndex.placeName, csdIndex.csdType, (province != null) ? province.abbreviation : null, CSDIndex.getSCGCode5(csdIndex), CSDIndex.getSCGCode7(csdIndex)));
+				}
+			}
+			PlaceNameIndex.current = new PlaceNameIndex(places);
+			Logger.info("Place name index built: " + places.size() + " places.");
+		}
+		catch (Exception e)
+		{
+			Logger.error("Failed to rebuild the place name index; keeping the previous index.", e);
+		}
+		return PlaceNameIndex.current;
+	}
+
+	/**
+	 * This method will search for the {@link Place}s whose name contains the
+	 * specified text; ignoring case and accents. <br />
+	 * <br />
+	 * The matches are ranked as follows:
+	 * <ol>
+	 * <li>places whose name starts with the text (an exact match first)</li>
+	 * <li>places with a word in their name that starts with the text</li>
+	 * <li>places whose name contains the text anywhere else</li>
+	 * </ol>
+	 * Within each rank the places are in alphabetical order.
+	 *
+	 * @param text
+	 * The text to search for.
+	 * @param maxResults
+	 * The maximum number of {@link Place}s to return.
+	 *
+	 * @return
+	 * The matching {@link Place}s; this will never be <code>null</code>.
+	 * */
+	public List<Place> search(final String text, final int maxResults)
+	{
+		final String query = PlaceNameIndex.normalize(text);
+		if ((query.length() == 0) || (maxResults <= 0))
+		{
+			return Collections.emptyList();
+		}
+		final List<Place> results = new ArrayList<Place>(Math.min(maxResults, 32));
+		// Prefix matches are a contiguous range of the sorted names.
+		int n = this.findFirstAtOrAfter(query);
+		while ((n < this.normalizedNames.length) && this.normalizedNames[n].startsWith(query) && (results.size() < maxResults))
+		{
+			results.add(this.places[n]);
+			n++;
+		}
+		if (results.size() < maxResults)
+		{
+			final int[] candidates = this.getInfixCandidates(query);
+			final List<Place> otherMatches = new ArrayList<Place>();
+			for (int i = 0; (candidates == null) ? (i < this.normalizedNames.length) : (i < candidates.length); i++)
+			{
+				final int placeIndex = (candidates == null) ? i : candidates[i];
+				final String normalizedName = this.normalizedNames[placeIndex];
+				if (normalizedName.startsWith(query))
+				{
+					// Already returned as a prefix match.
+					continue;
+				}
+				final int matchIndex = normalizedName.indexOf(query, 1);
+				if (matchIndex > 0)
+				{
+					if (PlaceNameIndex.isWordStart(normalizedName, matchIndex) || PlaceNameIndex.hasWordStartMatch(normalizedName, query, matchIndex))
+					{
+						results.add(this.places[placeIndex]);
+						if (results.size() >= maxResults)
+						{
+							break;
+						}
+					}
+					else if ((results.size() + otherMatches.size()) < maxResults)
+					{
+						otherMatches.add(this.places[placeIndex]);
+					}
+				}
+			}
+			for (int i = 0; (i < otherMatches.size()) && (results.size() < maxResults); i++)
+			{
+				results.add(otherMatches.get(i));
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * This method will get the number of {@link Place}s in this index.
+	 *
+	 * @return
+	 * The number of {@link Place}s in this index.
+	 * */
+	public int size()
+	{
+		return this.places.length;
+	}
+
+	/**
+	 * This method will get the version of the places in this index. <br />
+	 * <br />
+	 * The version is computed from the places themselves, just as the
+	 * {@link ReferenceDataRegistry#getVersion() version} of the reference
+	 * data; it changes if any place does.
+	 *
+	 * @return
+	 * The version of the places in this index.
+	 * */
+	public long getVersion()
+	{
+		return this.version;
+	}
+
+	/**
+	 * This method will normalize the specified text for searching; it is
+	 * trimmed, lower cased, has its accents removed and its whitespace
+	 * collapsed.
+	 *
+	 * @param text
+	 * The text to normalize.
+	 *
+	 * @return
+	 * The normalized text; an empty {@link String} if the text was
+	 * <code>null</code> or empty.
+	 * */
+	public static String normalize(final String text)
+	{
+		if (StringUtils.isNullOrEmpty(text))
+		{
+			return "";
+		}
+		final String decomposed = Normalizer.normalize(text.trim().toLowerCase(Locale.ENGLISH), Normalizer.Form.NFD);
+		return PlaceNameIndex.WHITESPACE_PATTERN.matcher(PlaceNameIndex.ACCENT_PATTERN.matcher(decomposed).replaceAll("")).replaceAll(" ");
+	}
+
+	/* PUBLIC CLASSES */
+	/**
+	 * This class holds a single searchable place.
+	 * */
+	public static final class Place
+	{
+
+		/* CONSTRUCTORS */
+		/**
+		 * This will create a new instance of a {@link Place}.
+		 *
+		 * @param name
+		 * The name of the place.
+		 * @param csdType
+		 * The CSD type accronym of the place.
+		 * @param provinceAbbreviation
+		 * The abbreviation of the {@link Province} of the place.
+		 * @param scgCode5
+		 * The 5 digit SGC code of the place.
+		 * @param scgCode7
+		 * The 7 digit SGC code of the place.
+		 * */
+		private Place(final String name, final String csdType, final String provinceAbbreviation, final String scgCode5, final String scgCode7)
+		{
+			this.name = name;
+			this.csdType = csdType;
+			this.provinceAbbreviation = provinceAbbreviation;
+			this.scgCode5 = scgCode5;
+			this.scgCode7 = scgCode7;
+			this.normalizedName = PlaceNameIndex.normalize(name);
+		}
+
+		/* PUBLIC VARIABLES */
+		public final String name;
+		public final String csdType;
+		public final String provinceAbbreviation;
+		public final String scgCode5;
+		public final String scgCode7;
+
+		/* PRIVATE VARIABLES */
+		private final String normalizedName;
+
+	}
+
+	/* PRIVATE METHODS */
+	/**
+	 * This method will find the index of the first normalized name that is
+	 * greater than or equal to the specified query.
+	 *
+	 * @param query
+	 * The normalized query.
+	 *
+	 * @return
+	 * The index of the first normalized name that is greater than or equal to
+	 * the specified query.
+	 * */
+	private int findFirstAtOrAfter(final String query)
+	{
+		int low = 0;
+		int high = this.normalizedNames.length;
+		while (low < high)
+		{
+			final int middle = (low + high) >>> 1;
+			if (this.normalizedNames[middle].compareTo(query) < 0)
+			{
+				low = middle + 1;
+			}
+			else
+			{
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * This method will get the indexes of the places which could contain the
+	 * specified query; taken from the posting list of its rarest trigram.
+	 *
+	 * @param query
+	 * The normalized query.
+	 *
+	 * @return
+	 * The sorted indexes of the candidate places, an empty array if a trigram
+	 * of the query is not in the index, or <code>null</code> if the query is
+	 * too short to have trigrams and every place is a candidate.
+	 * */
+	private int[] getInfixCandidates(final String query)
+	{
+		if (query.length() < PlaceNameIndex.GRAM_LENGTH)
+		{
+			return null;
+		}
+		int[] rarest = null;
+		for (int i = 0; (i + PlaceNameIndex.GRAM_LENGTH) <= query.length(); i++)
+		{
+			final int[] posting = this.trigramPostings.get(Long.valueOf(PlaceNameIndex.trigram(query, i)));
+			if (posting == null)
+			{
+				return PlaceNameIndex.NO_CANDIDATES;
+			}
+			if ((rarest == null) || (posting.length < rarest.length))
+			{
+				rarest = posting;
+			}
+		}
+		return rarest;
+	}
+
+	/**
+	 * This method will determine if a word of the specified name, after the
+	 * first match, starts with the specified query.
+	 *
+	 * @param normalizedName
+	 * The normalized name.
+	 * @param query
+	 * The normalized query.
+	 * @param firstMatchIndex
+	 * The index of the first match of the query in the name.
+	 *
+	 * @return
+	 * <code>true</code> if a word starts with the query; <code>false</code>
+	 * otherwise.
+	 * */
+	private static boolean hasWordStartMatch(final String normalizedName, final String query, final int firstMatchIndex)
+	{
+		int matchIndex = normalizedName.indexOf(query, firstMatchIndex + 1);
+		while (matchIndex > 0)
+		{
+			if (PlaceNameIndex.isWordStart(normalizedName, matchIndex))
+			{
+				return true;
+			}
+			matchIndex = normalizedName.indexOf(query, matchIndex + 1);
+		}
+		return false;
+	}
+
+	/**
+	 * This method will determine if a word starts at the specified index.
+	 *
+	 * @param normalizedName
+	 * The normalized name.
+	 * @param index
+	 * The index to check.
+	 *
+	 * @return
+	 * <code>true</code> if a word starts at the specified index;
+	 * <code>false</code> otherwise.
+	 * */
+	private static boolean isWordStart(final String normalizedName, final int index)
+	{
+		return (index == 0) || !Character.isLetterOrDigit(normalizedName.charAt(index - 1));
+	}
+
+	/**
+	 * This method will pack the trigram at the specified index into a
+	 * <code>long</code>.
+	 *
+	 * @param str
+	 * The normalized {@link String}.
+	 * @param index
+	 * The index of the first character of the trigram.
+	 *
+	 * @return
+	 * The packed trigram.
+	 * */
+	private static long trigram(final String str, final int index)
+	{
+		return (((long) str.charAt(index)) << 32) | (((long) str.charAt(index + 1)) << 16) | str.charAt(index + 2);
+	}
+
+	/* PRIVATE CONSTANTS */
+	private static final int GRAM_LENGTH = 3;
+	private static final int[] NO_CANDIDATES = new int[0];
+	private static final Pattern ACCENT_PATTERN = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
+	private static final Pattern WHITESPACE_PATTERN = Pattern.compile("\\s+");
+
+	/* PRIVATE VARIABLES */
+	private static volatile PlaceNameIndex current = new PlaceNameIndex(new ArrayList<Place>());
+
+	private final Place[] places;
+	private final String[] normalizedNames;
+	private final Map<Long, int[]> trigramPostings = new HashMap<Long, int[]>();
+	private final long version;
+
+}
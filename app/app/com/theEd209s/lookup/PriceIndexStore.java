@@ -0,0 +1,456 @@
+package com.theEd209s.lookup;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import models.City;
+import models.NewHousingPriceIndex;
+import play.Logger;
+
+import com.avaje.ebean.Ebean;
+import com.avaje.ebean.SqlRow;
+import com.theEd209s.utils.IntObjectHashMap;
+
+/**
+ * This class is an immutable, in-memory store of the yearly average
+ * {@link NewHousingPriceIndex} values. <br />
+ * <br />
+ * The monthly price indexes are averaged once per year, both for each
+ * {@link City} and for each {@link City#cityParentId parent city}, so that the
+ * API can get the average for a year, or the ratio between the averages of
+ * any two years, with a couple of array lookups rather than re-averaging the
+ * monthly rows on every request. <br />
+ * <br />
+ * The current store is retrieved via {@link PriceIndexStore#getInstance()
+ * getInstance()} and is replaced atomically by
+ * {@link PriceIndexStore#rebuild() rebuild()}; the
+ * {@link com.theEd209s.dataLoading.dynamicLoaders.NewHousingPriceIndexLoader
+ * NewHousingPriceIndexLoader} rebuilds it once it has loaded new data.
+ * */
+public final class PriceIndexStore
+{
+
+	/* CONSTRUCTORS */
+	/**
+	 * This will create a new instance of a {@link PriceIndexStore} from the
+	 * specified rows, each of which holds the sum and count of the monthly
+	 * price indexes of a single {@link City} and year.
+	 *
+	 * @param rows
+	 * The rows to build the store from.
+	 * */
+	private PriceIndexStore(final List<SqlRow> rows)
+	{
+		int firstYear = Integer.MAX_VALUE;
+		int lastYear = Integer.MIN_VALUE;
+		for (SqlRow row : rows)
+		{
+			final int year = row.getInteger("ref_year").intValue();
+			firstYear = Math.min(firstYear, year);
+			lastYear = Math.max(lastYear, year);
+		}
+		final int yearCount = (rows.size() > 0) ? ((lastYear - firstYear) + 1) : 0;
+		final IntObjectHashMap<Accumulator> cityAccumulators = new IntObjectHashMap<Accumulator>();
+		final IntObjectHashMap<Accumulator> parentAccumulators = new IntObjectHashMap<Accumulator>();
+		for (SqlRow row : rows)
+		{
+			final int cityId = row.getInteger("city_id").intValue();
+			final int cityParentId = row.getInteger("city_parent_id").intValue();
+			final String cityName = row.getString("city_name");
+			final int yearIndex = row.getInteger("ref_year").intValue() - firstYear;
+			final double sum = row.getDouble("index_sum").doubleValue();
+			final int count = row.getInteger("index_count").intValue();
+			PriceIndexStore.getAccumulator(cityAccumulators, cityId, cityParentId, cityName, yearCount).add(yearIndex, sum, count);
+			if (cityParentId > 0)
+			{
+				PriceIndexStore.getAccumulator(parentAccumulators, cityParentId, cityParentId, cityName, yearCount).add(yearIndex, sum, count);
+			}
+		}
+		this.byCity = PriceIndexStore.toYearlyIndexes(cityAccumulators, firstYear);
+		this.byParentCity = PriceIndexStore.toYearlyIndexes(parentAccumulators, firstYear);
+		this.loadedTime = System.currentTimeMillis();
+	}
+
+	/* PUBLIC METHODS */
+	/**
+	 * This method will get the current {@link PriceIndexStore}. <br />
+	 * Until the first {@link PriceIndexStore#rebuild() rebuild()} this will
+	 * be an empty store.
+	 *
+	 * @return
+	 * The current {@link PriceIndexStore}; this will never be
+	 * <code>null</code>.
+	 * */
+	public static PriceIndexStore getInstance()
+	{
+		return PriceIndexStore.current;
+	}
+
+	/**
+	 * This method will aggregate the {@link NewHousingPriceIndex} table by
+	 * {@link City} and year, in a single query, into a new store and then
+	 * publish it, replacing the current one. <br />
+	 * <br />
+	 * If the rebuild fails, the current store is left in place.
+	 *
+	 * @return
+	 * The {@link PriceIndexStore} which is current once this method returns.
+	 * */
+	public static synchronized PriceIndexStore rebuild()
+	{
+		try
+		{
+			final List<SqlRow> rows = Ebean.createSqlQuery(PriceIndexStore.YEARLY_SUMS_SQL).findList();
+			final PriceIndexStore store = new PriceIndexStore((rows != null) ? rows : new ArrayList<SqlRow>());
+			PriceIndexStore.current = store;
+			Logger.info("Price index store built: " + store.byCity.size() + " cities, " + store.byParentCity.size() + " parent cities.");
+		}
+		catch (Exception e)
+		{
+			Logger.error("Failed to rebuild the price index store; keeping the previous store.", e);
+		}
+		return PriceIndexStore.current;
+	}
+
+	/**
+	 * This method will get the {@link YearlyIndexes} of the {@link City} with
+	 * the specified ID.
+	 *
+	 * @param cityId
+	 * The ID (SGC 5 code) of the {@link City}.
+	 *
+	 * @return
+	 * The {@link YearlyIndexes} or <code>null</code> if there are no price
+	 * indexes for the {@link City}.
+	 * */
+	public YearlyIndexes getByCity(final int cityId)
+	{
+		return this.byCity.get(cityId);
+	}
+
+	/**
+	 * This method will get the {@link YearlyIndexes} of all of the
+	 * {@link City}s with the specified parent ID.
+	 *
+	 * @param cityParentId
+	 * The parent ID (SGC 7 code) of the {@link City}s.
+	 *
+	 * @return
+	 * The {@link YearlyIndexes} or <code>null</code> if there are no price
+	 * indexes for the parent city.
+	 * */
+	public YearlyIndexes getByParentCity(final int cityParentId)
+	{
+		return this.byParentCity.get(cityParentId);
+	}
+
+	/**
+	 * This method will get the {@link YearlyIndexes} for the specified SGC
+	 * codes; the {@link City} is preferred over the parent city.
+	 *
+	 * @param scgCode5
+	 * The ID of the {@link City}; <code>0</code> or less if there is none.
+	 * @param scgCode7
+	 * The parent ID of the {@link City}; <code>0</code> or less if there is
+	 * none.
+	 *
+	 * @return
+	 * The {@link YearlyIndexes} or <code>null</code> if there are no price
+	 * indexes for either code.
+	 * */
+	public YearlyIndexes find(final int scgCode5, final int scgCode7)
+	{
+		YearlyIndexes yearlyIndexes = null;
+		if (scgCode5 > 0)
+		{
+			yearlyIndexes = this.getByCity(scgCode5);
+		}
+		if ((yearlyIndexes == null) && (scgCode7 > 0))
+		{
+			yearlyIndexes = this.getByParentCity(scgCode7);
+		}
+		return yearlyIndexes;
+	}
+
+	/**
+	 * This method will get the average price index of the {@link City} with
+	 * the specified ID for the specified year.
+	 *
+	 * @param cityId
+	 * The ID of the {@link City}.
+	 * @param year
+	 * The year to get the average for.
+	 *
+	 * @return
+	 * The average price index or <code>0</code> if there is none.
+	 * */
+	public double getYearlyAverage(final int cityId, final int year)
+	{
+		final YearlyIndexes yearlyIndexes = this.getByCity(cityId);
+		return (yearlyIndexes != null) ? yearlyIndexes.getAverage(year) : 0;
+	}
+
+	/**
+	 * This method will get the time at which this store was built.
+	 *
+	 * @return
+	 * The time, in milliseconds, at which this store was built.
+	 * */
+	public long getLoadedTime()
+	{
+		return this.loadedTime;
+	}
+
+	/* PRIVATE METHODS */
+	/**
+	 * This method will get the {@link Accumulator} for the specified key,
+	 * creating it if it does not yet exist.
+	 *
+	 * @param accumulators
+	 * The {@link Accumulator}s by key.
+	 * @param key
+	 * The key of the {@link Accumulator}.
+	 * @param cityParentId
+	 * The parent ID of the location.
+	 * @param cityName
+	 * The name of the location.
+	 * @param yearCount
+	 * The number of years covered by the store.
+	 *
+	 * @return
+	 * The {@link Accumulator} for the specified key.
+	 * */
+	private static Accumulator getAccumulator(final IntObjectHashMap<Accumulator> accumulators, final int key, final int cityParentId, final String cityName, final int yearCount)
+	{
+		Accumulator accumulator = accumulators.get(key);
+		if (accumulator == null)
+		{
+			accumulator = new Accumulator(cityParentId, cityName, yearCount);
+			accumulators.put(key, accumulator);
+		}
+		return accumulator;
+	}
+
+	/**
+	 * This method will convert each of the specified {@link Accumulator}s
+	 * into its {@link YearlyIndexes}.
+	 *
+	 * @param accumulators
+	 * The {@link Accumulator}s by key.
+	 * @param firstYear
+	 * The first year covered by the store.
+	 *
+	 * @return
+	 * The {@link YearlyIndexes} by key.
+	 * */
+	private static IntObjectHashMap<YearlyIndexes> toYearlyIndexes(final IntObjectHashMap<Accumulator> accumulators, final int firstYear)
+	{
+		final IntObjectHashMap<YearlyIndexes> yearlyIndexes = new IntObjectHashMap<YearlyIndexes>(accumulators.size());
+		for (int key : accumulators.keys())
+		{
+			final Accumulator accumulator = accumulators.get(key);
+			final float[] averages = new float[accumulator.sums.length];
+			int latestYear = -1;
+			for (int n = 0; n < averages.length; n++)
+			{
+				if (accumulator.counts[n] > 0)
+				{
+					averages[n] = (float) (accumulator.sums[n] / accumulator.counts[n]);
+					latestYear = firstYear + n;
+				}
+			}
+			yearlyIndexes.put(key, new YearlyIndexes(accumulator.cityParentId, accumulator.cityName, firstYear, latestYear, averages));
+		}
+		return yearlyIndexes;
+	}
+
+	/* PUBLIC CLASSES */
+	/**
+	 * This class holds the yearly average price indexes of a single location.
+	 * */
+	public static final class YearlyIndexes
+	{
+
+		/* CONSTRUCTORS */
+		/**
+		 * This will create a new instance of a {@link YearlyIndexes}.
+		 *
+		 * @param cityParentId
+		 * The parent ID (SGC 7 code) of the location.
+		 * @param cityName
+		 * The name of the location.
+		 * @param firstYear
+		 * The year of the first average.
+		 * @param latestYear
+		 * The latest year which has an average.
+		 * @param averages
+		 * The average of each year, starting at the first year; <code>0</code>
+		 * for years without any price indexes.
+		 * */
+		private YearlyIndexes(final int cityParentId, final String cityName, final int firstYear, final int latestYear, final float[] averages)
+		{
+			this.cityParentId = cityParentId;
+			this.cityName = cityName;
+			this.firstYear = firstYear;
+			this.latestYear = latestYear;
+			this.averages = averages;
+		}
+
+		/* PUBLIC METHODS */
+		/**
+		 * This method will get the average price index for the specified
+		 * year.
+		 *
+		 * @param year
+		 * The year to get the average for.
+		 *
+		 * @return
+		 * The average price index or <code>0</code> if there is none.
+		 * */
+		public double getAverage(final int year)
+		{
+			final int yearIndex = year - this.firstYear;
+			if ((yearIndex < 0) || (yearIndex >= this.averages.length))
+			{
+				return 0;
+			}
+			return this.averages[yearIndex];
+		}
+
+		/**
+		 * This method will get the ratio of the average price index of one
+		 * year to that of another; multiplying a price from the first year by
+		 * this ratio will give the equivalent price in the second year.
+		 *
+		 * @param fromYear
+		 * The year to convert from.
+		 * @param toYear
+		 * The year to convert to.
+		 *
+		 * @return
+		 * The ratio or <code>0</code> if either year has no average.
+		 * */
+		public double getRatio(final int fromYear, final int toYear)
+		{
+			final double fromAverage = this.getAverage(fromYear);
+			final double toAverage = this.getAverage(toYear);
+			if ((fromAverage <= 0) || (toAverage <= 0))
+			{
+				return 0;
+			}
+			return toAverage / fromAverage;
+		}
+
+		/**
+		 * This method will get the latest year which has an average price
+		 * index.
+		 *
+		 * @return
+		 * The latest year which has an average price index.
+		 * */
+		public int getLatestYear()
+		{
+			return this.latestYear;
+		}
+
+		/**
+		 * This method will get the parent ID (SGC 7 code) of the location.
+		 *
+		 * @return
+		 * The parent ID of the location.
+		 * */
+		public int getCityParentId()
+		{
+			return this.cityParentId;
+		}
+
+		/**
+		 * This method will get the name of the location; for a parent city
+		 * this is the name of one of its {@link City}s.
+		 *
+		 * @return
+		 * The name of the location.
+		 * */
+		public String getCityName()
+		{
+			return this.cityName;
+		}
+
+		/* PRIVATE VARIABLES */
+		private final int cityParentId;
+		private final String cityName;
+		private final int firstYear;
+		private final int latestYear;
+		private final float[] averages;
+
+	}
+
+	/* PRIVATE CLASSES */
+	/**
+	 * This class sums the monthly price indexes of a single location by year
+	 * while the store is being built.
+	 * */
+	private static final class Accumulator
+	{
+
+		/* CONSTRUCTORS */
+		/**
+		 * This will create a new instance of an {@link Accumulator}.
+		 *
+		 * @param cityParentId
+		 * The parent ID of the location.
+		 * @param cityName
+		 * The name of the location.
+		 * @param yearCount
+		 * The number of years covered by the store.
+		 * */
+		private Accumulator(final int cityParentId, final String cityName, final int yearCount)
+		{
+			this.cityParentId = cityParentId;
+			this.cityName = cityName;
+			this.sums = new double[yearCount];
+			this.counts = new int[yearCount];
+		}
+
+		/* PRIVATE METHODS */
+		/**
+		 * This method will add the specified sum and count to the specified
+		 * year.
+		 *
+		 * @param yearIndex
+		 * The offset of the year from the first year of the store.
+		 * @param sum
+		 * The sum of the price indexes.
+		 * @param count
+		 * The number of price indexes.
+		 * */
+		private void add(final int yearIndex, final double sum, final int count)
+		{
+			this.sums[yearIndex] += sum;
+			this.counts[yearIndex] += count;
+		}
+
+		/* PRIVATE VARIABLES */
+		private final int cityParentId;
+		private final String cityName;
+		private final double[] sums;
+		private final int[] counts;
+
+	}
+
+	/* PRIVATE CONSTANTS */
+	private static final String YEARLY_SUMS_SQL = "select c.city_id, c.city_parent_id, c.city_name, extract(year from hpi.ref_date) as ref_year, "
+			+ "sum(hpi.price_index) as index_sum, count(*) as index_count "
+			+ "from new_house_price_indexes hpi "
+			+ "join cities c on c.city_id = hpi.city_id "
+			+ "group by c.city_id, c.city_parent_id, c.city_name, extract(year from hpi.ref_date) "
+			+ "order by c.city_id";
+
+	/* PRIVATE VARIABLES */
+	private static volatile PriceIndexStore current = new PriceIndexStore(new ArrayList<SqlRow>());
+
+	private final IntObjectHashMap<YearlyIndexes> byCity;
+	private final IntObjectHashMap<YearlyIndexes> byParentCity;
+	private final long loadedTime;
+
+}
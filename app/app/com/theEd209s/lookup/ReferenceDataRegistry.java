@@ -0,0 +1,413 @@
+package com.theEd209s.lookup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import models.BuildingType;
+import models.CSDType;
+import models.City;
+import models.Province;
+import models.UnitType;
+import play.Logger;
+
+import com.theEd209s.utils.IntObjectHashMap;
+import com.theEd209s.utils.StringUtils;
+
+/**
+ * This class is an immutable, in-memory snapshot of the reference (dimension)
+ * tables: {@link Province}, {@link City}, {@link BuildingType},
+ * {@link UnitType} and {@link CSDType}. <br />
+ * <br />
+ * These tables only change when the static loaders run, so the API and the
+ * data loaders should look them up here rather than going to the database. <br />
+ * The current snapshot is retrieved via
+ * {@link ReferenceDataRegistry#getInstance() getInstance()} and is replaced
+ * atomically by {@link ReferenceDataRegistry#reload() reload()}; a snapshot is
+ * never modified once it has been published. <br />
+ * <br />
+ * The entities held by a snapshot must be treated as read-only. <br />
+ * Note that the {@link City#province} of a cached {@link City} is only a
+ * reference; use {@link ReferenceDataRegistry#getProvince(int)} with its ID
+ * rather than reading its other fields.
+ * */
+public final class ReferenceDataRegistry
+{
+
+	/* CONSTRUCTORS */
+	/**
+	 * This will create a new instance of a {@link ReferenceDataRegistry}
+	 * containing the specified entities.
+	 *
+	 * @param provinces
+	 * All {@link Province}s.
+	 * @param cities
+	 * All {@link City}s.
+	 * @param buildingTypes
+	 * All {@link BuildingType}s.
+	 * @param unitTypes
+	 * All {@link UnitType}s.
+	 * @param csdTypes
+	 * All {@link CSDType}s.
+	 * */
+	private ReferenceDataRegistry(final List<Province> provinces, final List<City> cities, final List<BuildingType> buildingTypes, final List<UnitType> unitTypes, final List<CSDType> csdTypes)
+	{
+		// The rows are summed so that the version does not depend on the order they were read in.
+		long version = 0L;
+		this.provincesById = new IntObjectHashMap<Province>(provinces.size());
+		for (Province province : provinces)
+		{
+			this.provincesById.put(province.provinceId, province);
+			this.provincesByAbbreviation.put(ReferenceDataRegistry.normalizeKey(province.abbreviation), province);
+			version += ReferenceDataRegistry.hashRow("province", province.provinceId, province.abbreviation);
+		}
+		this.citiesById = new IntObjectHashMap<City>(cities.size());
+		for (City city : cities)
+		{
+			this.citiesById.put(city.cityId, city);
+			version += ReferenceDataRegistry.hashRow("city", city.cityId, (city.province != null) ? Integer.valueOf(city.province.provinceId) : null, city.cityParentId, city.cityName);
+		}
+		this.cities = Collections.unmodifiableList(new ArrayList<City>(cities));
+		this.geoCodeIndex = new GeoCodeIndex(cities);
+		this.buildingTypesById = new IntObjectHashMap<BuildingType>(buildingTypes.size());
+		for (BuildingType buildingType : buildingTypes)
+		{
+			this.buildingTypesById.put(buildingType.buildingTypeId, buildingType);
+			this.buildingTypesByAbbreviation.put(ReferenceDataRegistry.normalizeKey(buildingType.abbreviation), buildingType);
+			version += ReferenceDataRegistry.hashRow("buildingType", buildingType.buildingTypeId, buildingType.abbreviation);
+		}
+		this.unitTypesById = new IntObjectHashMap<UnitType>(unitTypes.size());
+		for (UnitType unitType : unitTypes)
+		{
+			this.unitTypesById.put(unitType.unitTypeId, unitType);
+			this.unitTypesByAbbreviation.put(ReferenceDataRegistry.normalizeKey(unitType.abbreviation), unitType);
+			version += ReferenceDataRegistry.hashRow("unitType", unitType.unitTypeId, unitType.abbreviation);
+		}
+		this.csdTypesById = new IntObjectHashMap<CSDType>(csdTypes.size());
+		final List<String> csdAccronyms = new ArrayList<String>(csdTypes.size());
+		for (CSDType csdType : csdTypes)
+		{
+			this.csdTypesById.put(csdType.id, csdType);
+			this.csdTypesByAccronym.put(ReferenceDataRegistry.normalizeKey(csdType.accronym), csdType);
+			csdAccronyms.add(csdType.accronym);
+			version += ReferenceDataRegistry.hashRow("csdType", csdType.id, csdType.name, csdType.accronym);
+		}
+		this.csdAccronyms = Collections.unmodifiableList(csdAccronyms);
+		this.version = version;
+	}
+
+	/* PUBLIC METHODS */
+	/**
+	 * This method will get the current {@link ReferenceDataRegistry}
+	 * snapshot. <br />
+	 * Until the first {@link ReferenceDataRegistry#reload() reload()} this
+	 * will be an empty snapshot.
+	 *
+	 * @return
+	 * The current {@link ReferenceDataRegistry}; this will never be
+	 * <code>null</code>.
+	 * */
+	public static ReferenceDataRegistry getInstance()
+	{
+		return ReferenceDataRegistry.current;
+	}
+
+	/**
+	 * This method will load all of the reference tables from the database
+	 * into a new snapshot and then publish it, replacing the current one. <br />
+	 * <br />
+	 * Reloads are serialized so that a reload started after a loader has
+	 * committed always publishes after any reload which started before it. <br />
+	 * If the reload fails, the current snapshot is left in place.
+	 *
+	 * @return
+	 * The {@link ReferenceDataRegistry} which is current once this method
+	 * returns.
+	 * */
+	public static synchronized ReferenceDataRegistry reload()
+	{
+		try
+		{
+			final ReferenceDataRegistry registry = new ReferenceDataRegistry(Province.find.all(), City.loadAllCities(), BuildingType.loadAllBuildingTypes(), UnitType.loadAllUnitTypes(), CSDType.find.all());
+			ReferenceDataRegistry.current = registry;
+			Logger.info("Reference data loaded: " + registry.provincesById.size() + " provinces, " + registry.citiesById.size() + " cities, " + registry.buildingTypesById.size() + " building types, " + registry.unitTypesById.size() + " unit types, " + registry.csdTypesById.size() + " CSD types.");
+		}
+		catch (Exception e)
+		{
+			Logger.error("Failed to reload the reference data; keeping the previous snapshot.", e);
+		}
+		return ReferenceDataRegistry.current;
+	}
+
+	/**
+	 * This method will get the {@link Province} with the specified ID.
+	 *
+	 * @param provinceId
+	 * The ID of the {@link Province}.
+	 *
+	 * @return
+	 * The {@link Province} or <code>null</code> if there is none.
+	 * */
+	public Province getProvince(final int provinceId)
+	{
+		return this.provincesById.get(provinceId);
+	}
+
+	/**
+	 * This method will get the {@link Province} with the specified
+	 * abbreviation; ignoring case.
+	 *
+	 * @param abbreviation
+	 * The abbreviation of the {@link Province}.
+	 *
+	 * @return
+	 * The {@link Province} or <code>null</code> if there is none.
+	 * */
+	public Province getProvinceByAbbreviation(final String abbreviation)
+	{
+		return this.provincesByAbbreviation.get(ReferenceDataRegistry.normalizeKey(abbreviation));
+	}
+
+	/**
+	 * This method will get the {@link City} with the specified ID.
+	 *
+	 * @param cityId
+	 * The ID of the {@link City}.
+	 *
+	 * @return
+	 * The {@link City} or <code>null</code> if there is none.
+	 * */
+	public City getCity(final int cityId)
+	{
+		return this.citiesById.get(cityId);
+	}
+
+	/**
+	 * This method will get all of the {@link City}s; in the order they were
+	 * loaded from the database.
+	 *
+	 * @return
+	 * An unmodifiable {@link List} of all {@link City}s.
+	 * */
+	public List<City> getCities()
+	{
+		return this.cities;
+	}
+
+	/**
+	 * This method will get the {@link GeoCodeIndex} of all {@link City}s.
+	 *
+	 * @return
+	 * The {@link GeoCodeIndex} of all {@link City}s.
+	 * */
+	public GeoCodeIndex getGeoCodeIndex()
+	{
+		return this.geoCodeIndex;
+	}
+
+	/**
+	 * This method will get the {@link BuildingType} with the specified ID.
+	 *
+	 * @param buildingTypeId
+	 * The ID of the {@link BuildingType}.
+	 *
+	 * @return
+	 * The {@link BuildingType} or <code>null</code> if there is none.
+	 * */
+	public BuildingType getBuildingType(final int buildingTypeId)
+	{
+		return this.buildingTypesById.get(buildingTypeId);
+	}
+
+	/**
+	 * This method will get the {@link BuildingType} with the specified
+	 * abbreviation; ignoring case.
+	 *
+	 * @param abbreviation
+	 * The abbreviation of the {@link BuildingType}.
+	 *
+	 * @return
+	 * The {@link BuildingType} or <code>null</code> if there is none.
+	 * */
+	public BuildingType getBuildingTypeByAbbreviation(final String abbreviation)
+	{
+		return this.buildingTypesByAbbreviation.get(ReferenceDataRegistry.normalizeKey(abbreviation));
+	}
+
+	/**
+	 * This method will get the number of {@link BuildingType}s.
+	 *
+	 * @return
+	 * The number of {@link BuildingType}s.
+	 * */
+	public int getBuildingTypeCount()
+	{
+		return this.buildingTypesById.size();
+	}
+
+	/**
+	 * This method will get the {@link UnitType} with the specified ID.
+	 *
+	 * @param unitTypeId
+	 * The ID of the {@link UnitType}.
+	 *
+	 * @return
+	 * The {@link UnitType} or <code>null</code> if there is none.
+	 * */
+	public UnitType getUnitType(final int unitTypeId)
+	{
+		return this.unitTypesById.get(unitTypeId);
+	}
+
+	/**
+	 * This method will get the {@link UnitType} with the specified
+	 * abbreviation; ignoring case.
+	 *
+	 * @param abbreviation
+	 * The abbreviation of the {@link UnitType}.
+	 *
+	 * @return
+	 * The {@link UnitType} or <code>null</code> if there is none.
+	 * */
+	public UnitType getUnitTypeByAbbreviation(final String abbreviation)
+	{
+		return this.unitTypesByAbbreviation.get(ReferenceDataRegistry.normalizeKey(abbreviation));
+	}
+
+	/**
+	 * This method will get the number of {@link UnitType}s.
+	 *
+	 * @return
+	 * The number of {@link UnitType}s.
+	 * */
+	public int getUnitTypeCount()
+	{
+		return this.unitTypesById.size();
+	}
+
+	/**
+	 * This method will get the {@link CSDType} with the specified ID.
+	 *
+	 * @param csdTypeId
+	 * The ID of the {@link CSDType}.
+	 *
+	 * @return
+	 * The {@link CSDType} or <code>null</code> if there is none.
+	 * */
+	public CSDType getCSDType(final int csdTypeId)
+	{
+		return this.csdTypesById.get(csdTypeId);
+	}
+
+	/**
+	 * This method will get the {@link CSDType} with the specified accronym;
+	 * ignoring case.
+	 *
+	 * @param accronym
+	 * The accronym of the {@link CSDType}.
+	 *
+	 * @return
+	 * The {@link CSDType} or <code>null</code> if there is none.
+	 * */
+	public CSDType getCSDTypeByAccronym(final String accronym)
+	{
+		return this.csdTypesByAccronym.get(ReferenceDataRegistry.normalizeKey(accronym));
+	}
+
+	/**
+	 * This method will get the accronyms of all {@link CSDType}s.
+	 *
+	 * @return
+	 * An unmodifiable {@link List} of all {@link CSDType} accronyms.
+	 * */
+	public List<String> getCSDAccronyms()
+	{
+		return this.csdAccronyms;
+	}
+
+	/**
+	 * This method will get the version of the data in this snapshot. <br />
+	 * <br />
+	 * The version is computed from the rows themselves, so every node which
+	 * holds the same reference data has the same version, however many times
+	 * it has been reloaded; and the version changes if any row does.
+	 *
+	 * @return
+	 * The version of the data in this snapshot.
+	 * */
+	public long getVersion()
+	{
+		return this.version;
+	}
+
+	/* PRIVATE METHODS */
+	/**
+	 * This method will compute a 64-bit FNV-1a hash of the specified row;
+	 * it is shared with the {@link PlaceNameIndex}, which versions the CSD
+	 * indexes in the same way.
+	 *
+	 * @param table
+	 * The name of the table the row belongs to.
+	 * @param values
+	 * The values of the row.
+	 *
+	 * @return
+	 * The hash of the row.
+	 * */
+	static long hashRow(final String table, final Object... values)
+	{
+		final StringBuilder row = new StringBuilder(table);
+		for (Object value : values)
+		{
+			row.append('\u0000').append(value);
+		}
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < row.length(); i++)
+		{
+			hash ^= row.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * This method will normalize the specified abbreviation so that lookups
+	 * ignore case and surrounding whitespace.
+	 *
+	 * @param key
+	 * The abbreviation to normalize.
+	 *
+	 * @return
+	 * The normalized abbreviation; an empty {@link String} if the specified
+	 * abbreviation was <code>null</code> or empty.
+	 * */
+	private static String normalizeKey(final String key)
+	{
+		if (StringUtils.isNullOrEmpty(key))
+		{
+			return "";
+		}
+		return key.trim().toUpperCase(Locale.ENGLISH);
+	}
+
+	/* PRIVATE VARIABLES */
+	private static volatile ReferenceDataRegistry current = new ReferenceDataRegistry(new ArrayList<Province>(), new ArrayList<City>(), new ArrayList<BuildingType>(), new ArrayList<UnitType>(), new ArrayList<CSDType>());
+
+	private final IntObjectHashMap<Province> provincesById;
+	private final Map<String, Province> provincesByAbbreviation = new HashMap<String, Province>();
+	private final IntObjectHashMap<City> citiesById;
+	private final List<City> cities;
+	private final GeoCodeIndex geoCodeIndex;
+	private final IntObjectHashMap<BuildingType> buildingTypesById;
+	private final Map<String, BuildingType> buildingTypesByAbbreviation = new HashMap<String, BuildingType>();
+	private final IntObjectHashMap<UnitType> unitTypesById;
+	private final Map<String, UnitType> unitTypesByAbbreviation = new HashMap<String, UnitType>();
+	private final IntObjectHashMap<CSDType> csdTypesById;
+	private final Map<String, CSDType> csdTypesByAccronym = new HashMap<String, CSDType>();
+	private final List<String> csdAccronyms;
+	private final long version;
+
+}
@@ -0,0 +1,176 @@
+package controllers.api;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import play.mvc.Http;
+
+import com.theEd209s.lookup.DataRevisions;
+import com.theEd209s.utils.StringUtils;
+
+/**
+ * Handles the HTTP conditional request headers for the {@link QueryApi}
+ * endpoints. <br />
+ * <br />
+ * The <code>ETag</code> of a response is the {@link DataRevisions} tag of
+ * the data-sets its endpoint reads, and its <code>Last-Modified</code> is the
+ * time at which those data-sets were last loaded, or the data last changed.
+ * Both are read from the database, so they are the same on every node and
+ * after a restart, and are known before any query is run, so a client which
+ * already holds the current response can be answered with a 304 straight
+ * away.
+ */
+public final class ConditionalRequests
+{
+
+	private ConditionalRequests()
+	{
+
+	}
+
+	/**
+	 * Build the strong ETag of an endpoint's responses
+	 *
+	 * @param endpoint
+	 *            the name of the endpoint
+	 * @param tag
+	 *            the {@link DataRevisions} tag of the data-sets that the
+	 *            endpoint reads
+	 * @return the quoted ETag
+	 */
+	public static String etag(String endpoint, String tag)
+	{
+		return "\"" + endpoint + "-" + tag + "\"";
+	}
+
+	/**
+	 * Add the validators to the response, then check them against the
+	 * conditional headers of the request. <br />
+	 * If-None-Match takes precedence; If-Modified-Since is only checked when
+	 * there is no If-None-Match.
+	 *
+	 * @param request
+	 *            the request
+	 * @param response
+	 *            the response to add the validators to
+	 * @param etag
+	 *            the ETag, from {@link #etag(String, String)}
+	 * @param lastModified
+	 *            the time the data last changed, in milliseconds
+	 * @return true if the client already holds the current response, and it
+	 *         should be sent a 304
+	 */
+	public static boolean isNotModified(Http.Request request, Http.Response response, String etag, long lastModified)
+	{
+		response.setHeader(Http.HeaderNames.ETAG, etag);
+		response.setHeader(Http.HeaderNames.LAST_MODIFIED, formatHttpDate(lastModified));
+		// the client has to check back with us, as the data can change at any time
+		response.setHeader(Http.HeaderNames.CACHE_CONTROL, "public, no-cache");
+
+		return isNotModified(request.getHeader(Http.HeaderNames.IF_NONE_MATCH), request.getHeader(Http.HeaderNames.IF_MODIFIED_SINCE), etag, lastModified);
+	}
+
+	/**
+	 * Check the conditional headers of a request against the validators of
+	 * the current response. <br />
+	 * If-None-Match takes precedence; If-Modified-Since is only checked when
+	 * there is no If-None-Match.
+	 *
+	 * @param ifNoneMatch
+	 *            the If-None-Match header; may be null
+	 * @param ifModifiedSince
+	 *            the If-Modified-Since header; may be null
+	 * @param etag
+	 *            the ETag, from {@link #etag(String, String)}
+	 * @param lastModified
+	 *            the time the data last changed, in milliseconds
+	 * @return true if the client already holds the current response, and it
+	 *         should be sent a 304
+	 */
+	public static boolean isNotModified(String ifNoneMatch, String ifModifiedSince, String etag, long lastModified)
+	{
+		if (!StringUtils.isNullOrEmpty(ifNoneMatch))
+		{
+			return matchesAny(ifNoneMatch, etag);
+		}
+
+		if (!StringUtils.isNullOrEmpty(ifModifiedSince))
+		{
+			long since = parseHttpDate(ifModifiedSince);
+			// HTTP dates only have a resolution of seconds
+			return since >= 0 && (lastModified / 1000) <= (since / 1000);
+		}
+		return false;
+	}
+
+	/**
+	 * Check if an If-None-Match header matches the ETag; using the weak
+	 * comparison, as is required for If-None-Match
+	 *
+	 * @param ifNoneMatch
+	 *            the header value; a list of ETags or *
+	 * @param etag
+	 *            the ETag of the current response
+	 * @return true if any of the ETags match
+	 */
+	private static boolean matchesAny(String ifNoneMatch, String etag)
+	{
+		for (String candidate : ifNoneMatch.split(","))
+		{
+			candidate = candidate.trim();
+			if (candidate.startsWith("W/"))
+			{
+				candidate = candidate.substring(2);
+			}
+			if (candidate.equals("*") || candidate.equals(etag))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param time
+	 *            the time in milliseconds
+	 * @return the time formatted as an HTTP date
+	 */
+	public static String formatHttpDate(long time)
+	{
+		return newHttpDateFormat().format(new Date(time));
+	}
+
+	/**
+	 * @param value
+	 *            an HTTP date
+	 * @return the time in milliseconds, or -1 if the date is invalid
+	 */
+	public static long parseHttpDate(String value)
+	{
+		try
+		{
+			return newHttpDateFormat().parse(value.trim()).getTime();
+		}
+		catch (ParseException e)
+		{
+			return -1;
+		}
+	}
+
+	/**
+	 * @return a new format for HTTP dates; {@link SimpleDateFormat} is not
+	 *         thread safe, so it can not be shared
+	 */
+	private static SimpleDateFormat newHttpDateFormat()
+	{
+		SimpleDateFormat format = new SimpleDateFormat(HTTP_DATE_PATTERN, Locale.US);
+		format.setTimeZone(TimeZone.getTimeZone("GMT"));
+		return format;
+	}
+
+	private static final String HTTP_DATE_PATTERN = "EEE, dd MMM yyyy HH:mm:ss zzz";
+
+}
@@ -1,15 +1,17 @@
 package controllers.api;
 
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.List;
 import java.util.Map;
 
-import models.CSDIndex;
-import models.CityVacancy;
-import models.NewHousingPriceIndex;
-import models.Province;
+import javax.persistence.PersistenceException;
+
+import models.BuildingType;
+import models.City;
 import models.RentalRate;
+import models.RentalRate.InvestorSummary;
+import models.UnitType;
+import play.Logger;
 import play.libs.Json;
 import play.mvc.BodyParser;
 import play.mvc.Controller;
@@ -17,10 +19,19 @@ import play.mvc.Result;
 
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.theEd209s.dataLoading.dynamicLoaders.NewHousingPriceIndexLoader;
+import com.theEd209s.dataLoading.dynamicLoaders.RentalRatesLoader;
+import com.theEd209s.dataLoading.dynamicLoaders.VacancyRateLoader.VacancyData1;
+import com.theEd209s.dataLoading.dynamicLoaders.VacancyRateLoader.VacancyData2;
+import com.theEd209s.lookup.DataRevisions;
+import com.theEd209s.lookup.PlaceNameIndex;
+import com.theEd209s.lookup.PlaceNameIndex.Place;
+import com.theEd209s.lookup.PriceIndexStore;
+import com.theEd209s.lookup.PriceIndexStore.YearlyIndexes;
+import com.theEd209s.lookup.ReferenceDataRegistry;
 import com.theEd209s.utils.SortUtils;
 import com.theEd209s.utils.StringUtils;
 
-import controllers.api.form.PriceIndexForm;
 import controllers.api.form.RentalPricesForm;
 
 /**
@@ -55,26 +66,48 @@ public class QueryApi extends Controller
 	
 	private static final int MAX_ROWS = 25;
 	
+	private static final String JSON_CONTENT_TYPE = "application/json; charset=utf-8";
+	
+	/**
+	 * The CKAN resources that each endpoint reads, besides the static tables
+	 */
+	private static final String[] PLACES_RESOURCES = {};
+	private static final String[] INVESTOR_RESOURCES = { RentalRatesLoader.CKAN_RESOURCE_ID, VacancyData1.CKAN_RESOURCE_ID, VacancyData2.CKAN_RESOURCE_ID, NewHousingPriceIndexLoader.CKAN_RESOURCE_ID };
+	private static final String[] RENTER_RESOURCES = { RentalRatesLoader.CKAN_RESOURCE_ID };
+	private static final String[] BUYER_RESOURCES = { NewHousingPriceIndexLoader.CKAN_RESOURCE_ID };
+	
 	@BodyParser.Of(BodyParser.Json.class)
 	public static Result getLocationFromPlaceName(String name)
 	{
+		DataRevisions revisions = DataRevisions.getInstance();
+		String tag = revisions.getTag(PLACES_RESOURCES);
+		if (notModified("places", tag, revisions.getLastModified(PLACES_RESOURCES)))
+		{
+			return status(NOT_MODIFIED);
+		}
+		String cacheKey = ResponseCache.key("places", tag, PlaceNameIndex.normalize(name));
+		String cached = ResponseCache.get(cacheKey);
+		if (cached != null)
+		{
+			return ok(cached).as(JSON_CONTENT_TYPE);
+		}
+		
 		ObjectNode baseNode = null;
 		if (!StringUtils.isNullOrEmpty(name))
 		{
 			baseNode = buildSuccessResponseObject("Results for Place Name Search");
-			List<CSDIndex> results = CSDIndex.getPlacesByName(name, MAX_ROWS);
+			List<Place> results = PlaceNameIndex.getInstance().search(name, MAX_ROWS);
 			baseNode.put("count", results.size());
 			
 			List<ObjectNode> jsSequence = new ArrayList<ObjectNode>();
-			for (CSDIndex index : results)
+			for (Place place : results)
 			{
-				Province prov = Province.getProvinceById(index.provinceCode);
 				ObjectNode csdNode = Json.newObject();
-				csdNode.put("name", index.placeName);
-				csdNode.put("csdType", index.csdType);
-				csdNode.put("province", prov.abbreviation);
-				csdNode.put("scgCode5", CSDIndex.getSCGCode5(index));
-				csdNode.put("scgCode7", CSDIndex.getSCGCode7(index));
+				csdNode.put("name", place.name);
+				csdNode.put("csdType", place.csdType);
+				csdNode.put("province", place.provinceAbbreviation);
+				csdNode.put("scgCode5", place.scgCode5);
+				csdNode.put("scgCode7", place.scgCode7);
 				jsSequence.add(csdNode);
 				
 			}
@@ -86,59 +119,67 @@ public class QueryApi extends Controller
 			baseNode.put("count", 0);
 		}
 		
-		return ok(baseNode);
+		return ok(ResponseCache.set(cacheKey, Json.stringify(baseNode))).as(JSON_CONTENT_TYPE);
 	}
 	
 	@BodyParser.Of(BodyParser.Json.class)
 	public static Result getInvestorResult(final int scgcode)
 	{
-		// fetch the City's from the province
-				Province pr = Province.getProvinceById(scgcode);
-				
-				// fetch the vacancy, rental rates and house pricing index for each city
-				List<RentalRate> rentalRates = RentalRate.getRentalRateOnLocation(pr,MAX_ROWS);
-				
-				List<ObjectNode> jsSequence = new ArrayList<ObjectNode>();
-				ObjectNode baseNode = null;
-				
-				if (rentalRates != null && !rentalRates.isEmpty())
-				{
-					baseNode = buildSuccessResponseObject("Results for Invester Search");
-					baseNode.put("count", rentalRates.size());
-					
-					for (RentalRate rate : rentalRates) 
-					{
-						ObjectNode csdNode = Json.newObject();
-						csdNode.put("year",rate.referenceYear);
-						csdNode.put("rentalRate",rate.rentalRate);				
-						
-						CityVacancy vacancy = CityVacancy.getVacancyRateOnLocationAndYear(rate.city,rate.referenceYear);
-						float vacancyRate =  vacancy != null ? vacancy.vacancyRate : 0;
-						csdNode.put("vacancyRate",vacancyRate);				
-						
-						csdNode.put("city", rate.city.cityName);
-						csdNode.put("province",rate.province.abbreviation);
-						
-						List<NewHousingPriceIndex> houseIndexes = NewHousingPriceIndex.
-																  gethousePriceIndexOnyear(rate.referenceYear,
-																  rate.city.cityId);
-						
-						csdNode.put("avgPriceIndex2007",  NewHousingPriceIndex.calculateYearlyAvgIndex(houseIndexes));
-						
-						csdNode.put("unitType", rate.unitType.abbreviation);
-						csdNode.put("buildingType", rate.buildingType.abbreviation);
-						
-						jsSequence.add(csdNode);				
-					}
-					
-					baseNode.put("rows", Json.toJson(jsSequence));
-				}
-				else
-				{
-					baseNode = buildFailedResponseObject("No invester information is available");
-				}	
-						
-				return ok(baseNode);
+		DataRevisions revisions = DataRevisions.getInstance();
+		String tag = revisions.getTag(INVESTOR_RESOURCES);
+		if (notModified("investor", tag, revisions.getLastModified(INVESTOR_RESOURCES)))
+		{
+			return status(NOT_MODIFIED);
+		}
+		String cacheKey = ResponseCache.key("investor", tag, scgcode);
+		String cached = ResponseCache.get(cacheKey);
+		if (cached != null)
+		{
+			return ok(cached).as(JSON_CONTENT_TYPE);
+		}
+		
+		// fetch the rental rates along with the vacancy and house pricing index for each city in one query
+		List<InvestorSummary> summaries;
+		try
+		{
+			summaries = RentalRate.getInvestorSummariesOnLocation(scgcode, MAX_ROWS);
+		}
+		catch (PersistenceException e)
+		{
+			Logger.error("Failed to get the investor summaries for: " + scgcode, e);
+			return serverError("The invester information could not be read");
+		}
+		
+		List<ObjectNode> jsSequence = new ArrayList<ObjectNode>();
+		ObjectNode baseNode = null;
+		
+		if (summaries != null && !summaries.isEmpty())
+		{
+			baseNode = buildSuccessResponseObject("Results for Invester Search");
+			baseNode.put("count", summaries.size());
+			
+			for (InvestorSummary summary : summaries)
+			{
+				ObjectNode csdNode = Json.newObject();
+				csdNode.put("year", summary.referenceYear);
+				csdNode.put("rentalRate", summary.rentalRate);
+				csdNode.put("vacancyRate", summary.vacancyRate);
+				csdNode.put("city", summary.cityName);
+				csdNode.put("province", summary.provinceAbbreviation);
+				csdNode.put("avgPriceIndex2007", summary.avgPriceIndex);
+				csdNode.put("unitType", summary.unitTypeAbbreviation);
+				csdNode.put("buildingType", summary.buildingTypeAbbreviation);
+				jsSequence.add(csdNode);
+			}
+			
+			baseNode.put("rows", Json.toJson(jsSequence));
+		}
+		else
+		{
+			baseNode = buildFailedResponseObject("No invester information is available");
+		}
+		
+		return ok(ResponseCache.set(cacheKey, Json.stringify(baseNode))).as(JSON_CONTENT_TYPE);
 	}
 	
 	@BodyParser.Of(BodyParser.Json.class)
@@ -148,6 +189,18 @@ public class QueryApi extends Controller
 		{
 			return badRequest(Json.stringify(buildFailedResponseObject("You must specify a valid scgCode5 and/or scgCode7.")));
 		}
+		final DataRevisions revisions = DataRevisions.getInstance();
+		final String tag = revisions.getTag(RENTER_RESOURCES);
+		if (notModified("renter", tag, revisions.getLastModified(RENTER_RESOURCES)))
+		{
+			return status(NOT_MODIFIED);
+		}
+		final String cacheKey = ResponseCache.key("renter", tag, scgCode5, scgCode7);
+		final String cached = ResponseCache.get(cacheKey);
+		if (cached != null)
+		{
+			return ok(cached);
+		}
 		final ObjectNode baseNode = buildSuccessResponseObject("Rental Rates for SCG: " + scgCode5 + " & " + scgCode7);
 		final RentalPricesForm form = RentalPricesForm.bind(request().queryString());
 		form.setScgCode5(scgCode5);
@@ -161,6 +214,7 @@ public class QueryApi extends Controller
 			ObjectNode tmpYearNode = null;
 			ArrayNode tmpYearListNode = null;
 			ObjectNode tmpRentalRateNode = null;
+			final ReferenceDataRegistry registry = ReferenceDataRegistry.getInstance();
 			
 			for (Integer year : SortUtils.sortDesc(groupedRentalRates.keySet()))
 			{
@@ -171,8 +225,8 @@ public class QueryApi extends Controller
 				for (RentalRate rentalRate : groupedRentalRates.get(year))
 				{
 					tmpRentalRateNode = Json.newObject();
-					tmpRentalRateNode.put("buildingType", rentalRate.buildingType.abbreviation);
-					tmpRentalRateNode.put("unitType", rentalRate.unitType.abbreviation);
+					tmpRentalRateNode.put("buildingType", getAbbreviation(registry, rentalRate.buildingType));
+					tmpRentalRateNode.put("unitType", getAbbreviation(registry, rentalRate.unitType));
 					tmpRentalRateNode.put("rentalRate", rentalRate.rentalRate);
 					tmpYearListNode.add(Json.toJson(tmpRentalRateNode));
 				}
@@ -188,7 +242,7 @@ public class QueryApi extends Controller
 		{
 			baseNode.put("resultSize", 0);
 		}
-		return ok(Json.stringify(baseNode));
+		return ok(ResponseCache.set(cacheKey, Json.stringify(baseNode)));
 	}
 	
 	/**
@@ -216,45 +270,100 @@ public class QueryApi extends Controller
 			return badRequest(Json.stringify(buildFailedResponseObject("You cannot have a yearOfPurchase < 0")));
 		}
 		
-		//Get the index for the year of purchase
-		PriceIndexForm form = new PriceIndexForm();
-		form.setPrice(price);
-		form.setScgCode5(scgCode5);
-		form.setYearOfPurchase(yearOfPurchase);
-		
-		List<NewHousingPriceIndex> indexes = NewHousingPriceIndex.getIndexForRequest(form);
-		double avgYearlyindexForPurchaseYear = NewHousingPriceIndex.calculateYearlyAvgIndex(indexes);
+		DataRevisions revisions = DataRevisions.getInstance();
+		String tag = revisions.getTag(BUYER_RESOURCES);
+		if (notModified("buyer", tag, revisions.getLastModified(BUYER_RESOURCES)))
+		{
+			return status(NOT_MODIFIED);
+		}
+		String cacheKey = ResponseCache.key("buyer", tag, price, scgCode5, scgCode7, yearOfPurchase);
+		String cached = ResponseCache.get(cacheKey);
+		if (cached != null)
+		{
+			return ok(cached);
+		}
 		
-		// get the index for the current year
-		PriceIndexForm formCurrentYear = new PriceIndexForm();
-		formCurrentYear.setYearOfPurchase(Calendar.getInstance().get(Calendar.YEAR));
-		formCurrentYear.setScgCode5(form.getScgCode5());
-		List<NewHousingPriceIndex> indexesCurrentYear = NewHousingPriceIndex.getIndexForRequest(form);
-		double avgIndexCurrentYear = NewHousingPriceIndex.calculateYearlyAvgIndex(indexesCurrentYear);
+		// The yearly averages are precomputed when the price indexes are loaded
+		YearlyIndexes indexes = PriceIndexStore.getInstance().find(scgCode5, scgCode7);
 		
 		ObjectNode node = null;
 		
-		if (avgYearlyindexForPurchaseYear > 0 && avgIndexCurrentYear > 0)
+		// convert from the year of purchase to the latest year that has an index
+		double ratio = (indexes != null) ? indexes.getRatio(yearOfPurchase, indexes.getLatestYear()) : 0;
+		if (ratio > 0)
 		{
 			node = buildSuccessResponseObject("Average Yearly Index");
-			node.put("locationSGC", indexes.get(0).city.cityParentId);
-			node.put("locationName", indexes.get(0).city.cityName);
-			double currentHouseValue = form.getPrice();
-			currentHouseValue *= avgYearlyindexForPurchaseYear;
-			currentHouseValue *= avgIndexCurrentYear;
+			node.put("locationSGC", indexes.getCityParentId());
+			node.put("locationName", indexes.getCityName());
+			double currentHouseValue = price * ratio;
 			node.put("adjustedPrice", currentHouseValue);
-			node.put("avgYearlyIndex", (currentHouseValue / form.getPrice()) * 100);
+			node.put("avgYearlyIndex", ratio * 100);
 		}
 		else
 		{
 			node = buildFailedResponseObject("No Index information is available for your location");
-			node.put("locationSGC", indexes.get(0).city.cityParentId);
-			node.put("locationName", indexes.get(0).city.cityName);
+			City city = ReferenceDataRegistry.getInstance().getCity(scgCode5);
+			node.put("locationSGC", (indexes != null) ? indexes.getCityParentId() : ((city != null) ? city.cityParentId : scgCode7));
+			node.put("locationName", (indexes != null) ? indexes.getCityName() : ((city != null) ? city.cityName : ""));
 			node.put("adjustedPrice", -1);
 			node.put("avgYearlyIndex", -1);
 		}
 		
-		return ok(Json.stringify(node));
+		return ok(ResponseCache.set(cacheKey, Json.stringify(node)));
+	}
+	
+	/**
+	 * Add the ETag and Last-Modified headers to the response, and check if the
+	 * client already holds the current response
+	 * @param endpoint the name of the endpoint
+	 * @param tag the revision tag of the data-sets the endpoint reads
+	 * @param lastModified the time the data last changed
+	 * @return true if a 304 should be sent, without running any query
+	 */
+	private static boolean notModified(String endpoint, String tag, long lastModified)
+	{
+		return ConditionalRequests.isNotModified(request(), response(), ConditionalRequests.etag(endpoint, tag), lastModified);
+	}
+	
+	/**
+	 * Build an error response which is never cached; neither by the
+	 * {@link ResponseCache} nor by the client, as the validators which were
+	 * added by {@link #notModified(String, String, long)} are removed
+	 * @param message some message for the failure
+	 * @return a 500 with a failed object node
+	 */
+	private static Result serverError(String message)
+	{
+		response().getHeaders().remove(ETAG);
+		response().getHeaders().remove(LAST_MODIFIED);
+		response().setHeader(CACHE_CONTROL, "no-store");
+		return internalServerError(Json.stringify(buildFailedResponseObject(message))).as(JSON_CONTENT_TYPE);
+	}
+	
+	/**
+	 * Get the abbreviation of a building type from the reference data, so the
+	 * building type does not need to be lazy loaded
+	 * @param registry the reference data to look in
+	 * @param buildingType the (possibly unloaded) building type
+	 * @return the abbreviation of the building type
+	 */
+	private static String getAbbreviation(ReferenceDataRegistry registry, BuildingType buildingType)
+	{
+		BuildingType cached = registry.getBuildingType(buildingType.buildingTypeId);
+		return cached != null ? cached.abbreviation : buildingType.abbreviation;
+	}
+	
+	/**
+	 * Get the abbreviation of a unit type from the reference data, so the unit
+	 * type does not need to be lazy loaded
+	 * @param registry the reference data to look in
+	 * @param unitType the (possibly unloaded) unit type
+	 * @return the abbreviation of the unit type
+	 */
+	private static String getAbbreviation(ReferenceDataRegistry registry, UnitType unitType)
+	{
+		UnitType cached = registry.getUnitType(unitType.unitTypeId);
+		return cached != null ? cached.abbreviation : unitType.abbreviation;
 	}
 	
 	/**
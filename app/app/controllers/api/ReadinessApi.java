@@ -0,0 +1,69 @@
+package controllers.api;
+
+import play.libs.Json;
+import play.mvc.Controller;
+import play.mvc.Result;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.theEd209s.dataLoading.IngestionService;
+import com.theEd209s.dataLoading.dynamicLoaders.MortgageRateLoader;
+import com.theEd209s.dataLoading.dynamicLoaders.NewHousingPriceIndexLoader;
+import com.theEd209s.dataLoading.dynamicLoaders.RentalRatesLoader;
+import com.theEd209s.dataLoading.dynamicLoaders.VacancyRateLoader.VacancyData1;
+import com.theEd209s.dataLoading.dynamicLoaders.VacancyRateLoader.VacancyData2;
+import com.theEd209s.lookup.DataRevisions;
+
+/**
+ * API for load balancers to check if this node has loaded all of its data.
+ * <br />
+ * <br />
+ * While the data is being loaded in the background the node keeps serving,
+ * but the tables being reloaded may be empty or partially loaded, so it
+ * reports itself as not ready, with a 503, so that it can be taken out of
+ * rotation until the load completes. The same goes for a load which failed
+ * after truncating tables it did not reload. <br />
+ * A load which failed without removing any data leaves the previously loaded
+ * data in place; the node stays ready and the failure is only reported as a
+ * stale state, along with how fresh the data is.
+ */
+public class ReadinessApi extends Controller
+{
+
+	/**
+	 * The CKAN resources of every dynamic data-set
+	 */
+	private static final String[] ALL_RESOURCES = { MortgageRateLoader.CKAN_RESOURCE_ID, RentalRatesLoader.CKAN_RESOURCE_ID, NewHousingPriceIndexLoader.CKAN_RESOURCE_ID, VacancyData1.CKAN_RESOURCE_ID, VacancyData2.CKAN_RESOURCE_ID };
+
+	/**
+	 * Report if the data has been loaded, along with how fresh it is
+	 *
+	 * @return 200 if complete data is being served, otherwise 503
+	 */
+	public static Result getReadiness()
+	{
+		DataRevisions revisions = DataRevisions.getInstance();
+		boolean ready = IngestionService.isReady();
+
+		ObjectNode node = Json.newObject();
+		node.put("result", ready ? QueryApi.ResponseStates.SUCCESS.getStatusCode() : QueryApi.ResponseStates.FAILURE.getStatusCode());
+		node.put("ready", ready);
+		node.put("state", IngestionService.getState().getLabel());
+		node.put("ingestionStarted", IngestionService.getStartedTime());
+		node.put("ingestionCompleted", IngestionService.getCompletedTime());
+		node.put("staticDataVersion", Long.toString(revisions.getStaticDataVersion(), Character.MAX_RADIX));
+		node.put("placesVersion", Long.toString(revisions.getPlacesVersion(), Character.MAX_RADIX));
+		node.put("dataVersion", revisions.getDataVersion());
+		node.put("dataLastModified", revisions.getLastModified(ALL_RESOURCES));
+		ObjectNode resources = Json.newObject();
+		for (String resourceId : ALL_RESOURCES)
+		{
+			resources.put(resourceId, revisions.getRevisionTime(resourceId));
+		}
+		node.put("revisions", resources);
+
+		// the readiness changes at any time, so it must never be cached
+		response().setHeader(CACHE_CONTROL, "no-store");
+		return status(ready ? OK : SERVICE_UNAVAILABLE, node);
+	}
+
+}
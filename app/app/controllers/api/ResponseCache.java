@@ -0,0 +1,93 @@
+package controllers.api;
+
+import play.Play;
+import play.cache.Cache;
+
+import com.theEd209s.lookup.DataRevisions;
+
+/**
+ * A cache of the response bodies of the {@link QueryApi} endpoints, held in
+ * Play's cache. <br />
+ * <br />
+ * Every key is made of the endpoint, the {@link DataRevisions} tag of the
+ * data-sets the endpoint reads and the normalized request parameters. When a
+ * data-set is reloaded its tag changes, so the responses built from the old
+ * data are never served again and simply age out of the cache; the size of
+ * the cache, and its LRU eviction, is configured in <code>conf/ehcache.xml</code>.
+ */
+public final class ResponseCache
+{
+
+	private ResponseCache()
+	{
+
+	}
+
+	/**
+	 * Build the cache key for a request
+	 *
+	 * @param endpoint
+	 *            the name of the endpoint
+	 * @param tag
+	 *            the {@link DataRevisions} tag of the data-sets that the
+	 *            endpoint reads
+	 * @param parameters
+	 *            the normalized request parameters, always in the same order
+	 * @return the cache key
+	 */
+	public static String key(String endpoint, String tag, Object... parameters)
+	{
+		StringBuilder key = new StringBuilder(KEY_PREFIX).append(endpoint).append('@').append(tag);
+		for (Object parameter : parameters)
+		{
+			key.append('|').append(parameter);
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Get a cached response body
+	 *
+	 * @param key
+	 *            the cache key, from {@link #key(String, String, Object...)}
+	 * @return the response body or null if it is not cached
+	 */
+	public static String get(String key)
+	{
+		if (!isEnabled())
+		{
+			return null;
+		}
+		Object body = Cache.get(key);
+		return (body instanceof String) ? (String) body : null;
+	}
+
+	/**
+	 * Cache a response body
+	 *
+	 * @param key
+	 *            the cache key, from {@link #key(String, String, Object...)}
+	 * @param body
+	 *            the response body
+	 * @return the response body, so that it can be returned straight away
+	 */
+	public static String set(String key, String body)
+	{
+		if (isEnabled() && body != null)
+		{
+			Cache.set(key, body, Play.application().configuration().getInt("api.cache.expiration", 0));
+		}
+		return body;
+	}
+
+	/**
+	 * @return true if the responses should be cached
+	 */
+	private static boolean isEnabled()
+	{
+		return Play.application().configuration().getBoolean("api.cache.enabled", true);
+	}
+
+	private static final String KEY_PREFIX = "api.";
+
+}
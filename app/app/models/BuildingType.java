@@ -11,6 +11,7 @@ import javax.persistence.Table;
 
 import play.db.ebean.Model;
 
+import com.theEd209s.lookup.ReferenceDataRegistry;
 import com.theEd209s.utils.StringUtils;
 
 /**
@@ -115,12 +116,19 @@ public class BuildingType extends Model
 	}
 	
 	/**
-	 * Get the building type entry based on the abbreviation
+	 * Get the building type entry based on the abbreviation. <br />
+	 * The {@link ReferenceDataRegistry} is checked first; the database is
+	 * only queried if the building type is not found there.
 	 * @param abbr
 	 * @return
 	 */
 	public static BuildingType getByAbbreviation(String abbr)
 	{
+		final BuildingType buildingType = ReferenceDataRegistry.getInstance().getBuildingTypeByAbbreviation(abbr);
+		if (buildingType != null)
+		{
+			return buildingType;
+		}
 		return find.where().eq("abbreviation", abbr).findUnique();
 	}
 	
@@ -12,6 +12,8 @@ import javax.persistence.Table;
 
 import play.db.ebean.Model;
 
+import com.theEd209s.lookup.ReferenceDataRegistry;
+
 @Entity
 @Table(name = "csd_types")
 public class CSDType extends Model
@@ -34,21 +36,34 @@ public class CSDType extends Model
 			Integer.class, CSDType.class);
 	
 	/**
-	 * 
+	 * Get the CSD type by accronym. <br />
+	 * The {@link ReferenceDataRegistry} is checked first; the database is
+	 * only queried if the CSD type is not found there.
 	 * @param accronym
 	 * @return
 	 */
 	public static CSDType getCSDByAccronym(String accronym)
 	{
+		final CSDType csdType = ReferenceDataRegistry.getInstance().getCSDTypeByAccronym(accronym);
+		if (csdType != null)
+		{
+			return csdType;
+		}
 		return CSDType.find.where().eq("accronym", accronym).findUnique();
 	}
 	
 	/**
-	 * 
+	 * Get all of the CSD type accronyms; from the
+	 * {@link ReferenceDataRegistry} when it has been loaded.
 	 * @return
 	 */
 	public static List<String> getAllCSDAccronyms()
 	{
+		final List<String> cachedAcronyms = ReferenceDataRegistry.getInstance().getCSDAccronyms();
+		if (cachedAcronyms.size() > 0)
+		{
+			return new ArrayList<String>(cachedAcronyms);
+		}
 		List<String> acrnyms = new ArrayList<String>();
 		List<CSDType> csdAcros = find.select("accronym").findList();
 		for(CSDType acro: csdAcros)
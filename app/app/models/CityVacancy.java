@@ -46,6 +46,13 @@ public class CityVacancy extends Model
 	@JoinColumn(name = "province_id")
 	public Province province;
 	
+	/**
+	 * The CKAN resource which the vacancy was loaded from; both vacancy
+	 * data-sets are loaded into this table
+	 */
+	@Column(name = "resource_id", length = 36)
+	public String resourceId;
+	
 	/**
 	 * The year that the vacancy references
 	 */
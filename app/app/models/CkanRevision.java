@@ -30,6 +30,13 @@ public class CkanRevision extends Model
 	@Column(name = "last_revision_time", nullable = false)
 	public long lastRevisionTime;
 	
+	/**
+	 * The time, in milliseconds, at which the revision was loaded; always a
+	 * whole second, see {@link DataVersion#toModifiedTime(long)}.
+	 */
+	@Column(name = "loaded_time", nullable = false)
+	public long loadedTime;
+	
 	public static Finder<Integer, CkanRevision> find = new Finder<Integer, CkanRevision>(
 			Integer.class, CkanRevision.class);
 	
@@ -0,0 +1,124 @@
+package models;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import play.db.ebean.Model;
+
+import com.avaje.ebean.Ebean;
+import com.avaje.ebean.SqlUpdate;
+
+/**
+ * This is the model for representing the data_versions; a single row which
+ * counts the changes to the loaded data that the CKAN revisions do not
+ * record, such as the truncate of a table or the reload of a static table.
+ * <br />
+ * <br />
+ * It is persisted, rather than counted by each node, so that every node
+ * serving the same database tags its responses with the same version, and the
+ * version survives a restart.
+ */
+@Entity
+@Table(name = "data_versions")
+public class DataVersion extends Model
+{
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The primary identifier for the entry; there is only ever the one.
+	 */
+	@Id
+	@Column(name = "data_version_id", nullable = false)
+	public int dataVersionId;
+
+	/**
+	 * The number of changes to the loaded data
+	 */
+	@Column(name = "version", nullable = false)
+	public long version;
+
+	/**
+	 * The time, in milliseconds, of the last change to the loaded data;
+	 * always a whole second
+	 */
+	@Column(name = "modified_time", nullable = false)
+	public long modifiedTime;
+
+	public static Finder<Integer, DataVersion> find = new Finder<Integer, DataVersion>(
+			Integer.class, DataVersion.class);
+
+	/**
+	 * This method will return the current {@link DataVersion}, from the
+	 * database.
+	 *
+	 * @return
+	 * The current {@link DataVersion} or <code>null</code> if the loaded data
+	 * has never changed.
+	 * */
+	public static DataVersion getCurrent()
+	{
+		return DataVersion.find.byId(Integer.valueOf(DataVersion.ID));
+	}
+
+	/**
+	 * This method will advance the version, and the modified time, of the
+	 * loaded data; it must be called whenever the data is changed without a
+	 * new CKAN revision being saved. <br />
+	 * <br />
+	 * The modified time is always at least a second later than the previous
+	 * one, as HTTP dates only have a resolution of seconds; see
+	 * {@link DataVersion#toModifiedTime(long) toModifiedTime(long)}.
+	 * */
+	public static void advance()
+	{
+		final long modifiedTime = DataVersion.toModifiedTime(System.currentTimeMillis());
+		// Updated in place, so that nodes which advance it at the same time never lose a change.
+		final SqlUpdate update = Ebean.createSqlUpdate("update data_versions set version = version + 1, modified_time = case when modified_time < :modifiedTime then :modifiedTime else modified_time + 1000 end where data_version_id = :id");
+		update.setParameter("modifiedTime", Long.valueOf(modifiedTime));
+		update.setParameter("id", Integer.valueOf(DataVersion.ID));
+		if (update.execute() == 0)
+		{
+			try
+			{
+				final DataVersion dataVersion = new DataVersion();
+				dataVersion.dataVersionId = DataVersion.ID;
+				dataVersion.version = 1L;
+				dataVersion.modifiedTime = modifiedTime;
+				dataVersion.save();
+			}
+			catch (RuntimeException e)
+			{
+				// Another node inserted it first.
+				if (update.execute() == 0)
+				{
+					throw e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * This method will round the specified time up to the next whole second;
+	 * so that a client which was sent a response earlier in that second never
+	 * sees the data which changed after it as not modified.
+	 *
+	 * @param time
+	 * The time, in milliseconds, at which the data changed.
+	 *
+	 * @return
+	 * The <code>Last-Modified</code> time of the data, in milliseconds.
+	 * */
+	public static long toModifiedTime(final long time)
+	{
+		return ((time / 1000L) + 1L) * 1000L;
+	}
+
+	/**
+	 * The ID of the single row.
+	 */
+	private static final int ID = 1;
+
+}
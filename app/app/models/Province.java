@@ -7,6 +7,8 @@ import javax.persistence.Column;
 
 import play.db.ebean.Model;
 
+import com.theEd209s.lookup.ReferenceDataRegistry;
+
 /**
  * This is the model for representing a province
  * 
@@ -31,12 +33,19 @@ public class Province extends Model
 			Integer.class, Province.class);
 	
 	/**
-	 * Gets the province item matching the id
+	 * Gets the province item matching the id. <br />
+	 * The {@link ReferenceDataRegistry} is checked first; the database is
+	 * only queried if the province is not found there.
 	 * @param provinceid id to match
 	 * @return
 	 */
 	public static Province getProvinceById(int provinceid)
 	{
+		final Province province = ReferenceDataRegistry.getInstance().getProvince(provinceid);
+		if (province != null)
+		{
+			return province;
+		}
 		return Province.find.where().eq("provinceId", provinceid).findUnique();
 	}
 	
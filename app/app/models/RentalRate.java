@@ -13,6 +13,7 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.PersistenceException;
 import javax.persistence.Table;
 
 import play.Logger;
@@ -21,6 +22,8 @@ import play.db.ebean.Model;
 import com.avaje.ebean.Ebean;
 import com.avaje.ebean.FetchConfig;
 import com.avaje.ebean.Query;
+import com.avaje.ebean.SqlRow;
+import com.theEd209s.lookup.PriceIndexStore;
 
 import controllers.api.form.RentalPricesForm;
 
@@ -150,4 +153,126 @@ public class RentalRate extends Model
 		 return filteredList;
 	}
 	
+	/**
+	 * This will return the {@link InvestorSummary} rows for the specified
+	 * province. <br />
+	 * <br />
+	 * The rental rates and their matching vacancy rates are fetched in a
+	 * single set-based query, rather than looking up the vacancy rate for each
+	 * rental rate individually; the yearly average new house price indexes
+	 * are read from the {@link PriceIndexStore}.
+	 * 
+	 * @param provinceId
+	 * The ID of the {@link Province} to get the rows for.
+	 * @param maxRows
+	 * The maximum number of rows to return.
+	 * 
+	 * @return
+	 * The {@link List} of {@link InvestorSummary} rows for the specified
+	 * province; this will never be <code>null</code>.
+	 * 
+	 * @throws PersistenceException
+	 * If the rows could not be read; the failure is not reported as there
+	 * being no rows, so that it is never served, or cached, as a valid
+	 * response.
+	 * */
+	public static List<InvestorSummary> getInvestorSummariesOnLocation(final int provinceId, final int maxRows)
+	{
+		final List<InvestorSummary> summaries = new ArrayList<InvestorSummary>();
+		final List<SqlRow> rows = Ebean.createSqlQuery(RentalRate.INVESTOR_SUMMARY_SQL).setParameter("provinceId", provinceId).setMaxRows(maxRows).findList();
+		if ((rows != null) && (rows.size() > 0))
+		{
+			final PriceIndexStore priceIndexStore = PriceIndexStore.getInstance();
+			for (SqlRow row : rows)
+			{
+				final InvestorSummary summary = new InvestorSummary();
+				summary.referenceYear = row.getInteger("ref_year").intValue();
+				summary.rentalRate = row.getFloat("rental_rate").floatValue();
+				summary.vacancyRate = row.getFloat("vacancy_rate").floatValue();
+				summary.cityId = row.getInteger("city_id").intValue();
+				summary.avgPriceIndex = priceIndexStore.getYearlyAverage(summary.cityId, summary.referenceYear);
+				summary.cityName = row.getString("city_name");
+				summary.provinceAbbreviation = row.getString("province_abbreviation");
+				summary.unitTypeAbbreviation = row.getString("unit_type_abbreviation");
+				summary.buildingTypeAbbreviation = row.getString("building_type_abbreviation");
+				summaries.add(summary);
+			}
+		}
+		return summaries;
+	}
+	
+	/* PUBLIC CLASSES */
+	/**
+	 * This class holds a single {@link RentalRate} along with the vacancy rate
+	 * and the average new house price index for the same city and year.
+	 * */
+	public static class InvestorSummary
+	{
+		
+		/**
+		 * The year that the rental rate references
+		 */
+		public int referenceYear;
+		
+		/**
+		 * The actual amount paid for the rental
+		 */
+		public float rentalRate;
+		
+		/**
+		 * The vacancy rate for the city and year; 0 if none is available
+		 */
+		public float vacancyRate;
+		
+		/**
+		 * The average new house price index for the city and year; 0 if none
+		 * is available
+		 */
+		public double avgPriceIndex;
+		
+		/**
+		 * The id of the city that this represents
+		 */
+		public int cityId;
+		
+		/**
+		 * The name of the city that this represents
+		 */
+		public String cityName;
+		
+		/**
+		 * The abbreviation of the province that this represents
+		 */
+		public String provinceAbbreviation;
+		
+		/**
+		 * The abbreviation of the unit type this rental rate is for
+		 */
+		public String unitTypeAbbreviation;
+		
+		/**
+		 * The abbreviation of the building type this rental rate is for
+		 */
+		public String buildingTypeAbbreviation;
+		
+	}
+	
+	/**
+	 * The query used to build the {@link InvestorSummary} rows. <br />
+	 * The vacancy rates and price indexes are aggregated per city and year
+	 * before being joined so that each rental rate is returned exactly once.
+	 * */
+	private static final String INVESTOR_SUMMARY_SQL = "select rr.rental_rate_id, rr.ref_year, rr.rental_rate, c.city_id, c.city_name, "
+			+ "p.abbreviation as province_abbreviation, ut.abbreviation as unit_type_abbreviation, bt.abbreviation as building_type_abbreviation, "
+			+ "coalesce(cv.vacancy_rate, 0) as vacancy_rate "
+			+ "from rental_rate rr "
+			+ "join cities c on c.city_id = rr.city_id "
+			+ "join provinces p on p.province_id = rr.province_id "
+			+ "join unit_types ut on ut.unit_type_id = rr.unit_type_id "
+			+ "join building_types bt on bt.building_type_id = rr.building_type_id "
+			+ "left join (select city_id, ref_year, avg(vacancy_rate) as vacancy_rate from city_vacancies "
+			+ "where province_id = :provinceId group by city_id, ref_year) cv on cv.city_id = rr.city_id and cv.ref_year = rr.ref_year "
+			+ "where rr.province_id = :provinceId "
+			+ "order by rr.rental_rate_id";
+	
 }
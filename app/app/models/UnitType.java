@@ -11,6 +11,7 @@ import javax.persistence.Table;
 
 import play.db.ebean.Model;
 
+import com.theEd209s.lookup.ReferenceDataRegistry;
 import com.theEd209s.utils.StringUtils;
 
 /**
@@ -107,12 +108,19 @@ public class UnitType extends Model
 	}
 	
 	/**
-	 * Get the unique unit type by abbreviation
+	 * Get the unique unit type by abbreviation. <br />
+	 * The {@link ReferenceDataRegistry} is checked first; the database is
+	 * only queried if the unit type is not found there.
 	 * @param abbr the abbreviation we want to fetch
 	 * @return a unique abbr, or null if it does not exist
 	 */
 	public static UnitType getByAbbreviation(String abbr)
 	{
+		final UnitType unitType = ReferenceDataRegistry.getInstance().getUnitTypeByAbbreviation(abbr);
+		if (unitType != null)
+		{
+			return unitType;
+		}
 		return find.where().eq("abbreviation", abbr).findUnique();
 	}
 	
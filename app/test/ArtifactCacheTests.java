@@ -0,0 +1,210 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import base.BaseTestSuit;
+import base.StubHttpServer;
+import static org.junit.Assert.*;
+
+import com.theEd209s.dataLoading.ArtifactCache;
+import com.theEd209s.utils.FileUtils;
+
+/**
+ * This is some unit testing for the artifact cache of the data loaders
+ */
+public class ArtifactCacheTests extends BaseTestSuit
+{
+
+	private File dir;
+
+	@Override
+	public void setupDelegate()
+	{
+		dir = new File(System.getProperty("java.io.tmpdir"), "artifactCacheTests_" + System.nanoTime());
+		assertTrue(dir.mkdirs());
+	}
+
+	/**
+	 * Write a source file of random bytes
+	 *
+	 * @param name
+	 *            the name of the file
+	 * @param size
+	 *            the number of bytes
+	 * @param seed
+	 *            the seed of the bytes; the same seed gives the same content
+	 * @return the file
+	 */
+	private File createSource(String name, int size, long seed) throws IOException
+	{
+		byte[] bytes = new byte[size];
+		new Random(seed).nextBytes(bytes);
+		File source = new File(dir, name);
+		FileOutputStream fos = new FileOutputStream(source);
+		try
+		{
+			fos.write(bytes);
+		}
+		finally
+		{
+			fos.close();
+		}
+		return source;
+	}
+
+	/**
+	 * Test that a file is served from the cache for the same revision, and
+	 * that identical files are only stored once
+	 */
+	@Test
+	public void testFetch() throws Exception
+	{
+		try
+		{
+			ArtifactCache cache = new ArtifactCache(new File(dir, "cache"), 1024 * 1024);
+			File a = createSource("a.zip", 1000, 1L);
+			File b = createSource("b.zip", 1000, 1L);
+
+			File cached = cache.fetch(a.toURI().toURL(), "1");
+			assertEquals(a.length(), cached.length());
+			assertTrue(cached.getName().endsWith(".zip"));
+
+			// the source is gone, so this can only be served from the cache
+			assertTrue(a.delete());
+			assertEquals(cached, cache.fetch(a.toURI().toURL(), "1"));
+
+			// the same content from another url is stored once
+			assertEquals(cached, cache.fetch(b.toURI().toURL(), "1"));
+			assertEquals(1, new File(dir, "cache/content").listFiles().length);
+		}
+		finally
+		{
+			FileUtils.recursiveDelete(dir, false);
+		}
+	}
+
+	/**
+	 * Test that the least recently used files are evicted once the cache is
+	 * full
+	 */
+	@Test
+	public void testEviction() throws Exception
+	{
+		try
+		{
+			ArtifactCache cache = new ArtifactCache(new File(dir, "cache"), 2500);
+			File first = cache.fetch(createSource("first.csv", 1000, 1L).toURI().toURL(), "1");
+			File second = cache.fetch(createSource("second.csv", 1000, 2L).toURI().toURL(), "1");
+			cache.release(first);
+			cache.release(second);
+			assertTrue(first.setLastModified(System.currentTimeMillis() - 60000L));
+			assertTrue(second.setLastModified(System.currentTimeMillis() - 30000L));
+
+			File third = cache.fetch(createSource("third.csv", 1000, 3L).toURI().toURL(), "1");
+			assertFalse(first.exists());
+			assertTrue(second.exists());
+			assertTrue(third.exists());
+		}
+		finally
+		{
+			FileUtils.recursiveDelete(dir, false);
+		}
+	}
+
+	/**
+	 * Test that a file which is leased, by this or another node sharing the
+	 * directory, is not evicted until every lease of it has been released
+	 */
+	@Test
+	public void testLeasedNotEvicted() throws Exception
+	{
+		try
+		{
+			ArtifactCache cache = new ArtifactCache(new File(dir, "cache"), 2500);
+			ArtifactCache otherNode = new ArtifactCache(new File(dir, "cache"), 2500);
+			URL firstUrl = createSource("first.csv", 1000, 1L).toURI().toURL();
+			File first = cache.fetch(firstUrl, "1");
+			assertEquals(first, otherNode.fetch(firstUrl, "1"));
+			cache.release(first);
+			File second = otherNode.fetch(createSource("second.csv", 1000, 2L).toURI().toURL(), "1");
+			otherNode.release(second);
+			assertTrue(first.setLastModified(System.currentTimeMillis() - 60000L));
+			assertTrue(second.setLastModified(System.currentTimeMillis() - 30000L));
+
+			// the least recently used file is still leased by the other node
+			File third = cache.fetch(createSource("third.csv", 1000, 3L).toURI().toURL(), "1");
+			cache.release(third);
+			assertTrue(first.exists());
+			assertFalse(second.exists());
+
+			otherNode.release(first);
+			cache.release(cache.fetch(createSource("fourth.csv", 1000, 4L).toURI().toURL(), "1"));
+			assertFalse(first.exists());
+			assertTrue(third.exists());
+			assertEquals(0, new File(dir, "cache/lease").listFiles().length);
+		}
+		finally
+		{
+			FileUtils.recursiveDelete(dir, false);
+		}
+	}
+
+	/**
+	 * Test that a file served over http is downloaded once, revalidated with
+	 * a 304 for a new revision, and downloaded again once its ETag changes
+	 */
+	@Test
+	public void testRevalidation() throws Exception
+	{
+		byte[] first = new byte[100000];
+		new Random(1L).nextBytes(first);
+		byte[] second = new byte[120000];
+		new Random(2L).nextBytes(second);
+		StubHttpServer server = new StubHttpServer(first, "\"v1\"");
+		try
+		{
+			ArtifactCache cache = new ArtifactCache(new File(dir, "cache"), 1024 * 1024);
+			URL url = server.getUrl("/data.zip");
+
+			// 200: the file is downloaded
+			File cached = cache.fetch(url, "1");
+			assertTrue(Arrays.equals(first, Files.readAllBytes(cached.toPath())));
+			assertEquals(1, server.getRequestCount());
+			assertEquals(0, server.getNotModifiedCount());
+
+			// the same revision is served without asking
+			assertEquals(cached, cache.fetch(url, "1"));
+			assertEquals(1, server.getRequestCount());
+
+			// 304: a new revision of the same file is only revalidated
+			assertEquals(cached, cache.fetch(url, "2"));
+			assertEquals(2, server.getRequestCount());
+			assertEquals(1, server.getNotModifiedCount());
+			assertTrue(Arrays.equals(first, Files.readAllBytes(cached.toPath())));
+
+			// changed ETag: the new file is downloaded and cached beside the old
+			server.setContent(second, "\"v2\"");
+			File changed = cache.fetch(url, "3");
+			assertFalse(cached.equals(changed));
+			assertTrue(Arrays.equals(second, Files.readAllBytes(changed.toPath())));
+			assertEquals(3, server.getRequestCount());
+			assertEquals(1, server.getNotModifiedCount());
+			assertEquals(2, new File(dir, "cache/content").listFiles().length);
+
+			// nothing is left behind by the downloads
+			assertEquals(0, new File(dir, "cache/download").listFiles().length);
+		}
+		finally
+		{
+			server.stop();
+			FileUtils.recursiveDelete(dir, false);
+		}
+	}
+
+}
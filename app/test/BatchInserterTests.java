@@ -0,0 +1,85 @@
+import models.CityVacancy;
+
+import org.junit.Test;
+
+import base.BaseTestSuit;
+import static org.junit.Assert.*;
+
+import com.theEd209s.dataLoading.BatchInserter;
+
+/**
+ * This is some unit testing for the batched inserts of the data loaders
+ */
+public class BatchInserterTests extends BaseTestSuit
+{
+
+	private int TEST_YEAR = 2014;
+
+	@Override
+	public void setupDelegate()
+	{
+
+	}
+
+	/**
+	 * Build a vacancy rate for a city
+	 *
+	 * @param year
+	 *            the reference year of the vacancy rate
+	 * @param withCity
+	 *            false to leave out the city, so the row can not be saved
+	 * @return the vacancy rate
+	 */
+	private CityVacancy createVacancy(int year, boolean withCity)
+	{
+		CityVacancy vacancy = new CityVacancy();
+		if (withCity)
+		{
+			vacancy.city = c1;
+		}
+		vacancy.province = c1.province;
+		vacancy.referenceYear = year;
+		vacancy.vacancyRate = 2.5f;
+		return vacancy;
+	}
+
+	/**
+	 * Test that the rows are saved in full batches, and that the final partial
+	 * batch is saved on flush
+	 */
+	@Test
+	public void testBatches()
+	{
+		BatchInserter inserter = new BatchInserter("test", 3);
+		for (int i = 0; i < 7; i++)
+		{
+			inserter.add(createVacancy(TEST_YEAR - i, true));
+		}
+		assertEquals(2, inserter.getBatchCount());
+		assertEquals(6, CityVacancy.find.findRowCount());
+
+		inserter.flush();
+		assertEquals(3, inserter.getBatchCount());
+		assertEquals(7, inserter.getInsertedCount());
+		assertEquals(0, inserter.getFailedCount());
+		assertEquals(7, CityVacancy.find.findRowCount());
+	}
+
+	/**
+	 * Test that a failed batch only loses the rows that can not be saved
+	 */
+	@Test
+	public void testFailedBatch()
+	{
+		BatchInserter inserter = new BatchInserter("test", 3);
+		inserter.add(createVacancy(TEST_YEAR, true));
+		inserter.add(createVacancy(TEST_YEAR - 1, false));
+		inserter.add(createVacancy(TEST_YEAR - 2, true));
+		inserter.add(createVacancy(TEST_YEAR - 3, true));
+		inserter.flush();
+
+		assertEquals(3, inserter.getInsertedCount());
+		assertEquals(1, inserter.getFailedCount());
+		assertEquals(3, CityVacancy.find.findRowCount());
+	}
+}
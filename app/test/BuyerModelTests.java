@@ -8,6 +8,8 @@ import models.NewHousingPriceIndex;
 import org.junit.Test;
 
 import base.BaseTestSuit;
+import com.theEd209s.lookup.PriceIndexStore;
+import com.theEd209s.lookup.PriceIndexStore.YearlyIndexes;
 import static org.junit.Assert.*;
 import controllers.api.form.PriceIndexForm;
 import static org.hamcrest.CoreMatchers.*;
@@ -37,6 +39,8 @@ public class BuyerModelTests extends BaseTestSuit
 		invalidIndexes.addAll(createIndexes((TEST_YEAR - 1), c1));
 		invalidIndexes.addAll(createIndexes((TEST_YEAR), c2));
 
+		PriceIndexStore.rebuild();
+
 	}
 
 	/**
@@ -108,4 +112,32 @@ public class BuyerModelTests extends BaseTestSuit
 		
 		assertThat(Math.round(testAvg * 100.0) / 100.0, is(0.65));
 	}
+
+	/**
+	 * Test that the price index store holds the same yearly averages and
+	 * gives the ratio between two years
+	 */
+	@Test
+	public void testPriceIndexStore()
+	{
+		PriceIndexStore store = PriceIndexStore.getInstance();
+
+		YearlyIndexes cityIndexes = store.getByCity(c1.cityId);
+		assertNotNull(cityIndexes);
+		assertThat(Math.round(cityIndexes.getAverage(TEST_YEAR) * 100.0) / 100.0, is(0.65));
+		assertThat(Math.round(cityIndexes.getAverage(TEST_YEAR - 1) * 100.0) / 100.0, is(0.65));
+		assertEquals(0.0, cityIndexes.getAverage(TEST_YEAR - 2), 0.001);
+		assertEquals(TEST_YEAR, cityIndexes.getLatestYear());
+		assertEquals(1.0, cityIndexes.getRatio(TEST_YEAR - 1, TEST_YEAR), 0.001);
+		assertEquals(0.0, cityIndexes.getRatio(TEST_YEAR - 2, TEST_YEAR), 0.001);
+
+		// the parent city averages every one of its cities
+		YearlyIndexes parentIndexes = store.getByParentCity(c2.cityParentId);
+		assertNotNull(parentIndexes);
+		assertEquals(TEST_YEAR, parentIndexes.getLatestYear());
+		assertThat(Math.round(parentIndexes.getAverage(TEST_YEAR) * 100.0) / 100.0, is(0.65));
+
+		assertSame(cityIndexes, store.find(c1.cityId, c2.cityParentId));
+		assertNull(store.find(99, 99));
+	}
 }
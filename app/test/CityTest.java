@@ -7,6 +7,9 @@ import com.avaje.ebean.Query;
 import models.City;
 import base.BaseTestSuit;
 
+import com.theEd209s.lookup.GeoCodeIndex;
+import com.theEd209s.lookup.ReferenceDataRegistry;
+
 public class CityTest extends BaseTestSuit
 {
 	
@@ -58,4 +61,23 @@ public class CityTest extends BaseTestSuit
 		aQuery.findUnique();
 	}
 	
+	/**
+	 * Test that the geo code index matches a city on both its id and its parent id
+	 */
+	@Test
+	public void testGeoCodeIndex()
+	{
+		GeoCodeIndex index = ReferenceDataRegistry.reload().getGeoCodeIndex();
+		
+		City[] byCityId = index.getCities(c1.cityId);
+		assertEquals(1, byCityId.length);
+		assertEquals(c1.cityId, byCityId[0].cityId);
+		
+		City[] byParentId = index.getCities(c2.cityParentId);
+		assertEquals(1, byParentId.length);
+		assertEquals(c2.cityId, byParentId[0].cityId);
+		
+		assertEquals(0, index.getCities(99).length);
+	}
+	
 }
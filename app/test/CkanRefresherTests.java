@@ -0,0 +1,290 @@
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import models.CkanRevision;
+
+import org.junit.After;
+import org.junit.Test;
+
+import base.BaseTestSuit;
+import static org.junit.Assert.*;
+
+import com.theEd209s.dataLoading.CkanRefresher;
+import com.theEd209s.dataLoading.DataLoader;
+import com.theEd209s.dataLoading.IngestionService;
+import com.theEd209s.dataLoading.IngestionService.State;
+
+/**
+ * This is some unit testing for the scheduled CKAN refresh
+ */
+public class CkanRefresherTests extends BaseTestSuit
+{
+
+	private static final String NAME = "test data";
+	private static final String DATASET_ID = "test-dataset";
+	private static final String RESOURCE_ID = "test-resource";
+
+	/**
+	 * The revision time the fake CKAN server reports; -1 if it can not be
+	 * reached
+	 */
+	private long remoteRevisionTime = -1L;
+	/**
+	 * True if the fake loader saves the remote revision, as a successful load
+	 * does
+	 */
+	private boolean loaderCatchesUp = false;
+	private int fetchCount = 0;
+	private int loadCount = 0;
+
+	@Override
+	public void setupDelegate()
+	{
+
+	}
+
+	@After
+	public void stopIngestion()
+	{
+		IngestionService.stop();
+	}
+
+	/**
+	 * Build a refresher of the test data-set, reading the revision from the
+	 * fake CKAN server
+	 *
+	 * @param intervalMillis
+	 *            the interval between polls
+	 * @param maxBackoffMillis
+	 *            the maximum backoff
+	 * @return the refresher; it is not started
+	 */
+	private CkanRefresher createRefresher(long intervalMillis, long maxBackoffMillis)
+	{
+		CkanRefresher refresher = new CkanRefresher(intervalMillis, 0L, maxBackoffMillis)
+		{
+			@Override
+			protected long fetchRevisionTime(String ckanUrl, String ckanDatesetId, String ckanResourceId)
+			{
+				fetchCount++;
+				return remoteRevisionTime;
+			}
+		};
+		refresher.register(NAME, "http://ckan.test", DATASET_ID, RESOURCE_ID, new CkanRefresher.LoaderFactory()
+		{
+			@Override
+			public DataLoader createLoader()
+			{
+				return new FakeLoader();
+			}
+		});
+		return refresher;
+	}
+
+	/**
+	 * Save the revision of the test data-set that was last loaded
+	 *
+	 * @param revisionTime
+	 *            the revision time
+	 */
+	private void saveLocalRevision(long revisionTime)
+	{
+		CkanRevision revision = new CkanRevision();
+		revision.datasetId = DATASET_ID;
+		revision.resourceId = RESOURCE_ID;
+		revision.lastRevisionTime = revisionTime;
+		revision.save();
+	}
+
+	/**
+	 * Wait for the ingestion to finish
+	 */
+	private void awaitCompletion() throws InterruptedException
+	{
+		for (int i = 0; i < 100 && IngestionService.getState() == State.LOADING; i++)
+		{
+			Thread.sleep(50);
+		}
+	}
+
+	/**
+	 * Test that the backoff doubles the interval with each failure, up to the
+	 * maximum
+	 */
+	@Test
+	public void testBackoff()
+	{
+		CkanRefresher refresher = createRefresher(10L, 100L);
+		assertEquals(10L, refresher.getBackoffMillis(0));
+		assertEquals(20L, refresher.getBackoffMillis(1));
+		assertEquals(40L, refresher.getBackoffMillis(2));
+		assertEquals(80L, refresher.getBackoffMillis(3));
+		assertEquals(100L, refresher.getBackoffMillis(4));
+		assertEquals(100L, refresher.getBackoffMillis(40));
+
+		// the backoff is never shorter than the interval
+		assertEquals(50L, createRefresher(50L, 10L).getBackoffMillis(3));
+	}
+
+	/**
+	 * Test that a data-set which failed is not attempted again until its
+	 * backoff has passed
+	 */
+	@Test
+	public void testBackingOff()
+	{
+		CkanRefresher refresher = createRefresher(TimeUnit.HOURS.toMillis(1), TimeUnit.HOURS.toMillis(4));
+		refresher.poll();
+		assertEquals(1, fetchCount);
+		assertEquals(1, refresher.getFailureCount(NAME));
+
+		refresher.poll();
+		assertEquals(1, fetchCount);
+		assertEquals(1, refresher.getFailureCount(NAME));
+	}
+
+	/**
+	 * Test that the failures are counted while they continue, and reset once
+	 * the data-set is up to date
+	 */
+	@Test
+	public void testResetAfterSuccess() throws Exception
+	{
+		CkanRefresher refresher = createRefresher(1L, 1L);
+		refresher.poll();
+		Thread.sleep(10);
+		refresher.poll();
+		assertEquals(2, fetchCount);
+		assertEquals(2, refresher.getFailureCount(NAME));
+
+		saveLocalRevision(100L);
+		remoteRevisionTime = 100L;
+		Thread.sleep(10);
+		refresher.poll();
+		assertEquals(3, fetchCount);
+		assertEquals(0, refresher.getFailureCount(NAME));
+		// it was already up to date, so it was not loaded
+		assertEquals(0, loadCount);
+	}
+
+	/**
+	 * Test that nothing is checked while the ingestion is loading
+	 */
+	@Test
+	public void testSkippedWhileLoading() throws Exception
+	{
+		final CountDownLatch release = new CountDownLatch(1);
+		IngestionService.start(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					release.await(5, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		CkanRefresher refresher = createRefresher(TimeUnit.HOURS.toMillis(1), TimeUnit.HOURS.toMillis(4));
+		refresher.poll();
+		assertEquals(0, fetchCount);
+		assertEquals(0, refresher.getFailureCount(NAME));
+
+		release.countDown();
+		awaitCompletion();
+		refresher.poll();
+		assertEquals(1, fetchCount);
+	}
+
+	/**
+	 * Test that a new revision is only reloaded once the loader has saved it
+	 */
+	@Test
+	public void testReloadCatchesUp()
+	{
+		remoteRevisionTime = 200L;
+		CkanRefresher refresher = createRefresher(TimeUnit.HOURS.toMillis(1), TimeUnit.HOURS.toMillis(4));
+		refresher.poll();
+		assertEquals(1, loadCount);
+		assertEquals(1, refresher.getFailureCount(NAME));
+
+		loaderCatchesUp = true;
+		refresher = createRefresher(TimeUnit.HOURS.toMillis(1), TimeUnit.HOURS.toMillis(4));
+		refresher.poll();
+		assertEquals(2, loadCount);
+		assertEquals(0, refresher.getFailureCount(NAME));
+	}
+
+	/**
+	 * Test that a poll which finds every data-set up to date clears a stale
+	 * ingestion, but one with a failure does not
+	 */
+	@Test
+	public void testRefreshClearsStale() throws Exception
+	{
+		IngestionService.start(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				throw new IngestionService.StaleDataException("test");
+			}
+		});
+		awaitCompletion();
+		assertEquals(State.STALE, IngestionService.getState());
+
+		createRefresher(TimeUnit.HOURS.toMillis(1), TimeUnit.HOURS.toMillis(4)).poll();
+		assertEquals(State.STALE, IngestionService.getState());
+
+		saveLocalRevision(100L);
+		remoteRevisionTime = 100L;
+		createRefresher(TimeUnit.HOURS.toMillis(1), TimeUnit.HOURS.toMillis(4)).poll();
+		assertEquals(State.READY, IngestionService.getState());
+	}
+
+	/**
+	 * A loader which stands in for a real one; it saves the remote revision
+	 * only if it is told to catch up
+	 */
+	private class FakeLoader extends DataLoader
+	{
+
+		public FakeLoader()
+		{
+			super((File) null, false);
+		}
+
+		@Override
+		public void parseFile()
+		{
+			loadCount++;
+			if (loaderCatchesUp)
+			{
+				saveLocalRevision(remoteRevisionTime);
+			}
+		}
+
+		@Override
+		protected int parseFile(File downloadedFile)
+		{
+			return 0;
+		}
+
+		@Override
+		protected void downloadFailed()
+		{
+
+		}
+
+		@Override
+		protected void parseFailed()
+		{
+
+		}
+	}
+}
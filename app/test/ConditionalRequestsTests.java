@@ -0,0 +1,115 @@
+import org.junit.Test;
+
+import base.BaseTestSuit;
+import static org.junit.Assert.*;
+
+import controllers.api.ConditionalRequests;
+
+/**
+ * This is some unit testing for the conditional requests of the API
+ */
+public class ConditionalRequestsTests extends BaseTestSuit
+{
+
+	private static final String ETAG = ConditionalRequests.etag("places", "3-abc");
+	/**
+	 * Sun, 06 Nov 1994 08:49:37 GMT
+	 */
+	private static final long TIME = 784111777000L;
+
+	@Override
+	public void setupDelegate()
+	{
+
+	}
+
+	/**
+	 * Test that the ETag is quoted, and made from the endpoint and the tag
+	 */
+	@Test
+	public void testEtag()
+	{
+		assertEquals("\"places-3-abc\"", ETAG);
+	}
+
+	/**
+	 * Test that If-None-Match uses the weak comparison
+	 */
+	@Test
+	public void testWeakComparison()
+	{
+		assertTrue(ConditionalRequests.isNotModified(ETAG, null, ETAG, TIME));
+		assertTrue(ConditionalRequests.isNotModified("W/" + ETAG, null, ETAG, TIME));
+		assertFalse(ConditionalRequests.isNotModified("\"places-2-abc\"", null, ETAG, TIME));
+		assertFalse(ConditionalRequests.isNotModified("W/\"places-2-abc\"", null, ETAG, TIME));
+		// the quotes are part of the ETag
+		assertFalse(ConditionalRequests.isNotModified("places-3-abc", null, ETAG, TIME));
+	}
+
+	/**
+	 * Test that If-None-Match matches any ETag in a list, and that * matches
+	 * every ETag
+	 */
+	@Test
+	public void testLists()
+	{
+		assertTrue(ConditionalRequests.isNotModified("\"places-1-abc\", " + ETAG, null, ETAG, TIME));
+		assertTrue(ConditionalRequests.isNotModified("\"places-1-abc\",W/" + ETAG + " , \"places-2-abc\"", null, ETAG, TIME));
+		assertFalse(ConditionalRequests.isNotModified("\"places-1-abc\", \"places-2-abc\"", null, ETAG, TIME));
+		assertTrue(ConditionalRequests.isNotModified("*", null, ETAG, TIME));
+		assertTrue(ConditionalRequests.isNotModified(" * ", null, ETAG, TIME));
+	}
+
+	/**
+	 * Test that If-Modified-Since is ignored when there is an If-None-Match
+	 */
+	@Test
+	public void testIfNoneMatchPrecedence()
+	{
+		String later = ConditionalRequests.formatHttpDate(TIME + 60000L);
+		String earlier = ConditionalRequests.formatHttpDate(TIME - 60000L);
+
+		assertTrue(ConditionalRequests.isNotModified(null, later, ETAG, TIME));
+		assertFalse(ConditionalRequests.isNotModified("\"places-2-abc\"", later, ETAG, TIME));
+		assertTrue(ConditionalRequests.isNotModified(ETAG, earlier, ETAG, TIME));
+		// an empty If-None-Match is the same as none
+		assertTrue(ConditionalRequests.isNotModified("", later, ETAG, TIME));
+	}
+
+	/**
+	 * Test that If-Modified-Since is compared to the second, as that is the
+	 * resolution of HTTP dates
+	 */
+	@Test
+	public void testIfModifiedSince()
+	{
+		String since = ConditionalRequests.formatHttpDate(TIME);
+
+		assertTrue(ConditionalRequests.isNotModified(null, since, ETAG, TIME));
+		// later in the same second
+		assertTrue(ConditionalRequests.isNotModified(null, since, ETAG, TIME + 999L));
+		assertTrue(ConditionalRequests.isNotModified(null, since, ETAG, TIME - 1000L));
+		assertFalse(ConditionalRequests.isNotModified(null, since, ETAG, TIME + 1000L));
+
+		assertFalse(ConditionalRequests.isNotModified(null, null, ETAG, TIME));
+		assertFalse(ConditionalRequests.isNotModified(null, "", ETAG, TIME));
+		// a date that can not be parsed never matches
+		assertFalse(ConditionalRequests.isNotModified(null, "yesterday", ETAG, TIME));
+	}
+
+	/**
+	 * Test that the HTTP dates are formatted and parsed in GMT, whatever the
+	 * time zone of the server
+	 */
+	@Test
+	public void testHttpDates()
+	{
+		assertEquals("Sun, 06 Nov 1994 08:49:37 GMT", ConditionalRequests.formatHttpDate(TIME));
+		assertEquals("Sun, 06 Nov 1994 08:49:37 GMT", ConditionalRequests.formatHttpDate(TIME + 999L));
+		assertEquals(TIME, ConditionalRequests.parseHttpDate("Sun, 06 Nov 1994 08:49:37 GMT"));
+		assertEquals(TIME, ConditionalRequests.parseHttpDate(ConditionalRequests.formatHttpDate(TIME)));
+
+		assertEquals(-1L, ConditionalRequests.parseHttpDate("yesterday"));
+		assertEquals(-1L, ConditionalRequests.parseHttpDate(""));
+	}
+}
@@ -0,0 +1,113 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLFeatureNotSupportedException;
+
+import org.junit.Test;
+import org.postgresql.PGConnection;
+
+import base.BaseTestSuit;
+import static org.junit.Assert.*;
+
+import com.avaje.ebean.Ebean;
+import com.avaje.ebean.Transaction;
+import com.jolbox.bonecp.ConnectionHandle;
+import com.theEd209s.dataLoading.BatchInserter;
+import com.theEd209s.dataLoading.CopyRowSink;
+
+/**
+ * This is some unit testing for choosing the COPY bulk load of the fact
+ * tables
+ */
+public class CopyRowSinkTests extends BaseTestSuit
+{
+
+	@Override
+	public void setupDelegate()
+	{
+
+	}
+
+	/**
+	 * Build a PostgreSQL connection which, like the pinned 9.1 driver, does
+	 * not implement isWrapperFor or unwrap
+	 *
+	 * @return the connection
+	 */
+	private Connection createPostgresConnection()
+	{
+		return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class, PGConnection.class }, new InvocationHandler()
+		{
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+			{
+				if (method.getName().equals("isWrapperFor") || method.getName().equals("unwrap"))
+				{
+					throw new SQLFeatureNotSupportedException("Method " + method.getName() + " is not yet implemented.");
+				}
+				if (method.getName().equals("equals"))
+				{
+					return proxy == args[0];
+				}
+				if (method.getName().equals("hashCode"))
+				{
+					return System.identityHashCode(proxy);
+				}
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Test that a PostgreSQL connection is used for COPY even though its
+	 * driver can not unwrap it
+	 */
+	@Test
+	public void testPostgresConnection()
+	{
+		Connection connection = createPostgresConnection();
+		assertSame(connection, CopyRowSink.getCopyConnection(connection));
+	}
+
+	/**
+	 * Test that the pooled connections are unwrapped to the connection of the
+	 * driver, which is what decides if COPY is used
+	 */
+	@Test
+	public void testPooledConnection() throws Exception
+	{
+		Transaction transaction = Ebean.getServer(null).createTransaction();
+		try
+		{
+			Connection connection = transaction.getConnection();
+			assertTrue(connection instanceof ConnectionHandle);
+			Connection driverConnection = CopyRowSink.getDriverConnection(connection);
+			assertSame(((ConnectionHandle) connection).getInternalConnection(), driverConnection);
+			assertFalse(driverConnection instanceof ConnectionHandle);
+			assertEquals("org.h2.jdbc.JdbcConnection", driverConnection.getClass().getName());
+		}
+		finally
+		{
+			transaction.end();
+		}
+	}
+
+	/**
+	 * Test that a database other than PostgreSQL falls back to batched inserts
+	 */
+	@Test
+	public void testFallback() throws Exception
+	{
+		Transaction transaction = Ebean.getServer(null).createTransaction();
+		try
+		{
+			assertNull(CopyRowSink.getCopyConnection(transaction.getConnection()));
+		}
+		finally
+		{
+			transaction.end();
+		}
+		assertTrue(CopyRowSink.create("test", null, 10) instanceof BatchInserter);
+	}
+}
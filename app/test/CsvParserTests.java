@@ -0,0 +1,185 @@
+import org.junit.Test;
+
+import base.BaseTestSuit;
+import static org.junit.Assert.*;
+
+import com.theEd209s.utils.CsvParser;
+import com.theEd209s.utils.CsvTokenizer;
+
+/**
+ * This is some unit testing for the splitting of CSV lines by the CsvParser
+ * and the CsvTokenizer
+ */
+public class CsvParserTests extends BaseTestSuit
+{
+
+	@Override
+	public void setupDelegate()
+	{
+
+	}
+
+	/**
+	 * Test the pieces of lines with no quotes, including the empty pieces
+	 */
+	@Test
+	public void testSeparators()
+	{
+		assertArrayEquals(new String[] { "a", "b", "c" }, CsvParser.parseLineS("a,b,c"));
+		assertArrayEquals(new String[] { "" }, CsvParser.parseLineS(""));
+		assertArrayEquals(new String[] { "", "" }, CsvParser.parseLineS(","));
+		assertArrayEquals(new String[] { "a", "", "" }, CsvParser.parseLineS("a,,"));
+		assertArrayEquals(new String[] { "a", "b;c", "d" }, CsvParser.parseLineS("a;\"b;c\";d", ';'));
+		assertArrayEquals(new String[] { "a", "b", "c\td" }, CsvParser.parseLineS("a\tb\t\"c\td\"", '\t'));
+		// a comma is only a separator when it is the separator
+		assertArrayEquals(new String[] { "a,b", "c" }, CsvParser.parseLineS("a,b;c", ';'));
+		// a quote can not be the separator
+		assertArrayEquals(new String[] { "a", "b" }, CsvParser.parseLineS("a,b", '"'));
+		assertArrayEquals(new String[] { "a", "b" }, CsvParser.parseLineS("a,b", '\''));
+		assertArrayEquals(new String[0], CsvParser.parseLineS(null));
+	}
+
+	/**
+	 * Test the pieces which are wrapped with quotes, and the quotes which do
+	 * not wrap a piece
+	 */
+	@Test
+	public void testQuoting()
+	{
+		assertArrayEquals(new String[] { "a,b", "c" }, CsvParser.parseLineS("\"a,b\",c"));
+		assertArrayEquals(new String[] { "a,b", "c" }, CsvParser.parseLineS("'a,b',c"));
+		assertArrayEquals(new String[] { "", "x" }, CsvParser.parseLineS("\"\",x"));
+		// the other quotation mark is kept as it is
+		assertArrayEquals(new String[] { "a'b", "c\"d" }, CsvParser.parseLineS("\"a'b\",'c\"d'"));
+		// a pair of the wrapping quotation mark is one quote
+		assertArrayEquals(new String[] { "a\"b", "c" }, CsvParser.parseLineS("\"a\"\"b\",c"));
+		assertArrayEquals(new String[] { "it's", "x" }, CsvParser.parseLineS("'it''s',x"));
+		assertArrayEquals(new String[] { "\"a\"", "b" }, CsvParser.parseLineS("\"\"\"a\"\"\",b"));
+		// a quote which is never closed does not wrap the piece
+		assertArrayEquals(new String[] { "\"abc" }, CsvParser.parseLineS("\"abc"));
+		assertArrayEquals(new String[] { "\"a,b,c" }, CsvParser.parseLineS("\"a,b,c"));
+		// nor does one which is closed before the end of the piece
+		assertArrayEquals(new String[] { "\"ab\"c", "d" }, CsvParser.parseLineS("\"ab\"c,d"));
+		// nor one which is not at the start of the piece
+		assertArrayEquals(new String[] { "x\"y\"", "z" }, CsvParser.parseLineS("x\"y\",z"));
+	}
+
+	/**
+	 * Test that the pairs of quotes which do not wrap the piece are only
+	 * grouped when asked to
+	 */
+	@Test
+	public void testGrouping()
+	{
+		assertArrayEquals(new String[] { "a\"\"b", "c" }, CsvParser.parseLineS("a\"\"b,c", ',', false, false));
+		assertArrayEquals(new String[] { "a\"b", "c" }, CsvParser.parseLineS("a\"\"b,c", ',', true, false));
+		assertArrayEquals(new String[] { "a''b", "x" }, CsvParser.parseLineS("\"a''b\",x", ',', false, false));
+		assertArrayEquals(new String[] { "a'b", "x" }, CsvParser.parseLineS("\"a''b\",x", ',', true, false));
+		// the wrapping quotation mark is always grouped
+		assertArrayEquals(new String[] { "a\"b" }, CsvParser.parseLineS("\"a\"\"b\"", ',', false, false));
+		assertArrayEquals(new String[] { "a\"b" }, CsvParser.parseLineS("\"a\"\"b\"", ',', true, false));
+	}
+
+	/**
+	 * Test that the pieces are only trimmed when asked to, and that the
+	 * quotes inside the white-space do not wrap the piece
+	 */
+	@Test
+	public void testTrimming()
+	{
+		assertArrayEquals(new String[] { " a ", " \" b \" ", "c " }, CsvParser.parseLineS(" a , \" b \" ,c ", ',', false, false));
+		assertArrayEquals(new String[] { "a", "\" b \"", "c" }, CsvParser.parseLineS(" a , \" b \" ,c ", ',', false, true));
+		// the white-space inside the quotes is part of the piece; but still trimmed
+		assertArrayEquals(new String[] { " b ", "c" }, CsvParser.parseLineS("\" b \",c", ',', false, false));
+		assertArrayEquals(new String[] { "b", "c" }, CsvParser.parseLineS("\" b \",c", ',', false, true));
+		assertArrayEquals(new String[] { "", "" }, CsvParser.parseLineS(" \t, ", ',', false, true));
+	}
+
+	/**
+	 * Test that the same parser can switch between the settings, and that a
+	 * parser instance uses its own
+	 */
+	@Test
+	public void testSettingsPerCall()
+	{
+		assertArrayEquals(new String[] { "a\"b" }, CsvParser.parseLineS("a\"\"b", ',', true, false));
+		assertArrayEquals(new String[] { "a\"\"b" }, CsvParser.parseLineS("a\"\"b", ',', false, false));
+		assertArrayEquals(new String[] { "a", "b" }, CsvParser.parseLineS(" a ; b ", ';', false, true));
+		assertArrayEquals(new String[] { " a ; b " }, CsvParser.parseLineS(" a ; b "));
+		CsvParser parser = new CsvParser(';', true, true);
+		assertArrayEquals(new String[] { "a\"b", "c" }, parser.parseLine(" a\"\"b ; c"));
+	}
+
+	/**
+	 * Test that the tokenizer gives the same pieces as the parser, as
+	 * offsets, views and Strings; and that its buffer is reused for the next
+	 * line
+	 */
+	@Test
+	public void testTokenizer()
+	{
+		String[] lines = new String[] { "a,b,c", "", ",", "\"a,b\",c", "\"a\"\"b\",'c''d'", "a\"\"b,c", "\"abc", "\"ab\"c,d", " a , \" b \" ,c " };
+		for (boolean group : new boolean[] { false, true })
+		{
+			for (boolean trim : new boolean[] { false, true })
+			{
+				CsvTokenizer tokenizer = new CsvTokenizer(',', group, trim);
+				for (String line : lines)
+				{
+					String[] expected = CsvParser.parseLineS(line, ',', group, trim);
+					assertEquals(expected.length, tokenizer.tokenize(line));
+					assertEquals(expected.length, tokenizer.getPieceCount());
+					assertArrayEquals(expected, tokenizer.toStrings());
+					for (int n = 0; n < expected.length; n++)
+					{
+						assertEquals(expected[n], tokenizer.getString(n));
+						assertEquals(expected[n], tokenizer.getPiece(n).toString());
+						assertEquals(expected[n].length(), tokenizer.getLength(n));
+						assertEquals(expected[n], new String(tokenizer.getBuffer(), tokenizer.getStart(n), tokenizer.getEnd(n) - tokenizer.getStart(n)));
+						assertTrue(tokenizer.pieceEquals(n, expected[n]));
+						assertFalse(tokenizer.pieceEquals(n, expected[n] + "x"));
+					}
+				}
+			}
+		}
+
+		CsvTokenizer tokenizer = new CsvTokenizer();
+		assertEquals(0, tokenizer.tokenize(null));
+		assertEquals(2, tokenizer.tokenize("\"a,b\", c "));
+		CharSequence view = tokenizer.getPiece(1);
+		assertEquals(3, view.length());
+		assertEquals('c', view.charAt(1));
+		assertEquals("c", view.subSequence(1, 2).toString());
+		// a longer line grows the buffer; the pieces of the last line are the only ones
+		StringBuilder longLine = new StringBuilder();
+		for (int n = 0; n < 1000; n++)
+		{
+			longLine.append(n).append(',');
+		}
+		assertEquals(1001, tokenizer.tokenize(longLine));
+		assertEquals("999", tokenizer.getString(999));
+		assertEquals("", tokenizer.getString(1000));
+		assertEquals(1, tokenizer.tokenize("x"));
+		try
+		{
+			tokenizer.getString(1);
+			fail("Only the pieces of the last line can be read");
+		}
+		catch (IndexOutOfBoundsException e)
+		{
+			// expected
+		}
+	}
+
+	/**
+	 * Test that a quote can not be the separator of a tokenizer either
+	 */
+	@Test
+	public void testTokenizerQuoteSeparator()
+	{
+		assertEquals(',', new CsvTokenizer('"', false, false).getSeparatorChar());
+		assertEquals(',', new CsvTokenizer('\'', false, false).getSeparatorChar());
+		assertEquals(';', new CsvTokenizer(';', false, false).getSeparatorChar());
+	}
+
+}
@@ -0,0 +1,105 @@
+import models.CkanRevision;
+import models.DataVersion;
+
+import org.junit.Test;
+
+import base.BaseTestSuit;
+import static org.junit.Assert.*;
+
+import com.theEd209s.lookup.DataRevisions;
+
+/**
+ * This is some unit testing for the validators of the API responses, which
+ * are read from the persisted revisions of the data
+ */
+public class DataRevisionsTests extends BaseTestSuit
+{
+
+	private static final String RESOURCE_1 = "resource1";
+	private static final String RESOURCE_2 = "resource2";
+
+	@Override
+	public void setupDelegate()
+	{
+		DataRevisions.reload();
+	}
+
+	/**
+	 * Save the revision of a data-set as loaded
+	 *
+	 * @param resourceId
+	 *            the resource of the data-set
+	 * @param revisionTime
+	 *            the CKAN revision time of the data-set
+	 * @param loadedTime
+	 *            the time the data-set was loaded
+	 */
+	private void saveRevision(String resourceId, long revisionTime, long loadedTime)
+	{
+		CkanRevision revision = new CkanRevision();
+		revision.datasetId = "dataset";
+		revision.resourceId = resourceId;
+		revision.lastRevisionTime = revisionTime;
+		revision.loadedTime = loadedTime;
+		revision.save();
+	}
+
+	/**
+	 * Test that reloading the same data gives the same validators; as a
+	 * restart, or another node, would
+	 */
+	@Test
+	public void testStableAcrossReloads()
+	{
+		saveRevision(RESOURCE_1, 1000L, 5000L);
+		DataRevisions first = DataRevisions.reload();
+		DataRevisions second = DataRevisions.reload();
+		assertNotSame(first, second);
+		assertEquals(first.getTag(RESOURCE_1), second.getTag(RESOURCE_1));
+		assertEquals(first.getLastModified(RESOURCE_1), second.getLastModified(RESOURCE_1));
+	}
+
+	/**
+	 * Test that the validators of an endpoint only change with the data-sets
+	 * it reads, and that its Last-Modified is when they were loaded rather
+	 * than their revision time
+	 */
+	@Test
+	public void testPerEndpoint()
+	{
+		saveRevision(RESOURCE_1, 1000L, 5000L);
+		saveRevision(RESOURCE_2, 2000L, 9000L);
+		DataRevisions revisions = DataRevisions.reload();
+
+		assertEquals(5000L, revisions.getLastModified(RESOURCE_1));
+		assertEquals(9000L, revisions.getLastModified(RESOURCE_1, RESOURCE_2));
+		assertEquals(1000L, revisions.getRevisionTime(RESOURCE_1));
+		assertFalse(revisions.getTag(RESOURCE_1).equals(revisions.getTag(RESOURCE_1, RESOURCE_2)));
+		assertEquals(-1L, revisions.getRevisionTime("unknown"));
+	}
+
+	/**
+	 * Test that a change which no revision records, such as a truncate,
+	 * changes every tag and moves every Last-Modified forward; even once the
+	 * same revisions are loaded again
+	 */
+	@Test
+	public void testDataVersion()
+	{
+		saveRevision(RESOURCE_1, 1000L, 5000L);
+		DataRevisions before = DataRevisions.reload();
+
+		DataVersion.advance();
+		DataRevisions after = DataRevisions.reload();
+		assertEquals(before.getDataVersion() + 1L, after.getDataVersion());
+		assertFalse(before.getTag(RESOURCE_1).equals(after.getTag(RESOURCE_1)));
+		assertFalse(before.getTag().equals(after.getTag()));
+		assertTrue(after.getLastModified(RESOURCE_1) > System.currentTimeMillis() - 1000L);
+		assertEquals(0L, after.getLastModified(RESOURCE_1) % 1000L);
+
+		// every change moves it at least a second forward, as HTTP dates only have a resolution of seconds
+		DataVersion.advance();
+		assertEquals(after.getLastModified() + 1000L, DataRevisions.reload().getLastModified());
+	}
+
+}
@@ -0,0 +1,213 @@
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import models.CityVacancy;
+import models.NewHousingPriceIndex;
+
+import org.junit.Test;
+
+import base.BaseTestSuit;
+import static org.junit.Assert.*;
+
+import com.theEd209s.dataLoading.BatchInserter;
+import com.theEd209s.dataLoading.DeltaSink;
+import com.theEd209s.dataLoading.DeltaSink.DeltaTable;
+import com.theEd209s.dataLoading.dynamicLoaders.NewHousingPriceIndexLoader;
+import com.theEd209s.lookup.ReferenceDataRegistry;
+
+/**
+ * This is some unit testing for the delta loading of the data loaders
+ */
+public class DeltaSinkTests extends BaseTestSuit
+{
+
+	private int TEST_YEAR = 2014;
+	private static final String RESOURCE_ID = "resource1";
+	private static final String OTHER_RESOURCE_ID = "resource2";
+
+	/**
+	 * Vacancy rates keyed on their city and year
+	 */
+	private static final DeltaTable<CityVacancy> VACANCY_DELTA = new DeltaTable<CityVacancy>(CityVacancy.class, "cityVacancyId", "resourceId, city, referenceYear, vacancyRate", true)
+	{
+		@Override
+		protected Object getKey(CityVacancy cityVacancy)
+		{
+			return Arrays.asList(cityVacancy.resourceId, cityVacancy.city.cityId, cityVacancy.referenceYear);
+		}
+
+		@Override
+		protected boolean copyValues(CityVacancy parsed, CityVacancy current)
+		{
+			if (Float.compare(parsed.vacancyRate, current.vacancyRate) != 0)
+			{
+				current.vacancyRate = parsed.vacancyRate;
+				return true;
+			}
+			return false;
+		}
+	};
+
+	@Override
+	public void setupDelegate()
+	{
+		// the rows from the previous revision
+		for (int i = 0; i < 3; i++)
+		{
+			createVacancy(TEST_YEAR - i, 2.5f).save();
+		}
+	}
+
+	/**
+	 * Build a vacancy rate for a city
+	 *
+	 * @param year
+	 *            the reference year of the vacancy rate
+	 * @param rate
+	 *            the vacancy rate
+	 * @return the vacancy rate
+	 */
+	private CityVacancy createVacancy(int year, float rate)
+	{
+		return createVacancy(RESOURCE_ID, year, rate);
+	}
+
+	/**
+	 * Build a vacancy rate for a city, loaded from a resource
+	 *
+	 * @param resourceId
+	 *            the resource the vacancy rate was loaded from
+	 * @param year
+	 *            the reference year of the vacancy rate
+	 * @param rate
+	 *            the vacancy rate
+	 * @return the vacancy rate
+	 */
+	private CityVacancy createVacancy(String resourceId, int year, float rate)
+	{
+		CityVacancy vacancy = new CityVacancy();
+		vacancy.resourceId = resourceId;
+		vacancy.city = c1;
+		vacancy.province = c1.province;
+		vacancy.referenceYear = year;
+		vacancy.vacancyRate = rate;
+		return vacancy;
+	}
+
+	/**
+	 * Test that only the new, changed and missing rows are written
+	 */
+	@Test
+	public void testDelta()
+	{
+		DeltaSink<CityVacancy> sink = new DeltaSink<CityVacancy>("test", VACANCY_DELTA, new BatchInserter("test", 10), 10);
+		sink.add(createVacancy(TEST_YEAR + 1, 3.0f));
+		sink.add(createVacancy(TEST_YEAR, 2.0f));
+		sink.add(createVacancy(TEST_YEAR - 1, 2.5f));
+		sink.flush();
+		sink.complete();
+
+		assertEquals(1, sink.getUpdatedCount());
+		assertEquals(1, sink.getUnchangedCount());
+		assertEquals(1, sink.getDeletedCount());
+		assertEquals(0, sink.getFailedCount());
+		assertEquals(3, CityVacancy.find.findRowCount());
+		assertEquals(2.0f, CityVacancy.getVacancyRateOnLocationAndYear(c1, TEST_YEAR).vacancyRate, 0.0f);
+		assertNotNull(CityVacancy.getVacancyRateOnLocationAndYear(c1, TEST_YEAR + 1));
+		assertNull(CityVacancy.getVacancyRateOnLocationAndYear(c1, TEST_YEAR - 2));
+	}
+
+	/**
+	 * Test that nothing is deleted if the parsing never completed
+	 */
+	@Test
+	public void testIncompleteParse()
+	{
+		DeltaSink<CityVacancy> sink = new DeltaSink<CityVacancy>("test", VACANCY_DELTA, new BatchInserter("test", 10), 10);
+		sink.add(createVacancy(TEST_YEAR, 2.5f));
+		sink.flush();
+
+		assertEquals(0, sink.getDeletedCount());
+		assertEquals(3, CityVacancy.find.findRowCount());
+	}
+
+	/**
+	 * Test that a sink which is scoped to one resource only matches, and
+	 * deletes, the rows of that resource; the rows of the other resource, for
+	 * the same city and years, are left as they were
+	 */
+	@Test
+	public void testScope()
+	{
+		createVacancy(OTHER_RESOURCE_ID, TEST_YEAR, 9.0f).save();
+		createVacancy(OTHER_RESOURCE_ID, TEST_YEAR - 3, 9.0f).save();
+
+		DeltaSink<CityVacancy> sink = new DeltaSink<CityVacancy>("test", VACANCY_DELTA, Collections.<String, Object> singletonMap("resourceId", RESOURCE_ID), new BatchInserter("test", 10), 10);
+		sink.add(createVacancy(TEST_YEAR, 2.0f));
+		sink.flush();
+		sink.complete();
+
+		assertEquals(1, sink.getUpdatedCount());
+		assertEquals(2, sink.getDeletedCount());
+		assertEquals(0, sink.getInsertedCount() - sink.getUpdatedCount() - sink.getUnchangedCount());
+		assertEquals(2.0f, CityVacancy.find.where().eq("resourceId", RESOURCE_ID).findUnique().vacancyRate, 0.0f);
+		List<CityVacancy> others = CityVacancy.find.where().eq("resourceId", OTHER_RESOURCE_ID).findList();
+		assertEquals(2, others.size());
+		for (CityVacancy other : others)
+		{
+			assertEquals(9.0f, other.vacancyRate, 0.0f);
+		}
+	}
+
+	/**
+	 * Get the ids of the new housing price indexes, in order
+	 *
+	 * @return the ids of the new housing price indexes
+	 */
+	private List<Integer> newHousingPriceIndexIds()
+	{
+		List<Integer> ids = new ArrayList<Integer>();
+		for (NewHousingPriceIndex index : NewHousingPriceIndex.find.orderBy().asc("newHousePriceIndexId").findList())
+		{
+			ids.add(index.newHousePriceIndexId);
+		}
+		return ids;
+	}
+
+	/**
+	 * Test that loading the same file again matches every row; none are
+	 * inserted or deleted, which they would be if the parsed reference dates
+	 * never equalled the stored ones
+	 */
+	@Test
+	public void testReloadUnchanged() throws Exception
+	{
+		ReferenceDataRegistry.reload();
+		File file = File.createTempFile("deltaSinkTests_", ".csv");
+		try
+		{
+			StringBuilder content = new StringBuilder();
+			content.append("2013/04,Fake1,\"11\",Index,Total,2007=100,105.2\n");
+			content.append("2013/05,Fake1,\"11\",Index,Total,2007=100,105.9\n");
+			content.append("2013/05,Fake2,\"22\",Index,Total,2007=100,98.1\n");
+			Files.write(file.toPath(), content.toString().getBytes("UTF-8"));
+
+			new NewHousingPriceIndexLoader(file, false).parseFile();
+			List<Integer> ids = newHousingPriceIndexIds();
+			assertEquals(3, ids.size());
+
+			NewHousingPriceIndexLoader loader = new NewHousingPriceIndexLoader(file, false);
+			loader.parseFile();
+			assertFalse(loader.hasFailed());
+			assertEquals(ids, newHousingPriceIndexIds());
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+}
@@ -0,0 +1,200 @@
+import java.io.File;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+import base.BaseTestSuit;
+import base.StubHttpServer;
+import base.StubHttpServer.RangeMode;
+import static org.junit.Assert.*;
+
+import com.theEd209s.utils.DownloadUtils;
+import com.theEd209s.utils.DownloadUtils.Downloader;
+import com.theEd209s.utils.DownloadUtils.Downloader.DownloadCompleteCmd;
+import com.theEd209s.utils.FileUtils;
+
+/**
+ * This is some unit testing for the resumed and segmented downloads of
+ * DownloadUtils, against a local http server
+ */
+public class DownloadUtilsTests extends BaseTestSuit
+{
+
+	private static final int MB = 1024 * 1024;
+
+	private File dir;
+	private StubHttpServer server;
+	private byte[] content;
+
+	@Override
+	public void setupDelegate()
+	{
+		dir = new File(System.getProperty("java.io.tmpdir"), "downloadUtilsTests_" + System.nanoTime());
+		assertTrue(dir.mkdirs());
+		content = new byte[3 * MB];
+		new Random(1L).nextBytes(content);
+		try
+		{
+			server = new StubHttpServer(content, null);
+		}
+		catch (Exception e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@After
+	public void teardown()
+	{
+		server.stop();
+		FileUtils.recursiveDelete(dir, false);
+	}
+
+	/**
+	 * Download the served file
+	 *
+	 * @param segments
+	 *            the number of connections to download over
+	 * @return the downloaded bytes; or null if the download failed
+	 */
+	private byte[] download(int segments) throws Exception
+	{
+		final boolean[] successful = new boolean[] { false };
+		DownloadCompleteCmd downloadCompleteCmd = new DownloadCompleteCmd()
+		{
+			@Override
+			public void downloadComplete(boolean downloadSuccessful)
+			{
+				successful[0] = downloadSuccessful;
+			}
+		};
+		URL url = server.getUrl("/data.csv");
+		File destination = new File(dir, "data.csv");
+		Downloader downloader = (segments > 1) ? DownloadUtils.getSegmentedDownloader(downloadCompleteCmd, null, null, 0L, url, 0L, destination, null, -1, -1, 0, true, segments) : DownloadUtils.getDownloader(downloadCompleteCmd, null, null, 0L, url, 0L, destination, null, -1, -1, 0, true);
+		downloader.run();
+		return successful[0] ? Files.readAllBytes(destination.toPath()) : null;
+	}
+
+	/**
+	 * Test that an interrupted download resumes from the last byte written
+	 */
+	@Test
+	public void testResume() throws Exception
+	{
+		server.dropResponses(1, MB / 2);
+		assertTrue(Arrays.equals(content, download(1)));
+		assertEquals(2, server.getRequestCount());
+		assertEquals(Arrays.asList("bytes=" + (MB / 2) + "-"), server.getRanges());
+	}
+
+	/**
+	 * Test that a resumed download starts over if the server ignores the
+	 * range, or sends a 206 whose Content-Range is not the one requested
+	 */
+	@Test
+	public void testResumeNotHonoured() throws Exception
+	{
+		server.setRangeMode(RangeMode.IGNORED);
+		server.dropResponses(1, MB / 2);
+		assertTrue(Arrays.equals(content, download(1)));
+		assertEquals(2, server.getRequestCount());
+
+		server.setRangeMode(RangeMode.MISALIGNED);
+		server.dropResponses(1, MB / 2);
+		assertTrue(Arrays.equals(content, download(1)));
+		assertEquals(4, server.getRequestCount());
+	}
+
+	/**
+	 * Test that a resumed download only asks for the rest of the file it
+	 * started, and starts over with the whole of the new file if it has
+	 * changed
+	 */
+	@Test
+	public void testResumeChangedFile() throws Exception
+	{
+		server.setContent(content, "\"v1\"");
+		server.dropResponses(1, MB / 2);
+		byte[] changed = changed();
+		server.changeContentOnDrop(changed, "\"v2\"");
+		assertTrue(Arrays.equals(changed, download(1)));
+		assertEquals(2, server.getRequestCount());
+		assertEquals(Arrays.asList("\"v1\""), server.getIfRanges());
+	}
+
+	/**
+	 * Test that a segmented download whose file changes part way through is
+	 * downloaded again in full, rather than joining ranges of both files
+	 */
+	@Test
+	public void testSegmentChangedFile() throws Exception
+	{
+		server.setContent(content, "\"v1\"");
+		server.dropResponses(1, 1000);
+		byte[] changed = changed();
+		server.changeContentOnDrop(changed, "\"v2\"");
+		assertTrue(Arrays.equals(changed, download(3)));
+		assertTrue(server.getIfRanges().contains("\"v1\""));
+		assertFalse(server.getIfRanges().contains("\"v2\""));
+	}
+
+	/**
+	 * @return a copy of the content whose first and last bytes differ
+	 */
+	private byte[] changed()
+	{
+		byte[] changed = content.clone();
+		changed[0]++;
+		changed[changed.length - 1]++;
+		return changed;
+	}
+
+	/**
+	 * Test that a segmented download requests one range per segment, after
+	 * probing the size
+	 */
+	@Test
+	public void testSegmentRanges() throws Exception
+	{
+		assertTrue(Arrays.equals(content, download(3)));
+		List<String> ranges = server.getRanges();
+		assertEquals(4, ranges.size());
+		assertEquals("bytes=0-0", ranges.get(0));
+		assertTrue(ranges.contains("bytes=0-" + (MB - 1)));
+		assertTrue(ranges.contains("bytes=" + MB + "-" + (2 * MB - 1)));
+		assertTrue(ranges.contains("bytes=" + (2 * MB) + "-" + (3 * MB - 1)));
+	}
+
+	/**
+	 * Test that a dropped segment is retried from the last byte it wrote,
+	 * without the other segments being downloaded again
+	 */
+	@Test
+	public void testSegmentRetry() throws Exception
+	{
+		server.dropResponses(1, 1000);
+		assertTrue(Arrays.equals(content, download(3)));
+		List<String> ranges = server.getRanges();
+		assertEquals(5, ranges.size());
+		assertTrue(ranges.contains("bytes=1000-" + (MB - 1)) || ranges.contains("bytes=" + (MB + 1000) + "-" + (2 * MB - 1)) || ranges.contains("bytes=" + (2 * MB + 1000) + "-" + (3 * MB - 1)));
+	}
+
+	/**
+	 * Test that a segmented download falls back to a single connection if the
+	 * server does not honour ranges
+	 */
+	@Test
+	public void testSegmentFallback() throws Exception
+	{
+		server.setRangeMode(RangeMode.IGNORED);
+		assertTrue(Arrays.equals(content, download(3)));
+		assertEquals(2, server.getRequestCount());
+		assertEquals(Arrays.asList("bytes=0-0"), server.getRanges());
+	}
+
+}
@@ -0,0 +1,123 @@
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import models.City;
+
+import org.junit.Test;
+
+import base.BaseTestSuit;
+import static org.junit.Assert.*;
+
+import com.theEd209s.dataLoading.GeoCodeFilter;
+import com.theEd209s.lookup.ReferenceDataRegistry;
+import com.theEd209s.utils.CsvRecordReader;
+import com.theEd209s.utils.CsvRecordSource;
+
+/**
+ * This is some unit testing for skipping the StatCan lines which match no
+ * known city
+ */
+public class GeoCodeFilterTests extends BaseTestSuit
+{
+
+	/**
+	 * Loading the geo classification codes of the cities
+	 */
+	@Override
+	public void setupDelegate()
+	{
+		ReferenceDataRegistry.reload();
+	}
+
+	/**
+	 * Read the names of the records which the filter accepts
+	 *
+	 * @param content
+	 *            the lines to read; the geo classification codes are in the
+	 *            third column
+	 * @param filter
+	 *            the filter
+	 * @return the second column of each record which was accepted
+	 */
+	private List<String> accepted(String content, GeoCodeFilter filter) throws Exception
+	{
+		List<String> names = new ArrayList<String>();
+		CsvRecordSource records = new CsvRecordReader(new StringReader(content));
+		records.setFilter(filter);
+		try
+		{
+			while (records.next())
+			{
+				names.add(records.getString(1));
+			}
+		}
+		finally
+		{
+			records.close();
+		}
+		return names;
+	}
+
+	/**
+	 * Test that a line is kept if any of its codes is a city, or the parent of
+	 * one; and that the lines for other geographies, and the footnotes, are
+	 * skipped
+	 */
+	@Test
+	public void testAccept() throws Exception
+	{
+		StringBuilder content = new StringBuilder();
+		content.append("2013/04,City,\"11\",5\n");
+		content.append("2013/04,Elsewhere,\"99,98\",5\n");
+		content.append("2013/04,Parent,\"1\",5\n");
+		content.append("2013/04,Any,\"x,98,22\",5\n");
+		content.append("2013/04,Empty,,5\n");
+		content.append("Footnotes:\n");
+		content.append("1,Source: Statistics Canada\n");
+
+		List<String> names = accepted(content.toString(), new GeoCodeFilter(2, 64));
+		assertEquals(3, names.size());
+		assertEquals("City", names.get(0));
+		assertEquals("Parent", names.get(1));
+		assertEquals("Any", names.get(2));
+	}
+
+	/**
+	 * Test that no more than the maximum number of codes are read from a line
+	 */
+	@Test
+	public void testMaxGeoCodes() throws Exception
+	{
+		String content = "2013/04,Last,\"99,11\",5\n2013/04,First,\"11,99\",5\n";
+		List<String> names = accepted(content, new GeoCodeFilter(2, 1));
+		assertEquals(1, names.size());
+		assertEquals("First", names.get(0));
+
+		assertEquals(2, accepted(content, new GeoCodeFilter(2, 2)).size());
+	}
+
+	/**
+	 * Test that the filter uses the codes of the cities as they were last
+	 * reloaded
+	 */
+	@Test
+	public void testReload() throws Exception
+	{
+		String content = "2013/04,New,\"33\",5\n";
+		GeoCodeFilter filter = new GeoCodeFilter(2, 64);
+		assertTrue(accepted(content, filter).isEmpty());
+
+		City city = new City();
+		city.cityId = 33;
+		city.cityParentId = 33;
+		city.cityName = "Fake3";
+		city.province = pr1;
+		city.save();
+		assertTrue(accepted(content, filter).isEmpty());
+
+		ReferenceDataRegistry.reload();
+		assertEquals("New", accepted(content, filter).get(0));
+	}
+
+}
@@ -0,0 +1,226 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import base.BaseTestSuit;
+import static org.junit.Assert.*;
+
+import com.theEd209s.dataLoading.IngestionService;
+import com.theEd209s.dataLoading.IngestionService.State;
+
+/**
+ * This is some unit testing for the background data ingestion
+ */
+public class IngestionServiceTests extends BaseTestSuit
+{
+
+	@Override
+	public void setupDelegate()
+	{
+
+	}
+
+	@After
+	public void stopIngestion()
+	{
+		IngestionService.stop();
+	}
+
+	/**
+	 * Wait for the ingestion to finish
+	 */
+	private void awaitCompletion() throws InterruptedException
+	{
+		for (int i = 0; i < 100 && IngestionService.getState() == State.LOADING; i++)
+		{
+			Thread.sleep(50);
+		}
+	}
+
+	/**
+	 * Test that the node is not ready while the data is loading, and is once
+	 * it has loaded
+	 */
+	@Test
+	public void testReadiness() throws Exception
+	{
+		final CountDownLatch release = new CountDownLatch(1);
+		assertTrue(IngestionService.start(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					release.await(5, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+			}
+		}));
+		assertEquals(State.LOADING, IngestionService.getState());
+		assertFalse(IngestionService.isReady());
+		// only one ingestion may run at a time
+		assertFalse(IngestionService.start(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+
+			}
+		}));
+
+		release.countDown();
+		awaitCompletion();
+		assertEquals(State.READY, IngestionService.getState());
+		assertTrue(IngestionService.isReady());
+		assertTrue(IngestionService.getCompletedTime() >= IngestionService.getStartedTime());
+	}
+
+	/**
+	 * Test that a failed ingestion leaves the node not ready
+	 */
+	@Test
+	public void testFailedIngestion() throws Exception
+	{
+		IngestionService.start(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				throw new IllegalStateException("test");
+			}
+		});
+		awaitCompletion();
+		assertEquals(State.FAILED, IngestionService.getState());
+		assertFalse(IngestionService.isReady());
+	}
+
+	/**
+	 * Test that an ingestion which failed without removing data leaves the
+	 * node ready, but stale, until the data is refreshed
+	 */
+	@Test
+	public void testStaleIngestion() throws Exception
+	{
+		IngestionService.start(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				throw new IngestionService.StaleDataException("test");
+			}
+		});
+		awaitCompletion();
+		assertEquals(State.STALE, IngestionService.getState());
+		assertTrue(IngestionService.isReady());
+
+		IngestionService.markRefreshed();
+		assertEquals(State.READY, IngestionService.getState());
+		assertTrue(IngestionService.isReady());
+	}
+
+	/**
+	 * Test that a refresh does not clear an ingestion which failed after
+	 * removing data, but a later ingestion does
+	 */
+	@Test
+	public void testFailedIngestionNotRefreshed() throws Exception
+	{
+		IngestionService.start(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				throw new IllegalStateException("test");
+			}
+		});
+		awaitCompletion();
+		IngestionService.markRefreshed();
+		assertEquals(State.FAILED, IngestionService.getState());
+		assertFalse(IngestionService.isReady());
+
+		IngestionService.start(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+
+			}
+		});
+		awaitCompletion();
+		assertEquals(State.READY, IngestionService.getState());
+		assertTrue(IngestionService.isReady());
+	}
+
+	/**
+	 * Start an ingestion which waits until it is released
+	 *
+	 * @param release
+	 *            the latch which releases the ingestion
+	 * @param removesNoData
+	 *            true if the ingestion removes no data
+	 */
+	private void startWaiting(final CountDownLatch release, boolean removesNoData)
+	{
+		assertTrue(IngestionService.start(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					release.await(5, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+			}
+		}, removesNoData));
+	}
+
+	/**
+	 * Test that the node stays ready while an ingestion which removes no data
+	 * is running, but only if it was ready when the ingestion started
+	 */
+	@Test
+	public void testReadyWhileLoadingWithoutRemoval() throws Exception
+	{
+		startWaiting(new CountDownLatch(0), false);
+		awaitCompletion();
+		assertEquals(State.READY, IngestionService.getState());
+
+		CountDownLatch release = new CountDownLatch(1);
+		startWaiting(release, true);
+		assertEquals(State.LOADING, IngestionService.getState());
+		assertTrue(IngestionService.isReady());
+		release.countDown();
+		awaitCompletion();
+
+		IngestionService.start(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				throw new IllegalStateException("test");
+			}
+		});
+		awaitCompletion();
+		assertEquals(State.FAILED, IngestionService.getState());
+
+		// the data which the failed ingestion removed is still missing
+		release = new CountDownLatch(1);
+		startWaiting(release, true);
+		assertEquals(State.LOADING, IngestionService.getState());
+		assertFalse(IngestionService.isReady());
+		release.countDown();
+		awaitCompletion();
+		assertTrue(IngestionService.isReady());
+	}
+
+}
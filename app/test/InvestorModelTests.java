@@ -0,0 +1,140 @@
+import java.util.Calendar;
+import java.util.List;
+
+import models.BuildingType;
+import models.City;
+import models.CityVacancy;
+import models.NewHousingPriceIndex;
+import models.RentalRate;
+import models.RentalRate.InvestorSummary;
+import models.UnitType;
+
+import org.junit.Test;
+
+import com.theEd209s.lookup.PriceIndexStore;
+
+import base.BaseTestSuit;
+import static org.junit.Assert.*;
+
+/**
+ * This is some unit testing for the Investor Models
+ */
+public class InvestorModelTests extends BaseTestSuit
+{
+
+	private int TEST_YEAR = 2014;
+
+	/**
+	 * Adding my test data
+	 */
+	@Override
+	public void setupDelegate()
+	{
+		BuildingType buildingType = new BuildingType();
+		buildingType.abbreviation = "RA1";
+		buildingType.save();
+
+		UnitType unitType = new UnitType();
+		unitType.abbreviation = "BA";
+		unitType.save();
+
+		for (int year = (TEST_YEAR - 1); year <= TEST_YEAR; year++)
+		{
+			RentalRate aRate = new RentalRate();
+			aRate.city = c1;
+			aRate.province = c1.province;
+			aRate.referenceYear = year;
+			aRate.rentalRate = 500;
+			aRate.buildingType = buildingType;
+			aRate.unitType = unitType;
+			aRate.save();
+		}
+
+		RentalRate otherRate = new RentalRate();
+		otherRate.city = c2;
+		otherRate.province = c2.province;
+		otherRate.referenceYear = TEST_YEAR;
+		otherRate.rentalRate = 700;
+		otherRate.buildingType = buildingType;
+		otherRate.unitType = unitType;
+		otherRate.save();
+
+		CityVacancy vacancy = new CityVacancy();
+		vacancy.city = c1;
+		vacancy.province = c1.province;
+		vacancy.referenceYear = TEST_YEAR;
+		vacancy.vacancyRate = 2.5f;
+		vacancy.save();
+
+		createIndexes(TEST_YEAR, c1);
+		createIndexes(TEST_YEAR, c2);
+
+		PriceIndexStore.rebuild();
+	}
+
+	/**
+	 * Build a set of indexes for a specific year and save them to the DB
+	 *
+	 * @param year
+	 *            the reference year to make the indexes for
+	 */
+	private void createIndexes(int year, City city)
+	{
+		Calendar cal = Calendar.getInstance();
+		float pIndex = 0.0f;
+		for (int i = 0; i < 12; i++)
+		{
+			NewHousingPriceIndex index = new NewHousingPriceIndex();
+			index.city = city;
+			index.province = city.province;
+
+			cal.set(year, i, 1);
+
+			index.referenceDate = new java.sql.Date(cal.getTime().getTime());
+
+			index.priceIndex = (pIndex + 0.1f);
+			pIndex += 0.1f;
+
+			index.save();
+		}
+	}
+
+	/**
+	 * Test that only the rental rates for the province are returned, along
+	 * with their vacancy rate and yearly price index
+	 */
+	@Test
+	public void testInvestorSummaries()
+	{
+		List<InvestorSummary> summaries = RentalRate.getInvestorSummariesOnLocation(pr1.provinceId, 25);
+
+		assertEquals(2, summaries.size());
+		for (InvestorSummary summary : summaries)
+		{
+			assertEquals(c1.cityName, summary.cityName);
+			assertEquals(pr1.abbreviation, summary.provinceAbbreviation);
+			assertEquals("RA1", summary.buildingTypeAbbreviation);
+			assertEquals("BA", summary.unitTypeAbbreviation);
+			if (summary.referenceYear == TEST_YEAR)
+			{
+				assertEquals(2.5f, summary.vacancyRate, 0.001f);
+				assertEquals(0.65, Math.round(summary.avgPriceIndex * 100.0) / 100.0, 0.001);
+			}
+			else
+			{
+				assertEquals(0f, summary.vacancyRate, 0.001f);
+				assertEquals(0.0, summary.avgPriceIndex, 0.001);
+			}
+		}
+	}
+
+	/**
+	 * Test that the max rows are respected
+	 */
+	@Test
+	public void testInvestorSummariesMaxRows()
+	{
+		assertEquals(1, RentalRate.getInvestorSummariesOnLocation(pr1.provinceId, 1).size());
+		assertEquals(0, RentalRate.getInvestorSummariesOnLocation(99, 25).size());
+	}
+}
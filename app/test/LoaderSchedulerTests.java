@@ -0,0 +1,116 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import base.BaseTestSuit;
+import static org.junit.Assert.*;
+
+import com.theEd209s.dataLoading.LoaderScheduler;
+
+/**
+ * This is some unit testing for the scheduling of the data loaders
+ */
+public class LoaderSchedulerTests extends BaseTestSuit
+{
+
+	@Override
+	public void setupDelegate()
+	{
+
+	}
+
+	/**
+	 * Build a stage that records when it ran
+	 *
+	 * @param name
+	 *            the name of the stage
+	 * @param completed
+	 *            the list that the stage adds its name to once it has run
+	 * @return the stage
+	 */
+	private Runnable createStage(final String name, final List<String> completed)
+	{
+		return new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				completed.add(name);
+			}
+		};
+	}
+
+	/**
+	 * Test that every stage runs after the stages it depends on, and that a
+	 * dependency on a stage that was never scheduled is ignored
+	 */
+	@Test
+	public void testDependencies() throws Exception
+	{
+		List<String> completed = Collections.synchronizedList(new ArrayList<String>());
+		LoaderScheduler scheduler = new LoaderScheduler(4);
+		scheduler.schedule("cities", createStage("cities", completed), "provinces", "csdIndex");
+		scheduler.schedule("rentalRates", createStage("rentalRates", completed), "cities", "buildingTypes");
+		scheduler.schedule("provinces", createStage("provinces", completed));
+		scheduler.schedule("csdIndex", createStage("csdIndex", completed), "provinces", "csdTypes");
+		scheduler.schedule("mortgageRates", createStage("mortgageRates", completed));
+		scheduler.run();
+
+		assertEquals(5, completed.size());
+		assertTrue(completed.indexOf("provinces") < completed.indexOf("csdIndex"));
+		assertTrue(completed.indexOf("csdIndex") < completed.indexOf("cities"));
+		assertTrue(completed.indexOf("cities") < completed.indexOf("rentalRates"));
+		assertTrue(scheduler.getElapsedTime("rentalRates") >= 0);
+		assertEquals(-1, scheduler.getElapsedTime("buildingTypes"));
+		assertTrue(scheduler.getTotalElapsedTime() >= 0);
+		assertTrue(scheduler.getFailedStages().isEmpty());
+	}
+
+	/**
+	 * Test that a failed stage does not stop the stages that depend on it
+	 */
+	@Test
+	public void testFailedStage() throws Exception
+	{
+		List<String> completed = Collections.synchronizedList(new ArrayList<String>());
+		LoaderScheduler scheduler = new LoaderScheduler(2);
+		scheduler.schedule("provinces", new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				throw new IllegalStateException("test");
+			}
+		});
+		scheduler.schedule("cities", createStage("cities", completed), "provinces");
+		scheduler.run();
+
+		assertEquals(1, completed.size());
+		assertEquals(Arrays.asList("provinces"), scheduler.getFailedStages());
+	}
+
+	/**
+	 * Test that circular dependencies are rejected before any stage runs
+	 */
+	@Test
+	public void testCircularDependencies() throws Exception
+	{
+		List<String> completed = Collections.synchronizedList(new ArrayList<String>());
+		LoaderScheduler scheduler = new LoaderScheduler(2);
+		scheduler.schedule("a", createStage("a", completed), "b");
+		scheduler.schedule("b", createStage("b", completed), "a");
+		scheduler.schedule("c", createStage("c", completed));
+		try
+		{
+			scheduler.run();
+			fail("Expected the circular dependencies to be rejected");
+		}
+		catch (IllegalStateException e)
+		{
+			assertTrue(completed.isEmpty());
+		}
+	}
+}
@@ -0,0 +1,300 @@
+import java.io.File;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+import base.BaseTestSuit;
+import static org.junit.Assert.*;
+
+import com.theEd209s.utils.CsvRecordReader;
+import com.theEd209s.utils.CsvRecordSource;
+import com.theEd209s.utils.CsvTokenizer;
+import com.theEd209s.utils.MappedCsvReader;
+
+/**
+ * This is some unit testing for the memory-mapped reading of CSV files
+ */
+public class MappedCsvReaderTests extends BaseTestSuit
+{
+
+	/**
+	 * The number of bytes which the reader copies out of the file at once
+	 */
+	private static final int INPUT_SIZE = 64 * 1024;
+
+	private File file;
+
+	@Override
+	public void setupDelegate()
+	{
+		file = new File(System.getProperty("java.io.tmpdir"), "mappedCsvReaderTests_" + System.nanoTime() + ".csv");
+	}
+
+	@After
+	public void teardown()
+	{
+		file.delete();
+	}
+
+	/**
+	 * Read every record of the specified source
+	 *
+	 * @param records
+	 *            the source to read; it is closed once read
+	 * @return the columns of each record, along with its line number as the
+	 *         last column
+	 */
+	private List<List<String>> readAll(CsvRecordSource records) throws Exception
+	{
+		List<List<String>> read = new ArrayList<List<String>>();
+		try
+		{
+			while (records.next())
+			{
+				List<String> columns = new ArrayList<String>();
+				for (int n = 0; n < records.getColumnCount(); n++)
+				{
+					columns.add(records.getString(n));
+				}
+				columns.add(String.valueOf(records.getLineNumber()));
+				read.add(columns);
+			}
+		}
+		finally
+		{
+			records.close();
+		}
+		return read;
+	}
+
+	/**
+	 * Write the content to the file and read it back through a
+	 * MappedCsvReader
+	 *
+	 * @param content
+	 *            the content of the file
+	 * @return the records read; see {@link #readAll(CsvRecordSource)}
+	 */
+	private List<List<String>> readMapped(String content) throws Exception
+	{
+		return readAll(new MappedCsvReader(write(content)));
+	}
+
+	/**
+	 * Test that a quoted column keeps its line breaks, and that the line
+	 * numbers count them
+	 */
+	@Test
+	public void testMultiLineQuotedField() throws Exception
+	{
+		List<List<String>> records = readMapped("a,\"b\nc\r\nd\",e\nf,g\n");
+		assertEquals(2, records.size());
+		assertEquals("a", records.get(0).get(0));
+		assertEquals("b\nc\r\nd", records.get(0).get(1));
+		assertEquals("e", records.get(0).get(2));
+		assertEquals("1", records.get(0).get(3));
+		assertEquals("f", records.get(1).get(0));
+		assertEquals("4", records.get(1).get(2));
+	}
+
+	/**
+	 * Test that a quote which is not closed within MAX_RECORD_LINES lines, or
+	 * before the end of the file, is read as a rogue quote on a single line
+	 */
+	@Test
+	public void testUnclosedQuoteFallback() throws Exception
+	{
+		StringBuilder content = new StringBuilder("a,\"b\n");
+		for (int n = 0; n < MappedCsvReader.MAX_RECORD_LINES; n++)
+		{
+			content.append("c,").append(n).append('\n');
+		}
+		content.append("d\",e\n");
+		List<List<String>> records = readMapped(content.toString());
+		assertEquals(MappedCsvReader.MAX_RECORD_LINES + 2, records.size());
+		assertEquals("\"b", records.get(0).get(1));
+		assertEquals("0", records.get(1).get(1));
+		assertEquals("2", records.get(1).get(2));
+		assertEquals("d\"", records.get(records.size() - 1).get(0));
+
+		// the same quote closed within the limit joins the lines
+		records = readMapped("a,\"b\nc,0\nd\",e\n");
+		assertEquals(1, records.size());
+		assertEquals("b\nc,0\nd", records.get(0).get(1));
+
+		// and one which is never closed is read the same as one closed too late
+		records = readMapped("a,\"b\nc,0\n");
+		assertEquals(2, records.size());
+		assertEquals("\"b", records.get(0).get(1));
+	}
+
+	/**
+	 * Test that the multi-byte characters which straddle the end of each
+	 * block copied out of the file are read whole; the same as when read
+	 * line by line
+	 */
+	@Test
+	public void testMultiByteAtBufferBoundary() throws Exception
+	{
+		// 2, 3 and 4 byte characters
+		String wide = "é€😀";
+		for (int shift = 1; shift <= 10; shift++)
+		{
+			StringBuilder content = new StringBuilder();
+			for (int n = 0; n < (INPUT_SIZE - shift); n++)
+			{
+				content.append('a');
+			}
+			content.append(',').append(wide).append(",x\n\"").append(wide).append("\",").append(wide).append('\n');
+			List<List<String>> mapped = readMapped(content.toString());
+			assertEquals(2, mapped.size());
+			assertEquals(wide, mapped.get(0).get(1));
+			assertEquals(wide, mapped.get(1).get(0));
+			assertEquals(wide, mapped.get(1).get(1));
+			assertEquals(readAll(new CsvRecordReader(new StringReader(content.toString()))), mapped);
+		}
+	}
+
+	/**
+	 * Test that the columns which are not needed are still counted, but read
+	 * as missing; by both kinds of source
+	 */
+	@Test
+	public void testProjection() throws Exception
+	{
+		String content = "a,\"1,2\",3.5,x\n\"b,c\",13,4.5\n";
+		Files.write(file.toPath(), content.getBytes("UTF-8"));
+		CsvRecordSource[] sources = { new MappedCsvReader(file), new CsvRecordReader(new StringReader(content)) };
+		for (CsvRecordSource records : sources)
+		{
+			try
+			{
+				records.setColumns(0, 2);
+				assertTrue(records.next());
+				// a quoted column which is skipped still hides its separator
+				assertEquals(4, records.getColumnCount());
+				assertEquals("a", records.getString(0));
+				assertNull(records.getString(1));
+				assertEquals(CsvRecordSource.STATUS_MISSING, records.getStatus());
+				assertEquals(-1, records.getInt(1, -1));
+				assertEquals(CsvRecordSource.STATUS_MISSING, records.getStatus());
+				assertEquals(3.5f, records.getFloat(2, -1f), 0f);
+				assertEquals(CsvRecordSource.STATUS_OK, records.getStatus());
+				assertNull(records.getString(3));
+				assertEquals(CsvRecordSource.STATUS_MISSING, records.getStatus());
+
+				// every column is read once the projection is cleared
+				records.setColumns((int[]) null);
+				assertTrue(records.next());
+				assertEquals(3, records.getColumnCount());
+				assertEquals("b,c", records.getString(0));
+				assertEquals(13, records.getInt(1, -1));
+				assertEquals(CsvRecordSource.STATUS_OK, records.getStatus());
+				assertFalse(records.next());
+			}
+			finally
+			{
+				records.close();
+			}
+		}
+	}
+
+	/**
+	 * Test that the records which the filter rejects are never returned, so
+	 * the caller never reads them; and that empty lines never reach the
+	 * filter
+	 */
+	@Test
+	public void testFilter() throws Exception
+	{
+		String content = "1,keep\n2,drop\n\n3,keep\nfootnote\n5,\"keep\nthis\"\n";
+		Files.write(file.toPath(), content.getBytes("UTF-8"));
+		final int[] filtered = new int[1];
+		CsvRecordSource.RecordFilter oddOnly = new CsvRecordSource.RecordFilter()
+		{
+			@Override
+			public boolean accept(CsvRecordSource record)
+			{
+				filtered[0]++;
+				return (record.getInt(0, 0) % 2) == 1;
+			}
+		};
+
+		MappedCsvReader mapped = new MappedCsvReader(file);
+		mapped.setFilter(oddOnly);
+		List<List<String>> records = readAll(mapped);
+		assertEquals(5, filtered[0]);
+		assertEquals(3, records.size());
+		assertEquals("1", records.get(0).get(0));
+		assertEquals("1", records.get(0).get(2));
+		assertEquals("3", records.get(1).get(0));
+		assertEquals("4", records.get(1).get(2));
+		assertEquals("keep\nthis", records.get(2).get(1));
+
+		CsvRecordReader reader = new CsvRecordReader(new StringReader("1,keep\n2,drop\n\n3,keep\nfootnote\n"));
+		reader.setFilter(oddOnly);
+		records = readAll(reader);
+		assertEquals(2, records.size());
+		assertEquals("3", records.get(1).get(0));
+		assertEquals("4", records.get(1).get(2));
+	}
+
+	/**
+	 * Test that a reader whose records do not span lines reads every line
+	 * as a record, exactly as a CsvRecordReader does; whatever the quotes,
+	 * white-space, line breaks and rules
+	 */
+	@Test
+	public void testLinePerRecord() throws Exception
+	{
+		List<List<String>> records = readAll(new MappedCsvReader(write("\uFEFFa,\"b\nc\",d\n \n\r\ne\r\"f\n"), ',', false, false, false));
+		assertEquals(4, records.size());
+		assertEquals("a", records.get(0).get(0));
+		assertEquals("\"b", records.get(0).get(1));
+		assertEquals("c\"", records.get(1).get(0));
+		assertEquals("2", records.get(1).get(2));
+		assertEquals("e", records.get(2).get(0));
+		assertEquals("5", records.get(2).get(1));
+		assertEquals("\"f", records.get(3).get(0));
+
+		String alphabet = "ab ,,\"\"''\n\r;\u00e9";
+		Random random = new Random(1L);
+		for (int n = 0; n < 500; n++)
+		{
+			StringBuilder content = new StringBuilder();
+			int length = random.nextInt(200);
+			if (random.nextInt(10) == 0)
+			{
+				content.append('\uFEFF');
+			}
+			for (int c = 0; c < length; c++)
+			{
+				content.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+			char separator = (random.nextBoolean()) ? ',' : ';';
+			boolean group = random.nextBoolean();
+			boolean trim = random.nextBoolean();
+			List<List<String>> expected = readAll(new CsvRecordReader(new StringReader(content.toString()), new CsvTokenizer(separator, group, trim)));
+			assertEquals(content.toString(), expected, readAll(new MappedCsvReader(write(content.toString()), separator, group, trim, false)));
+		}
+	}
+
+	/**
+	 * Write the content to the file
+	 *
+	 * @param content
+	 *            the content of the file
+	 * @return the file
+	 */
+	private File write(String content) throws Exception
+	{
+		Files.write(file.toPath(), content.getBytes("UTF-8"));
+		return file;
+	}
+
+}
@@ -0,0 +1,426 @@
+import java.io.File;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import base.BaseTestSuit;
+import static org.junit.Assert.*;
+
+import com.theEd209s.utils.CsvParser;
+import com.theEd209s.utils.CsvRecordReader;
+import com.theEd209s.utils.CsvRecordSource;
+import com.theEd209s.utils.MappedCsvReader;
+import com.theEd209s.utils.ParallelCsvScanner;
+import com.theEd209s.utils.ParallelCsvScanner.RecordParser;
+import com.theEd209s.utils.ParallelCsvScanner.RecordSink;
+
+/**
+ * This is some unit testing for the parallel parsing of CSV files
+ */
+public class ParallelCsvScannerTests extends BaseTestSuit
+{
+
+	/**
+	 * The smallest chunk which the scanner splits a file into
+	 */
+	private static final int CHUNK_SIZE = 64 * 1024;
+
+	private File file;
+	private ForkJoinPool pool;
+
+	@Override
+	public void setupDelegate()
+	{
+		file = new File(System.getProperty("java.io.tmpdir"), "parallelCsvScannerTests_" + System.nanoTime() + ".csv");
+		pool = new ForkJoinPool(4);
+	}
+
+	@After
+	public void teardown()
+	{
+		pool.shutdownNow();
+		file.delete();
+	}
+
+	/**
+	 * A parser which makes a single row of the first 3 columns of each record
+	 */
+	private static final RecordParser<String> PARSER = new RecordParser<String>()
+	{
+		@Override
+		public void parse(CsvRecordSource record, List<String> rows)
+		{
+			rows.add(record.getString(0) + "|" + record.getString(1) + "|" + record.getString(2));
+		}
+	};
+
+	/**
+	 * Build the content of a file whose records each have a quoted column
+	 * spanning several lines; so most of the line breaks are within a quoted
+	 * column, and the chunks are split within them
+	 *
+	 * @param recordCount
+	 *            the number of records
+	 * @return the content of the file
+	 */
+	private String multiLineRecords(int recordCount)
+	{
+		StringBuilder content = new StringBuilder();
+		for (int n = 0; n < recordCount; n++)
+		{
+			content.append(n).append(",\"");
+			for (int line = 0; line < 20; line++)
+			{
+				if (line > 0)
+				{
+					content.append('\n');
+				}
+				content.append("line ").append(line).append(" of record ").append(n).append(", with a comma");
+			}
+			content.append("\",").append(n * 3).append('\n');
+		}
+		return content.toString();
+	}
+
+	/**
+	 * Write the content to the file
+	 *
+	 * @param content
+	 *            the content of the file
+	 */
+	private void write(String content) throws Exception
+	{
+		Files.write(file.toPath(), content.getBytes("UTF-8"));
+	}
+
+	/**
+	 * Parse the file one record at a time, through a single MappedCsvReader
+	 *
+	 * @return the rows of the file
+	 */
+	private List<String> readSequential() throws Exception
+	{
+		List<String> rows = new ArrayList<String>();
+		MappedCsvReader records = new MappedCsvReader(file);
+		try
+		{
+			while (records.next())
+			{
+				PARSER.parse(records, rows);
+			}
+		}
+		finally
+		{
+			records.close();
+		}
+		return rows;
+	}
+
+	/**
+	 * Parse the file in parallel
+	 *
+	 * @param preserveOrder
+	 *            true to hand the rows on in the order of the file
+	 * @return the rows, in the order the sink received them
+	 */
+	private List<String> scan(boolean preserveOrder) throws Exception
+	{
+		final List<String> rows = Collections.synchronizedList(new ArrayList<String>());
+		int count = new ParallelCsvScanner(pool, CHUNK_SIZE).scan(file, PARSER, new RecordSink<String>()
+		{
+			@Override
+			public void add(List<String> chunkRows)
+			{
+				rows.addAll(chunkRows);
+			}
+		}, preserveOrder);
+		assertEquals(rows.size(), count);
+		return rows;
+	}
+
+	/**
+	 * Test that chunks which are split within a quoted column spanning
+	 * several lines are parsed from the start of the record, so every record
+	 * is read once and whole
+	 */
+	@Test
+	public void testChunkSplitWithinQuotedColumn() throws Exception
+	{
+		String content = multiLineRecords(1000);
+		write(content);
+		assertTrue(content.length() > (CHUNK_SIZE * 8));
+
+		// the first chunk ends at the first line break after its size, which is within a quoted column
+		int split = content.indexOf('\n', CHUNK_SIZE);
+		int quotes = 0;
+		for (int n = 0; n < split; n++)
+		{
+			if (content.charAt(n) == '"')
+			{
+				quotes++;
+			}
+		}
+		assertEquals(1, quotes % 2);
+
+		List<String> rows = scan(true);
+		assertEquals(1000, rows.size());
+		assertEquals(readSequential(), rows);
+		assertTrue(rows.get(999).startsWith("999|line 0 of record 999, with a comma\nline 1 of record 999"));
+		assertTrue(rows.get(999).endsWith("line 19 of record 999, with a comma|2997"));
+	}
+
+	/**
+	 * Test that a scanner whose records do not span lines parses every line
+	 * as a record, exactly as a CsvRecordReader does; even though the chunks
+	 * are split within the quotes which would otherwise join the lines
+	 */
+	@Test
+	public void testLinePerRecord() throws Exception
+	{
+		StringBuilder content = new StringBuilder(multiLineRecords(1000));
+		for (int n = 0; n < 5000; n++)
+		{
+			content.append((n % 3 == 0) ? "\n \n" : "").append(n).append(",'value ").append(n).append(",\"").append(n * 2).append("\r\n");
+		}
+		write(content.toString());
+
+		final List<String> rows = new ArrayList<String>();
+		int count = new ParallelCsvScanner(pool, CHUNK_SIZE, CsvParser.DEFAULT_SEPARATOR_CHAR, false, false, false).scan(file, PARSER, new RecordSink<String>()
+		{
+			@Override
+			public void add(List<String> chunkRows)
+			{
+				rows.addAll(chunkRows);
+			}
+		}, true);
+
+		List<String> expected = new ArrayList<String>();
+		CsvRecordReader records = new CsvRecordReader(new StringReader(content.toString()));
+		try
+		{
+			while (records.next())
+			{
+				PARSER.parse(records, expected);
+			}
+		}
+		finally
+		{
+			records.close();
+		}
+		assertEquals((1000 * 20) + 5000, expected.size());
+		assertEquals(expected.size(), count);
+		assertEquals(expected, rows);
+	}
+
+	/**
+	 * Test that the rows are handed on in the order of the file, by the
+	 * calling thread, when the order is preserved; the same as a single
+	 * MappedCsvReader
+	 */
+	@Test
+	public void testPreserveOrder() throws Exception
+	{
+		StringBuilder content = new StringBuilder();
+		for (int n = 0; n < 20000; n++)
+		{
+			if ((n % 7) == 0)
+			{
+				content.append("a,\"b\nc\",").append(n).append('\n');
+			}
+			else if ((n % 11) == 0)
+			{
+				content.append("\n \n");
+			}
+			else
+			{
+				content.append(n).append(",value ").append(n).append(',').append(n * 2).append("\r\n");
+			}
+		}
+		write(content.toString());
+
+		final Thread caller = Thread.currentThread();
+		final List<String> rows = new ArrayList<String>();
+		int count = new ParallelCsvScanner(pool, CHUNK_SIZE).scan(file, PARSER, new RecordSink<String>()
+		{
+			@Override
+			public void add(List<String> chunkRows)
+			{
+				assertSame(caller, Thread.currentThread());
+				rows.addAll(chunkRows);
+			}
+		}, true);
+		List<String> expected = readSequential();
+		assertTrue(expected.size() > 10000);
+		assertEquals(expected.size(), count);
+		assertEquals(expected, rows);
+	}
+
+	/**
+	 * Test that every row is handed on exactly once when the order is not
+	 * preserved
+	 */
+	@Test
+	public void testUnordered() throws Exception
+	{
+		write(multiLineRecords(1000));
+		List<String> rows = scan(false);
+		List<String> expected = readSequential();
+		Collections.sort(rows);
+		Collections.sort(expected);
+		assertEquals(expected, rows);
+	}
+
+	/**
+	 * Test that a chunk which is slow to be handed on holds back the parsing
+	 * when the order is not preserved, rather than every chunk being parsed
+	 * and queued behind it
+	 */
+	@Test
+	public void testUnorderedSinkBoundsParsing() throws Exception
+	{
+		write(multiLineRecords(3000));
+		final ForkJoinPool twoThreads = new ForkJoinPool(2);
+		final AtomicInteger parsed = new AtomicInteger();
+		final AtomicInteger delivered = new AtomicInteger();
+		final CountDownLatch release = new CountDownLatch(1);
+		final Exception[] failure = new Exception[1];
+		Thread scanner = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					new ParallelCsvScanner(twoThreads, CHUNK_SIZE).scan(file, new RecordParser<String>()
+					{
+						@Override
+						public void parse(CsvRecordSource record, List<String> rows)
+						{
+							parsed.incrementAndGet();
+							PARSER.parse(record, rows);
+						}
+					}, new RecordSink<String>()
+					{
+						@Override
+						public void add(List<String> chunkRows)
+						{
+							// only the first chunk is held up; the rest are handed on by the other thread
+							if (delivered.getAndAdd(chunkRows.size()) == 0)
+							{
+								try
+								{
+									release.await(10, TimeUnit.SECONDS);
+								}
+								catch (InterruptedException e)
+								{
+									Thread.currentThread().interrupt();
+								}
+							}
+						}
+					}, false);
+				}
+				catch (Exception e)
+				{
+					failure[0] = e;
+				}
+			}
+		});
+		try
+		{
+			scanner.start();
+			Thread.sleep(1000);
+			assertTrue(String.valueOf(parsed.get()), parsed.get() < 1500);
+		}
+		finally
+		{
+			release.countDown();
+			scanner.join(30000);
+			twoThreads.shutdownNow();
+		}
+		assertNull(failure[0]);
+		assertEquals(3000, delivered.get());
+	}
+
+	/**
+	 * Test that the projection and the filter are applied to every chunk;
+	 * the rejected records are never handed to the parser, and the columns
+	 * which are not needed read as missing
+	 */
+	@Test
+	public void testProjectionAndFilter() throws Exception
+	{
+		StringBuilder content = new StringBuilder();
+		for (int n = 0; n < 30000; n++)
+		{
+			content.append(n).append(",name ").append(n).append(',').append(n * 2).append('\n');
+		}
+		write(content.toString());
+
+		final AtomicInteger filtered = new AtomicInteger();
+		CsvRecordSource.RecordFilter everyThird = new CsvRecordSource.RecordFilter()
+		{
+			@Override
+			public boolean accept(CsvRecordSource record)
+			{
+				filtered.incrementAndGet();
+				return (record.getInt(0, -1) % 3) == 0;
+			}
+		};
+		final AtomicInteger parsed = new AtomicInteger();
+		RecordParser<String> parser = new RecordParser<String>()
+		{
+			@Override
+			public void parse(CsvRecordSource record, List<String> rows)
+			{
+				parsed.incrementAndGet();
+				PARSER.parse(record, rows);
+			}
+		};
+
+		ParallelCsvScanner scanner = new ParallelCsvScanner(pool, CHUNK_SIZE);
+		scanner.setColumns(0, 2);
+		scanner.setFilter(everyThird);
+		final List<String> rows = new ArrayList<String>();
+		int count = scanner.scan(file, parser, new RecordSink<String>()
+		{
+			@Override
+			public void add(List<String> chunkRows)
+			{
+				rows.addAll(chunkRows);
+			}
+		}, true);
+
+		assertEquals(10000, count);
+		assertEquals(10000, parsed.get());
+		assertTrue(filtered.get() >= 30000);
+		assertEquals("0|null|0", rows.get(0));
+		assertEquals("29997|null|59994", rows.get(9999));
+
+		MappedCsvReader records = new MappedCsvReader(file);
+		records.setColumns(0, 2);
+		records.setFilter(everyThird);
+		List<String> expected = new ArrayList<String>();
+		try
+		{
+			while (records.next())
+			{
+				PARSER.parse(records, expected);
+			}
+		}
+		finally
+		{
+			records.close();
+		}
+		assertEquals(expected, rows);
+	}
+
+}
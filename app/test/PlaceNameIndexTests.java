@@ -0,0 +1,196 @@
+import java.util.ArrayList;
+import java.util.List;
+
+import models.CSDIndex;
+
+import org.junit.Test;
+
+import base.BaseTestSuit;
+import static org.junit.Assert.*;
+
+import com.theEd209s.lookup.PlaceNameIndex;
+import com.theEd209s.lookup.PlaceNameIndex.Place;
+import com.theEd209s.lookup.ReferenceDataRegistry;
+
+/**
+ * This is some unit testing for the place name autocomplete index
+ */
+public class PlaceNameIndexTests extends BaseTestSuit
+{
+
+	private int nextSubDivision = 1;
+
+	/**
+	 * Adding the places to search, then building the index
+	 */
+	@Override
+	public void setupDelegate()
+	{
+		createPlace("Jeanville");
+		createPlace("Saint-Jean");
+		createPlace("Dejean");
+		createPlace("Port Jean");
+		createPlace("Jean");
+		createPlace("Montr\u00e9al");
+		createPlace("Mont-Royal");
+		createPlace("Qu\u00e9bec");
+
+		ReferenceDataRegistry.reload();
+		PlaceNameIndex.rebuild();
+	}
+
+	/**
+	 * Save a CSD index for a place in the first province
+	 *
+	 * @param name
+	 *            the name of the place
+	 * @return the CSD index
+	 */
+	private CSDIndex createPlace(String name)
+	{
+		CSDIndex index = new CSDIndex();
+		index.placeName = name;
+		index.csdType = "C";
+		index.provinceCode = pr1.provinceId;
+		index.censusDivision = 10;
+		index.censusSubDivision = nextSubDivision++;
+		index.censusAgglomeration = 100;
+		index.save();
+		return index;
+	}
+
+	/**
+	 * Get the names of the places
+	 *
+	 * @param places
+	 *            the places
+	 * @return their names, in the same order
+	 */
+	private List<String> names(List<Place> places)
+	{
+		List<String> names = new ArrayList<String>();
+		for (Place place : places)
+		{
+			names.add(place.name);
+		}
+		return names;
+	}
+
+	/**
+	 * Test that the matches are ranked prefix first (exact match leading),
+	 * then word start, then anywhere else in the name
+	 */
+	@Test
+	public void testRanking()
+	{
+		List<Place> results = PlaceNameIndex.getInstance().search("jean", 25);
+		assertEquals(names(results).toString(), 5, results.size());
+		assertEquals("Jean", results.get(0).name);
+		assertEquals("Jeanville", results.get(1).name);
+		assertEquals("Port Jean", results.get(2).name);
+		assertEquals("Saint-Jean", results.get(3).name);
+		assertEquals("Dejean", results.get(4).name);
+	}
+
+	/**
+	 * Test that searching ignores case and accents, in both the query and the
+	 * place names
+	 */
+	@Test
+	public void testNormalization()
+	{
+		assertEquals("saint jerome", PlaceNameIndex.normalize("  Saint   J\u00c9R\u00d4ME "));
+		assertEquals("", PlaceNameIndex.normalize(null));
+		assertEquals("", PlaceNameIndex.normalize(""));
+
+		List<String> expected = new ArrayList<String>();
+		expected.add("Montr\u00e9al");
+		assertEquals(expected, names(PlaceNameIndex.getInstance().search("montreal", 25)));
+		assertEquals(expected, names(PlaceNameIndex.getInstance().search("MONTR\u00c9AL", 25)));
+		assertEquals("Qu\u00e9bec", PlaceNameIndex.getInstance().search("quebec", 25).get(0).name);
+	}
+
+	/**
+	 * Test that queries too short to have trigrams still find every match,
+	 * in the same order
+	 */
+	@Test
+	public void testShortQueries()
+	{
+		assertEquals(names(PlaceNameIndex.getInstance().search("jean", 25)), names(PlaceNameIndex.getInstance().search("je", 25)));
+
+		List<String> monts = names(PlaceNameIndex.getInstance().search("mo", 25));
+		assertEquals(2, monts.size());
+		assertEquals("Mont-Royal", monts.get(0));
+		assertEquals("Montr\u00e9al", monts.get(1));
+
+		assertEquals("Qu\u00e9bec", PlaceNameIndex.getInstance().search("Q", 25).get(0).name);
+	}
+
+	/**
+	 * Test that no more than the requested number of places are returned,
+	 * keeping the best ranked
+	 */
+	@Test
+	public void testLimit()
+	{
+		List<Place> results = PlaceNameIndex.getInstance().search("jean", 3);
+		assertEquals(3, results.size());
+		assertEquals("Jean", results.get(0).name);
+		assertEquals("Jeanville", results.get(1).name);
+		assertEquals("Port Jean", results.get(2).name);
+
+		assertEquals(1, PlaceNameIndex.getInstance().search("jean", 1).size());
+		assertEquals(0, PlaceNameIndex.getInstance().search("jean", 0).size());
+	}
+
+	/**
+	 * Test that empty queries, and those that match nothing, return no places
+	 */
+	@Test
+	public void testNoMatches()
+	{
+		assertTrue(PlaceNameIndex.getInstance().search("", 25).isEmpty());
+		assertTrue(PlaceNameIndex.getInstance().search("   ", 25).isEmpty());
+		assertTrue(PlaceNameIndex.getInstance().search(null, 25).isEmpty());
+		assertTrue(PlaceNameIndex.getInstance().search("xyz", 25).isEmpty());
+		assertTrue(PlaceNameIndex.getInstance().search("jeanz", 25).isEmpty());
+	}
+
+	/**
+	 * Test that a place carries its province and SGC codes
+	 */
+	@Test
+	public void testPlaceDetails()
+	{
+		Place place = PlaceNameIndex.getInstance().search("dejean", 25).get(0);
+		assertEquals("C", place.csdType);
+		assertEquals(pr1.abbreviation, place.provinceAbbreviation);
+		assertEquals("01100", place.scgCode5);
+		assertEquals("0110003", place.scgCode7);
+	}
+
+	/**
+	 * Test that new places are only found once the index is rebuilt, and that
+	 * the rebuild changes the version of the index
+	 */
+	@Test
+	public void testRebuild()
+	{
+		PlaceNameIndex before = PlaceNameIndex.getInstance();
+		assertEquals(8, before.size());
+		assertEquals(before.getVersion(), PlaceNameIndex.rebuild().getVersion());
+
+		createPlace("Lac-Saint-Jean");
+		assertEquals(5, PlaceNameIndex.getInstance().search("jean", 25).size());
+
+		PlaceNameIndex after = PlaceNameIndex.rebuild();
+		assertEquals(9, after.size());
+		assertFalse(before.getVersion() == after.getVersion());
+		List<String> results = names(after.search("jean", 25));
+		assertEquals(6, results.size());
+		// a word start match, in alphabetical order with the others
+		assertEquals("Lac-Saint-Jean", results.get(2));
+		assertEquals("Dejean", results.get(5));
+	}
+}
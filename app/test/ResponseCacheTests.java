@@ -0,0 +1,142 @@
+import static play.test.Helpers.GET;
+import static play.test.Helpers.OK;
+import static play.test.Helpers.callAction;
+import static play.test.Helpers.contentAsString;
+import static play.test.Helpers.fakeApplication;
+import static play.test.Helpers.fakeRequest;
+import static play.test.Helpers.inMemoryDatabase;
+import static play.test.Helpers.running;
+import static play.test.Helpers.status;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import models.CSDIndex;
+
+import org.junit.Test;
+
+import play.mvc.Result;
+import static org.junit.Assert.*;
+
+import com.theEd209s.lookup.DataRevisions;
+import com.theEd209s.lookup.PlaceNameIndex;
+import com.theEd209s.lookup.ReferenceDataRegistry;
+
+/**
+ * This is some unit testing for the caching of the API responses
+ */
+public class ResponseCacheTests
+{
+
+	/**
+	 * Build the configuration of the application
+	 *
+	 * @param cacheEnabled
+	 *            false to turn the response cache off
+	 * @return the configuration
+	 */
+	private Map<String, Object> configuration(boolean cacheEnabled)
+	{
+		Map<String, Object> configuration = new HashMap<String, Object>(inMemoryDatabase());
+		configuration.put("api.cache.enabled", cacheEnabled);
+		return configuration;
+	}
+
+	/**
+	 * Save a CSD index for a place
+	 *
+	 * @param name
+	 *            the name of the place
+	 * @param subDivision
+	 *            the unique census sub-division of the place
+	 */
+	private void createPlace(String name, int subDivision)
+	{
+		CSDIndex index = new CSDIndex();
+		index.placeName = name;
+		index.csdType = "C";
+		index.provinceCode = 1;
+		index.censusDivision = 10;
+		index.censusSubDivision = subDivision;
+		index.censusAgglomeration = 100;
+		index.save();
+	}
+
+	/**
+	 * Search the places through the API
+	 *
+	 * @param name
+	 *            the place name to search for
+	 * @return the response body
+	 */
+	private String searchPlaces(String name)
+	{
+		Result result = callAction(controllers.api.routes.ref.QueryApi.getLocationFromPlaceName(name), fakeRequest(GET, "/api/places?name=" + name));
+		assertEquals(OK, status(result));
+		return contentAsString(result);
+	}
+
+	/**
+	 * Test that a cached response is served until the tag of the data
+	 * changes, and is then rebuilt
+	 */
+	@Test
+	public void testCachedUntilTagChanges()
+	{
+		running(fakeApplication(configuration(true)), new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				createPlace("Jeanville", 1);
+				ReferenceDataRegistry.reload();
+				PlaceNameIndex.rebuild();
+				DataRevisions.reload();
+
+				String first = searchPlaces("jean");
+				assertTrue(first.contains("Jeanville"));
+
+				// without reloading the revisions the tag is unchanged, so the cached response is served
+				createPlace("Saint-Jean", 2);
+				PlaceNameIndex.rebuild();
+				assertEquals(1, PlaceNameIndex.getInstance().search("saint", 25).size());
+				assertEquals(first, searchPlaces("jean"));
+
+				// the tag changes once the revisions are reloaded
+				DataRevisions.reload();
+				String second = searchPlaces("jean");
+				assertTrue(second.contains("Jeanville"));
+				assertTrue(second.contains("Saint-Jean"));
+				assertEquals(second, searchPlaces("jean"));
+			}
+		});
+	}
+
+	/**
+	 * Test that every response is built from the current data when the cache
+	 * is turned off
+	 */
+	@Test
+	public void testDisabled()
+	{
+		running(fakeApplication(configuration(false)), new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				createPlace("Jeanville", 1);
+				ReferenceDataRegistry.reload();
+				PlaceNameIndex.rebuild();
+				DataRevisions.reload();
+
+				String first = searchPlaces("jean");
+				assertTrue(first.contains("Jeanville"));
+				assertFalse(first.contains("Saint-Jean"));
+
+				createPlace("Saint-Jean", 2);
+				PlaceNameIndex.rebuild();
+				assertTrue(searchPlaces("jean").contains("Saint-Jean"));
+			}
+		});
+	}
+}
@@ -0,0 +1,155 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+import base.BaseTestSuit;
+import base.StubHttpServer;
+import static org.junit.Assert.*;
+
+import com.theEd209s.dataLoading.StreamingDownload;
+
+/**
+ * This is some unit testing for streaming a download to its parser, against
+ * a local http server
+ */
+public class StreamingDownloadTests extends BaseTestSuit
+{
+
+	private StubHttpServer server;
+	private byte[] content;
+
+	@Override
+	public void setupDelegate()
+	{
+		content = new byte[300 * 1024];
+		new Random(1L).nextBytes(content);
+		try
+		{
+			server = new StubHttpServer(content, null);
+		}
+		catch (Exception e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@After
+	public void teardown()
+	{
+		server.stop();
+	}
+
+	/**
+	 * Read the whole of the download
+	 *
+	 * @param download
+	 *            the download to read; it is closed once read
+	 * @param read
+	 *            the stream to copy the bytes which were read to
+	 */
+	private void readAll(StreamingDownload download, ByteArrayOutputStream read) throws IOException
+	{
+		try
+		{
+			byte[] buffer = new byte[10000];
+			int count = 0;
+			while ((count = download.read(buffer, 0, buffer.length)) != -1)
+			{
+				read.write(buffer, 0, count);
+			}
+		}
+		finally
+		{
+			download.close();
+		}
+	}
+
+	/**
+	 * Test that every byte of the file is streamed
+	 */
+	@Test
+	public void testComplete() throws Exception
+	{
+		StreamingDownload download = StreamingDownload.open(server.getUrl("/data.csv"), null, 2);
+		ByteArrayOutputStream read = new ByteArrayOutputStream();
+		readAll(download, read);
+		assertTrue(Arrays.equals(content, read.toByteArray()));
+		assertNull(download.getFailure());
+	}
+
+	/**
+	 * Test that a connection which is dropped part way through the response
+	 * is resumed from the next byte, rather than looking like the end of the
+	 * file
+	 */
+	@Test
+	public void testDroppedConnectionResumed() throws Exception
+	{
+		server.setContent(content, "\"v1\"");
+		server.dropResponses(1, 100 * 1024);
+		StreamingDownload download = StreamingDownload.open(server.getUrl("/data.csv"), null, 2);
+		ByteArrayOutputStream read = new ByteArrayOutputStream();
+		readAll(download, read);
+		assertTrue(Arrays.equals(content, read.toByteArray()));
+		assertNull(download.getFailure());
+		assertEquals(Arrays.asList("bytes=" + (100 * 1024) + "-"), server.getRanges());
+		assertEquals(Arrays.asList("\"v1\""), server.getIfRanges());
+	}
+
+	/**
+	 * Test that a server which answers the resumed request with the whole
+	 * file fails the download, once the bytes before it have been read; they
+	 * have been handed on already, so the download can not restart
+	 */
+	@Test
+	public void testRangeIgnored() throws Exception
+	{
+		server.setRangeMode(StubHttpServer.RangeMode.IGNORED);
+		server.dropResponses(1, 100 * 1024);
+		StreamingDownload download = StreamingDownload.open(server.getUrl("/data.csv"), null, 2);
+		ByteArrayOutputStream read = new ByteArrayOutputStream();
+		try
+		{
+			readAll(download, read);
+			fail("the download should have failed");
+		}
+		catch (IOException ioe)
+		{
+			assertNotNull(download.getFailure());
+		}
+		assertTrue(Arrays.equals(Arrays.copyOf(content, 100 * 1024), read.toByteArray()));
+		assertEquals(2, server.getRequestCount());
+	}
+
+	/**
+	 * Test that the rest of a file which changed while it was being
+	 * downloaded is never joined onto the start of the old one
+	 */
+	@Test
+	public void testChangedFileNotResumed() throws Exception
+	{
+		server.setContent(content, "\"v1\"");
+		server.dropResponses(1, 100 * 1024);
+		StreamingDownload download = StreamingDownload.open(server.getUrl("/data.csv"), null, 2);
+		byte[] changed = content.clone();
+		changed[changed.length - 1]++;
+		server.setContent(changed, "\"v2\"");
+		ByteArrayOutputStream read = new ByteArrayOutputStream();
+		try
+		{
+			readAll(download, read);
+			fail("the download should have failed");
+		}
+		catch (IOException ioe)
+		{
+			assertNotNull(download.getFailure());
+		}
+		assertEquals(Arrays.asList("\"v1\""), server.getIfRanges());
+		assertEquals(100 * 1024, read.size());
+	}
+
+}
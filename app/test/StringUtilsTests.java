@@ -0,0 +1,175 @@
+import java.util.Random;
+
+import org.junit.Test;
+
+import base.BaseTestSuit;
+import static org.junit.Assert.*;
+
+import com.theEd209s.utils.StringUtils;
+
+/**
+ * This is some unit testing for the parsing of numbers straight out of a
+ * character buffer by the StringUtils
+ */
+public class StringUtilsTests extends BaseTestSuit
+{
+
+	private static final int INVALID_INT = -999;
+	private static final float INVALID_FLOAT = -999f;
+
+	@Override
+	public void setupDelegate()
+	{
+
+	}
+
+	/**
+	 * Parse the whole of the specified text as an int
+	 *
+	 * @param text
+	 *            the text to parse
+	 * @return the parsed int; or INVALID_INT
+	 */
+	private int parseInt(String text)
+	{
+		return StringUtils.parseInt(text.toCharArray(), 0, text.length(), INVALID_INT);
+	}
+
+	/**
+	 * Parse the whole of the specified text as a float
+	 *
+	 * @param text
+	 *            the text to parse
+	 * @return the parsed float; or INVALID_FLOAT
+	 */
+	private float parseFloat(String text)
+	{
+		return StringUtils.parseFloat(text.toCharArray(), 0, text.length(), INVALID_FLOAT);
+	}
+
+	/**
+	 * Check that the text parses to exactly the same float as
+	 * Float.parseFloat
+	 *
+	 * @param text
+	 *            the text to parse
+	 */
+	private void assertSameFloat(String text)
+	{
+		assertEquals(text, Float.floatToIntBits(Float.parseFloat(text)), Float.floatToIntBits(parseFloat(text)));
+		assertEquals(text, StringUtils.PARSE_OK, StringUtils.checkFloat(text.toCharArray(), 0, text.length()));
+	}
+
+	/**
+	 * Test the valid ints, including the limits and the signs
+	 */
+	@Test
+	public void testParseInt()
+	{
+		assertEquals(0, parseInt("0"));
+		assertEquals(123, parseInt("123"));
+		assertEquals(7, parseInt("+7"));
+		assertEquals(-42, parseInt("-42"));
+		assertEquals(42, parseInt("0042"));
+		assertEquals(-42, parseInt(" \t-42 "));
+		assertEquals(Integer.MAX_VALUE, parseInt("2147483647"));
+		assertEquals(Integer.MIN_VALUE, parseInt("-2147483648"));
+		// only the range is parsed
+		char[] chars = "x12,345y".toCharArray();
+		assertEquals(12, StringUtils.parseInt(chars, 1, 3, INVALID_INT));
+		assertEquals(345, StringUtils.parseInt(chars, 4, 7, INVALID_INT));
+		assertEquals(StringUtils.PARSE_OK, StringUtils.checkInt(chars, 4, 7));
+	}
+
+	/**
+	 * Test that the empty and invalid ints, including those which overflow,
+	 * give the invalid value rather than an exception
+	 */
+	@Test
+	public void testParseIntInvalid()
+	{
+		String[] invalid = new String[] { "-", "+", "+-1", "12a", "1 2", "1.0", "1e3", "0x10", "2147483648", "-2147483649", "99999999999999999999", "\u0661" };
+		for (String text : invalid)
+		{
+			assertEquals(text, INVALID_INT, parseInt(text));
+			assertEquals(text, StringUtils.PARSE_INVALID, StringUtils.checkInt(text.toCharArray(), 0, text.length()));
+		}
+		for (String text : new String[] { "", "   " })
+		{
+			assertEquals(INVALID_INT, parseInt(text));
+			assertEquals(StringUtils.PARSE_EMPTY, StringUtils.checkInt(text.toCharArray(), 0, text.length()));
+		}
+		assertEquals(INVALID_INT, StringUtils.parseInt("123".toCharArray(), 2, 2, INVALID_INT));
+	}
+
+	/**
+	 * Test that the valid floats are parsed to exactly the same value as
+	 * Float.parseFloat; both those converted directly and those which are
+	 * handed over to it
+	 */
+	@Test
+	public void testParseFloat()
+	{
+		String[] valid = new String[] { "0", "-0", "0.0", "1", "+1.5", "-12.5", ".5", "5.", "0.1", "2.35", "3.14159", "1234567", "0.0000000001", "1.5E3", "1.5e-3", "-2E+2", "16777217", "123456789.123", "0.1234567890123", "3.4028235E38", "1.4E-45", "1E39", "1E-50", " 2.5 " };
+		for (String text : valid)
+		{
+			assertSameFloat(text);
+		}
+		// only the range is parsed
+		char[] chars = "x1.25,-3y".toCharArray();
+		assertEquals(1.25f, StringUtils.parseFloat(chars, 1, 5, INVALID_FLOAT), 0f);
+		assertEquals(-3f, StringUtils.parseFloat(chars, 6, 8, INVALID_FLOAT), 0f);
+	}
+
+	/**
+	 * Test random rates and indexes, with up to 7 significant digits and 10
+	 * decimal places, against Float.parseFloat
+	 */
+	@Test
+	public void testParseFloatRandom()
+	{
+		Random random = new Random(1L);
+		for (int n = 0; n < 100000; n++)
+		{
+			int digits = 1 + random.nextInt(7);
+			long mantissa = (long) (random.nextDouble() * Math.pow(10, digits));
+			StringBuilder text = new StringBuilder(Long.toString(mantissa));
+			int decimals = random.nextInt(11);
+			while (text.length() <= decimals)
+			{
+				text.insert(0, '0');
+			}
+			if (decimals > 0)
+			{
+				text.insert(text.length() - decimals, '.');
+			}
+			if (random.nextBoolean())
+			{
+				text.insert(0, '-');
+			}
+			assertSameFloat(text.toString());
+			assertSameFloat(Float.toString(random.nextFloat() * (float) Math.pow(10, random.nextInt(20) - 10)));
+		}
+	}
+
+	/**
+	 * Test that the empty and invalid floats give the invalid value rather
+	 * than an exception; including those which Float.parseFloat would accept
+	 */
+	@Test
+	public void testParseFloatInvalid()
+	{
+		String[] invalid = new String[] { ".", "-", "+", "-.", "e5", "1e", "1e+", "1.2.3", "1,5", "abc", "1 2", "NaN", "Infinity", "-Infinity", "0x10", "0x1p3", "1f", "1d" };
+		for (String text : invalid)
+		{
+			assertEquals(text, INVALID_FLOAT, parseFloat(text), 0f);
+			assertEquals(text, StringUtils.PARSE_INVALID, StringUtils.checkFloat(text.toCharArray(), 0, text.length()));
+		}
+		for (String text : new String[] { "", " \t " })
+		{
+			assertEquals(INVALID_FLOAT, parseFloat(text), 0f);
+			assertEquals(StringUtils.PARSE_EMPTY, StringUtils.checkFloat(text.toCharArray(), 0, text.length()));
+		}
+	}
+
+}
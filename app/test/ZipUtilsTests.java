@@ -0,0 +1,269 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import models.NewHousingPriceIndex;
+
+import org.junit.After;
+import org.junit.Test;
+
+import base.BaseTestSuit;
+import static org.junit.Assert.*;
+
+import com.theEd209s.dataLoading.DataLoader;
+import com.theEd209s.dataLoading.dynamicLoaders.NewHousingPriceIndexLoader;
+import com.theEd209s.lookup.ReferenceDataRegistry;
+import com.theEd209s.utils.ZipUtils;
+import com.theEd209s.utils.ZipUtils.EntryFilter;
+import com.theEd209s.utils.ZipUtils.ZipEntryInputStream;
+
+/**
+ * This is some unit testing for reading a single entry of a zipped data file,
+ * without extracting the rest
+ */
+public class ZipUtilsTests extends BaseTestSuit
+{
+
+	private static final String DATA = "2013/04,Fake1,\"11\",Index,Total,2007=100,105.2\n2013/05,Fake2,\"22\",Index,Total,2007=100,98.1\n";
+	private static final String METADATA = "Footnotes:\n1,Source: Statistics Canada\n";
+
+	private File zip;
+
+	@Override
+	public void setupDelegate()
+	{
+		try
+		{
+			zip = File.createTempFile("zipUtilsTests_", ".zip");
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@After
+	public void teardown()
+	{
+		zip.delete();
+	}
+
+	/**
+	 * Write the zip file
+	 *
+	 * @param entries
+	 *            the name and then the content of each entry; a name ending
+	 *            with a slash is a directory, and has no content
+	 */
+	private void writeZip(String... entries) throws Exception
+	{
+		ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zip));
+		try
+		{
+			for (int n = 0; n < entries.length; n++)
+			{
+				zos.putNextEntry(new ZipEntry(entries[n]));
+				if (!entries[n].endsWith("/"))
+				{
+					zos.write(entries[++n].getBytes("UTF-8"));
+				}
+				zos.closeEntry();
+			}
+		}
+		finally
+		{
+			zos.close();
+		}
+	}
+
+	/**
+	 * A filter which accepts the entries with the extension
+	 *
+	 * @param extension
+	 *            the extension, such as ".csv"
+	 * @return the filter
+	 */
+	private EntryFilter extension(final String extension)
+	{
+		return new EntryFilter()
+		{
+			@Override
+			public boolean accept(ZipEntry entry)
+			{
+				return entry.getName().endsWith(extension);
+			}
+		};
+	}
+
+	/**
+	 * Read the rest of the stream
+	 *
+	 * @param entryStream
+	 *            the stream to read
+	 * @return the content which was read
+	 */
+	private String read(ZipEntryInputStream entryStream) throws Exception
+	{
+		ByteArrayOutputStream read = new ByteArrayOutputStream();
+		byte[] buffer = new byte[100];
+		int count = 0;
+		while ((count = entryStream.read(buffer)) != -1)
+		{
+			read.write(buffer, 0, count);
+		}
+		return read.toString("UTF-8");
+	}
+
+	/**
+	 * @param entryStream
+	 *            the stream of an entry
+	 * @return the zip file which the entry was opened from
+	 */
+	private ZipFile zipFileOf(ZipEntryInputStream entryStream) throws Exception
+	{
+		Field field = ZipEntryInputStream.class.getDeclaredField("zipFile");
+		field.setAccessible(true);
+		return (ZipFile) field.get(entryStream);
+	}
+
+	/**
+	 * Test that only the accepted entry is opened, skipping the directories
+	 * and the entries before it, and that closing its stream closes the zip
+	 * file
+	 */
+	@Test
+	public void testOpenEntry() throws Exception
+	{
+		writeZip("data/", "metadata.txt", METADATA, "data/data.csv", DATA, "other.csv", METADATA);
+
+		ZipEntryInputStream entryStream = ZipUtils.openEntry(zip, extension(".csv"));
+		assertNotNull(entryStream);
+		ZipFile zipFile = zipFileOf(entryStream);
+		try
+		{
+			assertEquals("data/data.csv", entryStream.getEntry().getName());
+			assertEquals(DATA, read(entryStream));
+			assertEquals(4, zipFile.size());
+		}
+		finally
+		{
+			entryStream.close();
+		}
+		try
+		{
+			zipFile.size();
+			fail("the zip file should have been closed");
+		}
+		catch (IllegalStateException ise)
+		{
+			// closed
+		}
+
+		// without a filter the first entry which is not a directory is opened
+		entryStream = ZipUtils.openEntry(zip, null);
+		try
+		{
+			assertEquals("metadata.txt", entryStream.getEntry().getName());
+			assertEquals(METADATA, read(entryStream));
+		}
+		finally
+		{
+			entryStream.close();
+		}
+	}
+
+	/**
+	 * Test that nothing is opened if no entry is accepted
+	 */
+	@Test
+	public void testNoMatch() throws Exception
+	{
+		writeZip("data/", "metadata.txt", METADATA);
+		assertNull(ZipUtils.openEntry(zip, extension(".csv")));
+		assertNull(ZipUtils.openEntry(zip, extension("/")));
+	}
+
+	/**
+	 * Test that a streaming loader parses the first entry of a zipped file
+	 * as it is decompressed
+	 */
+	@Test
+	public void testLoaderStreamsEntry() throws Exception
+	{
+		ReferenceDataRegistry.reload();
+		writeZip("data.csv", DATA, "metadata.txt", METADATA);
+		NewHousingPriceIndexLoader loader = new NewHousingPriceIndexLoader(zip, false);
+		loader.parseFile();
+		assertFalse(loader.hasFailed());
+		assertEquals(2, NewHousingPriceIndex.find.findRowCount());
+	}
+
+	/**
+	 * Test that a loader which only parses files has the entry alone
+	 * extracted to a temporary file, which is deleted once parsed; and that
+	 * a zipped file without an entry fails the load
+	 */
+	@Test
+	public void testLoaderExtractsEntry() throws Exception
+	{
+		writeZip("data/", "data.csv", DATA, "metadata.txt", METADATA);
+		FileLoader loader = new FileLoader(zip);
+		loader.parseFile();
+		assertFalse(loader.hasFailed());
+		assertEquals(1, loader.parsed.size());
+		assertTrue(loader.parsed.get(0).getName().endsWith("_data.csv"));
+		assertEquals(DATA, loader.content);
+		assertFalse(loader.parsed.get(0).exists());
+
+		writeZip("data/");
+		loader = new FileLoader(zip);
+		loader.parseFile();
+		assertTrue(loader.hasFailed());
+		assertTrue(loader.parsed.isEmpty());
+	}
+
+	/**
+	 * A loader which reads the whole of each file it is given to parse
+	 */
+	private static class FileLoader extends DataLoader
+	{
+
+		private final List<File> parsed = new ArrayList<File>();
+		private String content = null;
+
+		private FileLoader(File sourceFile)
+		{
+			super(sourceFile, true);
+		}
+
+		@Override
+		protected int parseFile(File downloadedFile) throws Throwable
+		{
+			parsed.add(downloadedFile);
+			content = new String(Files.readAllBytes(downloadedFile.toPath()), "UTF-8");
+			return 0;
+		}
+
+		@Override
+		protected void downloadFailed()
+		{
+
+		}
+
+		@Override
+		protected void parseFailed()
+		{
+
+		}
+
+	}
+
+}
@@ -0,0 +1,275 @@
+package base;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * This is a local HTTP server for the download tests; it serves a single file
+ * at every path, and can be told to ignore or misreport <code>Range</code>
+ * requests and to drop connections part way through a response, optionally
+ * changing the file when it does. A
+ * <code>Range</code> request whose <code>If-Range</code> does not match the
+ * ETag of the file is answered with the whole file.
+ */
+public class StubHttpServer implements HttpHandler
+{
+
+	/**
+	 * How the server answers a <code>Range</code> request
+	 */
+	public enum RangeMode
+	{
+		/** with the requested bytes */
+		HONOURED,
+		/** with the whole file */
+		IGNORED,
+		/** with a 206 which starts at the first byte of the file */
+		MISALIGNED
+	}
+
+	private final HttpServer server;
+	private final List<String> ranges = Collections.synchronizedList(new ArrayList<String>());
+	private final List<String> ifRanges = Collections.synchronizedList(new ArrayList<String>());
+	private volatile byte[] content;
+	private volatile String eTag;
+	private volatile RangeMode rangeMode = RangeMode.HONOURED;
+	private byte[] changedContent = null;
+	private String changedETag = null;
+	private int dropsLeft = 0;
+	private int dropAfter = 0;
+	private int requestCount = 0;
+	private int notModifiedCount = 0;
+
+	/**
+	 * Start a server on a free local port
+	 *
+	 * @param content
+	 *            the file to serve
+	 * @param eTag
+	 *            the ETag of the file; or null to send none
+	 */
+	public StubHttpServer(byte[] content, String eTag) throws IOException
+	{
+		this.content = content;
+		this.eTag = eTag;
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", this);
+		// The segmented downloads open several connections at once.
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+	}
+
+	/**
+	 * Stop the server
+	 */
+	public void stop()
+	{
+		server.stop(0);
+	}
+
+	/**
+	 * @param path
+	 *            the path of the file; such as "/data.csv"
+	 * @return the url of the file
+	 */
+	public URL getUrl(String path) throws IOException
+	{
+		return new URL("http", "localhost", server.getAddress().getPort(), path);
+	}
+
+	/**
+	 * Replace the file which is served
+	 *
+	 * @param content
+	 *            the file to serve
+	 * @param eTag
+	 *            the ETag of the file; or null to send none
+	 */
+	public void setContent(byte[] content, String eTag)
+	{
+		this.content = content;
+		this.eTag = eTag;
+	}
+
+	/**
+	 * @param rangeMode
+	 *            how Range requests are answered
+	 */
+	public void setRangeMode(RangeMode rangeMode)
+	{
+		this.rangeMode = rangeMode;
+	}
+
+	/**
+	 * Cut the next responses short; the connection is closed once the
+	 * specified number of bytes of the body have been sent
+	 *
+	 * @param count
+	 *            the number of responses to cut short
+	 * @param afterBytes
+	 *            the number of bytes to send before closing
+	 */
+	public synchronized void dropResponses(int count, int afterBytes)
+	{
+		dropsLeft = count;
+		dropAfter = afterBytes;
+	}
+
+	/**
+	 * Replace the file which is served once the next response has been cut
+	 * short; so that the file changes part way through a download
+	 *
+	 * @param content
+	 *            the file to serve
+	 * @param eTag
+	 *            the ETag of the file; or null to send none
+	 */
+	public synchronized void changeContentOnDrop(byte[] content, String eTag)
+	{
+		changedContent = content;
+		changedETag = eTag;
+	}
+
+	/**
+	 * @return the number of requests served, including the 304s
+	 */
+	public synchronized int getRequestCount()
+	{
+		return requestCount;
+	}
+
+	/**
+	 * @return the number of requests answered with a 304
+	 */
+	public synchronized int getNotModifiedCount()
+	{
+		return notModifiedCount;
+	}
+
+	/**
+	 * @return the Range header of each request which had one, in order
+	 */
+	public List<String> getRanges()
+	{
+		synchronized (ranges)
+		{
+			return new ArrayList<String>(ranges);
+		}
+	}
+
+	/**
+	 * @return the If-Range header of each request which had a Range, in
+	 *         order; null for those without one
+	 */
+	public List<String> getIfRanges()
+	{
+		synchronized (ifRanges)
+		{
+			return new ArrayList<String>(ifRanges);
+		}
+	}
+
+	@Override
+	public void handle(HttpExchange exchange) throws IOException
+	{
+		try
+		{
+			final byte[] body = content;
+			final String tag = eTag;
+			final String range = exchange.getRequestHeaders().getFirst("Range");
+			boolean partial = false;
+			int first = 0;
+			int last = body.length - 1;
+			if (range != null)
+			{
+				ranges.add(range);
+				final String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+				ifRanges.add(ifRange);
+				final Matcher matcher = RANGE.matcher(range);
+				if (!matcher.matches())
+				{
+					exchange.sendResponseHeaders(416, -1);
+					return;
+				}
+				// the range is only of the file which the client already has part of
+				final boolean sameFile = (ifRange == null) || ifRange.equals(tag);
+				if ((rangeMode != RangeMode.IGNORED) && sameFile)
+				{
+					partial = true;
+					if (rangeMode == RangeMode.HONOURED)
+					{
+						first = Integer.parseInt(matcher.group(1));
+					}
+					if (!matcher.group(2).isEmpty())
+					{
+						last = Math.min(last, Integer.parseInt(matcher.group(2)));
+					}
+				}
+			}
+			final int length = last - first + 1;
+			int cutAfter = -1;
+			synchronized (this)
+			{
+				requestCount++;
+				if ((tag != null) && tag.equals(exchange.getRequestHeaders().getFirst("If-None-Match")))
+				{
+					notModifiedCount++;
+					exchange.sendResponseHeaders(304, -1);
+					return;
+				}
+				// Only a response which is longer than the cut can be cut short.
+				if ((dropsLeft > 0) && (dropAfter < length))
+				{
+					dropsLeft--;
+					cutAfter = dropAfter;
+					if (changedContent != null)
+					{
+						setContent(changedContent, changedETag);
+						changedContent = null;
+					}
+				}
+			}
+			if (tag != null)
+			{
+				exchange.getResponseHeaders().add("ETag", tag);
+			}
+			if (partial)
+			{
+				exchange.getResponseHeaders().add("Content-Range", "bytes " + first + "-" + last + "/" + body.length);
+				exchange.sendResponseHeaders(206, length);
+			}
+			else
+			{
+				exchange.sendResponseHeaders(200, length);
+			}
+			final OutputStream os = exchange.getResponseBody();
+			if (cutAfter >= 0)
+			{
+				os.write(body, first, cutAfter);
+				os.flush();
+				// Closing the exchange before the whole body is sent drops the connection.
+				return;
+			}
+			os.write(body, first, length);
+		}
+		finally
+		{
+			exchange.close();
+		}
+	}
+
+	private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+}